@@ -0,0 +1,123 @@
+package com.uber.nullaway.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Sends a request to a {@link CheckServer} listening on a local port and prints the diagnostics in
+ * the format of javac, or the raw response with {@code --json}. Exits with status 1 if the check
+ * failed.
+ *
+ * <p>Usage: {@code CheckClient --port <port> [--classpath <path>] [--output <dir>] [--json]
+ * <source>... [-- <option>...]}, where the options after {@code --} are passed on to javac and
+ * Error Prone, or {@code CheckClient --port <port> --shutdown} to stop the server. Relative paths
+ * are resolved against the working directory of the client.
+ */
+public final class CheckClient {
+
+  private static final String USAGE =
+      "Invalid arguments. Required: --port <port> [--classpath <path>] [--output <dir>] [--json]"
+          + " <source>... [-- <option>...] | --port <port> --shutdown";
+
+  private CheckClient() {}
+
+  public static void main(String[] args) throws IOException {
+    int port = -1;
+    boolean json = false;
+    boolean shutdown = false;
+    @Nullable String outputDirectory = null;
+    List<String> classpath = new ArrayList<>();
+    List<String> sources = new ArrayList<>();
+    List<String> options = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--port" -> port = Integer.parseInt(requireValue(args, ++i));
+        case "--classpath" -> {
+          for (String entry : requireValue(args, ++i).split(File.pathSeparator, -1)) {
+            if (!entry.isEmpty()) {
+              classpath.add(absolute(entry));
+            }
+          }
+        }
+        case "--output" -> outputDirectory = absolute(requireValue(args, ++i));
+        case "--json" -> json = true;
+        case "--shutdown" -> shutdown = true;
+        case "--" -> {
+          options.addAll(List.of(args).subList(i + 1, args.length));
+          i = args.length;
+        }
+        default -> sources.add(absolute(args[i]));
+      }
+    }
+    if (port < 0 || (shutdown != sources.isEmpty())) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    Protocol.Request request =
+        shutdown
+            ? Protocol.Request.shutdown(null)
+            : Protocol.Request.check(null, sources, classpath, options, outputDirectory);
+    Protocol.Response response = send(port, request);
+    if (json) {
+      System.out.println(Protocol.write(response));
+    } else {
+      for (Protocol.Diagnostic diagnostic : response.diagnostics()) {
+        System.err.println(diagnostic);
+      }
+      if (response.error() != null) {
+        System.err.println(response.error());
+      }
+    }
+    if (!response.success()) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Sends a request to a server and waits for the response.
+   *
+   * @param port the port of the server on the loopback interface
+   * @param request the request
+   * @return the response
+   * @throws IOException if the server cannot be reached or closes the connection early
+   */
+  public static Protocol.Response send(int port, Protocol.Request request) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      out.write(Protocol.write(request));
+      out.write('\n');
+      out.flush();
+      BufferedReader in =
+          new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      String line = in.readLine();
+      if (line == null) {
+        throw new IOException("server closed the connection without a response");
+      }
+      return Protocol.readResponse(line);
+    }
+  }
+
+  private static String requireValue(String[] args, int i) {
+    if (i >= args.length) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    return args[i];
+  }
+
+  private static String absolute(String path) {
+    return Paths.get(path).toAbsolutePath().toString();
+  }
+}
@@ -0,0 +1,121 @@
+package com.uber.nullaway.server;
+
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A long-running process that compiles and checks sources with NullAway on request, so that
+ * successive checks of a project skip the startup of the JVM, javac and Error Prone, and the
+ * loading of library models. See {@link WarmChecker} for what is kept between requests.
+ *
+ * <p>Requests and responses are lines of JSON, as described in {@link Protocol}. The server reads
+ * them either from standard input, writing responses to standard output, or from connections to a
+ * TCP port on the loopback interface, serving one connection at a time. It stops on a {@link
+ * Protocol#SHUTDOWN} request, or at the end of standard input.
+ *
+ * <p>Usage: {@code java -jar check-server.jar (--stdio | --port <port>)}. With {@code --port}, the
+ * server prints the port it listens on to standard output; port 0 picks a free port. {@link
+ * CheckClient} sends requests from the command line. Custom library models must be on the classpath
+ * of the server, rather than on the {@code -processorpath} of requests; see {@link WarmChecker}.
+ */
+public final class CheckServer {
+
+  private CheckServer() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 1 && args[0].equals("--stdio")) {
+      try (WarmChecker checker = new WarmChecker()) {
+        serve(
+            new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8),
+            checker);
+      }
+    } else if (args.length == 2 && args[0].equals("--port")) {
+      try (WarmChecker checker = new WarmChecker();
+          ServerSocket serverSocket =
+              new ServerSocket(Integer.parseInt(args[1]), 0, InetAddress.getLoopbackAddress())) {
+        System.out.println("Listening on port " + serverSocket.getLocalPort());
+        System.out.flush();
+        serve(serverSocket, checker);
+      }
+    } else {
+      System.err.println("Invalid arguments. Required: --stdio | --port <port>");
+      System.exit(2);
+    }
+  }
+
+  /**
+   * Serves the connections to a server socket, one at a time, until a {@link Protocol#SHUTDOWN}
+   * request.
+   *
+   * @param serverSocket the socket to accept connections from
+   * @param checker the checker for the requests
+   */
+  static void serve(ServerSocket serverSocket, WarmChecker checker) {
+    boolean shutdown = false;
+    while (!shutdown) {
+      try (Socket socket = serverSocket.accept()) {
+        shutdown =
+            serve(
+                new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)),
+                new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                checker);
+      } catch (IOException e) {
+        // a client going away must not stop the server
+        System.err.println("Connection failed: " + e);
+      }
+    }
+  }
+
+  /**
+   * Serves requests until the end of the input or a {@link Protocol#SHUTDOWN} request.
+   *
+   * @param in the requests, one per line
+   * @param out where to write the responses, one per line
+   * @param checker the checker for the requests
+   * @return true if the server should stop, i.e., a shutdown was requested
+   * @throws IOException if reading or writing fails
+   */
+  static boolean serve(BufferedReader in, Writer out, WarmChecker checker) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      Protocol.Response response;
+      boolean shutdown = false;
+      try {
+        Protocol.Request request = Protocol.readRequest(line);
+        String command = request.command() == null ? Protocol.CHECK : request.command();
+        switch (command) {
+          case Protocol.CHECK -> response = checker.check(request);
+          case Protocol.SHUTDOWN -> {
+            response = new Protocol.Response(request.id(), true, List.of(), 0, null);
+            shutdown = true;
+          }
+          default ->
+              response = Protocol.Response.failure(request.id(), "unknown command " + command);
+        }
+      } catch (JsonParseException e) {
+        response = Protocol.Response.failure(null, "malformed request: " + e.getMessage());
+      }
+      out.write(Protocol.write(response));
+      out.write('\n');
+      out.flush();
+      if (shutdown) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,142 @@
+package com.uber.nullaway.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.util.List;
+import java.util.Locale;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Messages exchanged with a {@link CheckServer}. Each message is a JSON object on a single line;
+ * the server answers every request with exactly one response, in order.
+ */
+public final class Protocol {
+
+  /** Command to compile and check sources; the default if a request has no command. */
+  public static final String CHECK = "check";
+
+  /** Command to stop the server, after answering the request. */
+  public static final String SHUTDOWN = "shutdown";
+
+  private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
+  /**
+   * A request to the server.
+   *
+   * @param id an identifier echoed in the response, or null
+   * @param command {@link #CHECK}, {@link #SHUTDOWN}, or null for {@link #CHECK}
+   * @param sources paths of the Java sources to compile
+   * @param classpath entries of the compilation classpath
+   * @param options further javac and Error Prone options, e.g., {@code
+   *     -XepOpt:NullAway:AnnotatedPackages=com.example}
+   * @param outputDirectory directory for class files, or null to only check the sources
+   */
+  public record Request(
+      @Nullable String id,
+      @Nullable String command,
+      @Nullable List<String> sources,
+      @Nullable List<String> classpath,
+      @Nullable List<String> options,
+      @Nullable String outputDirectory) {
+
+    /** Returns a request to check sources. */
+    public static Request check(
+        @Nullable String id,
+        List<String> sources,
+        List<String> classpath,
+        List<String> options,
+        @Nullable String outputDirectory) {
+      return new Request(id, CHECK, sources, classpath, options, outputDirectory);
+    }
+
+    /** Returns a request to stop the server. */
+    public static Request shutdown(@Nullable String id) {
+      return new Request(id, SHUTDOWN, null, null, null, null);
+    }
+  }
+
+  /**
+   * A diagnostic reported by javac or a checker.
+   *
+   * @param kind the kind of the diagnostic, e.g., {@code ERROR} or {@code WARNING}
+   * @param code the javac diagnostic key, or null
+   * @param message the message, which starts with the name of the check for Error Prone checks
+   * @param source path of the source file, or null if the diagnostic is not tied to a file
+   * @param line line number, starting at 1, or 0 if unknown
+   * @param column column number, starting at 1, or 0 if unknown
+   */
+  public record Diagnostic(
+      String kind,
+      @Nullable String code,
+      String message,
+      @Nullable String source,
+      long line,
+      long column) {
+
+    @Override
+    public String toString() {
+      String location = source == null ? "" : source + ":" + line + ":" + column + ": ";
+      return location + kind.toLowerCase(Locale.ROOT) + ": " + message;
+    }
+  }
+
+  /**
+   * The response to a request.
+   *
+   * @param id the identifier of the request
+   * @param success whether the compilation succeeded, i.e., reported no errors
+   * @param diagnostics the diagnostics of the compilation
+   * @param timeMillis time spent serving the request
+   * @param error why the request could not be served, or null
+   */
+  public record Response(
+      @Nullable String id,
+      boolean success,
+      List<Diagnostic> diagnostics,
+      long timeMillis,
+      @Nullable String error) {
+
+    /** Returns the response to a request that could not be served. */
+    public static Response failure(@Nullable String id, String error) {
+      return new Response(id, false, List.of(), 0, error);
+    }
+  }
+
+  private Protocol() {}
+
+  /**
+   * Reads a request.
+   *
+   * @param line a line of JSON
+   * @return the request
+   * @throws JsonParseException if the line is not a valid request
+   */
+  public static Request readRequest(String line) {
+    Request request = GSON.fromJson(line, Request.class);
+    if (request == null) {
+      throw new JsonParseException("empty request");
+    }
+    return request;
+  }
+
+  /**
+   * Reads a response.
+   *
+   * @param line a line of JSON
+   * @return the response
+   * @throws JsonParseException if the line is not a valid response
+   */
+  public static Response readResponse(String line) {
+    Response response = GSON.fromJson(line, Response.class);
+    if (response == null) {
+      throw new JsonParseException("empty response");
+    }
+    return response;
+  }
+
+  /** Writes a message as a single line of JSON, without the line terminator. */
+  public static String write(Object message) {
+    return GSON.toJson(message);
+  }
+}
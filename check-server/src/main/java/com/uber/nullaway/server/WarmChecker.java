@@ -0,0 +1,212 @@
+package com.uber.nullaway.server;
+
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.uber.nullaway.NullAway;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Runs compilations checked by NullAway, keeping as much state as is safe to share from one
+ * compilation to the next.
+ *
+ * <p>Error Prone and NullAway are loaded once, through the class loader of the server, and NullAway
+ * keeps its library models across compilations (see {@code ReuseLibraryModels}). The file manager
+ * is also shared, so jars on the classpath are only opened and indexed once. javac configures the
+ * file manager it is given from options such as {@code -sourcepath}, {@code -processorpath} and
+ * {@code -encoding}, and that configuration would outlive the request; the file manager is thus
+ * recreated when a request has other such options than the previous one, and when a jar of the
+ * classpath changes on disk. The classpath and the output directory are set for every request.
+ * Symbol tables are not shared: each compilation reads the class files it needs again, since
+ * NullAway keeps per-compilation state keyed by the javac context.
+ *
+ * <p>Since Error Prone and NullAway come from the class loader of the server, so do the plugins
+ * they load through {@link java.util.ServiceLoader}: custom {@code LibraryModels} and JarInfer
+ * models must be on the classpath of the server, as the {@code -processorpath} of a request is
+ * not searched for them.
+ *
+ * <p>Not thread safe; callers must serialize calls to {@link #check}.
+ */
+public final class WarmChecker implements Closeable {
+
+  /** Options added before those of each request, which may override them. */
+  private static final List<String> DEFAULT_OPTIONS =
+      List.of("-XDcompilePolicy=simple", "--should-stop=ifError=FLOW", "-Xep:NullAway:ERROR");
+
+  /** Options added after those of each request. */
+  private static final List<String> FORCED_OPTIONS =
+      List.of("-XepOpt:NullAway:ReuseLibraryModels=true");
+
+  private final JavaCompiler compiler =
+      new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(NullAway.class));
+
+  private @Nullable StandardJavaFileManager fileManager;
+
+  /**
+   * The options that configured {@link #fileManager}, with their arguments; null while it has not
+   * been used by a compilation.
+   */
+  private @Nullable List<String> fileManagerOptions;
+
+  /** Last modification times of the classpath jars seen by {@link #fileManager}. */
+  private final Map<Path, FileTime> jarTimestamps = new HashMap<>();
+
+  /**
+   * Compiles and checks the sources of a request.
+   *
+   * @param request the request
+   * @return the response, with the diagnostics of the compilation
+   */
+  public Protocol.Response check(Protocol.Request request) {
+    long start = System.nanoTime();
+    List<String> sources = request.sources();
+    if (sources == null || sources.isEmpty()) {
+      return Protocol.Response.failure(request.id(), "no sources");
+    }
+    List<Path> classpath = new ArrayList<>();
+    if (request.classpath() != null) {
+      for (String entry : request.classpath()) {
+        classpath.add(Paths.get(entry));
+      }
+    }
+    List<String> options = new ArrayList<>(DEFAULT_OPTIONS);
+    if (request.outputDirectory() == null) {
+      // run NullAway, which runs after flow analysis, but skip desugaring and code generation
+      options.add("--should-stop=ifNoError=FLOW");
+    }
+    if (request.options() != null) {
+      options.addAll(request.options());
+    }
+    options.addAll(FORCED_OPTIONS);
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    StringWriter output = new StringWriter();
+    boolean success;
+    try {
+      StandardJavaFileManager manager = getFileManager(classpath, options);
+      manager.setLocationFromPaths(StandardLocation.CLASS_PATH, classpath);
+      if (request.outputDirectory() != null) {
+        Path outputDirectory = Paths.get(request.outputDirectory());
+        Files.createDirectories(outputDirectory);
+        manager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(outputDirectory));
+      } else {
+        // back to the default, rather than the directory of an earlier request
+        manager.setLocation(StandardLocation.CLASS_OUTPUT, null);
+      }
+      Iterable<? extends JavaFileObject> units = manager.getJavaFileObjectsFromStrings(sources);
+      success = compiler.getTask(output, manager, diagnostics, options, null, units).call();
+    } catch (IOException | RuntimeException e) {
+      // invalid options and paths are reported as exceptions; the server must survive them
+      return Protocol.Response.failure(request.id(), String.valueOf(e.getMessage()));
+    }
+    List<Protocol.Diagnostic> results = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      results.add(toDiagnostic(diagnostic));
+    }
+    long timeMillis = (System.nanoTime() - start) / 1_000_000;
+    // javac only prints counts of errors and warnings here, unless it failed without diagnostics
+    String error = success || !results.isEmpty() ? null : output.toString().strip();
+    return new Protocol.Response(request.id(), success, results, timeMillis, error);
+  }
+
+  /**
+   * Returns the shared file manager, first recreating it if a jar of the classpath changed since it
+   * was last read, or if the options that configure it differ from those of the last request.
+   */
+  private StandardJavaFileManager getFileManager(List<Path> classpath, List<String> options)
+      throws IOException {
+    StandardJavaFileManager manager = fileManager;
+    if (manager == null) {
+      manager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+    }
+    List<String> newOptions = fileManagerOptions(manager, options);
+    boolean changed = fileManagerOptions != null && !fileManagerOptions.equals(newOptions);
+    for (Path entry : classpath) {
+      if (Files.isRegularFile(entry)) {
+        FileTime time = Files.getLastModifiedTime(entry);
+        FileTime previous = jarTimestamps.put(entry, time);
+        changed |= previous != null && !previous.equals(time);
+      }
+    }
+    if (changed) {
+      manager.close();
+      manager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+    }
+    fileManager = manager;
+    fileManagerOptions = newOptions;
+    return manager;
+  }
+
+  /**
+   * Returns the options that javac applies to the file manager, with their arguments, in order.
+   * These are those the file manager supports, like {@code -sourcepath} or {@code --module-path},
+   * and {@code --release}, which sets the platform classes.
+   */
+  private static List<String> fileManagerOptions(
+      StandardJavaFileManager manager, List<String> options) {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < options.size(); i++) {
+      String option = options.get(i);
+      int argCount =
+          option.startsWith("--release") ? 1 : manager.isSupportedOption(option.split("=", 2)[0]);
+      if (argCount >= 0 && option.startsWith("--") && option.contains("=")) {
+        // the argument is part of the option, as in --module-path=<path>
+        argCount = 0;
+      }
+      if (argCount >= 0) {
+        result.addAll(options.subList(i, Math.min(i + 1 + argCount, options.size())));
+        i += argCount;
+      }
+    }
+    return result;
+  }
+
+  private static Protocol.Diagnostic toDiagnostic(Diagnostic<? extends JavaFileObject> diagnostic) {
+    JavaFileObject source = diagnostic.getSource();
+    String path = null;
+    if (source != null) {
+      path =
+          "file".equals(source.toUri().getScheme())
+              ? Paths.get(source.toUri()).toString()
+              : source.getName();
+    }
+    return new Protocol.Diagnostic(
+        diagnostic.getKind().name(),
+        diagnostic.getCode(),
+        diagnostic.getMessage(Locale.ROOT),
+        path,
+        Math.max(diagnostic.getLineNumber(), 0),
+        Math.max(diagnostic.getColumnNumber(), 0));
+  }
+
+  @Override
+  public void close() {
+    if (fileManager != null) {
+      try {
+        fileManager.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      fileManager = null;
+      fileManagerOptions = null;
+    }
+  }
+}
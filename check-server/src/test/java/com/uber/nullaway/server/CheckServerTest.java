@@ -0,0 +1,190 @@
+package com.uber.nullaway.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckServerTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private WarmChecker checker;
+
+  private Path source;
+
+  @Before
+  public void setup() throws IOException {
+    checker = new WarmChecker();
+    source = temporaryFolder.newFolder("src").toPath().resolve("Test.java");
+  }
+
+  @After
+  public void tearDown() {
+    checker.close();
+  }
+
+  @Test
+  public void reportsNullAwayErrors() throws Exception {
+    writeSource("o.hashCode()");
+    Protocol.Response response = checker.check(request("1"));
+    assertEquals("1", response.id());
+    assertFalse(response.success());
+    assertEquals(1, response.diagnostics().size());
+    Protocol.Diagnostic diagnostic = response.diagnostics().get(0);
+    assertEquals("ERROR", diagnostic.kind());
+    assertTrue(
+        diagnostic.message(),
+        diagnostic.message().contains("[NullAway] dereferenced expression o is @Nullable"));
+    assertEquals(source.toString(), diagnostic.source());
+    assertEquals(6, diagnostic.line());
+  }
+
+  @Test
+  public void reusesCheckerAcrossRequests() throws Exception {
+    writeSource("o.hashCode()");
+    assertFalse(checker.check(request("1")).success());
+    writeSource("o == null ? 0 : o.hashCode()");
+    Protocol.Response response = checker.check(request("2"));
+    assertTrue(String.valueOf(response.diagnostics()), response.success());
+    assertTrue(response.diagnostics().isEmpty());
+    assertNull(response.error());
+  }
+
+  @Test
+  public void writesClassFilesToOutputDirectory() throws Exception {
+    writeSource("o == null ? 0 : o.hashCode()");
+    Path output = temporaryFolder.getRoot().toPath().resolve("classes");
+    Protocol.Request request =
+        Protocol.Request.check(
+            "1", List.of(source.toString()), classpath(), options(), output.toString());
+    assertTrue(checker.check(request).success());
+    assertTrue(Files.exists(output.resolve("com/example/Test.class")));
+  }
+
+  @Test
+  public void doesNotKeepFileManagerOptionsOfEarlierRequests() throws Exception {
+    Path sourcepath = temporaryFolder.newFolder("sourcepath").toPath();
+    Files.createDirectories(sourcepath.resolve("com/example"));
+    Files.writeString(
+        sourcepath.resolve("com/example/Helper.java"),
+        "package com.example; public class Helper {}",
+        StandardCharsets.UTF_8);
+    writeSource("new Helper().hashCode()");
+    List<String> withSourcepath = new ArrayList<>(options());
+    withSourcepath.addAll(List.of("-sourcepath", sourcepath.toString()));
+    Protocol.Request request =
+        Protocol.Request.check("1", List.of(source.toString()), classpath(), withSourcepath, null);
+    Protocol.Response response = checker.check(request);
+    assertTrue(String.valueOf(response.diagnostics()), response.success());
+    // without -sourcepath, Helper must not be found through the sourcepath of the first request
+    response = checker.check(request("2"));
+    assertFalse(response.success());
+    assertEquals(1, response.diagnostics().size());
+    assertEquals("compiler.err.cant.resolve.location", response.diagnostics().get(0).code());
+  }
+
+  @Test
+  public void servesRequestsOverPort() throws Exception {
+    writeSource("o.hashCode()");
+    try (ServerSocket serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+      Thread server = new Thread(() -> CheckServer.serve(serverSocket, checker));
+      server.start();
+      int port = serverSocket.getLocalPort();
+      Protocol.Response response = CheckClient.send(port, request("1"));
+      assertEquals("1", response.id());
+      assertFalse(response.success());
+      assertEquals(1, response.diagnostics().size());
+      assertEquals(source.toString(), response.diagnostics().get(0).source());
+      // each request is sent on a connection of its own
+      writeSource("o == null ? 0 : o.hashCode()");
+      assertTrue(CheckClient.send(port, request("2")).success());
+      Protocol.Response stop = CheckClient.send(port, Protocol.Request.shutdown("3"));
+      assertEquals("3", stop.id());
+      assertTrue(stop.success());
+      server.join(10_000);
+      assertFalse(server.isAlive());
+    }
+  }
+
+  @Test
+  public void servesRequestsUntilShutdown() throws Exception {
+    writeSource("o.hashCode()");
+    String requests =
+        Protocol.write(request("1"))
+            + "\n"
+            + "{not json\n"
+            + Protocol.write(Protocol.Request.shutdown("2"))
+            + "\n"
+            + Protocol.write(request("3"))
+            + "\n";
+    StringWriter out = new StringWriter();
+    boolean shutdown =
+        CheckServer.serve(new BufferedReader(new StringReader(requests)), out, checker);
+    assertTrue(shutdown);
+    List<String> lines = out.toString().lines().toList();
+    // the request after the shutdown is not served
+    assertEquals(3, lines.size());
+    Protocol.Response check = Protocol.readResponse(lines.get(0));
+    assertEquals("1", check.id());
+    assertFalse(check.success());
+    assertEquals(1, check.diagnostics().size());
+    Protocol.Response malformed = Protocol.readResponse(lines.get(1));
+    assertFalse(malformed.success());
+    assertTrue(malformed.error(), malformed.error().startsWith("malformed request"));
+    Protocol.Response stop = Protocol.readResponse(lines.get(2));
+    assertEquals("2", stop.id());
+    assertTrue(stop.success());
+  }
+
+  private void writeSource(String expression) throws IOException {
+    String contents =
+        """
+        package com.example;
+        import org.jspecify.annotations.Nullable;
+        public class Test {
+          @Nullable Object o;
+          int hash() {
+            return %s;
+          }
+        }
+        """
+            .formatted(expression);
+    Files.writeString(source, contents, StandardCharsets.UTF_8);
+  }
+
+  private Protocol.Request request(@Nullable String id) throws URISyntaxException {
+    return Protocol.Request.check(id, List.of(source.toString()), classpath(), options(), null);
+  }
+
+  private static List<String> classpath() throws URISyntaxException {
+    // the jar with the JSpecify annotations
+    return List.of(
+        Paths.get(Nullable.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            .toString());
+  }
+
+  private static List<String> options() {
+    return List.of("-XepOpt:NullAway:AnnotatedPackages=com.example");
+  }
+}
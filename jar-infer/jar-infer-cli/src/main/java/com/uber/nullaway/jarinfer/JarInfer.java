@@ -16,6 +16,7 @@
 package com.uber.nullaway.jarinfer;
 
 import java.io.File;
+import java.nio.file.Paths;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -72,6 +73,33 @@ public class JarInfer {
             .longOpt("strip-jar-signatures")
             .desc("handle signed jars by removing signature information from META-INF/")
             .build());
+    options.addOption(
+        Option.builder("t")
+            .argName("num_threads")
+            .longOpt("threads")
+            .hasArg()
+            .desc("number of threads used to analyze methods (default: 1)")
+            .build());
+    options.addOption(
+        Option.builder("c")
+            .argName("cache_dir")
+            .longOpt("cache-dir")
+            .hasArg()
+            .desc("directory caching results per class, to only analyze changed classes on re-runs")
+            .build());
+    options.addOption(
+        Option.builder("r")
+            .argName("interprocedural")
+            .longOpt("interprocedural")
+            .desc("propagate inferred nullness across calls, bottom-up over the call graph")
+            .build());
+    options.addOption(
+        Option.builder("f")
+            .argName("astubx_version")
+            .longOpt("astubx-version")
+            .hasArg()
+            .desc("version of the astubx format of the model, 1 or 2 (default: 1)")
+            .build());
     options.addOption(
         Option.builder("h")
             .argName("help")
@@ -99,10 +127,16 @@ public class JarInfer {
       boolean stripJarSignatures = line.hasOption('s');
       boolean debug = line.hasOption('d');
       boolean verbose = line.hasOption('v');
+      int numThreads = Integer.parseInt(line.getOptionValue('t', "1"));
       if (!pkgName.isEmpty()) {
         pkgName = "L" + pkgName.replaceAll("\\.", "/");
       }
-      DefinitelyDerefedParamsDriver driver = new DefinitelyDerefedParamsDriver();
+      DefinitelyDerefedParamsDriver driver = new DefinitelyDerefedParamsDriver(numThreads);
+      if (line.hasOption('c')) {
+        driver.setResultCacheDir(Paths.get(line.getOptionValue('c')));
+      }
+      driver.setInterprocedural(line.hasOption('r'));
+      driver.setAstubxFormatVersion(Integer.parseInt(line.getOptionValue('f', "1")));
       driver.run(
           jarPath, pkgName, outPath, annotateBytecode, stripJarSignatures, false, debug, verbose);
       if (!new File(outPath).exists()) {
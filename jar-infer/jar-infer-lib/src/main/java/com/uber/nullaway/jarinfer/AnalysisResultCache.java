@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2025. Uber Technologies
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.uber.nullaway.jarinfer;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk cache of JarInfer results for individual classes, so that re-running JarInfer on a new
+ * version of a library only analyzes the classes that changed.
+ *
+ * <p>Entries are keyed by a hash of the class file contents, the JarInfer version and the options
+ * that affect the results. The analysis of a method only depends on the method's own bytecode, so
+ * the results for a class stay valid as long as its class file is unchanged.
+ */
+final class AnalysisResultCache {
+
+  /**
+   * Version of the analysis and of the format of cache entries. Must be bumped whenever a change to
+   * JarInfer changes its results, so that stale entries are ignored even for snapshot builds.
+   */
+  private static final int CACHE_VERSION = 1;
+
+  private static final int FILE_MAGIC_NUMBER = 0x4A494331;
+
+  /** Version of JarInfer, from the {@code Implementation-Version} attribute of the jar manifest. */
+  private static final String JARINFER_VERSION =
+      String.valueOf(AnalysisResultCache.class.getPackage().getImplementationVersion());
+
+  private final Path cacheDir;
+
+  /** Options that affect the results, included in every key. */
+  private final String optionsKey;
+
+  /**
+   * Creates a cache stored in the given directory.
+   *
+   * @param cacheDir Directory for the cache entries, created if it does not exist.
+   * @param options Options of the JarInfer run that affect the inferred results.
+   */
+  AnalysisResultCache(Path cacheDir, String options) {
+    this(cacheDir, options, JARINFER_VERSION);
+  }
+
+  /**
+   * Creates a cache stored in the given directory, for results of the given version of JarInfer.
+   *
+   * @param cacheDir Directory for the cache entries, created if it does not exist.
+   * @param options Options of the JarInfer run that affect the inferred results.
+   * @param jarInferVersion Version of JarInfer; entries of other versions are ignored.
+   */
+  AnalysisResultCache(Path cacheDir, String options, String jarInferVersion) {
+    this.cacheDir = cacheDir;
+    this.optionsKey = jarInferVersion + ":" + CACHE_VERSION + ":" + options;
+  }
+
+  /**
+   * Computes the cache key for a class.
+   *
+   * @param classFile Contents of the class file.
+   * @return the key of the class's results.
+   */
+  String key(byte[] classFile) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(optionsKey, StandardCharsets.UTF_8);
+    hasher.putBytes(classFile);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Looks up the results for a class.
+   *
+   * @param key Key of the class, from {@link #key(byte[])}.
+   * @return the cached results for the class's methods that have any, or {@code null} if there is
+   *     no valid entry for the key.
+   */
+  List<DefinitelyDerefedParamsDriver.MethodResult> get(String key) {
+    Path entry = entryPath(key);
+    if (!Files.exists(entry)) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      return read(in);
+    } catch (IOException e) {
+      // treat unreadable entries as missing; they will be overwritten
+      return null;
+    }
+  }
+
+  /**
+   * Stores the results for a class. Failures to write are ignored, since the cache is only an
+   * optimization.
+   *
+   * @param key Key of the class, from {@link #key(byte[])}.
+   * @param results Results for the class's methods.
+   */
+  void put(String key, List<DefinitelyDerefedParamsDriver.MethodResult> results) {
+    Path entry = entryPath(key);
+    try {
+      Files.createDirectories(entry.getParent());
+      // write to a temporary file first, so that concurrent runs never see partial entries
+      Path tmp = Files.createTempFile(entry.getParent(), key, ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        write(out, results);
+      }
+      Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // ignore, the class will just be analyzed again next time
+    }
+  }
+
+  private Path entryPath(String key) {
+    return cacheDir.resolve(key.substring(0, 2)).resolve(key + ".bin");
+  }
+
+  private static void write(
+      DataOutputStream out, List<DefinitelyDerefedParamsDriver.MethodResult> results)
+      throws IOException {
+    List<DefinitelyDerefedParamsDriver.MethodResult> nonEmpty = new ArrayList<>();
+    for (DefinitelyDerefedParamsDriver.MethodResult result : results) {
+      if (!result.isEmpty()) {
+        nonEmpty.add(result);
+      }
+    }
+    out.writeInt(FILE_MAGIC_NUMBER);
+    out.writeInt(nonEmpty.size());
+    for (DefinitelyDerefedParamsDriver.MethodResult result : nonEmpty) {
+      out.writeUTF(result.paramsSign);
+      if (result.nonnullParams == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(result.nonnullParams.size());
+        for (Integer param : result.nonnullParams) {
+          out.writeInt(param);
+        }
+      }
+      out.writeUTF(result.nullableReturnSign);
+    }
+  }
+
+  private static List<DefinitelyDerefedParamsDriver.MethodResult> read(DataInputStream in)
+      throws IOException {
+    if (in.readInt() != FILE_MAGIC_NUMBER) {
+      throw new IOException("not a JarInfer cache entry");
+    }
+    int count = in.readInt();
+    List<DefinitelyDerefedParamsDriver.MethodResult> results = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      DefinitelyDerefedParamsDriver.MethodResult result =
+          new DefinitelyDerefedParamsDriver.MethodResult();
+      result.paramsSign = in.readUTF();
+      int numParams = in.readInt();
+      if (numParams >= 0) {
+        ImmutableSet.Builder<Integer> params = ImmutableSet.builder();
+        for (int j = 0; j < numParams; j++) {
+          params.add(in.readInt());
+        }
+        result.nonnullParams = params.build();
+      }
+      result.nullableReturnSign = in.readUTF();
+      results.add(result);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2025. Uber Technologies
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.uber.nullaway.jarinfer;
+
+import com.google.common.collect.ImmutableSet;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.CodeScanner;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.types.MethodReference;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Interprocedural mode of JarInfer. Computes summaries of all methods in the application class
+ * loader bottom-up over the call graph, so that a parameter passed to a method that definitely
+ * dereferences it is itself inferred as definitely dereferenced, and a method returning the result
+ * of a call that may return null is itself inferred as nullable.
+ *
+ * <p>The call graph is built from the call sites in the bytecode, resolving virtual calls with the
+ * class hierarchy. Its strongly connected components (SCCs) are analyzed callees first, iterating
+ * each recursive SCC to a fixed point. SCCs that do not depend on each other are analyzed in
+ * parallel. In a recursive SCC, dereferenced parameters start from all parameters and shrink, so
+ * that e.g. a parameter dereferenced in the base case of a recursion is found, while nullable
+ * returns start from none and grow. Each SCC thus reaches a unique fixed point, and the results do
+ * not depend on the number of threads.
+ *
+ * <p>A client of the jar may override any non-final method of a non-final class, so dereferenced
+ * parameters are only propagated through calls that cannot dispatch to such an override: static,
+ * private and constructor calls, and calls to final methods or on receivers of a final class.
+ * Nullable returns are propagated through calls to the targets in the jar.
+ */
+final class BottomUpAnalysis implements DefinitelyDerefedParams.CalleeSummaries {
+
+  /**
+   * Summary of a method.
+   *
+   * @param derefedParams Indices of the parameters the method definitely dereferences, counting
+   *     the receiver of instance methods.
+   * @param mayReturnNull Whether the method may return null.
+   */
+  record Summary(Set<Integer> derefedParams, boolean mayReturnNull) {
+    static final Summary EMPTY = new Summary(ImmutableSet.of(), false);
+  }
+
+  private final AnalysisOptions options;
+  private final IClassHierarchy cha;
+
+  /** Methods in the call graph, in a deterministic order. */
+  private final List<IMethod> methods = new ArrayList<>();
+
+  /** Callees of each method in the call graph, restricted to methods in the call graph. */
+  private final Map<IMethod, Set<IMethod>> callees = new HashMap<>();
+
+  /** Possible targets of virtual calls, resolved while building the call graph. */
+  private final Map<MethodReference, Set<IMethod>> dispatchTargets = new HashMap<>();
+
+  /** Targets of non-virtual calls, resolved while building the call graph. */
+  private final Map<MethodReference, Set<IMethod>> directTargets = new HashMap<>();
+
+  /** Summaries of the methods analyzed so far. */
+  private final Map<IMethod, Summary> summaries = new ConcurrentHashMap<>();
+
+  /** WALA's analysis caches are not thread-safe, so each thread gets its own. */
+  private final Map<Thread, AnalysisCache> caches = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the analysis for the given methods. Call {@link #run(int)} to compute the summaries.
+   *
+   * @param methods All concrete methods of the application class loader.
+   * @param options WALA analysis options.
+   * @param cha The class hierarchy.
+   */
+  BottomUpAnalysis(Collection<IMethod> methods, AnalysisOptions options, IClassHierarchy cha) {
+    this.options = options;
+    this.cha = cha;
+    this.methods.addAll(new LinkedHashSet<>(methods));
+    buildCallGraph();
+  }
+
+  /**
+   * Returns the summary of a method computed by {@link #run(int)}. The summary is the result of
+   * analyzing the method with the final summaries of its callees, so the method need not be
+   * analyzed again.
+   *
+   * @param mtd A method passed to the constructor.
+   * @return The summary, empty if the method could not be analyzed.
+   */
+  Summary getSummary(IMethod mtd) {
+    Summary summary = summaries.get(mtd);
+    return summary == null ? Summary.EMPTY : summary;
+  }
+
+  @Override
+  public Set<Integer> getDerefedParams(SSAAbstractInvokeInstruction call) {
+    Set<IMethod> targets = getTargets(call.getCallSite());
+    if (targets.isEmpty() || mayBeOverridden(call.getCallSite(), targets)) {
+      return ImmutableSet.of();
+    }
+    // the parameters dereferenced by every possible target
+    Set<Integer> derefedParams = null;
+    for (IMethod target : targets) {
+      Summary summary = summaries.get(target);
+      if (summary == null || summary.derefedParams().isEmpty()) {
+        return ImmutableSet.of();
+      }
+      if (derefedParams == null) {
+        derefedParams = new HashSet<>(summary.derefedParams());
+      } else {
+        derefedParams.retainAll(summary.derefedParams());
+      }
+    }
+    return derefedParams;
+  }
+
+  /**
+   * Returns true if a call may dispatch to a method outside of the jar, which overrides one of the
+   * targets found in the class hierarchy.
+   */
+  private boolean mayBeOverridden(CallSiteReference site, Set<IMethod> targets) {
+    if (!site.isDispatch()) {
+      return false;
+    }
+    if (targets.size() != 1) {
+      // some target is not final, or it would be the only one
+      return true;
+    }
+    IMethod target = targets.iterator().next();
+    if (target.isFinal() || target.isPrivate()) {
+      return false;
+    }
+    IClass receiverClass = cha.lookupClass(site.getDeclaredTarget().getDeclaringClass());
+    return receiverClass == null || !Modifier.isFinal(receiverClass.getModifiers());
+  }
+
+  @Override
+  public boolean mayReturnNull(SSAAbstractInvokeInstruction call) {
+    for (IMethod target : getTargets(call.getCallSite())) {
+      Summary summary = summaries.get(target);
+      if (summary != null && summary.mayReturnNull()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Computes the summaries of all methods in the call graph.
+   *
+   * @param numThreads Number of threads used to analyze independent SCCs.
+   */
+  void run(int numThreads) {
+    List<List<IMethod>> sccs = computeSCCs();
+    if (numThreads == 1) {
+      // Tarjan's algorithm finds the SCCs of callees first
+      for (List<IMethod> scc : sccs) {
+        analyzeSCC(scc);
+      }
+      return;
+    }
+    Map<IMethod, Integer> sccIndex = new HashMap<>();
+    for (int i = 0; i < sccs.size(); i++) {
+      for (IMethod mtd : sccs.get(i)) {
+        sccIndex.put(mtd, i);
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      List<CompletableFuture<Void>> analyzed = new ArrayList<>(sccs.size());
+      for (int i = 0; i < sccs.size(); i++) {
+        List<IMethod> scc = sccs.get(i);
+        // the SCCs of callees come earlier, so their futures already exist
+        Set<CompletableFuture<Void>> dependencies = new LinkedHashSet<>();
+        for (IMethod mtd : scc) {
+          for (IMethod callee : callees.get(mtd)) {
+            int calleeIndex = sccIndex.get(callee);
+            if (calleeIndex != i) {
+              dependencies.add(analyzed.get(calleeIndex));
+            }
+          }
+        }
+        analyzed.add(
+            CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .thenRunAsync(() -> analyzeSCC(scc), pool));
+      }
+      CompletableFuture.allOf(analyzed.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      throw new RuntimeException("failed to analyze methods", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void buildCallGraph() {
+    Set<IMethod> nodes = new HashSet<>(methods);
+    for (IMethod mtd : methods) {
+      Set<IMethod> mtdCallees = new LinkedHashSet<>();
+      try {
+        for (CallSiteReference site : CodeScanner.getCallSites(mtd)) {
+          for (IMethod target : resolveTargets(site)) {
+            if (nodes.contains(target)) {
+              mtdCallees.add(target);
+            }
+          }
+        }
+      } catch (InvalidClassFileException e) {
+        // no callees, the method is analyzed as if it did not call anything
+      }
+      callees.put(mtd, mtdCallees);
+    }
+  }
+
+  private Set<IMethod> resolveTargets(CallSiteReference site) {
+    MethodReference target = site.getDeclaredTarget();
+    if (site.isDispatch()) {
+      return dispatchTargets.computeIfAbsent(
+          target, t -> ImmutableSet.copyOf(cha.getPossibleTargets(t)));
+    }
+    return directTargets.computeIfAbsent(
+        target,
+        t -> {
+          IMethod resolved = cha.resolveMethod(t);
+          return resolved == null ? ImmutableSet.of() : ImmutableSet.of(resolved);
+        });
+  }
+
+  /** Returns the targets of a call site, which were all resolved while building the call graph. */
+  private Set<IMethod> getTargets(CallSiteReference site) {
+    Set<IMethod> targets =
+        (site.isDispatch() ? dispatchTargets : directTargets).get(site.getDeclaredTarget());
+    return targets == null ? ImmutableSet.of() : targets;
+  }
+
+  /**
+   * Computes the SCCs of the call graph with Tarjan's algorithm, iteratively to support deep call
+   * chains.
+   *
+   * @return The SCCs, each one after the SCCs of all its callees.
+   */
+  private List<List<IMethod>> computeSCCs() {
+    List<List<IMethod>> sccs = new ArrayList<>();
+    Map<IMethod, Integer> index = new HashMap<>();
+    Map<IMethod, Integer> lowLink = new HashMap<>();
+    Set<IMethod> onStack = new HashSet<>();
+    Deque<IMethod> stack = new ArrayDeque<>();
+    // DFS frames, holding the method and the iterator over its remaining callees
+    Deque<Map.Entry<IMethod, Iterator<IMethod>>> frames = new ArrayDeque<>();
+    for (IMethod root : methods) {
+      if (index.containsKey(root)) {
+        continue;
+      }
+      visit(root, index, lowLink, onStack, stack, frames);
+      while (!frames.isEmpty()) {
+        Map.Entry<IMethod, Iterator<IMethod>> frame = frames.peek();
+        IMethod mtd = frame.getKey();
+        if (frame.getValue().hasNext()) {
+          IMethod callee = frame.getValue().next();
+          if (!index.containsKey(callee)) {
+            visit(callee, index, lowLink, onStack, stack, frames);
+          } else if (onStack.contains(callee)) {
+            lowLink.put(mtd, Math.min(lowLink.get(mtd), index.get(callee)));
+          }
+          continue;
+        }
+        frames.pop();
+        if (!frames.isEmpty()) {
+          IMethod caller = frames.peek().getKey();
+          lowLink.put(caller, Math.min(lowLink.get(caller), lowLink.get(mtd)));
+        }
+        if (lowLink.get(mtd).equals(index.get(mtd))) {
+          List<IMethod> scc = new ArrayList<>();
+          IMethod member;
+          do {
+            member = stack.pop();
+            onStack.remove(member);
+            scc.add(member);
+          } while (member != mtd);
+          sccs.add(scc);
+        }
+      }
+    }
+    return sccs;
+  }
+
+  private void visit(
+      IMethod mtd,
+      Map<IMethod, Integer> index,
+      Map<IMethod, Integer> lowLink,
+      Set<IMethod> onStack,
+      Deque<IMethod> stack,
+      Deque<Map.Entry<IMethod, Iterator<IMethod>>> frames) {
+    index.put(mtd, index.size());
+    lowLink.put(mtd, index.get(mtd));
+    stack.push(mtd);
+    onStack.add(mtd);
+    frames.push(Map.entry(mtd, callees.get(mtd).iterator()));
+  }
+
+  /**
+   * Analyzes the methods of an SCC, once all SCCs of their callees are analyzed.
+   *
+   * @param scc The methods of the SCC.
+   */
+  private void analyzeSCC(List<IMethod> scc) {
+    boolean recursive = scc.size() > 1 || callees.get(scc.get(0)).contains(scc.get(0));
+    if (recursive) {
+      for (IMethod mtd : scc) {
+        ImmutableSet.Builder<Integer> allParams = ImmutableSet.builder();
+        for (int i = 0; i < mtd.getNumberOfParameters(); i++) {
+          if (mtd.getParameterType(i).isReferenceType()) {
+            allParams.add(i);
+          }
+        }
+        summaries.put(mtd, new Summary(allParams.build(), false));
+      }
+    }
+    boolean changed;
+    do {
+      changed = false;
+      for (IMethod mtd : scc) {
+        Summary summary = analyzeMethod(mtd);
+        if (!summary.equals(summaries.put(mtd, summary))) {
+          changed = true;
+        }
+      }
+    } while (recursive && changed);
+  }
+
+  private Summary analyzeMethod(IMethod mtd) {
+    try {
+      AnalysisCache cache =
+          caches.computeIfAbsent(Thread.currentThread(), t -> new AnalysisCacheImpl());
+      IR ir = cache.getIRFactory().makeIR(mtd, Everywhere.EVERYWHERE, options.getSSAOptions());
+      DefinitelyDerefedParams analysis =
+          new DefinitelyDerefedParams(mtd, ir, ir.getControlFlowGraph(), this);
+      Set<Integer> derefedParams = ImmutableSet.of();
+      if (mtd.getNumberOfParameters() > 0
+          && DefinitelyDerefedParamsDriver.bytecodeHasAnyDereferences(mtd)) {
+        derefedParams = ImmutableSet.copyOf(analysis.analyze());
+      }
+      boolean mayReturnNull =
+          !mtd.getReturnType().isPrimitiveType()
+              && analysis.analyzeReturnType() == DefinitelyDerefedParams.NullnessHint.NULLABLE;
+      return new Summary(derefedParams, mayReturnNull);
+    } catch (Exception e) {
+      // same as for the results of the driver, a method that cannot be analyzed has no summary
+      return Summary.EMPTY;
+    }
+  }
+}
@@ -17,25 +17,37 @@ package com.uber.nullaway.jarinfer;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.util.Iterator;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.jar.JarInputStream;
-import java.util.jar.JarOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Opcodes;
@@ -93,6 +105,8 @@ public final class BytecodeAnnotator {
   private static final String DIGEST_ENTRY_PATTERN =
       "Name: [A-Za-z0-9/\\$\\n\\s\\-\\.]+[A-Za-z0-9]\\nSHA-256-Digest: " + BASE64_PATTERN;
 
+  private static final String MULTI_RELEASE_PREFIX = "META-INF/versions/";
+
   private static boolean annotationsShouldBeVisible(String nullableDesc) {
     if (nullableDesc.equals(javaxNullableDesc)) {
       return true;
@@ -187,6 +201,44 @@ public final class BytecodeAnnotator {
     os.write(cw.toByteArray());
   }
 
+  /**
+   * Returns the names of the classes that have at least one method to annotate.
+   *
+   * @param nonnullParams Map from methods to their nonnull params.
+   * @param nullableReturns List of methods that return nullable.
+   * @return the set of class names, in the format {@code com.example.Outer$Inner}.
+   */
+  private static Set<String> getClassesToAnnotate(
+      MethodParamAnnotations nonnullParams, MethodReturnAnnotations nullableReturns) {
+    Set<String> classes = new HashSet<>();
+    for (String methodSignature : Iterables.concat(nonnullParams.keySet(), nullableReturns)) {
+      // method signatures have the form className.methodName(descriptor)
+      int descStart = methodSignature.indexOf('(');
+      int nameStart =
+          methodSignature.lastIndexOf('.', descStart < 0 ? methodSignature.length() : descStart);
+      if (nameStart > 0) {
+        classes.add(methodSignature.substring(0, nameStart));
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Returns the name of the class stored in a jar entry.
+   *
+   * @param entryName name of a jar entry ending in {@code .class}.
+   * @return the class name, in the format {@code com.example.Outer$Inner}.
+   */
+  private static String getClassName(String entryName) {
+    String path = entryName.substring(0, entryName.length() - ".class".length());
+    if (path.startsWith(MULTI_RELEASE_PREFIX)) {
+      // classes of multi-release jars are stored under META-INF/versions/<version>/
+      int versionEnd = path.indexOf('/', MULTI_RELEASE_PREFIX.length());
+      path = versionEnd < 0 ? path : path.substring(versionEnd + 1);
+    }
+    return path.replace('/', '.');
+  }
+
   /**
    * Annotates the methods and method parameters in the given class with the specified annotations.
    *
@@ -216,99 +268,225 @@ public final class BytecodeAnnotator {
    * @param name of the zip entry.
    * @return the zip entry.
    */
-  private static ZipEntry createZipEntry(String name) {
-    ZipEntry entry = new ZipEntry(name);
+  private static ZipArchiveEntry createZipEntry(String name) {
+    ZipArchiveEntry entry = new ZipArchiveEntry(name);
     entry.setTime(0);
     return entry;
   }
 
-  private static void copyAndAnnotateJarEntry(
-      JarEntry jarEntry,
-      InputStream is,
-      JarOutputStream jarOS,
-      MethodParamAnnotations nonnullParams,
-      MethodReturnAnnotations nullableReturns,
-      String nullableDesc,
-      String nonnullDesc,
-      boolean stripJarSignatures)
-      throws IOException {
-    String entryName = jarEntry.getName();
-    if (entryName.endsWith(".class")) {
-      jarOS.putNextEntry(createZipEntry(jarEntry.getName()));
-      annotateBytecode(is, jarOS, nonnullParams, nullableReturns, nullableDesc, nonnullDesc);
-    } else if (entryName.equals("META-INF/MANIFEST.MF")) {
-      // Read full file
-      StringBuilder stringBuilder = new StringBuilder();
-      BufferedReader br = new BufferedReader(new InputStreamReader(is, UTF_8));
-      String currentLine;
-      while ((currentLine = br.readLine()) != null) {
-        stringBuilder.append(currentLine + "\n");
+  /**
+   * Create a zip entry for copying the compressed data of an input entry as is. The entry keeps
+   * the compression method, CRC and sizes of the input entry, and has a creation time of 0.
+   *
+   * @param inputEntry the input zip entry.
+   * @return the zip entry.
+   */
+  private static ZipArchiveEntry createRawZipEntry(ZipArchiveEntry inputEntry) {
+    ZipArchiveEntry entry = createZipEntry(inputEntry.getName());
+    entry.setMethod(inputEntry.getMethod());
+    entry.setCrc(inputEntry.getCrc());
+    entry.setSize(inputEntry.getSize());
+    entry.setCompressedSize(inputEntry.getCompressedSize());
+    return entry;
+  }
+
+  /**
+   * Copies the entries of an input jar to an output jar, annotating the classes that have methods
+   * to annotate.
+   *
+   * <p>Classes are annotated in parallel on the given pool, while entries are written in the order
+   * of the input jar, so that the output does not depend on scheduling. Classes without any method
+   * to annotate and other resources are copied to the output as is: their compressed data is not
+   * inflated, parsed or compressed again.
+   */
+  private static final class JarEntryCopier {
+    private final ZipArchiveOutputStream jarOS;
+    private final MethodParamAnnotations nonnullParams;
+    private final MethodReturnAnnotations nullableReturns;
+    private final Set<String> classesToAnnotate;
+    private final String nullableDesc;
+    private final String nonnullDesc;
+    private final boolean stripJarSignatures;
+    private final ForkJoinPool pool;
+
+    /**
+     * Maximum number of classes being annotated ahead of the jar entry being written, which bounds
+     * the memory used for annotated classes that are not written yet.
+     */
+    private final int maxPendingClasses;
+
+    /** Entry names and contents of the classes being annotated, in input order. */
+    private final Deque<Map.Entry<String, CompletableFuture<byte[]>>> pendingClasses =
+        new ArrayDeque<>();
+
+    JarEntryCopier(
+        ZipArchiveOutputStream jarOS,
+        MethodParamAnnotations nonnullParams,
+        MethodReturnAnnotations nullableReturns,
+        String nullableDesc,
+        String nonnullDesc,
+        boolean stripJarSignatures,
+        ForkJoinPool pool) {
+      this.jarOS = jarOS;
+      this.nonnullParams = nonnullParams;
+      this.nullableReturns = nullableReturns;
+      this.classesToAnnotate = getClassesToAnnotate(nonnullParams, nullableReturns);
+      this.nullableDesc = nullableDesc;
+      this.nonnullDesc = nonnullDesc;
+      this.stripJarSignatures = stripJarSignatures;
+      this.pool = pool;
+      this.maxPendingClasses = 4 * pool.getParallelism();
+    }
+
+    /**
+     * Copies all the entries of the input jar to the output jar.
+     *
+     * @param inputJar The input jar.
+     * @throws IOException if an error happens when reading or writing to jar or class streams.
+     */
+    void copyEntries(ZipFile inputJar) throws IOException {
+      for (ZipArchiveEntry entry : Collections.list(inputJar.getEntries())) {
+        copy(inputJar, entry);
       }
-      String manifestText = stringBuilder.toString();
-      // Check for evidence of jar signing, note that lines can be split if too long so regex
-      // matching line by line will have false negatives.
-      // NOTE: this code only handles the case where the message digest algorithm used when signing
-      // was SHA-256.  Eventually we may need a more robust solution for other digest algorithms.
-      // E.g., on JDK 21, the default message digest algorithm is SHA-384, and this code does not
-      // work for that algorithm (the DIGEST_ENTRY_PATTERN regex is hardcoded for SHA-256)
-      String manifestMinusDigests = manifestText.replaceAll(DIGEST_ENTRY_PATTERN, "");
-      if (!manifestText.equals(manifestMinusDigests) && !stripJarSignatures) {
-        throw new SignedJarException(SIGNED_JAR_ERROR_MESSAGE);
+      writePendingClasses();
+    }
+
+    private void copy(ZipFile inputJar, ZipArchiveEntry entry) throws IOException {
+      String entryName = entry.getName();
+      if (entryName.endsWith(".class") && classesToAnnotate.contains(getClassName(entryName))) {
+        byte[] classFile;
+        try (InputStream is = inputJar.getInputStream(entry)) {
+          classFile = IOUtils.toByteArray(is);
+        }
+        if (pendingClasses.size() >= maxPendingClasses) {
+          writePendingClass();
+        }
+        pendingClasses.add(
+            new AbstractMap.SimpleImmutableEntry<>(
+                entryName, CompletableFuture.supplyAsync(() -> annotate(classFile), pool)));
+        return;
+      }
+      // all entries before this one must be written first
+      writePendingClasses();
+      if (entryName.equals("META-INF/MANIFEST.MF")) {
+        // Read full file
+        StringBuilder stringBuilder = new StringBuilder();
+        try (BufferedReader br =
+            new BufferedReader(new InputStreamReader(inputJar.getInputStream(entry), UTF_8))) {
+          String currentLine;
+          while ((currentLine = br.readLine()) != null) {
+            stringBuilder.append(currentLine + "\n");
+          }
+        }
+        String manifestText = stringBuilder.toString();
+        // Check for evidence of jar signing, note that lines can be split if too long so regex
+        // matching line by line will have false negatives.
+        // NOTE: this code only handles the case where the message digest algorithm used when
+        // signing was SHA-256.  Eventually we may need a more robust solution for other digest
+        // algorithms. E.g., on JDK 21, the default message digest algorithm is SHA-384, and this
+        // code does not work for that algorithm (the DIGEST_ENTRY_PATTERN regex is hardcoded for
+        // SHA-256)
+        String manifestMinusDigests = manifestText.replaceAll(DIGEST_ENTRY_PATTERN, "");
+        if (!manifestText.equals(manifestMinusDigests) && !stripJarSignatures) {
+          throw new SignedJarException(SIGNED_JAR_ERROR_MESSAGE);
+        }
+        jarOS.putArchiveEntry(createZipEntry(entryName));
+        jarOS.write(manifestMinusDigests.getBytes(UTF_8));
+        jarOS.closeArchiveEntry();
+      } else if (entryName.startsWith("META-INF/")
+          && (entryName.endsWith(".DSA")
+              || entryName.endsWith(".RSA")
+              || entryName.endsWith(".SF"))) {
+        if (!stripJarSignatures) {
+          throw new SignedJarException(SIGNED_JAR_ERROR_MESSAGE);
+        } // the case where stripJarSignatures==true is handled by default by skipping these files
+      } else {
+        // no annotations to add, so copy the compressed data of the entry without inflating it
+        try (InputStream is = inputJar.getRawInputStream(entry)) {
+          jarOS.addRawArchiveEntry(createRawZipEntry(entry), is);
+        }
+      }
+    }
+
+    private void writePendingClasses() throws IOException {
+      while (!pendingClasses.isEmpty()) {
+        writePendingClass();
       }
-      jarOS.putNextEntry(createZipEntry(jarEntry.getName()));
-      jarOS.write(manifestMinusDigests.getBytes(UTF_8));
-    } else if (entryName.startsWith("META-INF/")
-        && (entryName.endsWith(".DSA")
-            || entryName.endsWith(".RSA")
-            || entryName.endsWith(".SF"))) {
-      if (!stripJarSignatures) {
-        throw new SignedJarException(SIGNED_JAR_ERROR_MESSAGE);
-      } // the case where stripJarSignatures==true is handled by default by skipping these files
-    } else {
-      jarOS.putNextEntry(createZipEntry(jarEntry.getName()));
-      jarOS.write(IOUtils.toByteArray(is));
     }
-    jarOS.closeEntry();
+
+    private void writePendingClass() throws IOException {
+      Map.Entry<String, CompletableFuture<byte[]>> pendingClass = pendingClasses.remove();
+      byte[] annotatedClass;
+      try {
+        annotatedClass = pendingClass.getValue().join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof UncheckedIOException) {
+          throw ((UncheckedIOException) cause).getCause();
+        }
+        Throwables.throwIfUnchecked(cause);
+        throw new IllegalStateException(cause);
+      }
+      jarOS.putArchiveEntry(createZipEntry(pendingClass.getKey()));
+      jarOS.write(annotatedClass);
+      jarOS.closeArchiveEntry();
+    }
+
+    private byte[] annotate(byte[] classFile) {
+      ByteArrayOutputStream os = new ByteArrayOutputStream(classFile.length + 64);
+      try {
+        annotateBytecode(
+            new ByteArrayInputStream(classFile),
+            os,
+            nonnullParams,
+            nullableReturns,
+            nullableDesc,
+            nonnullDesc);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return os.toByteArray();
+    }
   }
 
   /**
    * Annotates the methods and method parameters in the classes in the given jar with the specified
    * annotations.
    *
-   * @param inputJar JarFile to annotate.
-   * @param jarOS OutputStream of the output jar file.
+   * @param inputJar Path of the jar file to annotate.
+   * @param outputJar Path of the output jar file.
    * @param nonnullParams Map from methods to their nonnull params.
    * @param nullableReturns List of methods that return nullable.
+   * @param numThreads Number of threads used to annotate classes.
    * @param debug flag to output debug logs.
    * @throws IOException if an error happens when reading or writing to jar or class streams.
    */
   public static void annotateBytecodeInJar(
-      JarFile inputJar,
-      JarOutputStream jarOS,
+      Path inputJar,
+      Path outputJar,
       MethodParamAnnotations nonnullParams,
       MethodReturnAnnotations nullableReturns,
       boolean stripJarSignatures,
+      int numThreads,
       boolean debug)
       throws IOException {
     BytecodeAnnotator.debug = debug;
     LOG(debug, "DEBUG", "nullableReturns: " + nullableReturns);
     LOG(debug, "DEBUG", "nonnullParams: " + nonnullParams);
-    // Do not use JarInputStream in place of JarFile/JarEntry. JarInputStream misses MANIFEST.MF
-    // while iterating over the entries in the stream.
-    // Reference: https://bugs.openjdk.java.net/browse/JDK-8215788
-    // Note: we can't just put the code below inside stream().forach(), because it can throw
-    // IOException.
-    for (JarEntry jarEntry : (Iterable<JarEntry>) inputJar.stream()::iterator) {
-      InputStream is = inputJar.getInputStream(jarEntry);
-      copyAndAnnotateJarEntry(
-          jarEntry,
-          is,
-          jarOS,
-          nonnullParams,
-          nullableReturns,
-          javaxNullableDesc,
-          javaxNonnullDesc,
-          stripJarSignatures);
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try (ZipFile jar = ZipFile.builder().setPath(inputJar).get();
+        ZipArchiveOutputStream jarOS = new ZipArchiveOutputStream(outputJar)) {
+      new JarEntryCopier(
+              jarOS,
+              nonnullParams,
+              nullableReturns,
+              javaxNullableDesc,
+              javaxNonnullDesc,
+              stripJarSignatures,
+              pool)
+          .copyEntries(jar);
+    } finally {
+      pool.shutdown();
     }
   }
 
@@ -316,59 +494,65 @@ public final class BytecodeAnnotator {
    * Annotates the methods and method parameters in the classes in "classes.jar" in the given aar
    * file with the specified annotations.
    *
-   * @param inputZip AarFile to annotate.
-   * @param zipOS OutputStream of the output aar file.
+   * @param inputAar Path of the aar file to annotate.
+   * @param outputAar Path of the output aar file.
    * @param nonnullParams Map from methods to their nonnull params.
    * @param nullableReturns List of methods that return nullable.
+   * @param numThreads Number of threads used to annotate classes.
    * @param debug flag to output debug logs.
    * @throws IOException if an error happens when reading or writing to AAR/JAR/class streams.
    */
   public static void annotateBytecodeInAar(
-      ZipFile inputZip,
-      ZipOutputStream zipOS,
+      Path inputAar,
+      Path outputAar,
       MethodParamAnnotations nonnullParams,
       MethodReturnAnnotations nullableReturns,
       boolean stripJarSignatures,
+      int numThreads,
       boolean debug)
       throws IOException {
     BytecodeAnnotator.debug = debug;
     LOG(debug, "DEBUG", "nullableReturns: " + nullableReturns);
     LOG(debug, "DEBUG", "nonnullParams: " + nonnullParams);
-    // Error Prone doesn't like usages of the old Java Enumerator APIs. ZipFile does not implement
-    // Iterable, and likely never will (see  https://bugs.openjdk.java.net/browse/JDK-6581715).
-    // Additionally, inputZip.stream() returns a Stream<? extends ZipEntry>, and a for-each loop
-    // has trouble handling the corresponding ::iterator  method reference. So this seems like the
-    // best remaining way:
-    Iterator<? extends ZipEntry> zipIterator = inputZip.stream().iterator();
-    while (zipIterator.hasNext()) {
-      ZipEntry zipEntry = zipIterator.next();
-      InputStream is = inputZip.getInputStream(zipEntry);
-      zipOS.putNextEntry(createZipEntry(zipEntry.getName()));
-      if (zipEntry.getName().equals("classes.jar")) {
-        JarInputStream jarIS = new JarInputStream(is);
-        JarEntry inputJarEntry = jarIS.getNextJarEntry();
-
-        ByteArrayOutputStream byteArrayOS = new ByteArrayOutputStream();
-        JarOutputStream jarOS = new JarOutputStream(byteArrayOS);
-        while (inputJarEntry != null) {
-          copyAndAnnotateJarEntry(
-              inputJarEntry,
-              jarIS,
-              jarOS,
-              nonnullParams,
-              nullableReturns,
-              androidNullableDesc,
-              androidNonnullDesc,
-              stripJarSignatures);
-          inputJarEntry = jarIS.getNextJarEntry();
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try (ZipFile aar = ZipFile.builder().setPath(inputAar).get();
+        ZipArchiveOutputStream aarOS = new ZipArchiveOutputStream(outputAar)) {
+      for (ZipArchiveEntry entry : Collections.list(aar.getEntries())) {
+        if (entry.getName().equals("classes.jar")) {
+          aarOS.putArchiveEntry(createZipEntry(entry.getName()));
+          // the nested jar is read from a temporary file, so that its entries can be copied as is
+          Path classesJar = Files.createTempFile("classes", ".jar");
+          try {
+            try (InputStream is = aar.getInputStream(entry)) {
+              Files.copy(is, classesJar, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // Write the annotated jar directly to the aar entry, rather than buffering it in
+            // memory. The close shield keeps the aar stream open when the jar stream is closed.
+            try (ZipFile jar = ZipFile.builder().setPath(classesJar).get();
+                ZipArchiveOutputStream jarOS =
+                    new ZipArchiveOutputStream(CloseShieldOutputStream.wrap(aarOS))) {
+              new JarEntryCopier(
+                      jarOS,
+                      nonnullParams,
+                      nullableReturns,
+                      androidNullableDesc,
+                      androidNonnullDesc,
+                      stripJarSignatures,
+                      pool)
+                  .copyEntries(jar);
+            }
+          } finally {
+            Files.deleteIfExists(classesJar);
+          }
+          aarOS.closeArchiveEntry();
+        } else {
+          try (InputStream is = aar.getRawInputStream(entry)) {
+            aarOS.addRawArchiveEntry(createRawZipEntry(entry), is);
+          }
         }
-        jarOS.flush();
-        jarOS.close();
-        zipOS.write(byteArrayOS.toByteArray());
-      } else {
-        zipOS.write(IOUtils.toByteArray(is));
       }
-      zipOS.closeEntry();
+    } finally {
+      pool.shutdown();
     }
   }
 }
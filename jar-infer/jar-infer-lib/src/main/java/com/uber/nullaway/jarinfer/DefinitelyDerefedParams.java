@@ -18,10 +18,12 @@ package com.uber.nullaway.jarinfer;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.ibm.wala.cfg.ControlFlowGraph;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.cfg.ExceptionPrunedCFG;
 import com.ibm.wala.ipa.cfg.PrunedCFG;
+import com.ibm.wala.ssa.DefUse;
 import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
@@ -57,8 +59,46 @@ public class DefinitelyDerefedParams {
     }
   }
 
+  /**
+   * Summaries of the methods called by an analyzed method. Used by the interprocedural mode of
+   * JarInfer, see {@link BottomUpAnalysis}.
+   */
+  interface CalleeSummaries {
+    /** No summaries, for analyzing each method on its own. */
+    CalleeSummaries NONE =
+        new CalleeSummaries() {
+          @Override
+          public Set<Integer> getDerefedParams(SSAAbstractInvokeInstruction call) {
+            return ImmutableSet.of();
+          }
+
+          @Override
+          public boolean mayReturnNull(SSAAbstractInvokeInstruction call) {
+            return false;
+          }
+        };
+
+    /**
+     * Returns the parameters definitely dereferenced by every possible target of a call, or none if
+     * the call may dispatch to code outside of the analyzed jar.
+     *
+     * @param call The call instruction.
+     * @return Indices of the dereferenced parameters, counting the receiver as 0 for instance
+     *     methods, so that index {@code i} corresponds to {@code call.getUse(i)}.
+     */
+    Set<Integer> getDerefedParams(SSAAbstractInvokeInstruction call);
+
+    /**
+     * Returns true if some possible target of a call may return null.
+     *
+     * @param call The call instruction.
+     */
+    boolean mayReturnNull(SSAAbstractInvokeInstruction call);
+  }
+
   private final IMethod method;
   private final IR ir;
+  private final CalleeSummaries calleeSummaries;
 
   // the exploded control-flow graph without exceptional edges
   private final ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg;
@@ -91,9 +131,26 @@ public class DefinitelyDerefedParams {
    */
   DefinitelyDerefedParams(
       IMethod method, IR ir, ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg) {
+    this(method, ir, cfg, CalleeSummaries.NONE);
+  }
+
+  /**
+   * The constructor for the analysis class, taking the summaries of called methods into account.
+   *
+   * @param method The target method of the analysis.
+   * @param ir The IR code for the target method.
+   * @param cfg The Control Flow Graph of the target method.
+   * @param calleeSummaries Summaries of the methods called by the target method.
+   */
+  DefinitelyDerefedParams(
+      IMethod method,
+      IR ir,
+      ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg,
+      CalleeSummaries calleeSummaries) {
     this.method = method;
     this.ir = ir;
     this.cfg = cfg;
+    this.calleeSummaries = calleeSummaries;
     prunedCFG = null;
   }
 
@@ -216,16 +273,25 @@ public class DefinitelyDerefedParams {
                 sign);
             derefValueNumber = callInst.getReceiver();
           }
+          // Arguments that the callee itself definitely dereferences
+          for (Integer calleeParam : calleeSummaries.getDerefedParams(callInst)) {
+            addIfParam(derefedParamList, callInst.getUse(calleeParam), numParam, firstParamIndex);
+          }
         }
-        if (derefValueNumber >= firstParamIndex && derefValueNumber <= numParam) {
-          LOG(DEBUG, "DEBUG", "\t\tderefed param : " + derefValueNumber);
-          // Translate from WALA 1-indexed params, to 0-indexed
-          derefedParamList.add(derefValueNumber - 1);
-        }
+        addIfParam(derefedParamList, derefValueNumber, numParam, firstParamIndex);
       }
     }
   }
 
+  private static void addIfParam(
+      Set<Integer> derefedParamList, int derefValueNumber, int numParam, int firstParamIndex) {
+    if (derefValueNumber >= firstParamIndex && derefValueNumber <= numParam) {
+      LOG(DEBUG, "DEBUG", "\t\tderefed param : " + derefValueNumber);
+      // Translate from WALA 1-indexed params, to 0-indexed
+      derefedParamList.add(derefValueNumber - 1);
+    }
+  }
+
   public enum NullnessHint {
     UNKNOWN,
     NULLABLE,
@@ -254,6 +320,7 @@ public class DefinitelyDerefedParams {
         && GraphUtil.countEdges(prunedCFG) == 0) {
       return NullnessHint.UNKNOWN;
     }
+    DefUse defUse = null;
     for (ISSABasicBlock bb : prunedCFG.getNormalPredecessors(prunedCFG.exit())) {
       for (int i = bb.getFirstInstructionIndex(); i <= bb.getLastInstructionIndex(); i++) {
         SSAInstruction instr = ir.getInstructions()[i];
@@ -262,6 +329,17 @@ public class DefinitelyDerefedParams {
             LOG(DEBUG, "DEBUG", "Nullable return in method: " + method.getSignature());
             return NullnessHint.NULLABLE;
           }
+          if (calleeSummaries != CalleeSummaries.NONE) {
+            // Returning the result of a call that may return null
+            if (defUse == null) {
+              defUse = new DefUse(ir);
+            }
+            if (defUse.getDef(retInstr.getResult()) instanceof SSAAbstractInvokeInstruction callInst
+                && calleeSummaries.mayReturnNull(callInst)) {
+              LOG(DEBUG, "DEBUG", "Nullable callee return in method: " + method.getSignature());
+              return NullnessHint.NULLABLE;
+            }
+          }
         }
       }
     }
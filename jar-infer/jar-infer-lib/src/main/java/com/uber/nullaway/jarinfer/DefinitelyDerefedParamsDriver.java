@@ -61,6 +61,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
@@ -72,8 +73,14 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -99,6 +106,21 @@ public class DefinitelyDerefedParamsDriver {
   private boolean annotateBytecode = false;
   private boolean stripJarSignatures = false;
 
+  /**
+   * Number of threads used to analyze methods and to annotate classes; 1 analyzes all methods on
+   * the calling thread.
+   */
+  private final int numThreads;
+
+  /** Directory of the result cache, or {@code null} to analyze all classes on every run. */
+  private Path resultCacheDir = null;
+
+  /** Whether to propagate summaries across calls, see {@link BottomUpAnalysis}. */
+  private boolean interprocedural = false;
+
+  /** Version of the astubx format of written models. */
+  private int astubxFormatVersion = 1;
+
   private static final String DEFAULT_ASTUBX_LOCATION = "META-INF/nullaway/jarinfer.astubx";
   private static final String ASTUBX_JAR_SUFFIX = ".astubx.jar";
   // TODO: Exclusions-
@@ -106,26 +128,115 @@ public class DefinitelyDerefedParamsDriver {
   // com.ibm.wala.classLoader.ShrikeCTMethod.makeDecoder:110
   private static final String DEFAULT_EXCLUSIONS = "org\\/objectweb\\/asm\\/.*";
 
+  /** Creates a driver that analyzes all methods on the calling thread. */
+  public DefinitelyDerefedParamsDriver() {
+    this(1);
+  }
+
+  /**
+   * Creates a driver that analyzes methods in parallel. The results, and hence all output files,
+   * are the same for any number of threads.
+   *
+   * @param numThreads Number of threads used to analyze methods and to annotate classes.
+   */
+  public DefinitelyDerefedParamsDriver(int numThreads) {
+    Preconditions.checkArgument(numThreads > 0, "invalid number of threads: %s", numThreads);
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Enables caching of the results for each class in the given directory. Later runs only analyze
+   * classes whose class file changed, which makes refreshing models after a version bump of a
+   * library much faster.
+   *
+   * @param resultCacheDir Directory of the result cache, shared by all runs.
+   */
+  public void setResultCacheDir(Path resultCacheDir) {
+    this.resultCacheDir = resultCacheDir;
+  }
+
+  /**
+   * Enables the interprocedural mode, in which the summaries of called methods are taken into
+   * account, see {@link BottomUpAnalysis}. The result cache is not used in this mode, since the
+   * results for a class then also depend on the classes it calls.
+   *
+   * @param interprocedural Whether to propagate summaries across calls.
+   */
+  public void setInterprocedural(boolean interprocedural) {
+    this.interprocedural = interprocedural;
+  }
+
   /**
-   * Accounts the bytecode size of analyzed method for statistics.
+   * Sets the version of the astubx format of written models. Version 1, the default, can be read by
+   * all NullAway versions, while version 2 is faster to load.
+   *
+   * @param astubxFormatVersion Version of the astubx format, 1 or 2.
+   */
+  public void setAstubxFormatVersion(int astubxFormatVersion) {
+    Preconditions.checkArgument(
+        astubxFormatVersion == 1 || astubxFormatVersion == 2,
+        "unsupported astubx format version: %s",
+        astubxFormatVersion);
+    this.astubxFormatVersion = astubxFormatVersion;
+  }
+
+  /**
+   * Returns the bytecode size of an analyzed method for statistics.
    *
    * @param mtd Analyzed method.
    */
-  private void accountCodeBytes(IMethod mtd) {
+  private static long getCodeBytes(IMethod mtd) {
     // Get method bytecode size
     if (mtd instanceof ShrikeCTMethod shrikeCtMethod) {
-      analyzedBytes += shrikeCtMethod.getBytecodes().length;
+      return shrikeCtMethod.getBytecodes().length;
     }
+    return 0;
   }
 
-  private DefinitelyDerefedParams getAnalysisDriver(
-      IMethod mtd, AnalysisOptions options, AnalysisCache cache) {
+  private static DefinitelyDerefedParams getAnalysisDriver(
+      IMethod mtd,
+      AnalysisOptions options,
+      AnalysisCache cache,
+      MethodResult methodResult) {
     IR ir = cache.getIRFactory().makeIR(mtd, Everywhere.EVERYWHERE, options.getSSAOptions());
     ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg = ir.getControlFlowGraph();
-    accountCodeBytes(mtd);
+    methodResult.codeBytes = getCodeBytes(mtd);
     return new DefinitelyDerefedParams(mtd, ir, cfg);
   }
 
+  /**
+   * Results of analyzing a single method. Methods may be analyzed on different threads, so the
+   * results are merged into the driver's annotations afterwards, in a fixed order.
+   */
+  static final class MethodResult {
+    /** Signature of the method, if its parameters were analyzed. */
+    String paramsSign = "";
+
+    /** Inferred non-null parameters, or {@code null} if none should be recorded. */
+    Set<Integer> nonnullParams = null;
+
+    /** Signature of the method, if its return was inferred to be nullable. */
+    String nullableReturnSign = "";
+
+    /** Size of the analyzed bytecode, for statistics. */
+    long codeBytes = 0;
+
+    /** Returns true if there is nothing to record for the method. */
+    boolean isEmpty() {
+      return nonnullParams == null && nullableReturnSign.isEmpty();
+    }
+  }
+
+  /**
+   * The methods of a class to be analyzed, along with the cached results for the class, if any.
+   *
+   * @param cacheKey Key of the class in the result cache, or {@code null} if not cached.
+   * @param methods Methods of the class to analyze.
+   * @param cachedResults Results from the cache, or {@code null} if the class must be analyzed.
+   */
+  private record ClassToAnalyze(
+      String cacheKey, List<IMethod> methods, List<MethodResult> cachedResults) {}
+
   MethodParamAnnotations run(String inPaths, String pkgName, boolean includeNonPublicClasses)
       throws IOException, ClassHierarchyException, IllegalArgumentException {
     String outPath = "";
@@ -221,7 +332,7 @@ public class DefinitelyDerefedParamsDriver {
   }
 
   // Check if a method includes any dereferences at all at the bytecode level
-  private boolean bytecodeHasAnyDereferences(IMethod mtd) throws InvalidClassFileException {
+  static boolean bytecodeHasAnyDereferences(IMethod mtd) throws InvalidClassFileException {
     // A dereference is either a field access (o.f) or a method call (o.m())
     return !CodeScanner.getFieldsRead(mtd).isEmpty()
         || !CodeScanner.getFieldsWritten(mtd).isEmpty()
@@ -239,6 +350,24 @@ public class DefinitelyDerefedParamsDriver {
     } else if (!new File(inPath).exists()) {
       return;
     }
+    AnalysisResultCache resultCache = null;
+    Map<String, String> classCacheKeys = Collections.emptyMap();
+    if (resultCacheDir != null && interprocedural) {
+      LOG(VERBOSE, "Info", "result cache is not used in interprocedural mode");
+    } else if (resultCacheDir != null) {
+      resultCache =
+          new AnalysisResultCache(
+              resultCacheDir, "annotateBytecode=" + annotateBytecode + ",debug=" + DEBUG);
+      if (jarIS != null) {
+        // read the jar once, both for hashing its classes and for WALA
+        byte[] jarBytes = jarIS.readAllBytes();
+        jarIS.close();
+        classCacheKeys = getClassCacheKeysInJar(jarBytes, resultCache);
+        jarIS = new ByteArrayInputStream(jarBytes);
+      } else {
+        classCacheKeys = getClassCacheKeysInDirectory(Paths.get(inPath), resultCache);
+      }
+    }
     AnalysisScope scope = AnalysisScopeReader.instance.makeBasePrimordialScope(null);
     scope.setExclusions(
         new PatternsFilter(
@@ -250,17 +379,27 @@ public class DefinitelyDerefedParamsDriver {
           inPath, scope, ClassLoaderReference.Application);
     }
     AnalysisOptions options = new AnalysisOptions(scope, null);
-    AnalysisCache cache = new AnalysisCacheImpl();
     IClassHierarchy cha = ClassHierarchyFactory.makeWithRoot(scope);
     Warnings.clear();
 
     // Iterate over all classes:methods in the 'Application' and 'Extension' class loaders
+    List<ClassToAnalyze> classesToAnalyze = new ArrayList<>();
+    List<IMethod> methodsToAnalyze = new ArrayList<>();
+    // In interprocedural mode, all concrete methods are summarized, including private ones
+    List<IMethod> methodsToSummarize = new ArrayList<>();
     for (IClassLoader cldr : cha.getLoaders()) {
       if (!cldr.getName().toString().equals("Primordial")) {
         for (IClass cls : Iterator2Iterable.make(cldr.iterateAllClasses())) {
           if (cls instanceof PhantomClass) {
             continue;
           }
+          if (interprocedural) {
+            for (IMethod mtd : cls.getDeclaredMethods()) {
+              if (!mtd.isAbstract() && !mtd.isNative()) {
+                methodsToSummarize.add(mtd);
+              }
+            }
+          }
           // Only process classes in specified classpath and not its dependencies.
           // TODO: figure the right way to do this
           if (!pkgName.isEmpty() && !cls.getName().toString().startsWith(pkgName)) {
@@ -270,56 +409,83 @@ public class DefinitelyDerefedParamsDriver {
           if (!cls.isPublic() && !includeNonPublicClasses) {
             continue;
           }
+          String cacheKey = classCacheKeys.get(cls.getName().toString());
+          List<MethodResult> cachedResults =
+              (resultCache != null && cacheKey != null) ? resultCache.get(cacheKey) : null;
+          if (cachedResults != null) {
+            LOG(DEBUG, "DEBUG", "using cached results for class: " + cls.getName().toString());
+            classesToAnalyze.add(new ClassToAnalyze(cacheKey, List.of(), cachedResults));
+            continue;
+          }
           LOG(DEBUG, "DEBUG", "analyzing class: " + cls.getName().toString());
+          List<IMethod> classMethods = new ArrayList<>();
           for (IMethod mtd : Iterator2Iterable.make(cls.getDeclaredMethods().iterator())) {
             // Skip methods without parameters, abstract methods, native methods
             // some Application classes are Primordial (why?)
             if (shouldCheckMethod(mtd)) {
               Preconditions.checkNotNull(mtd, "method not found");
-              DefinitelyDerefedParams analysisDriver = null;
-              String sign = "";
-              try {
-                // Parameter analysis
-                boolean isStatic = mtd.isStatic();
-                if (mtd.getNumberOfParameters() > (isStatic ? 0 : 1)) {
-                  // For inferring parameter nullability, our criteria is based on finding
-                  // unchecked dereferences of that parameter. We perform a quick bytecode
-                  // check and skip methods containing no dereferences (i.e. method calls
-                  // or field accesses) at all, avoiding the expensive IR/CFG generation
-                  // step for these methods.
-                  // Note that this doesn't apply to inferring return value nullability.
-                  if (bytecodeHasAnyDereferences(mtd)) {
-                    analysisDriver = getAnalysisDriver(mtd, options, cache);
-                    Set<Integer> result = analysisDriver.analyze();
-                    if (!isStatic) {
-                      // subtract 1 from each parameter index to account for 'this' parameter
-                      result =
-                          result.stream().map(i -> i - 1).collect(ImmutableSet.toImmutableSet());
-                    }
-                    sign = getSignature(mtd);
-                    LOG(DEBUG, "DEBUG", "analyzed method: " + sign);
-                    if (!result.isEmpty() || DEBUG) {
-                      nonnullParams.put(sign, result);
-                      LOG(
-                          DEBUG,
-                          "DEBUG",
-                          "Inferred Nonnull param for method: " + sign + " = " + result.toString());
-                    }
-                  }
-                }
-                // Return value analysis
-                analyzeReturnValue(options, cache, mtd, analysisDriver, sign);
-              } catch (Exception e) {
-                LOG(
-                    DEBUG,
-                    "DEBUG",
-                    "Exception while scanning bytecodes for " + mtd + " " + e.getMessage());
-              }
+              classMethods.add(mtd);
             }
           }
+          classesToAnalyze.add(new ClassToAnalyze(cacheKey, classMethods, null));
+          methodsToAnalyze.addAll(classMethods);
+        }
+      }
+    }
+    Function<IMethod, MethodResult> analysis;
+    if (interprocedural) {
+      BottomUpAnalysis bottomUpAnalysis = new BottomUpAnalysis(methodsToSummarize, options, cha);
+      bottomUpAnalysis.run(numThreads);
+      // the methods were analyzed with the summaries of their callees while computing their own
+      // summaries, which thus hold their results
+      analysis = mtd -> getResultFromSummary(mtd, bottomUpAnalysis.getSummary(mtd));
+    } else {
+      // WALA's analysis caches are not thread-safe, so each thread gets its own
+      Map<Thread, AnalysisCache> caches = new ConcurrentHashMap<>();
+      analysis =
+          mtd ->
+              analyzeMethod(
+                  mtd,
+                  options,
+                  caches.computeIfAbsent(Thread.currentThread(), t -> new AnalysisCacheImpl()));
+    }
+    List<MethodResult> results = analyzeMethods(methodsToAnalyze, analysis);
+    // Merge in the order in which methods were found, so that the output does not depend on the
+    // number of threads or on which classes were cached
+    int nextResult = 0;
+    int cachedClasses = 0;
+    for (ClassToAnalyze classToAnalyze : classesToAnalyze) {
+      List<MethodResult> classResults = classToAnalyze.cachedResults();
+      if (classResults != null) {
+        cachedClasses++;
+      } else {
+        int numMethods = classToAnalyze.methods().size();
+        classResults = results.subList(nextResult, nextResult + numMethods);
+        nextResult += numMethods;
+        if (resultCache != null && classToAnalyze.cacheKey() != null) {
+          resultCache.put(classToAnalyze.cacheKey(), classResults);
+        }
+      }
+      for (MethodResult result : classResults) {
+        analyzedBytes += result.codeBytes;
+        if (result.nonnullParams != null) {
+          nonnullParams.put(result.paramsSign, result.nonnullParams);
+        }
+        if (!result.nullableReturnSign.isEmpty()) {
+          nullableReturns.add(result.nullableReturnSign);
         }
       }
     }
+    if (resultCache != null) {
+      LOG(
+          VERBOSE,
+          "Stats",
+          inPath
+              + " >> classes from cache: "
+              + cachedClasses
+              + ", classes analyzed: "
+              + (classesToAnalyze.size() - cachedClasses));
+    }
     long endTime = System.currentTimeMillis();
     LOG(
         VERBOSE,
@@ -333,26 +499,153 @@ public class DefinitelyDerefedParamsDriver {
             + (analyzedBytes > 0 ? (((endTime - analysisStartTime) * 1000) / analyzedBytes) : 0));
   }
 
+  /**
+   * Analyzes the given methods, on {@link #numThreads} threads.
+   *
+   * @param methods Methods to analyze.
+   * @param analysis Analysis of a single method.
+   * @return The results for each method, in the same order as {@code methods}.
+   */
+  private List<MethodResult> analyzeMethods(
+      List<IMethod> methods, Function<IMethod, MethodResult> analysis) {
+    if (numThreads == 1) {
+      return methods.stream().map(analysis).collect(Collectors.toList());
+    }
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    try {
+      // a parallel stream started from within the pool runs its tasks on the pool, and collecting
+      // it preserves the encounter order
+      return pool.submit(() -> methods.parallelStream().map(analysis).collect(Collectors.toList()))
+          .get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while analyzing methods", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException("failed to analyze methods", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Runs the parameter and return value analyses on a method. May be called concurrently for
+   * different methods, with a different {@code cache} for each thread.
+   *
+   * @param mtd Method to analyze.
+   * @param options WALA analysis options.
+   * @param cache WALA analysis cache, only used by the current thread.
+   * @return The results for the method.
+   */
+  private MethodResult analyzeMethod(IMethod mtd, AnalysisOptions options, AnalysisCache cache) {
+    MethodResult methodResult = new MethodResult();
+    DefinitelyDerefedParams analysisDriver = null;
+    String sign = "";
+    try {
+      // Parameter analysis
+      boolean isStatic = mtd.isStatic();
+      if (mtd.getNumberOfParameters() > (isStatic ? 0 : 1)) {
+        // For inferring parameter nullability, our criteria is based on finding
+        // unchecked dereferences of that parameter. We perform a quick bytecode
+        // check and skip methods containing no dereferences (i.e. method calls
+        // or field accesses) at all, avoiding the expensive IR/CFG generation
+        // step for these methods.
+        // Note that this doesn't apply to inferring return value nullability.
+        if (bytecodeHasAnyDereferences(mtd)) {
+          analysisDriver = getAnalysisDriver(mtd, options, cache, methodResult);
+          Set<Integer> result = analysisDriver.analyze();
+          if (!isStatic) {
+            // subtract 1 from each parameter index to account for 'this' parameter
+            result = result.stream().map(i -> i - 1).collect(ImmutableSet.toImmutableSet());
+          }
+          sign = getSignature(mtd);
+          LOG(DEBUG, "DEBUG", "analyzed method: " + sign);
+          if (!result.isEmpty() || DEBUG) {
+            methodResult.paramsSign = sign;
+            methodResult.nonnullParams = result;
+            LOG(
+                DEBUG,
+                "DEBUG",
+                "Inferred Nonnull param for method: " + sign + " = " + result.toString());
+          }
+        }
+      }
+      // Return value analysis
+      analyzeReturnValue(options, cache, mtd, analysisDriver, sign, methodResult);
+    } catch (Exception e) {
+      LOG(DEBUG, "DEBUG", "Exception while scanning bytecodes for " + mtd + " " + e.getMessage());
+    }
+    return methodResult;
+  }
+
   private void analyzeReturnValue(
       AnalysisOptions options,
       AnalysisCache cache,
       IMethod mtd,
       DefinitelyDerefedParams analysisDriver,
-      String sign) {
+      String sign,
+      MethodResult methodResult) {
     if (!mtd.getReturnType().isPrimitiveType()) {
       if (analysisDriver == null) {
-        analysisDriver = getAnalysisDriver(mtd, options, cache);
+        analysisDriver = getAnalysisDriver(mtd, options, cache, methodResult);
       }
       if (analysisDriver.analyzeReturnType() == DefinitelyDerefedParams.NullnessHint.NULLABLE) {
         if (sign.isEmpty()) {
           sign = getSignature(mtd);
         }
-        nullableReturns.add(sign);
+        methodResult.nullableReturnSign = sign;
         LOG(DEBUG, "DEBUG", "Inferred Nullable method return: " + sign);
       }
     }
   }
 
+  /**
+   * Returns the results for a method from its summary computed by {@link BottomUpAnalysis}, which
+   * are the results {@link #analyzeMethod} would compute given the summaries of the callees.
+   *
+   * @param mtd Method to get the results of.
+   * @param summary Summary of the method.
+   * @return The results for the method.
+   */
+  private MethodResult getResultFromSummary(IMethod mtd, BottomUpAnalysis.Summary summary) {
+    MethodResult methodResult = new MethodResult();
+    String sign = "";
+    try {
+      boolean isStatic = mtd.isStatic();
+      // the same checks as in analyzeMethod, which skips the parameters of some methods
+      boolean paramsAnalyzed =
+          mtd.getNumberOfParameters() > (isStatic ? 0 : 1) && bytecodeHasAnyDereferences(mtd);
+      if (paramsAnalyzed || !mtd.getReturnType().isPrimitiveType()) {
+        methodResult.codeBytes = getCodeBytes(mtd);
+      }
+      if (paramsAnalyzed) {
+        Set<Integer> result = summary.derefedParams();
+        if (!isStatic) {
+          // subtract 1 from each parameter index to account for 'this' parameter
+          result = result.stream().map(i -> i - 1).collect(ImmutableSet.toImmutableSet());
+        }
+        sign = getSignature(mtd);
+        if (!result.isEmpty() || DEBUG) {
+          methodResult.paramsSign = sign;
+          methodResult.nonnullParams = result;
+          LOG(
+              DEBUG,
+              "DEBUG",
+              "Inferred Nonnull param for method: " + sign + " = " + result.toString());
+        }
+      }
+      if (summary.mayReturnNull()) {
+        if (sign.isEmpty()) {
+          sign = getSignature(mtd);
+        }
+        methodResult.nullableReturnSign = sign;
+        LOG(DEBUG, "DEBUG", "Inferred Nullable method return: " + sign);
+      }
+    } catch (InvalidClassFileException e) {
+      LOG(DEBUG, "DEBUG", "Exception while scanning bytecodes for " + mtd + " " + e.getMessage());
+    }
+    return methodResult;
+  }
+
   private boolean shouldCheckMethod(IMethod mtd) {
     return !mtd.isPrivate()
         && !mtd.isSynthetic()
@@ -380,6 +673,55 @@ public class DefinitelyDerefedParamsDriver {
     return true;
   }
 
+  /**
+   * Computes the result cache keys for the classes in a jar.
+   *
+   * @param jarBytes Contents of the jar.
+   * @param resultCache The result cache.
+   * @return Map from WALA class names (e.g. {@code Lcom/example/Foo}) to their cache keys.
+   */
+  private static Map<String, String> getClassCacheKeysInJar(
+      byte[] jarBytes, AnalysisResultCache resultCache) throws IOException {
+    Map<String, String> keys = new HashMap<>();
+    try (JarInputStream jar = new JarInputStream(new ByteArrayInputStream(jarBytes))) {
+      for (JarEntry entry = jar.getNextJarEntry(); entry != null; entry = jar.getNextJarEntry()) {
+        String name = entry.getName();
+        if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+          keys.put(
+              "L" + name.substring(0, name.length() - ".class".length()),
+              resultCache.key(jar.readAllBytes()));
+        }
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Computes the result cache keys for the classes in a directory.
+   *
+   * @param dir Directory containing class files, laid out by package.
+   * @param resultCache The result cache.
+   * @return Map from WALA class names (e.g. {@code Lcom/example/Foo}) to their cache keys.
+   */
+  private static Map<String, String> getClassCacheKeysInDirectory(
+      Path dir, AnalysisResultCache resultCache) throws IOException {
+    Map<String, String> keys = new HashMap<>();
+    if (!Files.isDirectory(dir)) {
+      return keys;
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = dir.relativize(file).toString().replace(File.separatorChar, '/');
+        if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+          keys.put(
+              "L" + name.substring(0, name.length() - ".class".length()),
+              resultCache.key(Files.readAllBytes(file)));
+        }
+      }
+    }
+    return keys;
+  }
+
   /**
    * Get InputStream of the jar of class files to be analyzed.
    *
@@ -432,8 +774,6 @@ public class DefinitelyDerefedParamsDriver {
    *
    * @param out JarOutputStream for writing the astubx
    */
-  //  Note: Need version compatibility check between generated stub files and when reading models
-  //    StubxWriter.VERSION_0_FILE_MAGIC_NUMBER (?)
   private void writeModel(DataOutputStream out) throws IOException {
     ImmutableMap<String, String> importedAnnotations =
         ImmutableMap.<String, String>builder()
@@ -474,6 +814,7 @@ public class DefinitelyDerefedParamsDriver {
     }
     StubxWriter.write(
         out,
+        astubxFormatVersion,
         importedAnnotations,
         packageAnnotations,
         typeAnnotations,
@@ -491,17 +832,23 @@ public class DefinitelyDerefedParamsDriver {
 
     new File(outFile).getParentFile().mkdirs();
     if (inPath.endsWith(".jar")) {
-      JarFile jar = new JarFile(inPath);
-      JarOutputStream jarOS = new JarOutputStream(new FileOutputStream(outFile));
       BytecodeAnnotator.annotateBytecodeInJar(
-          jar, jarOS, nonnullParams, nullableReturns, stripJarSignatures, DEBUG);
-      jarOS.close();
+          Paths.get(inPath),
+          Paths.get(outFile),
+          nonnullParams,
+          nullableReturns,
+          stripJarSignatures,
+          numThreads,
+          DEBUG);
     } else if (inPath.endsWith(".aar")) {
-      ZipFile zip = new ZipFile(inPath);
-      ZipOutputStream zipOS = new ZipOutputStream(new FileOutputStream(outFile));
       BytecodeAnnotator.annotateBytecodeInAar(
-          zip, zipOS, nonnullParams, nullableReturns, stripJarSignatures, DEBUG);
-      zipOS.close();
+          Paths.get(inPath),
+          Paths.get(outFile),
+          nonnullParams,
+          nullableReturns,
+          stripJarSignatures,
+          numThreads,
+          DEBUG);
     } else {
       InputStream is = new FileInputStream(inPath);
       OutputStream os = new FileOutputStream(outFile);
@@ -30,6 +30,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.MessageDigest;
@@ -37,9 +39,13 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableEntryException;
 import java.security.cert.CertificateException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import jdk.security.jarsigner.JarSigner;
 import org.apache.commons.io.FilenameUtils;
@@ -92,11 +98,31 @@ public class JarInferTest {
       Map<String, Set<Integer>> expected,
       String... lines)
       throws Exception {
+    testTemplate(new DefinitelyDerefedParamsDriver(), testName, pkg, cls, expected, lines);
+  }
+
+  /**
+   * Create, compile, and run a unit test with a configured driver.
+   *
+   * @param driver The driver running the analysis.
+   * @param testName An useful name for the unit test.
+   * @param pkg Qualified package name.
+   * @param cls Target class to be analyzed.
+   * @param expected Map of 'method signatures' to their 'expected list of NonNull parameters'.
+   * @param lines Source lines for the test code.
+   */
+  private void testTemplate(
+      DefinitelyDerefedParamsDriver driver,
+      String testName,
+      String pkg, // in dot syntax
+      String cls,
+      Map<String, Set<Integer>> expected,
+      String... lines)
+      throws Exception {
     compilationTestHelper
         .addSourceLines(cls + ".java", ObjectArrays.concat("package " + pkg + ";\n", lines))
         .expectResult(Main.Result.OK)
         .doTest();
-    DefinitelyDerefedParamsDriver driver = new DefinitelyDerefedParamsDriver();
     Map<String, Set<Integer>> result =
         driver.run(
             temporaryFolder.getRoot().getAbsolutePath(), "L" + pkg.replaceAll("\\.", "/"), true);
@@ -290,6 +316,83 @@ public class JarInferTest {
         "}");
   }
 
+  @Test
+  public void toyInterprocedural() throws Exception {
+    DefinitelyDerefedParamsDriver driver = new DefinitelyDerefedParamsDriver();
+    driver.setInterprocedural(true);
+    testTemplate(
+        driver,
+        "toyInterprocedural",
+        "toys",
+        "Test",
+        ImmutableMap.of(
+            "toys.Base:int run(java.lang.String)", Sets.newHashSet(0),
+            "toys.Test:void callsHelper(java.lang.String, java.lang.String)", Sets.newHashSet(0),
+            "toys.Test:int recursive(java.lang.String, int)", Sets.newHashSet(0),
+            "toys.Test:void callsVirtual(toys.Base, java.lang.String)", Sets.newHashSet(0),
+            "toys.Leaf:int run(java.lang.String)", Sets.newHashSet(0),
+            "toys.Leaf:int runFinal(java.lang.String)", Sets.newHashSet(0),
+            "toys.Final:int run(java.lang.String)", Sets.newHashSet(0),
+            "toys.Test:void callsOverridable(toys.Leaf, java.lang.String)", Sets.newHashSet(0),
+            "toys.Test:void callsFinalMethod(toys.Leaf, java.lang.String)", Sets.newHashSet(0, 1),
+            "toys.Test:void callsFinalClass(toys.Final, java.lang.String)", Sets.newHashSet(0, 1)),
+        "class Base {",
+        "  public int run(String s) {",
+        "    return s.length();",
+        "  }",
+        "}",
+        "class Sub extends Base {",
+        "  @Override",
+        "  public int run(String s) {",
+        "    return s == null ? 0 : 1;",
+        "  }",
+        "}",
+        "class Leaf {",
+        "  public int run(String s) {",
+        "    return s.length();",
+        "  }",
+        "  public final int runFinal(String s) {",
+        "    return s.length();",
+        "  }",
+        "}",
+        "final class Final {",
+        "  public int run(String s) {",
+        "    return s.length();",
+        "  }",
+        "}",
+        "public class Test {",
+        "  private static int helper(String s) {",
+        "    return s.length();",
+        "  }",
+        "  public static void callsHelper(String s, String t) {",
+        "    helper(s);",
+        "    if (t != null) {",
+        "      helper(t);",
+        "    }",
+        "  }",
+        "  public static int recursive(String s, int n) {",
+        "    if (n == 0) {",
+        "      return s.length();",
+        "    }",
+        "    return recursive(s, n - 1);",
+        "  }",
+        "  public static void callsVirtual(Base b, String s) {",
+        "    // not dereferenced by the override in Sub",
+        "    b.run(s);",
+        "  }",
+        "  public static void callsOverridable(Leaf l, String s) {",
+        "    // a subclass of Leaf outside of the jar may override run",
+        "    l.run(s);",
+        "  }",
+        "  public static void callsFinalMethod(Leaf l, String s) {",
+        "    l.runFinal(s);",
+        "  }",
+        "  public static void callsFinalClass(Final l, String s) {",
+        "    l.run(s);",
+        "  }",
+        "}");
+  }
+
   @Test
   public void toyJAR() throws Exception {
     testJARTemplate(
@@ -643,6 +746,82 @@ public class JarInferTest {
     Assert.assertArrayEquals(checksumBytes1, checksumBytes2);
   }
 
+  @Test
+  public void parallelAnalysisOutputMatchesSequential() throws Exception {
+    String jarPath = "../test-java-lib-jarinfer/build/libs/test-java-lib-jarinfer.jar";
+    String pkg = "com.uber.nullaway.jarinfer.toys.unannotated";
+    DefinitelyDerefedParamsDriver sequentialDriver = new DefinitelyDerefedParamsDriver();
+    Map<String, Set<Integer>> sequentialResult =
+        new HashMap<>(sequentialDriver.run(jarPath, "L" + pkg.replaceAll("\\.", "/")));
+    byte[] sequentialChecksum = sha1sum(sequentialDriver.lastOutPath);
+    DefinitelyDerefedParamsDriver parallelDriver = new DefinitelyDerefedParamsDriver(4);
+    Map<String, Set<Integer>> parallelResult =
+        parallelDriver.run(jarPath, "L" + pkg.replaceAll("\\.", "/"));
+    Assert.assertEquals(sequentialResult, parallelResult);
+    Assert.assertArrayEquals(sequentialChecksum, sha1sum(parallelDriver.lastOutPath));
+  }
+
+  @Test
+  public void cachedAnalysisOutputMatchesUncached() throws Exception {
+    String jarPath = "../test-java-lib-jarinfer/build/libs/test-java-lib-jarinfer.jar";
+    String pkg = "L" + "com.uber.nullaway.jarinfer.toys.unannotated".replaceAll("\\.", "/");
+    Path cacheDir = outputFolder.newFolder("result_cache").toPath();
+    DefinitelyDerefedParamsDriver uncachedDriver = new DefinitelyDerefedParamsDriver();
+    Map<String, Set<Integer>> uncachedResult = new HashMap<>(uncachedDriver.run(jarPath, pkg));
+    byte[] uncachedChecksum = sha1sum(uncachedDriver.lastOutPath);
+    // the first run fills the cache, the second one only reads from it
+    for (int i = 0; i < 2; i++) {
+      DefinitelyDerefedParamsDriver cachedDriver = new DefinitelyDerefedParamsDriver();
+      cachedDriver.setResultCacheDir(cacheDir);
+      Map<String, Set<Integer>> cachedResult = cachedDriver.run(jarPath, pkg);
+      Assert.assertEquals(uncachedResult, cachedResult);
+      Assert.assertArrayEquals(uncachedChecksum, sha1sum(cachedDriver.lastOutPath));
+      try (Stream<Path> entries = Files.list(cacheDir)) {
+        Assert.assertTrue(entries.findAny().isPresent());
+      }
+    }
+  }
+
+  @Test
+  public void unchangedJarEntriesAreCopiedAsIs() throws Exception {
+    String jarPath = "../test-java-lib-jarinfer/build/libs/test-java-lib-jarinfer.jar";
+    String pkg = "L" + "com.uber.nullaway.jarinfer.toys.unannotated".replaceAll("\\.", "/");
+    DefinitelyDerefedParamsDriver driver = new DefinitelyDerefedParamsDriver(2);
+    driver.run(jarPath, pkg);
+    int unchangedEntries = 0;
+    try (ZipFile input = new ZipFile(jarPath); ZipFile output = new ZipFile(driver.lastOutPath)) {
+      for (ZipEntry outputEntry : Collections.list(output.entries())) {
+        ZipEntry inputEntry = input.getEntry(outputEntry.getName());
+        Assert.assertNotNull(inputEntry);
+        if (inputEntry.getCrc() == outputEntry.getCrc()) {
+          // the compressed data of the entry is copied, rather than inflated and compressed again
+          Assert.assertEquals(inputEntry.getMethod(), outputEntry.getMethod());
+          Assert.assertEquals(inputEntry.getCompressedSize(), outputEntry.getCompressedSize());
+          unchangedEntries++;
+        }
+      }
+    }
+    Assert.assertTrue(unchangedEntries > 0);
+  }
+
+  @Test
+  public void resultCacheIgnoresEntriesOfOtherVersions() throws Exception {
+    Path cacheDir = outputFolder.newFolder("versioned_result_cache").toPath();
+    byte[] classFile = {1, 2, 3};
+    DefinitelyDerefedParamsDriver.MethodResult result =
+        new DefinitelyDerefedParamsDriver.MethodResult();
+    result.paramsSign = "toys.Foo:void run(java.lang.Object)";
+    result.nonnullParams = Set.of(1);
+    AnalysisResultCache cache = new AnalysisResultCache(cacheDir, "options", "1.0");
+    cache.put(cache.key(classFile), List.of(result));
+    List<DefinitelyDerefedParamsDriver.MethodResult> cached =
+        new AnalysisResultCache(cacheDir, "options", "1.0").get(cache.key(classFile));
+    Assert.assertNotNull(cached);
+    Assert.assertEquals(Set.of(1), cached.get(0).nonnullParams);
+    AnalysisResultCache newerCache = new AnalysisResultCache(cacheDir, "options", "1.1");
+    Assert.assertNull(newerCache.get(newerCache.key(classFile)));
+  }
+
   @Test
   public void testSignedJars() throws Exception {
     // Set test configuration paths / options
@@ -2,10 +2,13 @@ package com.uber.nullaway.jdkannotations;
 
 public class AstubxGeneratorCLI {
   public static void main(String[] args) {
-    if (args.length != 2) {
-      System.err.println("Invalid number of arguments. Required: <inputPath> <outputPath>");
+    if (args.length != 2 && args.length != 3) {
+      System.err.println(
+          "Invalid number of arguments. Required: <inputPath> <outputPath> [<astubxVersion>]");
       System.exit(2);
     }
-    AstubxGenerator.generateAstubx(args[0], args[1]);
+    AstubxGenerator.AstubxData astubxData = AstubxGenerator.getAstubxData(args[0]);
+    int formatVersion = args.length == 3 ? Integer.parseInt(args[2]) : 2;
+    AstubxGenerator.writeToAstubxFile(args[1], astubxData, formatVersion);
   }
 }
@@ -2,35 +2,38 @@ package com.uber.nullaway.jdkannotations;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSetMultimap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.uber.nullaway.javacplugin.AstubxRecords;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.ClassEntry;
 import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.ClassInfo;
-import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.MethodInfo;
-import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.TypeParamInfo;
 import com.uber.nullaway.libmodel.MethodAnnotationsRecord;
-import com.uber.nullaway.libmodel.NestedAnnotationInfo;
 import com.uber.nullaway.libmodel.StubxWriter;
+import java.io.BufferedReader;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
 
 /**
  * This class utilizes jdk-javac-plugin module to generate JSON files from Java source files. Using
@@ -39,25 +42,6 @@ import java.util.regex.Pattern;
  */
 public class AstubxGenerator {
 
-  /** Used to strip annotations at every depth from a type signature used as an astubx key. */
-  private static final Pattern TYPE_SIGNATURE_ANNOTATION_PATTERN =
-      buildTypeSignatureAnnotationPattern();
-
-  /**
-   * Matches {@code @Nullable} on the root array type. javac renders the root as the first {@code
-   * []}, so the pattern must not cross an earlier bracket pair; for example, it matches {@code
-   * String @Nullable [][]} but not {@code String[] @Nullable []}.
-   */
-  private static final Pattern ARRAY_NULLNESS_ANNOTATION_PATTERN =
-      Pattern.compile("^[^\\[]*?@(?:org\\.jspecify\\.annotations\\.)?Nullable(?=\\s*\\[])");
-
-  /**
-   * Matches annotations immediately before the "..." for varargs parameters Does not handle
-   * explicit {@code @NonNull} annotations; see https://github.com/uber/NullAway/issues/1498
-   */
-  private static final Pattern VARARGS_ARRAY_NULLNESS_ANNOTATION_PATTERN =
-      Pattern.compile("@[\\w.]+(?=\\.\\.\\.)");
-
   /**
    * Contains all information that will be added to the astubx file.
    *
@@ -92,59 +76,71 @@ public class AstubxGenerator {
     writeToAstubxFile(astubxDirPath, astubxData);
   }
 
+  /**
+   * Parses the files generated by the jdk-javac-plugin into the information to write to the astubx
+   * file. Files are parsed in parallel and streamed, so each class is converted to records as soon
+   * as it is read, and only the records, not the parsed JSON, are held in memory. Astubx files
+   * written directly by the plugin are merged. Files may have records for the same methods and
+   * classes as long as they agree on them, so the result does not depend on the order of the files.
+   *
+   * @param jsonDirPath The path to the files.
+   * @return the information to write to the astubx file
+   * @throws IllegalStateException if two files have different records for a method or class
+   */
   public static AstubxData getAstubxData(String jsonDirPath) {
-    Map<String, List<ClassInfo>> parsed = parseJson(jsonDirPath);
-
-    ImmutableMap<String, String> importedAnnotations =
-        ImmutableMap.of(
-            "NonNull", "org.jspecify.annotations.NonNull",
-            "Nullable", "org.jspecify.annotations.Nullable");
+    Gson gson = createGson();
+    List<File> jsonFiles =
+        Arrays.stream(listJsonFiles(jsonDirPath))
+            .sorted(Comparator.comparing(File::getName))
+            .toList();
+    List<AstubxRecords> shards =
+        jsonFiles.parallelStream().map(jsonFile -> parseShard(gson, jsonFile)).toList();
+
+    // Shards may overlap, e.g., if a class was compiled twice, but must agree on the records they
+    // share, so that the merged records do not depend on the order of the shards
+    AstubxRecords records = new AstubxRecords();
+    for (int i = 0; i < shards.size(); i++) {
+      try {
+        records.addAll(shards.get(i));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException(
+            "Cannot merge " + jsonFiles.get(i).getAbsolutePath() + ": " + e.getMessage(), e);
+      }
+    }
     // There is no package-info.java files in jspecify/jdk that were @NullMarked so package
     // information support is skipped in jdk-javac-plugin
     Map<String, Set<String>> packageAnnotations = new HashMap<>();
     Map<String, Set<String>> typeAnnotations = new HashMap<>();
-    Map<String, MethodAnnotationsRecord> methodRecords = new LinkedHashMap<>();
-    Set<String> nullMarkedClasses = new LinkedHashSet<>();
-    Map<String, Set<Integer>> nullableUpperBounds = new LinkedHashMap<>();
-
-    for (Map.Entry<String, List<ClassInfo>> entry : parsed.entrySet()) {
-      for (ClassInfo clazz : entry.getValue()) {
-        String fullyQualifiedClassName = clazz.type();
-        if (fullyQualifiedClassName.indexOf('<') != -1) {
-          fullyQualifiedClassName =
-              fullyQualifiedClassName.substring(0, fullyQualifiedClassName.indexOf('<'));
-        }
-        if (clazz.nullMarked()) {
-          nullMarkedClasses.add(fullyQualifiedClassName);
-        }
-
-        // check upperbounds of type parameters
-        Set<Integer> nullableUpperBoundIndices = new LinkedHashSet<>();
-        for (int idx = 0; idx < clazz.typeParams().size(); idx++) {
-          TypeParamInfo typeParam = clazz.typeParams().get(idx);
-          for (String bound : typeParam.bounds()) {
-            if (bound.contains("@org.jspecify.annotations.Nullable")
-                || bound.contains("@Nullable")) {
-              nullableUpperBoundIndices.add(idx);
-            }
-          }
-        }
-        if (!nullableUpperBoundIndices.isEmpty()) {
-          nullableUpperBounds.put(fullyQualifiedClassName, nullableUpperBoundIndices);
-        }
-        getMethodRecords(clazz, fullyQualifiedClassName, methodRecords);
-      }
-    }
+    // Sorted, as the astubx file lists records in iteration order
     return new AstubxData(
-        importedAnnotations,
+        AstubxRecords.IMPORTED_ANNOTATIONS,
         packageAnnotations,
         typeAnnotations,
-        methodRecords,
-        nullableUpperBounds,
-        nullMarkedClasses);
+        new TreeMap<>(records.methodRecords()),
+        new TreeMap<>(records.nullableUpperBounds()),
+        new TreeSet<>(records.nullMarkedClasses()));
   }
 
+  /**
+   * Writes the astubx file in version 2 of the format, which is faster to load. The JDK models are
+   * bundled with NullAway, so they are always read by a version that supports it.
+   *
+   * @param astubxDirPath The directory path to generate the astubx file.
+   * @param astubxData The information to write.
+   */
   public static void writeToAstubxFile(String astubxDirPath, AstubxData astubxData) {
+    writeToAstubxFile(astubxDirPath, astubxData, 2);
+  }
+
+  /**
+   * Writes the astubx file in the given version of the format.
+   *
+   * @param astubxDirPath The directory path to generate the astubx file.
+   * @param astubxData The information to write.
+   * @param formatVersion Version of the astubx format, 1 or 2.
+   */
+  public static void writeToAstubxFile(
+      String astubxDirPath, AstubxData astubxData, int formatVersion) {
     // check if the astubx file directory exists
     try {
       Files.createDirectories(Paths.get(astubxDirPath));
@@ -156,6 +152,7 @@ public class AstubxGenerator {
     try (DataOutputStream out = new DataOutputStream(new FileOutputStream(outputFile))) {
       StubxWriter.write(
           out,
+          formatVersion,
           astubxData.importedAnnotations(),
           astubxData.packageAnnotations(),
           astubxData.typeAnnotations(),
@@ -168,15 +165,7 @@ public class AstubxGenerator {
     }
   }
 
-  /**
-   * This method parses the JSON files generated by the jdk-javac-plugin, and returns the
-   * information as a Map from module name to information for classes in that module.
-   *
-   * @param jsonDirPath The path to the JSON files.
-   * @return A Map from module name to information for classes in that module.
-   */
-  private static Map<String, List<ClassInfo>> parseJson(String jsonDirPath) {
-    // get parsed JSON file
+  private static File[] listJsonFiles(String jsonDirPath) {
     File jsonDir = new File(jsonDirPath);
 
     if (!jsonDir.exists() || !jsonDir.isDirectory()) {
@@ -184,237 +173,106 @@ public class AstubxGenerator {
           "JSON directory does not exist or is not a directory: " + jsonDirPath);
     }
 
-    File[] jsonFiles = jsonDir.listFiles((dir, name) -> name.endsWith(".json"));
+    File[] jsonFiles =
+        jsonDir.listFiles(
+            (dir, name) ->
+                name.endsWith(NullnessAnnotationSerializer.FILE_SUFFIX)
+                    || name.endsWith(NullnessAnnotationSerializer.GZIP_FILE_SUFFIX)
+                    || name.endsWith(NullnessAnnotationSerializer.ASTUBX_FILE_SUFFIX)
+                    || name.endsWith(".json"));
     if (jsonFiles == null || jsonFiles.length == 0) {
       throw new IllegalStateException("No JSON files found in: " + jsonDirPath);
     }
+    return jsonFiles;
+  }
 
-    Gson gson =
-        new GsonBuilder()
-            .registerTypeAdapter(
-                ImmutableList.class,
-                (JsonDeserializer<ImmutableList<?>>)
-                    (json, type, context) -> {
-                      if (json.isJsonNull()) {
-                        return ImmutableList.of();
-                      }
-                      if (!(type instanceof ParameterizedType paramType)) {
-                        // Raw ImmutableList, deserialize as List<Object>
-                        List<?> list = context.deserialize(json, List.class);
-                        return list == null ? ImmutableList.of() : ImmutableList.copyOf(list);
-                      }
-                      // Get type inside the list
-                      Type[] typeArgs = paramType.getActualTypeArguments();
-                      Type innerType = typeArgs.length > 0 ? typeArgs[0] : Object.class;
-
-                      // Get as ArrayList
-                      List<?> standardList =
-                          context.deserialize(
-                              json, TypeToken.getParameterized(List.class, innerType).getType());
-
-                      // Convert to Guava ImmutableList
-                      return standardList == null
-                          ? ImmutableList.of()
-                          : ImmutableList.copyOf(standardList);
-                    })
-            .create();
-    Type parsedType = new TypeToken<Map<String, List<ClassInfo>>>() {}.getType();
+  private static Gson createGson() {
+    return new GsonBuilder()
+        .registerTypeAdapter(
+            ImmutableList.class,
+            (JsonDeserializer<ImmutableList<?>>)
+                (json, type, context) -> {
+                  if (json.isJsonNull()) {
+                    return ImmutableList.of();
+                  }
+                  if (!(type instanceof ParameterizedType paramType)) {
+                    // Raw ImmutableList, deserialize as List<Object>
+                    List<?> list = context.deserialize(json, List.class);
+                    return list == null ? ImmutableList.of() : ImmutableList.copyOf(list);
+                  }
+                  // Get type inside the list
+                  Type[] typeArgs = paramType.getActualTypeArguments();
+                  Type innerType = typeArgs.length > 0 ? typeArgs[0] : Object.class;
+
+                  // Get as ArrayList
+                  List<?> standardList =
+                      context.deserialize(
+                          json, TypeToken.getParameterized(List.class, innerType).getType());
+
+                  // Convert to Guava ImmutableList
+                  return standardList == null
+                      ? ImmutableList.of()
+                      : ImmutableList.copyOf(standardList);
+                })
+        .create();
+  }
 
-    // parse JSON file
-    Map<String, List<ClassInfo>> parsed = new HashMap<>();
-    for (File jsonFile : jsonFiles) {
+  /**
+   * Parses a file generated by the jdk-javac-plugin. Astubx files are read as a whole. From other
+   * files, classes are read one at a time and converted to records right away: files in JSON Lines
+   * format, optionally gzipped, hold a {@link ClassEntry} per line, and files with a {@code .json}
+   * suffix are in the format of earlier versions of the plugin, a single object mapping module
+   * names to the classes in that module, and are read with a {@link JsonReader}.
+   *
+   * @param gson Gson instance deserializing single classes.
+   * @param jsonFile The file.
+   * @return the records of the classes in the file
+   */
+  private static AstubxRecords parseShard(Gson gson, File jsonFile) {
+    AstubxRecords records = new AstubxRecords();
+    String name = jsonFile.getName();
+    if (name.endsWith(NullnessAnnotationSerializer.ASTUBX_FILE_SUFFIX)) {
       try {
-        String jsonContent = Files.readString(jsonFile.toPath());
-        Map<String, List<ClassInfo>> parsedShard = gson.fromJson(jsonContent, parsedType);
-        for (Map.Entry<String, List<ClassInfo>> shardEntry : parsedShard.entrySet()) {
-          parsed
-              // if the key didn't exist, create a new list
-              .computeIfAbsent(shardEntry.getKey(), __ -> new ArrayList<>())
-              .addAll(shardEntry.getValue()); // add values to the key
-        }
+        records.addAstubx(Files.readAllBytes(jsonFile.toPath()), jsonFile.getAbsolutePath());
       } catch (IOException e) {
-        System.err.println("Error reading JSON file: " + jsonFile.getAbsolutePath());
+        System.err.println("Error reading astubx file: " + jsonFile.getAbsolutePath());
         throw new RuntimeException(e);
       }
+      return records;
     }
-
-    return parsed;
-  }
-
-  private static void getMethodRecords(
-      ClassInfo clazz,
-      String fullyQualifiedClassName,
-      Map<String, MethodAnnotationsRecord> methodRecords) {
-    for (MethodInfo method : clazz.methods()) {
-      String methodName = method.name();
-      // get return type nullness
-      String returnType = removeGenericAnnotations(method.returnType());
-      ImmutableSet<String> returnTypeNullness =
-          hasTopLevelNullableAnnotation(returnType)
-              ? ImmutableSet.of("Nullable")
-              : ImmutableSet.of();
-      returnType = stripAnnotationsFromTypeSignature(returnType).replace(" []", "[]");
-      ImmutableSet.Builder<Integer> nullableTypeParamBuilder = ImmutableSet.builder();
-      for (int i = 0; i < method.typeParams().size(); i++) {
-        TypeParamInfo typeParam = method.typeParams().get(i);
-        for (String upperBound : typeParam.bounds()) {
-          if (upperBound.contains("@Nullable")) {
-            nullableTypeParamBuilder.add(i);
+    try (InputStream in = Files.newInputStream(jsonFile.toPath());
+        BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(
+                    name.endsWith(NullnessAnnotationSerializer.GZIP_FILE_SUFFIX)
+                        ? new GZIPInputStream(in)
+                        : in,
+                    StandardCharsets.UTF_8))) {
+      if (name.endsWith(".json")) {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+          // module name
+          jsonReader.nextName();
+          jsonReader.beginArray();
+          while (jsonReader.hasNext()) {
+            records.addClass(gson.fromJson(jsonReader, ClassInfo.class));
           }
+          jsonReader.endArray();
         }
-      }
-
-      String signatureForMethodRecords = fullyQualifiedClassName + ":" + returnType + " ";
-      signatureForMethodRecords += methodName.substring(0, methodName.indexOf('(') + 1);
-      Map<Integer, ImmutableSet<String>> argAnnotation = new LinkedHashMap<>();
-
-      // get the argument lists
-      String[] argumentList = getArgumentsAsArray(methodName);
-
-      for (int i = 0; i < argumentList.length; i++) {
-        // remove generic annotations on arguments
-        String typeSignature = removeGenericAnnotations(argumentList[i].trim());
-        if (hasTopLevelNullableAnnotation(typeSignature)) {
-          argAnnotation.put(i, ImmutableSet.of("Nullable"));
-        }
-        // Remove annotations before writing the method signature key, while preserving the varargs
-        // ellipsis so the generated key still matches the erased bytecode signature.
-        argumentList[i] = stripAnnotationsFromTypeSignature(typeSignature).replace(" []", "[]");
-      }
-      ImmutableSetMultimap.Builder<Integer, NestedAnnotationInfo> nestedAnnotations =
-          new ImmutableSetMultimap.Builder<>();
-      for (Map.Entry<Integer, Set<NestedAnnotationInfo>> nestedInfo :
-          method.nestedAnnotationsList().entrySet()) {
-        nestedAnnotations.putAll(nestedInfo.getKey(), nestedInfo.getValue());
-      }
-      signatureForMethodRecords += String.join(",", argumentList) + ")";
-      methodRecords.put(
-          signatureForMethodRecords,
-          MethodAnnotationsRecord.create(
-              returnTypeNullness,
-              nullableTypeParamBuilder.build(),
-              ImmutableMap.copyOf(argAnnotation),
-              nestedAnnotations.build()));
-    }
-  }
-
-  private static String[] getArgumentsAsArray(String methodName) {
-    // get String of only arguments
-    String argsOnly = "";
-    Pattern pattern = Pattern.compile(".*\\((.*)\\)");
-    Matcher matcher = pattern.matcher(methodName);
-    if (matcher.matches()) {
-      argsOnly = matcher.group(1).trim();
-    }
-
-    if (argsOnly.isEmpty()) {
-      return new String[0];
-    }
-
-    // make a list of arguments
-    List<String> output = new ArrayList<>();
-    StringBuilder cur = new StringBuilder();
-
-    int depth = 0; // nesting level for '<' ... '>'
-    for (int i = 0; i < argsOnly.length(); i++) {
-      char c = argsOnly.charAt(i);
-      switch (c) {
-        case '<' -> {
-          depth++;
-          cur.append(c);
-        }
-        case '>' -> {
-          depth = Math.max(0, depth - 1);
-          cur.append(c);
-        }
-        case ',' -> {
-          if (depth == 0) {
-            String token = cur.toString().trim();
-            if (!token.isEmpty()) {
-              output.add(token);
-            }
-            cur.setLength(0);
-          } else {
-            cur.append(c);
+        jsonReader.endObject();
+      } else {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (!line.isEmpty()) {
+            records.addClass(gson.fromJson(line, ClassEntry.class).classInfo());
           }
         }
-        default -> cur.append(c);
       }
+    } catch (IOException e) {
+      System.err.println("Error reading JSON file: " + jsonFile.getAbsolutePath());
+      throw new RuntimeException(e);
     }
-    String tail = cur.toString().trim();
-    if (!tail.isEmpty()) {
-      output.add(tail);
-    }
-
-    return output.toArray(String[]::new);
-  }
-
-  private static String removeGenericAnnotations(String typeSignature) {
-    if (typeSignature.indexOf('<') != -1) {
-      StringBuilder withoutGenericAnnotations = new StringBuilder();
-      int depth = 0;
-      int annotationDepth = 0;
-      for (int j = 0; j < typeSignature.length(); j++) {
-        char ch = typeSignature.charAt(j);
-        if (ch == '<') {
-          depth++;
-          withoutGenericAnnotations.append(ch);
-        } else if (ch == '>') {
-          depth = Math.max(0, depth - 1);
-          withoutGenericAnnotations.append(ch);
-        } else if (depth == 0) {
-          withoutGenericAnnotations.append(ch);
-        } else if (ch == '@') {
-          annotationDepth++;
-        } else if (ch == ' ' && annotationDepth != 0) {
-          annotationDepth = Math.max(0, annotationDepth - 1);
-        } else if (annotationDepth == 0) {
-          withoutGenericAnnotations.append(ch);
-        }
-      }
-      typeSignature = withoutGenericAnnotations.toString().trim();
-    }
-    return typeSignature;
-  }
-
-  /**
-   * Checks if the given type has a top-level {@code @Nullable} annotation. Assumes there are no
-   * annotations on any generic type arguments in the type. We only handle JSpecify
-   * {@code @Nullable} annotations for now, as those are the only type present in the JSpecify JDK.
-   *
-   * @param type the type
-   * @return true if the type has a top-level {@code @Nullable} annotation, false otherwise
-   */
-  private static boolean hasTopLevelNullableAnnotation(String type) {
-    if (!(type.contains("@org.jspecify.annotations.Nullable") || type.contains("@Nullable"))) {
-      return false;
-    }
-    if (!type.contains("...")) {
-      if (type.contains("[")) {
-        // Arrays need special handling:
-        //   @Nullable String[]     -> nullable elements, not a nullable array
-        //   String @Nullable []    -> nullable array
-        // Only the latter is a top-level annotation
-        return ARRAY_NULLNESS_ANNOTATION_PATTERN.matcher(type).find();
-      }
-      return true;
-    }
-    // Varargs need special handling:
-    //   @Nullable Object...      -> nullable elements, not a nullable array parameter
-    //   Object @Nullable ...     -> nullable array parameter
-    // Only the latter is a top-level annotation
-    return VARARGS_ARRAY_NULLNESS_ANNOTATION_PATTERN.matcher(type).find();
-  }
-
-  private static String stripAnnotationsFromTypeSignature(String typeSignature) {
-    return TYPE_SIGNATURE_ANNOTATION_PATTERN.matcher(typeSignature).replaceAll("");
-  }
-
-  private static Pattern buildTypeSignatureAnnotationPattern() {
-    String annotationWithSpace = "@[\\w.]+\\s";
-    // top-level varargs array annotations (for the array itself) are rendered directly before the
-    // ellipsis.
-    String annotationOfVarargsArray = "@[\\w.]+(?=\\.\\.\\.)";
-    return Pattern.compile(annotationWithSpace + "|" + annotationOfVarargsArray);
+    return records;
   }
 }
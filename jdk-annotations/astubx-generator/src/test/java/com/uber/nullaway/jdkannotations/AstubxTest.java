@@ -11,12 +11,20 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.CompilationTestHelper;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer;
 import com.uber.nullaway.libmodel.MethodAnnotationsRecord;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo.Annotation;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry.Kind;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Set;
@@ -685,6 +693,189 @@ public class AstubxTest {
     runTest(expectedMethodRecords, ImmutableMap.of(), ImmutableSet.of("Test"));
   }
 
+  @Test
+  public void legacyJsonInput() throws IOException {
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.List;
+            import org.jspecify.annotations.NullMarked;
+            import org.jspecify.annotations.Nullable;
+            @NullMarked
+            public class Test<T extends @Nullable Object> {
+              public @Nullable String get(@Nullable String s) { return s; }
+              public List<@Nullable String> list() { throw new RuntimeException(); }
+            }
+            """)
+        .doTest();
+    // convert the JSON Lines output of the plugin to a single object mapping module names to
+    // classes, as written by earlier versions of the plugin
+    JsonObject modules = new JsonObject();
+    File[] jsonLinesFiles =
+        jsonFolder
+            .getRoot()
+            .listFiles((dir, name) -> name.endsWith(NullnessAnnotationSerializer.FILE_SUFFIX));
+    Assert.assertNotNull(jsonLinesFiles);
+    for (File file : jsonLinesFiles) {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        JsonObject entry = JsonParser.parseString(line).getAsJsonObject();
+        String module = entry.get("module").getAsString();
+        if (!modules.has(module)) {
+          modules.add(module, new JsonArray());
+        }
+        modules.getAsJsonArray(module).add(entry.get("classInfo"));
+      }
+    }
+    File legacyDir = jsonFolder.newFolder("legacy");
+    Files.writeString(
+        legacyDir.toPath().resolve("classes.json"), modules.toString(), StandardCharsets.UTF_8);
+
+    AstubxGenerator.AstubxData jsonLines =
+        AstubxGenerator.getAstubxData(jsonFolder.getRoot().getAbsolutePath());
+    AstubxGenerator.AstubxData legacy =
+        AstubxGenerator.getAstubxData(legacyDir.getAbsolutePath());
+    assertThat(legacy.methodRecords().size(), equalTo(2));
+    assertThat(legacy.methodRecords(), equalTo(jsonLines.methodRecords()));
+    assertThat(legacy.nullableUpperBounds(), equalTo(jsonLines.nullableUpperBounds()));
+    assertThat(legacy.nullMarkedClasses(), equalTo(jsonLines.nullMarkedClasses()));
+    Assert.assertArrayEquals(writeAstubx(jsonLines, "jsonl"), writeAstubx(legacy, "json"));
+  }
+
+  @Test
+  public void mergesOverlappingAstubxShards() throws IOException {
+    String shared =
+        """
+        import org.jspecify.annotations.NullMarked;
+        import org.jspecify.annotations.Nullable;
+        @NullMarked
+        public class Shared<T extends @Nullable Object> {
+          public @Nullable String get() { return null; }
+        }
+        """;
+    File first = jsonFolder.newFolder("first");
+    astubxShardHelper(first)
+        .addSourceLines("Shared.java", shared)
+        .addSourceLines(
+            "First.java",
+            """
+            import org.jspecify.annotations.NullMarked;
+            import org.jspecify.annotations.Nullable;
+            @NullMarked
+            public class First {
+              public void set(@Nullable String s) {}
+            }
+            """)
+        .doTest();
+    File second = jsonFolder.newFolder("second");
+    astubxShardHelper(second)
+        .addSourceLines("Shared.java", shared)
+        .addSourceLines(
+            "Second.java",
+            """
+            import org.jspecify.annotations.NullMarked;
+            import org.jspecify.annotations.Nullable;
+            @NullMarked
+            public class Second {
+              public @Nullable Object get() { return null; }
+            }
+            """)
+        .doTest();
+    // the same shards, in both orders
+    AstubxGenerator.AstubxData firstThenSecond =
+        AstubxGenerator.getAstubxData(mergeShards(first, second, "firstThenSecond"));
+    AstubxGenerator.AstubxData secondThenFirst =
+        AstubxGenerator.getAstubxData(mergeShards(second, first, "secondThenFirst"));
+    assertThat(
+        firstThenSecond.methodRecords().keySet(),
+        equalTo(
+            ImmutableSet.of(
+                "First:void set(java.lang.String)",
+                "Second:java.lang.Object get()",
+                "Shared:java.lang.String get()")));
+    assertThat(
+        firstThenSecond.nullableUpperBounds(),
+        equalTo(ImmutableMap.of("Shared", ImmutableSet.of(0))));
+    assertThat(
+        firstThenSecond.nullMarkedClasses(),
+        equalTo(ImmutableSet.of("First", "Second", "Shared")));
+    Assert.assertArrayEquals(
+        writeAstubx(firstThenSecond, "firstThenSecond"),
+        writeAstubx(secondThenFirst, "secondThenFirst"));
+  }
+
+  @Test
+  public void rejectsConflictingAstubxShards() throws IOException {
+    File first = jsonFolder.newFolder("first");
+    astubxShardHelper(first)
+        .addSourceLines(
+            "Shared.java",
+            """
+            import org.jspecify.annotations.NullMarked;
+            import org.jspecify.annotations.Nullable;
+            @NullMarked
+            public class Shared<T extends @Nullable Object, U extends @Nullable Object> {}
+            """)
+        .doTest();
+    File second = jsonFolder.newFolder("second");
+    astubxShardHelper(second)
+        .addSourceLines(
+            "Shared.java",
+            """
+            import org.jspecify.annotations.NullMarked;
+            import org.jspecify.annotations.Nullable;
+            @NullMarked
+            public class Shared<T extends @Nullable Object, U> {}
+            """)
+        .doTest();
+    String merged = mergeShards(first, second, "merged");
+    IllegalStateException e =
+        Assert.assertThrows(
+            IllegalStateException.class, () -> AstubxGenerator.getAstubxData(merged));
+    assertThat(
+        e.getMessage().contains("Conflicting nullable upper bounds for class Shared"),
+        equalTo(true));
+  }
+
+  /** Returns a helper that compiles sources with the plugin writing an astubx file to a folder. */
+  private CompilationTestHelper astubxShardHelper(File folder) {
+    String path = folder.getAbsolutePath();
+    return CompilationTestHelper.newInstance(DummyChecker.class, getClass())
+        .setArgs(
+            Arrays.asList("-d", path, "-Xplugin:NullnessAnnotationSerializer " + path + " astubx"));
+  }
+
+  /**
+   * Copies the astubx shards written to two folders to a new folder, under names that sort in the
+   * given order, and returns the path of the new folder.
+   */
+  private String mergeShards(File first, File second, String folder) throws IOException {
+    File dir = jsonFolder.newFolder(folder);
+    Files.copy(astubxShard(first), dir.toPath().resolve("a.astubx"));
+    Files.copy(astubxShard(second), dir.toPath().resolve("b.astubx"));
+    return dir.getAbsolutePath();
+  }
+
+  private static Path astubxShard(File folder) {
+    File[] shards =
+        folder.listFiles(
+            (dir, name) -> name.endsWith(NullnessAnnotationSerializer.ASTUBX_FILE_SUFFIX));
+    Assert.assertNotNull(shards);
+    Assert.assertEquals(1, shards.length);
+    return shards[0].toPath();
+  }
+
+  /** Writes the astubx file of some data to a new folder and returns its contents. */
+  private byte[] writeAstubx(AstubxGenerator.AstubxData astubxData, String folder)
+      throws IOException {
+    File dir = astubxFolder.newFolder(folder);
+    AstubxGenerator.writeToAstubxFile(dir.getAbsolutePath(), astubxData);
+    return Files.readAllBytes(dir.toPath().resolve("output.astubx"));
+  }
+
   private void runTest(
       ImmutableMap<String, MethodAnnotationsRecord> expectedMethodRecords,
       ImmutableMap<String, Set<Integer>> expectedNullableUpperBounds,
@@ -0,0 +1,432 @@
+package com.uber.nullaway.javacplugin;
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.ClassInfo;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.MethodInfo;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.TypeParamInfo;
+import com.uber.nullaway.libmodel.MethodAnnotationsRecord;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo;
+import com.uber.nullaway.libmodel.StubxFormat;
+import com.uber.nullaway.libmodel.StubxWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * The records of an astubx file for the JSpecify JDK models, built incrementally one class at a
+ * time. {@link NullnessAnnotationSerializer} uses it to write astubx files directly during
+ * compilation, and the astubx generator uses it to convert serialized classes and to merge astubx
+ * files.
+ */
+@NullMarked
+public final class AstubxRecords {
+
+  /** Mapping of the annotation names used in records to their fully qualified names. */
+  public static final ImmutableBiMap<String, String> IMPORTED_ANNOTATIONS =
+      ImmutableBiMap.of(
+          "NonNull", "org.jspecify.annotations.NonNull",
+          "Nullable", "org.jspecify.annotations.Nullable");
+
+  /** Used to strip annotations at every depth from a type signature used as an astubx key. */
+  private static final Pattern TYPE_SIGNATURE_ANNOTATION_PATTERN =
+      buildTypeSignatureAnnotationPattern();
+
+  /**
+   * Matches {@code @Nullable} on the root array type. javac renders the root as the first {@code
+   * []}, so the pattern must not cross an earlier bracket pair; for example, it matches {@code
+   * String @Nullable [][]} but not {@code String[] @Nullable []}.
+   */
+  private static final Pattern ARRAY_NULLNESS_ANNOTATION_PATTERN =
+      Pattern.compile("^[^\\[]*?@(?:org\\.jspecify\\.annotations\\.)?Nullable(?=\\s*\\[])");
+
+  /**
+   * Matches annotations immediately before the "..." for varargs parameters Does not handle
+   * explicit {@code @NonNull} annotations; see https://github.com/uber/NullAway/issues/1498
+   */
+  private static final Pattern VARARGS_ARRAY_NULLNESS_ANNOTATION_PATTERN =
+      Pattern.compile("@[\\w.]+(?=\\.\\.\\.)");
+
+  private final Map<String, MethodAnnotationsRecord> methodRecords = new LinkedHashMap<>();
+
+  private final Set<String> nullMarkedClasses = new LinkedHashSet<>();
+
+  private final Map<String, Set<Integer>> nullableUpperBounds = new LinkedHashMap<>();
+
+  /** Returns the records of methods, keyed by method signature. */
+  public Map<String, MethodAnnotationsRecord> methodRecords() {
+    return methodRecords;
+  }
+
+  /** Returns the fully qualified names of {@code @NullMarked} classes. */
+  public Set<String> nullMarkedClasses() {
+    return nullMarkedClasses;
+  }
+
+  /** Returns the indices of type parameters with nullable upper bounds, keyed by class name. */
+  public Map<String, Set<Integer>> nullableUpperBounds() {
+    return nullableUpperBounds;
+  }
+
+  /**
+   * Adds the records of a class.
+   *
+   * @param clazz Information for the class, as serialized by {@link NullnessAnnotationSerializer}.
+   */
+  public void addClass(ClassInfo clazz) {
+    String fullyQualifiedClassName = clazz.type();
+    if (fullyQualifiedClassName.indexOf('<') != -1) {
+      fullyQualifiedClassName =
+          fullyQualifiedClassName.substring(0, fullyQualifiedClassName.indexOf('<'));
+    }
+    if (clazz.nullMarked()) {
+      nullMarkedClasses.add(fullyQualifiedClassName);
+    }
+
+    // check upperbounds of type parameters
+    Set<Integer> nullableUpperBoundIndices = new LinkedHashSet<>();
+    for (int idx = 0; idx < clazz.typeParams().size(); idx++) {
+      TypeParamInfo typeParam = clazz.typeParams().get(idx);
+      for (String bound : typeParam.bounds()) {
+        if (bound.contains("@org.jspecify.annotations.Nullable")
+            || bound.contains("@Nullable")) {
+          nullableUpperBoundIndices.add(idx);
+        }
+      }
+    }
+    if (!nullableUpperBoundIndices.isEmpty()) {
+      nullableUpperBounds.put(fullyQualifiedClassName, nullableUpperBoundIndices);
+    }
+    getMethodRecords(clazz, fullyQualifiedClassName, methodRecords);
+  }
+
+  /**
+   * Adds all records of another instance. Both instances may have records for the same methods or
+   * classes, e.g., if a class was compiled twice, as long as the records are the same.
+   *
+   * @param other The records to add.
+   * @throws IllegalArgumentException If the instances have different records for a method or for
+   *     the type parameters of a class.
+   */
+  public void addAll(AstubxRecords other) {
+    for (Map.Entry<String, MethodAnnotationsRecord> entry : other.methodRecords.entrySet()) {
+      MethodAnnotationsRecord previous =
+          methodRecords.putIfAbsent(entry.getKey(), entry.getValue());
+      if (previous != null && !previous.equals(entry.getValue())) {
+        throw new IllegalArgumentException("Conflicting records for method " + entry.getKey());
+      }
+    }
+    nullMarkedClasses.addAll(other.nullMarkedClasses);
+    for (Map.Entry<String, Set<Integer>> entry : other.nullableUpperBounds.entrySet()) {
+      Set<Integer> previous = nullableUpperBounds.putIfAbsent(entry.getKey(), entry.getValue());
+      if (previous != null && !previous.equals(entry.getValue())) {
+        throw new IllegalArgumentException(
+            "Conflicting nullable upper bounds for class " + entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * Adds the records of an astubx file, e.g., one written by {@link #write(DataOutputStream, int)}.
+   *
+   * @param astubx The contents of the astubx file.
+   * @param location Location of the file, for error messages.
+   * @throws IOException If the file is malformed or has annotations other than JSpecify ones.
+   */
+  public void addAstubx(byte[] astubx, String location) throws IOException {
+    Map<String, MethodRecordBuilder> builders = new LinkedHashMap<>();
+    List<String> unsupportedAnnotations = new ArrayList<>();
+    StubxFormat.read(
+        astubx,
+        location,
+        new StubxFormat.Visitor() {
+          @Override
+          public void nullMarkedClass(String className) {
+            nullMarkedClasses.add(className);
+          }
+
+          @Override
+          public void nullableUpperBound(String className, int typeParamIndex) {
+            nullableUpperBounds
+                .computeIfAbsent(className, k -> new LinkedHashSet<>())
+                .add(typeParamIndex);
+          }
+
+          @Override
+          public void methodAnnotation(String methodSig, String annotation) {
+            builder(methodSig).returnAnnotations.add(shortName(annotation));
+          }
+
+          @Override
+          public void methodTypeParamNullableUpperBound(String methodSig, int typeParamIndex) {
+            builder(methodSig).typeParamNullableUpperBounds.add(typeParamIndex);
+          }
+
+          @Override
+          public void argumentAnnotation(String methodSig, int argIndex, String annotation) {
+            builder(methodSig)
+                .argumentAnnotations
+                .computeIfAbsent(argIndex, k -> new LinkedHashSet<>())
+                .add(shortName(annotation));
+          }
+
+          @Override
+          public void nestedAnnotation(String methodSig, int index, NestedAnnotationInfo info) {
+            builder(methodSig).nestedAnnotations.put(index, info);
+          }
+
+          private MethodRecordBuilder builder(String methodSig) {
+            return builders.computeIfAbsent(methodSig, k -> new MethodRecordBuilder());
+          }
+
+          private String shortName(String annotation) {
+            String shortName = IMPORTED_ANNOTATIONS.inverse().get(annotation);
+            if (shortName == null) {
+              unsupportedAnnotations.add(annotation);
+              return annotation;
+            }
+            return shortName;
+          }
+        });
+    if (!unsupportedAnnotations.isEmpty()) {
+      throw new IOException(
+          "Unsupported annotations " + unsupportedAnnotations + " in astubx file " + location);
+    }
+    for (Map.Entry<String, MethodRecordBuilder> entry : builders.entrySet()) {
+      methodRecords.put(entry.getKey(), entry.getValue().build());
+    }
+  }
+
+  /**
+   * Writes the records as an astubx file.
+   *
+   * @param out Output stream.
+   * @param formatVersion Version of the astubx format, 1 or 2.
+   * @throws IOException On output error.
+   */
+  public void write(DataOutputStream out, int formatVersion) throws IOException {
+    // There is no package-info.java files in jspecify/jdk that were @NullMarked so package
+    // information support is skipped
+    StubxWriter.write(
+        out,
+        formatVersion,
+        IMPORTED_ANNOTATIONS,
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        methodRecords,
+        nullMarkedClasses,
+        nullableUpperBounds);
+  }
+
+  /** Accumulates the records of a method read from an astubx file. */
+  private static final class MethodRecordBuilder {
+    final Set<String> returnAnnotations = new LinkedHashSet<>();
+    final Set<Integer> typeParamNullableUpperBounds = new LinkedHashSet<>();
+    final Map<Integer, Set<String>> argumentAnnotations = new LinkedHashMap<>();
+    final SetMultimap<Integer, NestedAnnotationInfo> nestedAnnotations =
+        LinkedHashMultimap.create();
+
+    MethodRecordBuilder() {}
+
+    MethodAnnotationsRecord build() {
+      ImmutableMap.Builder<Integer, ImmutableSet<String>> arguments = ImmutableMap.builder();
+      for (Map.Entry<Integer, Set<String>> entry : argumentAnnotations.entrySet()) {
+        arguments.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+      }
+      return MethodAnnotationsRecord.create(
+          ImmutableSet.copyOf(returnAnnotations),
+          ImmutableSet.copyOf(typeParamNullableUpperBounds),
+          arguments.buildOrThrow(),
+          ImmutableSetMultimap.copyOf(nestedAnnotations));
+    }
+  }
+
+  private static void getMethodRecords(
+      ClassInfo clazz,
+      String fullyQualifiedClassName,
+      Map<String, MethodAnnotationsRecord> methodRecords) {
+    for (MethodInfo method : clazz.methods()) {
+      String methodName = method.name();
+      // get return type nullness
+      String returnType = removeGenericAnnotations(method.returnType());
+      ImmutableSet<String> returnTypeNullness =
+          hasTopLevelNullableAnnotation(returnType)
+              ? ImmutableSet.of("Nullable")
+              : ImmutableSet.of();
+      returnType = stripAnnotationsFromTypeSignature(returnType).replace(" []", "[]");
+      ImmutableSet.Builder<Integer> nullableTypeParamBuilder = ImmutableSet.builder();
+      for (int i = 0; i < method.typeParams().size(); i++) {
+        TypeParamInfo typeParam = method.typeParams().get(i);
+        for (String upperBound : typeParam.bounds()) {
+          if (upperBound.contains("@Nullable")) {
+            nullableTypeParamBuilder.add(i);
+          }
+        }
+      }
+
+      String signatureForMethodRecords = fullyQualifiedClassName + ":" + returnType + " ";
+      signatureForMethodRecords += methodName.substring(0, methodName.indexOf('(') + 1);
+      Map<Integer, ImmutableSet<String>> argAnnotation = new LinkedHashMap<>();
+
+      // get the argument lists
+      String[] argumentList = getArgumentsAsArray(methodName);
+
+      for (int i = 0; i < argumentList.length; i++) {
+        // remove generic annotations on arguments
+        String typeSignature = removeGenericAnnotations(argumentList[i].trim());
+        if (hasTopLevelNullableAnnotation(typeSignature)) {
+          argAnnotation.put(i, ImmutableSet.of("Nullable"));
+        }
+        // Remove annotations before writing the method signature key, while preserving the varargs
+        // ellipsis so the generated key still matches the erased bytecode signature.
+        argumentList[i] = stripAnnotationsFromTypeSignature(typeSignature).replace(" []", "[]");
+      }
+      ImmutableSetMultimap.Builder<Integer, NestedAnnotationInfo> nestedAnnotations =
+          new ImmutableSetMultimap.Builder<>();
+      for (Map.Entry<Integer, Set<NestedAnnotationInfo>> nestedInfo :
+          method.nestedAnnotationsList().entrySet()) {
+        nestedAnnotations.putAll(nestedInfo.getKey(), nestedInfo.getValue());
+      }
+      signatureForMethodRecords += String.join(",", argumentList) + ")";
+      methodRecords.put(
+          signatureForMethodRecords,
+          MethodAnnotationsRecord.create(
+              returnTypeNullness,
+              nullableTypeParamBuilder.build(),
+              ImmutableMap.copyOf(argAnnotation),
+              nestedAnnotations.build()));
+    }
+  }
+
+  private static String[] getArgumentsAsArray(String methodName) {
+    // get String of only arguments
+    String argsOnly = "";
+    Pattern pattern = Pattern.compile(".*\\((.*)\\)");
+    Matcher matcher = pattern.matcher(methodName);
+    if (matcher.matches()) {
+      argsOnly = matcher.group(1).trim();
+    }
+
+    if (argsOnly.isEmpty()) {
+      return new String[0];
+    }
+
+    // make a list of arguments
+    List<String> output = new ArrayList<>();
+    StringBuilder cur = new StringBuilder();
+
+    int depth = 0; // nesting level for '<' ... '>'
+    for (int i = 0; i < argsOnly.length(); i++) {
+      char c = argsOnly.charAt(i);
+      switch (c) {
+        case '<' -> {
+          depth++;
+          cur.append(c);
+        }
+        case '>' -> {
+          depth = Math.max(0, depth - 1);
+          cur.append(c);
+        }
+        case ',' -> {
+          if (depth == 0) {
+            String token = cur.toString().trim();
+            if (!token.isEmpty()) {
+              output.add(token);
+            }
+            cur.setLength(0);
+          } else {
+            cur.append(c);
+          }
+        }
+        default -> cur.append(c);
+      }
+    }
+    String tail = cur.toString().trim();
+    if (!tail.isEmpty()) {
+      output.add(tail);
+    }
+
+    return output.toArray(String[]::new);
+  }
+
+  private static String removeGenericAnnotations(String typeSignature) {
+    if (typeSignature.indexOf('<') != -1) {
+      StringBuilder withoutGenericAnnotations = new StringBuilder();
+      int depth = 0;
+      int annotationDepth = 0;
+      for (int j = 0; j < typeSignature.length(); j++) {
+        char ch = typeSignature.charAt(j);
+        if (ch == '<') {
+          depth++;
+          withoutGenericAnnotations.append(ch);
+        } else if (ch == '>') {
+          depth = Math.max(0, depth - 1);
+          withoutGenericAnnotations.append(ch);
+        } else if (depth == 0) {
+          withoutGenericAnnotations.append(ch);
+        } else if (ch == '@') {
+          annotationDepth++;
+        } else if (ch == ' ' && annotationDepth != 0) {
+          annotationDepth = Math.max(0, annotationDepth - 1);
+        } else if (annotationDepth == 0) {
+          withoutGenericAnnotations.append(ch);
+        }
+      }
+      typeSignature = withoutGenericAnnotations.toString().trim();
+    }
+    return typeSignature;
+  }
+
+  /**
+   * Checks if the given type has a top-level {@code @Nullable} annotation. Assumes there are no
+   * annotations on any generic type arguments in the type. We only handle JSpecify
+   * {@code @Nullable} annotations for now, as those are the only type present in the JSpecify JDK.
+   *
+   * @param type the type
+   * @return true if the type has a top-level {@code @Nullable} annotation, false otherwise
+   */
+  private static boolean hasTopLevelNullableAnnotation(String type) {
+    if (!(type.contains("@org.jspecify.annotations.Nullable") || type.contains("@Nullable"))) {
+      return false;
+    }
+    if (!type.contains("...")) {
+      if (type.contains("[")) {
+        // Arrays need special handling:
+        //   @Nullable String[]     -> nullable elements, not a nullable array
+        //   String @Nullable []    -> nullable array
+        // Only the latter is a top-level annotation
+        return ARRAY_NULLNESS_ANNOTATION_PATTERN.matcher(type).find();
+      }
+      return true;
+    }
+    // Varargs need special handling:
+    //   @Nullable Object...      -> nullable elements, not a nullable array parameter
+    //   Object @Nullable ...     -> nullable array parameter
+    // Only the latter is a top-level annotation
+    return VARARGS_ARRAY_NULLNESS_ANNOTATION_PATTERN.matcher(type).find();
+  }
+
+  private static String stripAnnotationsFromTypeSignature(String typeSignature) {
+    return TYPE_SIGNATURE_ANNOTATION_PATTERN.matcher(typeSignature).replaceAll("");
+  }
+
+  private static Pattern buildTypeSignatureAnnotationPattern() {
+    String annotationWithSpace = "@[\\w.]+\\s";
+    // top-level varargs array annotations (for the array itself) are rendered directly before the
+    // ellipsis.
+    String annotationOfVarargsArray = "@[\\w.]+(?=\\.\\.\\.)";
+    return Pattern.compile(annotationWithSpace + "|" + annotationOfVarargsArray);
+  }
+}
@@ -1,7 +1,6 @@
 package com.uber.nullaway.javacplugin;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.MethodTree;
@@ -15,7 +14,14 @@ import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -28,6 +34,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.Name;
@@ -37,8 +44,15 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 /**
- * A Javac plugin that serializes nullness annotations from Java source files into a JSON file.
- * Primarily intended for serializing annotations from the JSpecify JDK models.
+ * A Javac plugin that serializes nullness annotations from Java source files into a JSON Lines
+ * file. Primarily intended for serializing annotations from the JSpecify JDK models.
+ *
+ * <p>The plugin takes the output directory as its first argument, and optionally a mode as its
+ * second argument. By default, each class is written as a {@link ClassEntry} on its own line as
+ * soon as javac has analyzed it, so the classes of a compilation are never held in memory
+ * together. With {@code gzip}, the output is compressed. With {@code astubx}, the records of each
+ * class are added to an {@link AstubxRecords} instead, which is written as an astubx file when
+ * compilation finishes, skipping JSON altogether.
  */
 @NullMarked
 public class NullnessAnnotationSerializer implements Plugin {
@@ -67,8 +81,77 @@ public class NullnessAnnotationSerializer implements Plugin {
       List<TypeParamInfo> typeParams,
       List<MethodInfo> methods) {}
 
-  /** Map from module name to information for classes in that module. */
-  private final Map<String, List<ClassInfo>> moduleClasses = new HashMap<>();
+  /** A line of the output, i.e., information for a class and the name of its module. */
+  public record ClassEntry(String module, ClassInfo classInfo) {}
+
+  /** Suffix of the output files. */
+  public static final String FILE_SUFFIX = ".jsonl";
+
+  /** Suffix of the output files when compressed. */
+  public static final String GZIP_FILE_SUFFIX = ".jsonl.gz";
+
+  /** Suffix of the output files in astubx mode. */
+  public static final String ASTUBX_FILE_SUFFIX = ".astubx";
+
+  /** Destination of the classes serialized during a compilation. */
+  private interface ClassSink {
+
+    /** Called for each class containing JSpecify annotations, once javac has analyzed it. */
+    void add(String module, ClassInfo classInfo) throws IOException;
+
+    /** Called when compilation finishes. */
+    void close() throws IOException;
+  }
+
+  /** Writes each class as a line of a JSON Lines file. */
+  private static final class JsonLinesSink implements ClassSink {
+
+    private final Gson gson = new Gson();
+    private final Writer output;
+
+    JsonLinesSink(Path outputFile, boolean gzip) throws IOException {
+      OutputStream out = Files.newOutputStream(outputFile);
+      output =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  gzip ? new GZIPOutputStream(out) : out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void add(String module, ClassInfo classInfo) throws IOException {
+      gson.toJson(new ClassEntry(module, classInfo), output);
+      output.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+      output.close();
+    }
+  }
+
+  /** Builds the astubx records of the classes, and writes them when compilation finishes. */
+  private static final class AstubxSink implements ClassSink {
+
+    private final AstubxRecords records = new AstubxRecords();
+    private final Path outputFile;
+
+    AstubxSink(Path outputFile) {
+      this.outputFile = outputFile;
+    }
+
+    @Override
+    public void add(String module, ClassInfo classInfo) {
+      records.addClass(classInfo);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputFile)))) {
+        records.write(out, 2);
+      }
+    }
+  }
 
   @Override
   public String getName() {
@@ -78,6 +161,20 @@ public class NullnessAnnotationSerializer implements Plugin {
   @Override
   public void init(JavacTask task, String... args) {
     String outputDir = args[0];
+    String mode = args.length > 1 ? args[1] : "";
+    String fileName = "classes-" + UUID.randomUUID();
+    ClassSink sink;
+    try {
+      sink =
+          switch (mode) {
+            case "astubx" -> new AstubxSink(Paths.get(outputDir, fileName + ASTUBX_FILE_SUFFIX));
+            case "gzip" ->
+                new JsonLinesSink(Paths.get(outputDir, fileName + GZIP_FILE_SUFFIX), true);
+            default -> new JsonLinesSink(Paths.get(outputDir, fileName + FILE_SUFFIX), false);
+          };
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
     Trees trees = Trees.instance(task);
     task.addTaskListener(
         new com.sun.source.util.TaskListener() {
@@ -140,9 +237,11 @@ public class NullnessAnnotationSerializer implements Plugin {
                       currentClassHasAnnotation || !currentClass.methods().isEmpty();
                   // only save classes containing jspecify annotations
                   if (currentClassHasAnnotation) {
-                    moduleClasses
-                        .computeIfAbsent(moduleName, k -> new ArrayList<>())
-                        .add(currentClass);
+                    try {
+                      sink.add(moduleName, currentClass);
+                    } catch (IOException ex) {
+                      throw new RuntimeException(ex);
+                    }
                   }
                   // restore previous class context
                   currentClass = !classStack.isEmpty() ? classStack.pop() : null;
@@ -313,11 +412,8 @@ public class NullnessAnnotationSerializer implements Plugin {
                 }
               }.scan(cu, null);
             } else if (e.getKind() == com.sun.source.util.TaskEvent.Kind.COMPILATION) {
-              Gson gson = new GsonBuilder().setPrettyPrinting().create();
-              String jsonFileName = "classes-" + UUID.randomUUID() + ".json";
-              Path p = Paths.get(outputDir, jsonFileName);
               try {
-                Files.writeString(p, gson.toJson(moduleClasses));
+                sink.close();
               } catch (IOException ex) {
                 throw new RuntimeException(ex);
               }
@@ -4,32 +4,42 @@ import static com.google.errorprone.BugPattern.SeverityLevel.WARNING;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.reflect.TypeToken;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.CompilationTestHelper;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
+import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.ClassEntry;
 import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.ClassInfo;
 import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.MethodInfo;
 import com.uber.nullaway.javacplugin.NullnessAnnotationSerializer.TypeParamInfo;
+import com.uber.nullaway.libmodel.MethodAnnotationsRecord;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo.Annotation;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -83,6 +93,45 @@ public class NullnessAnnotationSerializerTest {
                 List.of(new ClassInfo("Foo", "Foo", true, false, List.of(), List.of()))));
   }
 
+  @Test
+  public void gzipOutput() throws IOException {
+    String tempPath = temporaryFolder.getRoot().getAbsolutePath();
+    CompilationTestHelper.newInstance(DummyChecker.class, getClass())
+        .setArgs(
+            Arrays.asList(
+                "-d",
+                tempPath,
+                "--module-path",
+                System.getProperty("test.module.path"),
+                "-Xplugin:NullnessAnnotationSerializer " + tempPath + " gzip"))
+        .addSourceLines(
+            "Foo.java",
+            """
+            import org.jspecify.annotations.NullMarked;
+            @NullMarked
+            class Foo {}
+            """)
+        .doTest();
+    Path path;
+    try (Stream<Path> stream = Files.list(Paths.get(tempPath))) {
+      path =
+          stream
+              .filter(p -> p.toString().endsWith(NullnessAnnotationSerializer.GZIP_FILE_SUFFIX))
+              .findFirst()
+              .orElseThrow();
+    }
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+      assertThat(new Gson().fromJson(reader.readLine(), ClassEntry.class))
+          .isEqualTo(
+              new ClassEntry(
+                  "unnamed", new ClassInfo("Foo", "Foo", true, false, List.of(), List.of())));
+      assertThat(reader.readLine()).isNull();
+    }
+  }
+
   @Test
   public void nullMarkedClassWithModule() {
     compilationTestHelper
@@ -127,6 +176,50 @@ public class NullnessAnnotationSerializerTest {
                                 Map.of()))))));
   }
 
+  @Test
+  public void astubxOutput() throws IOException {
+    String tempPath = temporaryFolder.getRoot().getAbsolutePath();
+    CompilationTestHelper.newInstance(DummyChecker.class, getClass())
+        .setArgs(
+            Arrays.asList(
+                "-d",
+                tempPath,
+                "--module-path",
+                System.getProperty("test.module.path"),
+                "-Xplugin:NullnessAnnotationSerializer " + tempPath + " astubx"))
+        .addSourceLines(
+            "Foo.java",
+            """
+            import org.jspecify.annotations.NullMarked;
+            import org.jspecify.annotations.Nullable;
+            @NullMarked
+            class Foo {
+              public @Nullable String get(@Nullable Integer i) { return null; }
+            }
+            """)
+        .doTest();
+    Path path;
+    try (Stream<Path> stream = Files.list(Paths.get(tempPath))) {
+      path =
+          stream
+              .filter(p -> p.toString().endsWith(NullnessAnnotationSerializer.ASTUBX_FILE_SUFFIX))
+              .findFirst()
+              .orElseThrow();
+    }
+    AstubxRecords records = new AstubxRecords();
+    records.addAstubx(Files.readAllBytes(path), path.toString());
+    assertThat(records.nullMarkedClasses()).containsExactly("Foo");
+    assertThat(records.methodRecords())
+        .containsExactlyEntriesOf(
+            Map.of(
+                "Foo:java.lang.String get(java.lang.Integer)",
+                MethodAnnotationsRecord.create(
+                    ImmutableSet.of("Nullable"),
+                    ImmutableSet.of(),
+                    ImmutableMap.of(0, ImmutableSet.of("Nullable")),
+                    ImmutableSetMultimap.of())));
+  }
+
   @Test
   public void privateMethodsExcluded() {
     compilationTestHelper
@@ -736,25 +829,24 @@ public class NullnessAnnotationSerializerTest {
           return builder.build();
         };
 
+    Gson gson =
+        new GsonBuilder().registerTypeAdapter(ImmutableList.class, immutableListAdapter).create();
     // list all json files in the  tempPath
     try (Stream<Path> stream = Files.list(Paths.get(tempPath))) {
-      return stream
-          .filter(path -> path.toString().endsWith(".json"))
-          .findFirst()
-          .<Map<String, List<ClassInfo>>>map(
-              path -> {
-                try {
-                  return new GsonBuilder()
-                      .registerTypeAdapter(ImmutableList.class, immutableListAdapter)
-                      .create()
-                      .fromJson(
-                          new String(Files.readAllBytes(path), StandardCharsets.UTF_8),
-                          new TypeToken<Map<String, List<ClassInfo>>>() {}.getType());
-                } catch (IOException e) {
-                  throw new RuntimeException(e);
-                }
-              })
-          .orElseThrow();
+      Path path =
+          stream
+              .filter(p -> p.toString().endsWith(NullnessAnnotationSerializer.FILE_SUFFIX))
+              .findFirst()
+              .orElseThrow();
+      // group the classes of each line by module
+      Map<String, List<ClassInfo>> moduleClasses = new LinkedHashMap<>();
+      for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+        ClassEntry entry = gson.fromJson(line, ClassEntry.class);
+        moduleClasses
+            .computeIfAbsent(entry.module(), k -> new ArrayList<>())
+            .add(entry.classInfo());
+      }
+      return moduleClasses;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -0,0 +1,49 @@
+package com.uber.nullaway.handlers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks parsing the JSpecify JDK models shipped with NullAway into the caches of a {@link
+ * StubxCacheUtil}, from memory, and adding them for per-class reads. The benchmark is in this
+ * package because the constructor of {@link StubxCacheUtil} is package-private.
+ */
+@State(Scope.Benchmark)
+public class StubxCacheUtilBenchmark {
+
+  private static final String JSPECIFY_JDK_ASTUBX = "jspecify-jdk.astubx";
+
+  private byte[] astubx;
+
+  @Setup
+  public void setup() throws IOException {
+    try (InputStream in =
+        StubxCacheUtil.class.getClassLoader().getResourceAsStream(JSPECIFY_JDK_ASTUBX)) {
+      if (in == null) {
+        throw new IOException("could not find " + JSPECIFY_JDK_ASTUBX);
+      }
+      astubx = in.readAllBytes();
+    }
+  }
+
+  @Benchmark
+  public void parseStubStream(Blackhole bh) throws IOException {
+    StubxCacheUtil cacheUtil = new StubxCacheUtil("benchmark", false);
+    cacheUtil.parseStubStream(new ByteArrayInputStream(astubx), JSPECIFY_JDK_ASTUBX);
+    bh.consume(cacheUtil.getArgAnnotCache());
+  }
+
+  /** Adds the models as at startup, where only the index of a version 2 file is read. */
+  @Benchmark
+  public void addStubStream(Blackhole bh) throws IOException {
+    StubxCacheUtil cacheUtil = new StubxCacheUtil("benchmark", false);
+    cacheUtil.addStubStream(new ByteArrayInputStream(astubx), JSPECIFY_JDK_ASTUBX);
+    bh.consume(cacheUtil.getLazyMethodNames());
+  }
+}
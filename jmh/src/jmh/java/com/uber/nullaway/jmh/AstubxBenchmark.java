@@ -0,0 +1,74 @@
+package com.uber.nullaway.jmh;
+
+import com.uber.nullaway.jdkannotations.AstubxGenerator;
+import com.uber.nullaway.libmodel.StubxWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks generating astubx models from the JSON output of the {@code
+ * NullnessAnnotationSerializer} javac plugin, on a synthetic input of the given number of classes.
+ */
+@State(Scope.Benchmark)
+public class AstubxBenchmark {
+
+  @Param({"2000"})
+  public int numClasses;
+
+  private Path workDir;
+
+  private String jsonDir;
+
+  private AstubxGenerator.AstubxData astubxData;
+
+  @Setup
+  public void setup() throws IOException {
+    workDir = Files.createTempDirectory("astubx-benchmark");
+    jsonDir =
+        ModelPipelineCorpus.writeSyntheticJsonDir(workDir.resolve("json"), numClasses, 10)
+            .toString();
+    astubxData = AstubxGenerator.getAstubxData(jsonDir);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ModelPipelineCorpus.deleteRecursively(workDir);
+  }
+
+  /** Parses the JSON files into the data written to the astubx file. */
+  @Benchmark
+  public void parseJson(Blackhole bh) {
+    bh.consume(AstubxGenerator.getAstubxData(jsonDir));
+  }
+
+  /** Serializes already parsed data in the astubx format, in memory. */
+  @Benchmark
+  public void writeAstubx(Blackhole bh) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StubxWriter.write(
+        new DataOutputStream(bytes),
+        astubxData.importedAnnotations(),
+        astubxData.packageAnnotations(),
+        astubxData.typeAnnotations(),
+        astubxData.methodRecords(),
+        astubxData.nullMarkedClasses(),
+        astubxData.nullableUpperBounds());
+    bh.consume(bytes.size());
+  }
+
+  /** Runs the whole generator, from the JSON files to the astubx file. */
+  @Benchmark
+  public void generateAstubx() {
+    AstubxGenerator.generateAstubx(jsonDir, workDir.resolve("astubx").toString());
+  }
+}
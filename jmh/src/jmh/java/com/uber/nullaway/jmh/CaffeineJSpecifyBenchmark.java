@@ -0,0 +1,24 @@
+package com.uber.nullaway.jmh;
+
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+public class CaffeineJSpecifyBenchmark {
+
+  private CaffeineJSpecifyCompiler compiler;
+
+  @Setup
+  public void setup() throws IOException {
+    compiler = new CaffeineJSpecifyCompiler();
+  }
+
+  @Benchmark
+  public void compile(Blackhole bh) {
+    bh.consume(compiler.compile());
+  }
+}
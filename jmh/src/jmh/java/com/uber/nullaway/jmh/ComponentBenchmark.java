@@ -0,0 +1,132 @@
+package com.uber.nullaway.jmh;
+
+import com.sun.tools.javac.code.Symbol;
+import com.uber.nullaway.CodeAnnotationInfo;
+import com.uber.nullaway.Config;
+import com.uber.nullaway.MethodParameterNullness;
+import com.uber.nullaway.Nullness;
+import com.uber.nullaway.dataflow.AccessPath;
+import com.uber.nullaway.dataflow.NullnessStore;
+import com.uber.nullaway.generics.ConstraintSolver;
+import com.uber.nullaway.generics.ConstraintSolverImpl;
+import com.uber.nullaway.handlers.Handler;
+import com.uber.nullaway.handlers.LibraryModelsHandler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks individual components of NullAway on symbols of a {@link ComponentFixture}, without
+ * running javac in the measured code.
+ */
+@State(Scope.Benchmark)
+public class ComponentBenchmark {
+
+  @Param({"50"})
+  public int numGroups;
+
+  private ComponentFixture fixture;
+
+  private Config config;
+
+  private Handler handler;
+
+  private LibraryModelsHandler libraryModelsHandler;
+
+  private CodeAnnotationInfo codeAnnotationInfo;
+
+  private List<Symbol> annotationInfoQueries;
+
+  private List<ComponentFixture.SubtypeConstraint> subtypeConstraints;
+
+  private NullnessStore nonNullStore;
+
+  private NullnessStore nullableStore;
+
+  @Setup
+  public void setup() throws IOException {
+    fixture = ComponentFixture.create(numGroups);
+    config = fixture.analysis().getConfig();
+    handler = fixture.analysis().getHandler();
+    libraryModelsHandler = new LibraryModelsHandler(config);
+    libraryModelsHandler.initMainHandler(handler);
+    codeAnnotationInfo = CodeAnnotationInfo.instance(fixture.context());
+    annotationInfoQueries = new ArrayList<>();
+    annotationInfoQueries.addAll(fixture.classes());
+    annotationInfoQueries.addAll(fixture.methods());
+    annotationInfoQueries.addAll(fixture.fields());
+    annotationInfoQueries.addAll(fixture.libraryMethods());
+    subtypeConstraints = fixture.subtypeConstraints();
+    // half of the fields differ between the stores, so the join has work to do
+    NullnessStore.Builder nonNull = NullnessStore.empty().toBuilder();
+    NullnessStore.Builder nullable = NullnessStore.empty().toBuilder();
+    List<Symbol.VarSymbol> fields = fixture.fields();
+    for (int i = 0; i < fields.size(); i++) {
+      AccessPath ap = AccessPath.fromFieldElement(fields.get(i));
+      nonNull.setInformation(ap, Nullness.NONNULL);
+      nullable.setInformation(ap, i % 2 == 0 ? Nullness.NULLABLE : Nullness.NONNULL);
+    }
+    for (Symbol.VarSymbol field : fixture.staticFields()) {
+      nonNull.setInformation(AccessPath.fromStaticField(field), Nullness.NONNULL);
+    }
+    nonNullStore = nonNull.build();
+    nullableStore = nullable.build();
+  }
+
+  /** Joins two stores, as done by dataflow at control-flow merge points. */
+  @Benchmark
+  public void leastUpperBound(Blackhole bh) {
+    bh.consume(nonNullStore.leastUpperBound(nullableStore));
+    bh.consume(nullableStore.leastUpperBound(nonNullStore));
+  }
+
+  /** Creates and hashes access paths for all fields of the fixture. */
+  @Benchmark
+  public void accessPaths(Blackhole bh) {
+    for (Symbol.VarSymbol field : fixture.fields()) {
+      bh.consume(AccessPath.fromFieldElement(field).hashCode());
+    }
+    for (Symbol.VarSymbol field : fixture.staticFields()) {
+      bh.consume(AccessPath.fromStaticField(field).hashCode());
+    }
+  }
+
+  /** Looks up the return and parameter nullness of the JDK methods called by the fixture. */
+  @Benchmark
+  public void libraryModels(Blackhole bh) {
+    for (Symbol.MethodSymbol method : fixture.libraryMethods()) {
+      bh.consume(
+          libraryModelsHandler.onOverrideMethodReturnNullability(
+              method, fixture.state(), false, Nullness.NONNULL));
+      bh.consume(
+          libraryModelsHandler.onOverrideMethodInvocationParametersNullability(
+              fixture.context(), method, false, MethodParameterNullness.create(method)));
+    }
+  }
+
+  /** Adds the constraints of a chain of generic method calls to a new solver and solves them. */
+  @Benchmark
+  public void solveConstraints(Blackhole bh) {
+    ConstraintSolver solver =
+        new ConstraintSolverImpl(config, fixture.state(), fixture.analysis());
+    for (ComponentFixture.SubtypeConstraint constraint : subtypeConstraints) {
+      solver.addSubtypeConstraint(constraint.subtype(), constraint.supertype(), false);
+    }
+    bh.consume(solver.solve());
+  }
+
+  /** Queries whether symbols of annotated, unannotated and JDK code are unannotated. */
+  @Benchmark
+  public void codeAnnotationInfo(Blackhole bh) {
+    for (Symbol symbol : annotationInfoQueries) {
+      bh.consume(codeAnnotationInfo.isSymbolUnannotated(symbol, config, handler));
+      bh.consume(codeAnnotationInfo.isGenerated(symbol, config));
+    }
+  }
+}
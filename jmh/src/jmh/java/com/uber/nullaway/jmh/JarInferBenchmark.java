@@ -0,0 +1,91 @@
+package com.uber.nullaway.jmh;
+
+import com.uber.nullaway.jarinfer.BytecodeAnnotator;
+import com.uber.nullaway.jarinfer.DefinitelyDerefedParamsDriver;
+import com.uber.nullaway.jarinfer.MethodParamAnnotations;
+import com.uber.nullaway.jarinfer.MethodReturnAnnotations;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks JarInfer on a fixed corpus: the jar of {@code test-java-lib-jarinfer}, or a synthetic
+ * jar with the number of classes given after {@code synthetic-}.
+ */
+@State(Scope.Benchmark)
+public class JarInferBenchmark {
+
+  @Param({"test-java-lib-jarinfer", "synthetic-500"})
+  public String corpus;
+
+  @Param({"1"})
+  public int threads;
+
+  private Path workDir;
+
+  private String inputJar;
+
+  /** Inferred annotations, for benchmarking the bytecode annotator on its own. */
+  private MethodParamAnnotations nonnullParams;
+
+  @Setup
+  public void setup() throws IOException {
+    workDir = Files.createTempDirectory("jarinfer-benchmark");
+    if (corpus.startsWith("synthetic-")) {
+      int numClasses = Integer.parseInt(corpus.substring("synthetic-".length()));
+      inputJar =
+          ModelPipelineCorpus.writeSyntheticJar(workDir.resolve("corpus"), numClasses, 5)
+              .toString();
+    } else {
+      inputJar = ModelPipelineCorpus.getTestJarInferLibJar();
+    }
+    nonnullParams = runDriver(true, workDir.resolve("setup-annotated.jar"));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ModelPipelineCorpus.deleteRecursively(workDir);
+  }
+
+  private MethodParamAnnotations runDriver(boolean annotateBytecode, Path outPath) {
+    try {
+      return new DefinitelyDerefedParamsDriver(threads)
+          .run(inputJar, "", outPath.toString(), annotateBytecode, false, false, false, false);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Infers annotations and writes them as an astubx model. */
+  @Benchmark
+  public void inferAstubx(Blackhole bh) {
+    bh.consume(runDriver(false, workDir.resolve("out.astubx")));
+  }
+
+  /** Infers annotations and adds them to a copy of the jar. */
+  @Benchmark
+  public void inferAndAnnotate(Blackhole bh) {
+    bh.consume(runDriver(true, workDir.resolve("out-annotated.jar")));
+  }
+
+  /** Adds precomputed annotations to a copy of the jar. */
+  @Benchmark
+  public void annotateJar() throws IOException {
+    BytecodeAnnotator.annotateBytecodeInJar(
+        Paths.get(inputJar),
+        workDir.resolve("annotated.jar"),
+        nonnullParams,
+        new MethodReturnAnnotations(),
+        false,
+        threads,
+        false);
+  }
+}
@@ -0,0 +1,50 @@
+package com.uber.nullaway.jmh;
+
+import java.io.IOException;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Sweeps the dimensions of {@link SyntheticWorkload}, compiling each workload at multiples of the
+ * base size of its dimension. The scores of one dimension form its scaling curve: as the scale
+ * doubles at each step, a score more than doubling between steps points to superlinear behavior.
+ * To sweep a single dimension, set {@code includes} and {@code benchmarkParameters} in the {@code
+ * jmh} block of build.gradle.
+ */
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+
+  @Param({
+    "METHOD_LENGTH",
+    "LOCALS",
+    "FIELD_CHAIN_DEPTH",
+    "LAMBDA_NESTING",
+    "GENERIC_CALL_DEPTH",
+    "CLASSES"
+  })
+  public SyntheticWorkload.Dimension dimension;
+
+  @Param({"1", "2", "4", "8"})
+  public int scale;
+
+  private NullawayJavac nullawayJavac;
+
+  @Setup
+  public void setup() throws IOException {
+    nullawayJavac =
+        NullawayJavac.createFromSourceStrings(
+            SyntheticWorkload.generate(dimension, dimension.baseSize() * scale),
+            SyntheticWorkload.PACKAGE,
+            List.of("-XepOpt:NullAway:JSpecifyMode=true"));
+  }
+
+  @Benchmark
+  public void compile(Blackhole bh) {
+    bh.consume(nullawayJavac.compile());
+  }
+}
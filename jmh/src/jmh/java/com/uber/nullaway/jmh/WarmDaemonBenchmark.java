@@ -0,0 +1,78 @@
+package com.uber.nullaway.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Runs many tiny compilations back to back in one JVM, as a long-lived build worker does. The
+ * checked code is trivial, so scores are dominated by the per-compilation setup of NullAway:
+ * parsing the configuration, building handlers and loading library models and astubx files.
+ * Scores are per compilation. With {@code reuseLibraryModels}, library models are combined and
+ * indexed by the first compilation only, and later compilations only index them by the names of
+ * their own javac context.
+ */
+@State(Scope.Benchmark)
+public class WarmDaemonBenchmark {
+
+  private static final int TASKS_PER_INVOCATION = 20;
+
+  @Param({"false", "true"})
+  public boolean jarInferEnabled;
+
+  @Param({"false", "true"})
+  public boolean jspecifyJdkModels;
+
+  @Param({"false", "true"})
+  public boolean reuseLibraryModels;
+
+  private final List<NullawayJavac> tasks = new ArrayList<>();
+
+  @Setup
+  public void setup() throws IOException {
+    List<String> errorProneArgs =
+        List.of(
+            "-XepOpt:NullAway:JSpecifyMode=true",
+            "-XepOpt:NullAway:JarInferEnabled=" + jarInferEnabled,
+            "-XepOpt:NullAway:JSpecifyJDKModels=" + jspecifyJdkModels,
+            "-XepOpt:NullAway:ReuseLibraryModels=" + reuseLibraryModels);
+    for (int i = 0; i < TASKS_PER_INVOCATION; i++) {
+      // a distinct class per task, like the many small modules of a build
+      String className = "Task" + i;
+      String source =
+          """
+          package com.uber.daemon;
+          import org.jspecify.annotations.Nullable;
+          public class %1$s {
+            @Nullable String f;
+            int length() {
+              String s = f;
+              return s != null ? s.length() : %2$d;
+            }
+          }
+          """
+              .formatted(className, i);
+      tasks.add(
+          NullawayJavac.createFromSourceStrings(
+              Map.of("com.uber.daemon." + className, source),
+              "com.uber.daemon",
+              errorProneArgs));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS_PER_INVOCATION)
+  public void compile(Blackhole bh) {
+    for (NullawayJavac task : tasks) {
+      bh.consume(task.compile());
+    }
+  }
+}
@@ -27,8 +27,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.tools.Diagnostic;
 
 /** common logic for compiling a benchmark in JMH performance testing */
 public abstract class AbstractBenchmarkCompiler {
@@ -49,6 +51,19 @@ public abstract class AbstractBenchmarkCompiler {
     return nullawayJavac.compile();
   }
 
+  /**
+   * Compiles the benchmark and returns the messages of the errors not reported by NullAway. For
+   * benchmarks that NullAway reports errors on, these show whether the benchmark is still set up
+   * correctly, e.g., that its sources compile against its classpath.
+   */
+  public final List<String> compileAndGetNonNullAwayErrors() {
+    return nullawayJavac.compileAndCollectDiagnostics().stream()
+        .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+        .map(d -> d.getMessage(Locale.ROOT))
+        .filter(message -> !message.contains("[NullAway]"))
+        .collect(Collectors.toList());
+  }
+
   /** Get the names of source files to be compiled */
   protected List<String> getSourceFileNames() throws IOException {
     String sourceDir = getSourceDirectory();
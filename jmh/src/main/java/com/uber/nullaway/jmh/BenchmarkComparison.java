@@ -0,0 +1,255 @@
+package com.uber.nullaway.jmh;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Compares JMH results in JSON format against a baseline, reporting significant changes in time
+ * and in bytes allocated per operation, as measured by the {@code gc} profiler.
+ *
+ * <p>A change is significant if the scores differ by more than a relative threshold and their 99.9%
+ * confidence intervals, as computed by JMH, do not overlap. A significant change is a regression if
+ * it makes the benchmark slower, or allocate more. Results present in only one of the files are
+ * ignored.
+ *
+ * <p>Typical use, from the root of the repository: run {@code ./gradlew :jmh:jmh
+ * :jmh:jmhSaveBaseline -PjmhBaseline=<file>} on the baseline version, then {@code ./gradlew
+ * :jmh:jmh :jmh:jmhCompare -PjmhBaseline=<file>} on the candidate.
+ */
+public final class BenchmarkComparison {
+
+  /** Name of the secondary metric of the {@code gc} profiler for bytes allocated per operation. */
+  static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  /** Default relative threshold for changes in time. */
+  static final double DEFAULT_TIME_THRESHOLD = 0.05;
+
+  /** Default relative threshold for changes in allocation, which is much less noisy than time. */
+  static final double DEFAULT_ALLOCATION_THRESHOLD = 0.02;
+
+  /**
+   * A score with its confidence interval.
+   *
+   * @param score the score
+   * @param low lower bound of the confidence interval
+   * @param high upper bound of the confidence interval
+   * @param unit the unit of the score
+   */
+  public record Metric(double score, double low, double high, String unit) {}
+
+  /**
+   * The result of one benchmark with one set of parameters.
+   *
+   * @param mode the JMH mode, e.g., {@code thrpt}
+   * @param time the primary metric
+   * @param allocation bytes allocated per operation, or null if the gc profiler was not enabled
+   */
+  public record Result(String mode, Metric time, @Nullable Metric allocation) {}
+
+  /**
+   * A significant change of a metric.
+   *
+   * @param benchmark the benchmark, with its parameters
+   * @param metric {@code time} or {@code allocation}
+   * @param baseline the baseline metric
+   * @param candidate the candidate metric
+   * @param regression whether the change is for the worse
+   */
+  public record Change(
+      String benchmark, String metric, Metric baseline, Metric candidate, boolean regression) {
+
+    /** Returns the change relative to the baseline score. */
+    public double relativeChange() {
+      return (candidate.score() - baseline.score()) / baseline.score();
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s %s %s: %.3f -> %.3f %s (%+.1f%%)",
+          regression ? "REGRESSION" : "improvement",
+          benchmark,
+          metric,
+          baseline.score(),
+          candidate.score(),
+          candidate.unit(),
+          100 * relativeChange());
+    }
+  }
+
+  private BenchmarkComparison() {}
+
+  /**
+   * Compares a JMH result file against a baseline and exits with status 1 if there are
+   * regressions.
+   *
+   * @param args the baseline file, the candidate file and, optionally, the relative thresholds for
+   *     time and allocation
+   * @throws IOException if a file cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2 || args.length > 4 || args[0].isEmpty()) {
+      System.err.println(
+          "Invalid arguments. Required: <baselineJson> <candidateJson> [timeThreshold]"
+              + " [allocationThreshold]");
+      System.exit(2);
+    }
+    double timeThreshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TIME_THRESHOLD;
+    double allocationThreshold =
+        args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_ALLOCATION_THRESHOLD;
+    List<Change> changes =
+        compare(
+            readResults(Paths.get(args[0])),
+            readResults(Paths.get(args[1])),
+            timeThreshold,
+            allocationThreshold);
+    boolean regressed = false;
+    for (Change change : changes) {
+      System.out.println(change);
+      regressed |= change.regression();
+    }
+    if (changes.isEmpty()) {
+      System.out.println("No significant changes");
+    }
+    if (regressed) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Reads a JMH result file in JSON format.
+   *
+   * @param json path to the file
+   * @return the results, keyed by benchmark name followed by its parameters
+   * @throws IOException if the file cannot be read
+   */
+  public static Map<String, Result> readResults(Path json) throws IOException {
+    try (Reader reader = Files.newBufferedReader(json, StandardCharsets.UTF_8)) {
+      return readResults(JsonParser.parseReader(reader).getAsJsonArray());
+    }
+  }
+
+  static Map<String, Result> readResults(JsonArray runs) {
+    Map<String, Result> results = new LinkedHashMap<>();
+    for (JsonElement element : runs) {
+      JsonObject run = element.getAsJsonObject();
+      StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+      if (run.has("params")) {
+        // sort the parameters, so keys do not depend on their order in the file
+        Map<String, String> params = new TreeMap<>();
+        for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+          params.put(param.getKey(), param.getValue().getAsString());
+        }
+        key.append(params);
+      }
+      JsonObject secondaryMetrics = run.getAsJsonObject("secondaryMetrics");
+      Metric allocation =
+          secondaryMetrics != null && secondaryMetrics.has(ALLOCATION_METRIC)
+              ? readMetric(secondaryMetrics.getAsJsonObject(ALLOCATION_METRIC))
+              : null;
+      results.put(
+          key.toString(),
+          new Result(
+              run.get("mode").getAsString(),
+              readMetric(run.getAsJsonObject("primaryMetric")),
+              allocation));
+    }
+    return results;
+  }
+
+  private static Metric readMetric(JsonObject metric) {
+    double score = metric.get("score").getAsDouble();
+    double low = score;
+    double high = score;
+    // JMH writes NaN bounds when there are too few samples for a confidence interval
+    JsonArray confidence = metric.getAsJsonArray("scoreConfidence");
+    if (confidence != null && confidence.size() == 2 && !confidence.get(0).isJsonNull()) {
+      low = confidence.get(0).getAsDouble();
+      high = confidence.get(1).getAsDouble();
+      if (Double.isNaN(low) || Double.isNaN(high)) {
+        low = score;
+        high = score;
+      }
+    }
+    return new Metric(score, low, high, metric.get("scoreUnit").getAsString());
+  }
+
+  /**
+   * Compares results against a baseline.
+   *
+   * @param baseline the baseline results
+   * @param candidate the candidate results
+   * @param timeThreshold minimum relative change in time to report
+   * @param allocationThreshold minimum relative change in allocation to report
+   * @return the significant changes, in the order of the candidate results
+   */
+  public static List<Change> compare(
+      Map<String, Result> baseline,
+      Map<String, Result> candidate,
+      double timeThreshold,
+      double allocationThreshold) {
+    List<Change> changes = new ArrayList<>();
+    for (Map.Entry<String, Result> entry : candidate.entrySet()) {
+      Result base = baseline.get(entry.getKey());
+      if (base == null) {
+        continue;
+      }
+      Result cand = entry.getValue();
+      // higher scores are better in throughput mode, and worse in the time-based modes
+      boolean higherIsBetter = cand.mode().equals("thrpt");
+      addIfSignificant(
+          changes,
+          entry.getKey(),
+          "time",
+          base.time(),
+          cand.time(),
+          timeThreshold,
+          higherIsBetter);
+      if (base.allocation() != null && cand.allocation() != null) {
+        addIfSignificant(
+            changes,
+            entry.getKey(),
+            "allocation",
+            base.allocation(),
+            cand.allocation(),
+            allocationThreshold,
+            false);
+      }
+    }
+    return changes;
+  }
+
+  private static void addIfSignificant(
+      List<Change> changes,
+      String benchmark,
+      String metric,
+      Metric base,
+      Metric cand,
+      double threshold,
+      boolean higherIsBetter) {
+    if (base.score() == 0) {
+      return;
+    }
+    boolean overlap = cand.low() <= base.high() && base.low() <= cand.high();
+    double relativeChange = (cand.score() - base.score()) / base.score();
+    if (overlap || Math.abs(relativeChange) <= threshold) {
+      return;
+    }
+    boolean regression = higherIsBetter ? relativeChange < 0 : relativeChange > 0;
+    changes.add(new Change(benchmark, metric, base, cand, regression));
+  }
+}
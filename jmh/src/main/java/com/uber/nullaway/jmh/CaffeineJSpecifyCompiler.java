@@ -0,0 +1,21 @@
+package com.uber.nullaway.jmh;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.List;
+
+/** Compiles Caffeine with the JSpecify models of the JDK, on top of the JSpecify mode it uses */
+public class CaffeineJSpecifyCompiler extends CaffeineCompiler {
+
+  public CaffeineJSpecifyCompiler() throws IOException {
+    super();
+  }
+
+  @Override
+  protected List<String> getExtraErrorProneArgs() {
+    return ImmutableList.<String>builder()
+        .addAll(super.getExtraErrorProneArgs())
+        .add("-XepOpt:NullAway:JSpecifyJDKModels=true")
+        .build();
+  }
+}
@@ -0,0 +1,280 @@
+package com.uber.nullaway.jmh;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.NullAway;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Symbols and NullAway objects captured from an in-process compilation of a small fixture, for
+ * benchmarking individual components of NullAway without running javac in the measured code.
+ *
+ * <p>The fixture is a {@code @NullMarked} class in package {@code componentbench} with the given
+ * number of groups of members, each holding nullable, non-null and static fields, a generic method
+ * and a method calling common JDK APIs, plus an unannotated class in package {@code unannotated}.
+ * The compilation is kept alive, so the returned symbols stay usable as long as the fixture.
+ */
+public final class ComponentFixture {
+
+  /** Package of the {@code @NullMarked} fixture class, passed as NullAway's annotated packages. */
+  public static final String ANNOTATED_PACKAGE = "componentbench";
+
+  /**
+   * A subtype constraint between two types of the fixture, as generated for a generic method call.
+   *
+   * @param subtype the subtype, e.g., the type of an actual parameter
+   * @param supertype the supertype, e.g., the type of the formal parameter
+   */
+  public record SubtypeConstraint(Type subtype, Type supertype) {}
+
+  private final Context context;
+  private final VisitorState state;
+  private final NullAway analysis;
+  private final List<Symbol.ClassSymbol> classes = new ArrayList<>();
+  private final List<Symbol.VarSymbol> fields = new ArrayList<>();
+  private final List<Symbol.VarSymbol> staticFields = new ArrayList<>();
+  private final List<Symbol.MethodSymbol> methods = new ArrayList<>();
+  private final List<Symbol.MethodSymbol> genericMethods = new ArrayList<>();
+  private final List<Symbol.MethodSymbol> libraryMethods = new ArrayList<>();
+  private final List<Symbol.VarSymbol> nullableListFields = new ArrayList<>();
+
+  private ComponentFixture(Context context, Iterable<? extends CompilationUnitTree> units) {
+    this.context = context;
+    this.state = VisitorState.createForUtilityPurposes(context);
+    this.analysis =
+        new NullAway(
+            ErrorProneFlags.fromMap(
+                ImmutableMap.of(
+                    "NullAway:AnnotatedPackages", ANNOTATED_PACKAGE,
+                    "NullAway:JSpecifyMode", "true")));
+    SymbolCollector collector = new SymbolCollector();
+    for (CompilationUnitTree unit : units) {
+      unit.accept(collector, null);
+    }
+  }
+
+  /**
+   * Compiles the fixture and captures its symbols.
+   *
+   * @param numGroups the number of groups of members in the {@code @NullMarked} class
+   * @return the fixture
+   * @throws IOException if the fixture cannot be compiled
+   */
+  public static ComponentFixture create(int numGroups) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    JavacTask task =
+        (JavacTask)
+            compiler.getTask(
+                null,
+                null,
+                diagnostics,
+                ImmutableList.of(
+                    "-proc:none",
+                    "-classpath",
+                    System.getProperty("java.class.path"),
+                    // for JSpecify mode, as in NullawayJavac
+                    "-XDaddTypeAnnotationsToSymbol=true"),
+                null,
+                ImmutableList.of(
+                    new SourceFile(ANNOTATED_PACKAGE + ".Fixture", fixtureSource(numGroups)),
+                    new SourceFile("unannotated.Legacy", legacySource())));
+    Iterable<? extends CompilationUnitTree> units = task.parse();
+    task.analyze();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        throw new IOException("could not compile component fixture: " + diagnostic);
+      }
+    }
+    return new ComponentFixture(((BasicJavacTask) task).getContext(), units);
+  }
+
+  public Context context() {
+    return context;
+  }
+
+  public VisitorState state() {
+    return state;
+  }
+
+  /** Returns a NullAway instance configured with the fixture package as annotated code. */
+  public NullAway analysis() {
+    return analysis;
+  }
+
+  /** Returns the classes of the fixture, annotated and unannotated ones. */
+  public List<Symbol.ClassSymbol> classes() {
+    return classes;
+  }
+
+  /** Returns the instance fields of the fixture. */
+  public List<Symbol.VarSymbol> fields() {
+    return fields;
+  }
+
+  public List<Symbol.VarSymbol> staticFields() {
+    return staticFields;
+  }
+
+  /** Returns the methods declared by the fixture, excluding constructors. */
+  public List<Symbol.MethodSymbol> methods() {
+    return methods;
+  }
+
+  /** Returns the JDK methods called by the fixture, one entry per call site. */
+  public List<Symbol.MethodSymbol> libraryMethods() {
+    return libraryMethods;
+  }
+
+  /**
+   * Returns the subtype constraints of a chain of generic method calls, from a field of type {@code
+   * List<@Nullable String>} to the {@code List<T>} parameter of the first generic method, and from
+   * the parameter of each generic method to the one of the next. The constraints are satisfiable,
+   * and solving them propagates the nullability of the field along the whole chain.
+   */
+  public List<SubtypeConstraint> subtypeConstraints() {
+    List<SubtypeConstraint> constraints = new ArrayList<>();
+    Type previous = nullableListFields.get(0).type;
+    for (Symbol.MethodSymbol method : genericMethods) {
+      Type parameter = method.getParameters().get(0).type;
+      constraints.add(new SubtypeConstraint(previous, parameter));
+      previous = parameter;
+    }
+    return constraints;
+  }
+
+  private static String fixtureSource(int numGroups) {
+    StringBuilder source = new StringBuilder();
+    source.append(
+        """
+        package componentbench;
+        import java.util.*;
+        import org.jspecify.annotations.NullMarked;
+        import org.jspecify.annotations.Nullable;
+        @NullMarked
+        public class Fixture {
+        """);
+    for (int i = 0; i < numGroups; i++) {
+      source.append(
+          """
+            static @Nullable Object static%1$d;
+            @Nullable String nullable%1$d;
+            String nonNull%1$d = "";
+            List<@Nullable String> nullableList%1$d = new ArrayList<>();
+            List<String> list%1$d = new ArrayList<>();
+            <T extends @Nullable Object> @Nullable T flow%1$d(List<T> list) {
+              return list.isEmpty() ? null : list.get(0);
+            }
+            String use%1$d(Map<String, String> map) {
+              map.put("k", nonNull%1$d);
+              String v = map.containsKey("k") ? map.get("k") : "";
+              Objects.requireNonNull(v);
+              return v + String.valueOf(nullable%1$d) + Optional.ofNullable(nullable%1$d).orElse("")
+                  + list%1$d.size();
+            }
+            class Inner%1$d {}
+          """
+              .formatted(i));
+    }
+    return source.append("}\n").toString();
+  }
+
+  private static String legacySource() {
+    return "package unannotated;\n"
+        + "public class Legacy {\n"
+        + "  Object field;\n"
+        + "  public Object get(Object key) { return key; }\n"
+        + "  public static String name() { return \"\"; }\n"
+        + "}\n";
+  }
+
+  /** Collects the symbols of the declarations and method calls of the fixture. */
+  private final class SymbolCollector extends TreeScanner<@Nullable Void, @Nullable Void> {
+
+    @Override
+    public @Nullable Void visitClass(ClassTree tree, @Nullable Void unused) {
+      classes.add(ASTHelpers.getSymbol(tree));
+      return super.visitClass(tree, null);
+    }
+
+    @Override
+    public @Nullable Void visitVariable(VariableTree tree, @Nullable Void unused) {
+      Symbol.VarSymbol symbol = ASTHelpers.getSymbol(tree);
+      if (symbol.getKind() == ElementKind.FIELD) {
+        if (symbol.getModifiers().contains(Modifier.STATIC)) {
+          staticFields.add(symbol);
+        } else {
+          fields.add(symbol);
+          if (symbol.getSimpleName().toString().startsWith("nullableList")) {
+            nullableListFields.add(symbol);
+          }
+        }
+      }
+      return super.visitVariable(tree, null);
+    }
+
+    @Override
+    public @Nullable Void visitMethod(MethodTree tree, @Nullable Void unused) {
+      Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(tree);
+      if (!symbol.isConstructor()) {
+        methods.add(symbol);
+        if (!symbol.getTypeParameters().isEmpty()) {
+          genericMethods.add(symbol);
+        }
+      }
+      return super.visitMethod(tree, null);
+    }
+
+    @Override
+    public @Nullable Void visitMethodInvocation(MethodInvocationTree tree, @Nullable Void unused) {
+      Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(tree);
+      if (symbol.packge().getQualifiedName().toString().startsWith("java.")) {
+        libraryMethods.add(symbol);
+      }
+      return super.visitMethodInvocation(tree, null);
+    }
+  }
+
+  private static final class SourceFile extends SimpleJavaFileObject {
+
+    private final String code;
+
+    SourceFile(String className, String code) {
+      super(
+          URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension),
+          Kind.SOURCE);
+      this.code = code;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return code;
+    }
+  }
+}
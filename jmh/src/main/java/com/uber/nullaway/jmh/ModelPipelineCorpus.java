@@ -0,0 +1,202 @@
+package com.uber.nullaway.jmh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Inputs for benchmarking the offline model pipeline, i.e., JarInfer and astubx generation.
+ *
+ * <p>Synthetic inputs have a configurable size and are fully determined by their parameters, so
+ * that results are comparable across runs.
+ */
+public final class ModelPipelineCorpus {
+
+  /** Number of synthetic classes in each package. */
+  private static final int CLASSES_PER_PACKAGE = 50;
+
+  private static final String NULLABLE = "@org.jspecify.annotations.Nullable ";
+
+  private ModelPipelineCorpus() {}
+
+  /** Get the path to the jar of {@code test-java-lib-jarinfer}, computed in build.gradle */
+  public static String getTestJarInferLibJar() {
+    String jar = System.getProperty("nullaway.jarinfer.testJar");
+    if (jar == null || !Files.exists(Paths.get(jar))) {
+      throw new IllegalStateException("test-java-lib-jarinfer jar not found: " + jar);
+    }
+    return jar;
+  }
+
+  /**
+   * Compiles a synthetic library into a jar. Each class has, for every group of methods, a method
+   * dereferencing its parameters, a method that may return null, and a method passing its parameter
+   * to a private helper that dereferences it.
+   *
+   * @param dir directory for the sources, classes and jar
+   * @param numClasses number of classes
+   * @param methodGroupsPerClass number of groups of methods in each class
+   * @return path to the jar
+   * @throws IOException if the sources or the jar cannot be written
+   */
+  public static Path writeSyntheticJar(Path dir, int numClasses, int methodGroupsPerClass)
+      throws IOException {
+    Path sourceDir = Files.createDirectories(dir.resolve("src"));
+    Path classesDir = Files.createDirectories(dir.resolve("classes"));
+    List<Path> sources = new ArrayList<>();
+    for (int i = 0; i < numClasses; i++) {
+      String pkg = "synthetic.pkg" + (i / CLASSES_PER_PACKAGE);
+      String cls = "Class" + i;
+      Path source = Files.createDirectories(sourceDir.resolve(pkg.replace('.', '/')));
+      source = source.resolve(cls + ".java");
+      Files.writeString(source, syntheticClassSource(pkg, cls, methodGroupsPerClass));
+      sources.add(source);
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      Iterable<? extends JavaFileObject> compilationUnits =
+          fileManager.getJavaFileObjectsFromPaths(sources);
+      List<String> options = List.of("-d", classesDir.toString(), "-proc:none", "-nowarn");
+      if (!compiler.getTask(null, fileManager, null, options, null, compilationUnits).call()) {
+        throw new IllegalStateException("failed to compile synthetic library in " + sourceDir);
+      }
+    }
+    Path jar = dir.resolve("synthetic.jar");
+    try (JarOutputStream jarOS = new JarOutputStream(Files.newOutputStream(jar));
+        Stream<Path> classFiles = Files.walk(classesDir)) {
+      for (Path classFile : classFiles.filter(Files::isRegularFile).sorted().toList()) {
+        JarEntry entry =
+            new JarEntry(classesDir.relativize(classFile).toString().replace('\\', '/'));
+        entry.setTime(0);
+        jarOS.putNextEntry(entry);
+        Files.copy(classFile, jarOS);
+        jarOS.closeEntry();
+      }
+    }
+    return jar;
+  }
+
+  private static String syntheticClassSource(String pkg, String cls, int methodGroups) {
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(pkg).append(";\n");
+    source.append("public class ").append(cls).append(" {\n");
+    source.append("  private String field = \"\";\n");
+    for (int m = 0; m < methodGroups; m++) {
+      source
+          .append("  public String derefs")
+          .append(m)
+          .append("(String a, Object b, String c) {\n")
+          .append("    if (c != null) { field = c; }\n")
+          .append("    return a.trim() + b.hashCode();\n")
+          .append("  }\n");
+      source
+          .append("  public String nullable")
+          .append(m)
+          .append("(Object o) {\n")
+          .append("    if (o == null) { return null; }\n")
+          .append("    return o.toString() + field;\n")
+          .append("  }\n");
+      source
+          .append("  public int callsHelper")
+          .append(m)
+          .append("(String s, String t) {\n")
+          .append("    return helper")
+          .append(m)
+          .append("(s) + (t == null ? 0 : t.length());\n")
+          .append("  }\n");
+      source
+          .append("  private static int helper")
+          .append(m)
+          .append("(String s) {\n")
+          .append("    return s.length();\n")
+          .append("  }\n");
+    }
+    source.append("}\n");
+    return source.toString();
+  }
+
+  /**
+   * Writes a synthetic JSON Lines file in the format produced by the {@code
+   * NullnessAnnotationSerializer} javac plugin, as input for the astubx generator.
+   *
+   * @param dir directory for the JSON file
+   * @param numClasses number of classes
+   * @param methodsPerClass number of annotated methods in each class
+   * @return path to the directory containing the JSON file
+   * @throws IOException if the file cannot be written
+   */
+  public static Path writeSyntheticJsonDir(Path dir, int numClasses, int methodsPerClass)
+      throws IOException {
+    Files.createDirectories(dir);
+    List<String> classes = new ArrayList<>();
+    for (int i = 0; i < numClasses; i++) {
+      String cls = "Class" + i;
+      String type = "synthetic.pkg" + (i / CLASSES_PER_PACKAGE) + "." + cls;
+      List<String> methods = new ArrayList<>();
+      for (int m = 0; m < methodsPerClass; m++) {
+        methods.add(
+            jsonMethod(
+                NULLABLE + "java.lang.String",
+                "get" + m + "(" + NULLABLE + "java.lang.Object,java.lang.String)",
+                "[]"));
+        methods.add(
+            jsonMethod(
+                "java.util.List<" + NULLABLE + "T>",
+                "list" + m + "(java.util.List<" + NULLABLE + "T>)",
+                "[{\"name\":\"T\",\"bounds\":[\"" + NULLABLE + "java.lang.Object\"]}]"));
+      }
+      classes.add(
+          "{\"module\":\"java.base\",\"classInfo\":{\"name\":\""
+              + cls
+              + "\",\"type\":\""
+              + type
+              + "<E>\",\"nullMarked\":true,\"nullUnmarked\":false,"
+              + "\"typeParams\":[{\"name\":\"E\",\"bounds\":[\""
+              + NULLABLE
+              + "java.lang.Object\"]}],\"methods\":["
+              + String.join(",", methods)
+              + "]}}");
+    }
+    // one class per line, as the plugin writes them
+    Files.write(dir.resolve("classes-synthetic.jsonl"), classes);
+    return dir;
+  }
+
+  private static String jsonMethod(String returnType, String name, String typeParams) {
+    return "{\"returnType\":\""
+        + returnType
+        + "\",\"name\":\""
+        + name
+        + "\",\"nullMarked\":false,\"nullUnmarked\":false,\"typeParams\":"
+        + typeParams
+        + ",\"nestedAnnotationsList\":{}}";
+  }
+
+  /**
+   * Deletes a directory created for a benchmark, with all its contents.
+   *
+   * @param dir the directory
+   * @throws IOException if some file cannot be deleted
+   */
+  public static void deleteRecursively(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      // delete children before their parents
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+}
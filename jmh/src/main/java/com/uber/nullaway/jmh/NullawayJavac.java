@@ -32,6 +32,9 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
@@ -135,6 +138,25 @@ public class NullawayJavac {
         "");
   }
 
+  /**
+   * Create a NullawayJavac object to compile a set of source files given as Strings, without
+   * additional classpath or processor path.
+   *
+   * @param sources map from fully qualified class names to their source code
+   * @param annotatedPackages argument to pass for "-XepOpt:NullAway:AnnotatedPackages" option
+   * @param extraErrorProneArgs extra arguments to pass to Error Prone
+   * @throws IOException if a temporary output directory cannot be created
+   */
+  public static NullawayJavac createFromSourceStrings(
+      Map<String, String> sources, String annotatedPackages, List<String> extraErrorProneArgs)
+      throws IOException {
+    List<JavaFileObject> compilationUnits = new ArrayList<>();
+    for (Map.Entry<String, String> source : sources.entrySet()) {
+      compilationUnits.add(new JavaSourceFromString(source.getKey(), source.getValue()));
+    }
+    return new NullawayJavac(compilationUnits, annotatedPackages, null, extraErrorProneArgs, "");
+  }
+
   /**
    * Configures compilation with javac and NullAway.
    *
@@ -225,6 +247,18 @@ public class NullawayJavac {
     return task.call();
   }
 
+  /**
+   * Runs the compilation, collecting its diagnostics, for tests of benchmarks that are expected to
+   * get NullAway errors.
+   *
+   * @return the diagnostics reported by the compilation
+   */
+  public List<Diagnostic<? extends JavaFileObject>> compileAndCollectDiagnostics() {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    compiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits).call();
+    return diagnostics.getDiagnostics();
+  }
+
   private static String readFile(String path) throws IOException {
     byte[] encoded = Files.readAllBytes(Paths.get(path));
     return new String(encoded, StandardCharsets.UTF_8);
@@ -0,0 +1,24 @@
+package com.uber.nullaway.jmh;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compiles a NullAway release in JSpecify mode with the JSpecify models of the JDK. The release
+ * predates JSpecify mode, so NullAway may report errors; only the time taken is of interest.
+ */
+public class NullawayReleaseJSpecifyCompiler extends NullawayReleaseCompiler {
+
+  public NullawayReleaseJSpecifyCompiler() throws IOException {
+    super();
+  }
+
+  @Override
+  protected List<String> getExtraErrorProneArgs() {
+    return ImmutableList.<String>builder()
+        .addAll(super.getExtraErrorProneArgs())
+        .add("-XepOpt:NullAway:JSpecifyMode=true", "-XepOpt:NullAway:JSpecifyJDKModels=true")
+        .build();
+  }
+}
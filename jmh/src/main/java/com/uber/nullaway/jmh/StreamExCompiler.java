@@ -0,0 +1,40 @@
+package com.uber.nullaway.jmh;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Compiles StreamEx, a library built on streams, {@code Optional} and functional interfaces, in
+ * JSpecify mode with the JSpecify models of the JDK. Its heavy use of generic methods and nested
+ * type arguments exercises generics checking and inference. StreamEx is not annotated for
+ * nullness, so NullAway may report errors; only the time taken is of interest.
+ */
+public class StreamExCompiler extends AbstractBenchmarkCompiler {
+
+  public StreamExCompiler() throws IOException {
+    super();
+  }
+
+  @Override
+  protected String getSourceDirectory() {
+    return System.getProperty("nullaway.streamex.sources");
+  }
+
+  @Override
+  protected String getAnnotatedPackages() {
+    return "one.util.streamex";
+  }
+
+  @Override
+  protected String getClasspath() {
+    return System.getProperty("nullaway.streamex.classpath");
+  }
+
+  @Override
+  protected List<String> getExtraErrorProneArgs() {
+    return List.of(
+        "-XepOpt:NullAway:JSpecifyMode=true",
+        "-XepOpt:NullAway:JSpecifyJDKModels=true",
+        "-XepOpt:NullAway:CheckOptionalEmptiness=true");
+  }
+}
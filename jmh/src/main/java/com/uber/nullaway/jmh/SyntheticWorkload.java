@@ -0,0 +1,224 @@
+package com.uber.nullaway.jmh;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generator of synthetic sources for measuring how NullAway scales along a single dimension of the
+ * checked code, e.g., the length of a method or the nesting depth of lambdas.
+ *
+ * <p>A workload holds only the code for its dimension, so that its size is the only thing changing
+ * across a sweep. Workloads are fully determined by their parameters and compile without NullAway
+ * errors, in JSpecify mode, with {@link #PACKAGE} as the annotated package.
+ */
+public final class SyntheticWorkload {
+
+  /** Package of the generated classes. */
+  public static final String PACKAGE = "com.uber.synthetic";
+
+  /** A dimension along which the size of a workload grows. */
+  public enum Dimension {
+    /** Number of statements in a method, each a null check followed by a conditional write. */
+    METHOD_LENGTH(50),
+    /** Number of nullable locals, all live across a loop. */
+    LOCALS(25),
+    /** Depth of a chain of nullable field reads, checked at each level. */
+    FIELD_CHAIN_DEPTH(4),
+    /** Nesting depth of lambdas, each checking a captured nullable variable. */
+    LAMBDA_NESTING(2),
+    /** Nesting depth of calls to a generic method whose type argument is inferred. */
+    GENERIC_CALL_DEPTH(4),
+    /** Number of classes, each calling the previous one. */
+    CLASSES(25);
+
+    private final int baseSize;
+
+    Dimension(int baseSize) {
+      this.baseSize = baseSize;
+    }
+
+    /** Returns a size for the dimension at which compilation takes a measurable time. */
+    public int baseSize() {
+      return baseSize;
+    }
+  }
+
+  private static final String HEADER =
+      """
+      package com.uber.synthetic;
+      import org.jspecify.annotations.Nullable;
+      """;
+
+  private SyntheticWorkload() {}
+
+  /**
+   * Generates a workload.
+   *
+   * @param dimension the dimension along which the workload grows
+   * @param size the size of the workload along the dimension, at least 1
+   * @return map from fully qualified class names to their sources
+   */
+  public static Map<String, String> generate(Dimension dimension, int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be at least 1, got " + size);
+    }
+    Map<String, String> sources = new LinkedHashMap<>();
+    switch (dimension) {
+      case METHOD_LENGTH -> addClass(sources, "MethodLength", methodLength(size));
+      case LOCALS -> addClass(sources, "Locals", locals(size));
+      case FIELD_CHAIN_DEPTH -> addClass(sources, "FieldChain", fieldChain(size));
+      case LAMBDA_NESTING -> addClass(sources, "LambdaNesting", lambdaNesting(size));
+      case GENERIC_CALL_DEPTH -> addClass(sources, "GenericCalls", genericCalls(size));
+      case CLASSES -> {
+        for (int i = 0; i < size; i++) {
+          addClass(sources, "Class" + i, classMembers(i));
+        }
+      }
+    }
+    return sources;
+  }
+
+  private static void addClass(Map<String, String> sources, String name, String members) {
+    sources.put(PACKAGE + "." + name, HEADER + "public class " + name + " {\n" + members + "}\n");
+  }
+
+  private static String methodLength(int size) {
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      body.append(
+          """
+              if (o != null) {
+                sum += o.hashCode();
+              }
+              if (sum > %d) {
+                o = null;
+              } else if (b) {
+                o = new Object();
+              }
+          """
+              .formatted(i));
+    }
+    return """
+          static int method(@Nullable Object o, boolean b) {
+            int sum = 0;
+        %s    return sum;
+          }
+        """
+        .formatted(body);
+  }
+
+  private static String locals(int size) {
+    StringBuilder declarations = new StringBuilder();
+    StringBuilder uses = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      declarations.append("    Object x%1$d = b ? null : new Object();\n".formatted(i));
+      // rotate the values, so the loop needs several iterations to reach a fixed point
+      uses.append(
+          """
+                if (x%1$d != null) {
+                  sum += x%1$d.hashCode();
+                }
+                x%1$d = x%2$d;
+          """
+              .formatted(i, (i + 1) % size));
+    }
+    return """
+          static int locals(boolean b) {
+            int sum = 0;
+        %s    for (int k = 0; k < 10; k++) {
+        %s    }
+            return sum;
+          }
+        """
+        .formatted(declarations, uses);
+  }
+
+  private static String fieldChain(int size) {
+    StringBuilder opening = new StringBuilder();
+    StringBuilder closing = new StringBuilder();
+    String path = "n";
+    for (int i = 0; i < size; i++) {
+      path += ".next";
+      opening.append(
+          """
+              if (%1$s != null) {
+                sum += %1$s.value;
+          """
+              .formatted(path));
+      closing.append("    }\n");
+    }
+    return """
+          @Nullable FieldChain next;
+          int value;
+          static int chain(FieldChain n) {
+            int sum = n.value;
+        %s%s    return sum;
+          }
+        """
+        .formatted(opening, closing);
+  }
+
+  private static String lambdaNesting(int size) {
+    String lambda = "() -> {}";
+    for (int i = size; i > 0; i--) {
+      lambda =
+          """
+          () -> {
+            if (o != null) {
+              sink(o.hashCode());
+            }
+            Runnable r%d = %s;
+            r%1$d.run();
+          }"""
+              .formatted(i, lambda);
+    }
+    return """
+          static void sink(int i) {}
+          static Runnable lambdas(@Nullable Object o) {
+            return %s;
+          }
+        """
+        .formatted(lambda);
+  }
+
+  private static String genericCalls(int size) {
+    String nonNull = "\"x\"";
+    String nullable = "s";
+    for (int i = 0; i < size; i++) {
+      nonNull = "id(" + nonNull + ")";
+      nullable = "id(" + nullable + ")";
+    }
+    return """
+          static <T extends @Nullable Object> T id(T t) {
+            return t;
+          }
+          static String genericCalls(@Nullable String s) {
+            String r = %s;
+            @Nullable String n = %s;
+            return r + String.valueOf(n);
+          }
+        """
+        .formatted(nonNull, nullable);
+  }
+
+  /** Members of class {@code i} of the {@link Dimension#CLASSES} workload. */
+  private static String classMembers(int i) {
+    String previous = i == 0 ? "0" : "Class" + (i - 1) + ".method(o, b)";
+    return """
+          @Nullable Object f;
+          static int method(@Nullable Object o, boolean b) {
+            int sum = %s;
+            if (o != null) {
+              sum += o.hashCode();
+            }
+            Class%d c = new Class%2$d();
+            c.f = b ? null : o;
+            if (c.f != null) {
+              sum += c.f.hashCode();
+            }
+            return sum;
+          }
+        """
+        .formatted(previous, i);
+  }
+}
@@ -0,0 +1,103 @@
+package com.uber.nullaway.jmh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonParser;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class BenchmarkComparisonTest {
+
+  @Test
+  public void readResults() {
+    Map<String, BenchmarkComparison.Result> results =
+        read(run("thrpt", 10, 9.5, 10.5, 1000, 990, 1010));
+    BenchmarkComparison.Result result =
+        results.get("com.uber.nullaway.jmh.ScalingBenchmark.compile{dimension=LOCALS, scale=2}");
+    assertEquals("thrpt", result.mode());
+    assertEquals(new BenchmarkComparison.Metric(10, 9.5, 10.5, "ops/s"), result.time());
+    assertEquals(new BenchmarkComparison.Metric(1000, 990, 1010, "B/op"), result.allocation());
+  }
+
+  @Test
+  public void reportsRegressions() {
+    List<BenchmarkComparison.Change> changes =
+        BenchmarkComparison.compare(
+            read(run("thrpt", 10, 9.5, 10.5, 1000, 990, 1010)),
+            read(run("thrpt", 8, 7.5, 8.5, 1100, 1090, 1110)),
+            BenchmarkComparison.DEFAULT_TIME_THRESHOLD,
+            BenchmarkComparison.DEFAULT_ALLOCATION_THRESHOLD);
+    assertEquals(2, changes.size());
+    assertEquals("time", changes.get(0).metric());
+    assertTrue(changes.get(0).regression());
+    assertEquals("allocation", changes.get(1).metric());
+    assertTrue(changes.get(1).regression());
+  }
+
+  @Test
+  public void reportsImprovements() {
+    // lower is better in average time mode
+    List<BenchmarkComparison.Change> changes =
+        BenchmarkComparison.compare(
+            read(run("avgt", 10, 9.5, 10.5, 1000, 990, 1010)),
+            read(run("avgt", 8, 7.5, 8.5, 1000, 990, 1010)),
+            BenchmarkComparison.DEFAULT_TIME_THRESHOLD,
+            BenchmarkComparison.DEFAULT_ALLOCATION_THRESHOLD);
+    assertEquals(1, changes.size());
+    assertFalse(changes.get(0).regression());
+  }
+
+  @Test
+  public void ignoresNoise() {
+    // the change is above the threshold, but within the confidence intervals
+    List<BenchmarkComparison.Change> changes =
+        BenchmarkComparison.compare(
+            read(run("thrpt", 10, 8, 12, 1000, 990, 1010)),
+            read(run("thrpt", 9, 7, 11, 1000, 990, 1010)),
+            BenchmarkComparison.DEFAULT_TIME_THRESHOLD,
+            BenchmarkComparison.DEFAULT_ALLOCATION_THRESHOLD);
+    assertTrue(changes.isEmpty());
+  }
+
+  private static Map<String, BenchmarkComparison.Result> read(String json) {
+    return BenchmarkComparison.readResults(JsonParser.parseString(json).getAsJsonArray());
+  }
+
+  /** Returns a JMH result file in JSON format with one run. */
+  private static String run(
+      String mode,
+      double score,
+      double low,
+      double high,
+      double allocation,
+      double allocationLow,
+      double allocationHigh) {
+    return """
+        [{
+          "benchmark": "com.uber.nullaway.jmh.ScalingBenchmark.compile",
+          "mode": "%s",
+          "params": {"scale": "2", "dimension": "LOCALS"},
+          "primaryMetric": {
+            "score": %s, "scoreConfidence": [%s, %s], "scoreUnit": "%s"
+          },
+          "secondaryMetrics": {
+            "gc.alloc.rate.norm": {
+              "score": %s, "scoreConfidence": [%s, %s], "scoreUnit": "B/op"
+            }
+          }
+        }]
+        """
+        .formatted(
+            mode,
+            score,
+            low,
+            high,
+            mode.equals("thrpt") ? "ops/s" : "ms/op",
+            allocation,
+            allocationLow,
+            allocationHigh);
+  }
+}
@@ -1,8 +1,10 @@
 package com.uber.nullaway.jmh;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.List;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -29,4 +31,22 @@ public class BenchmarkCompilationTest {
   public void testDFlowMicro() throws IOException {
     assertTrue(new DataFlowMicroBenchmarkCompiler().compile());
   }
+
+  // The benchmarks below may get NullAway errors, which are expected; any other error means the
+  // benchmark is broken
+
+  @Test
+  public void testStreamEx() throws IOException {
+    assertEquals(List.of(), new StreamExCompiler().compileAndGetNonNullAwayErrors());
+  }
+
+  @Test
+  public void testCaffeineJSpecify() throws IOException {
+    assertEquals(List.of(), new CaffeineJSpecifyCompiler().compileAndGetNonNullAwayErrors());
+  }
+
+  @Test
+  public void testNullawayReleaseJSpecify() throws IOException {
+    assertEquals(List.of(), new NullawayReleaseJSpecifyCompiler().compileAndGetNonNullAwayErrors());
+  }
 }
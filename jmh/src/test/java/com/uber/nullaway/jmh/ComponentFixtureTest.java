@@ -0,0 +1,50 @@
+package com.uber.nullaway.jmh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.tools.javac.code.Symbol;
+import com.uber.nullaway.CodeAnnotationInfo;
+import com.uber.nullaway.generics.ConstraintSolver;
+import com.uber.nullaway.generics.ConstraintSolverImpl;
+import java.util.Map;
+import javax.lang.model.element.Element;
+import org.junit.Test;
+
+/** Tests that the symbols captured by {@link ComponentFixture} are usable by NullAway */
+public class ComponentFixtureTest {
+
+  @Test
+  public void capturesSymbols() throws Exception {
+    ComponentFixture fixture = ComponentFixture.create(3);
+    // five instance fields per group and one in the unannotated class
+    assertEquals(3 * 5 + 1, fixture.fields().size());
+    assertEquals(3, fixture.staticFields().size());
+    assertFalse(fixture.libraryMethods().isEmpty());
+    CodeAnnotationInfo codeAnnotationInfo = CodeAnnotationInfo.instance(fixture.context());
+    for (Symbol.ClassSymbol classSymbol : fixture.classes()) {
+      assertEquals(
+          classSymbol.getQualifiedName().toString().startsWith("unannotated."),
+          codeAnnotationInfo.isSymbolUnannotated(
+              classSymbol, fixture.analysis().getConfig(), fixture.analysis().getHandler()));
+    }
+  }
+
+  @Test
+  public void solvesSubtypeConstraints() throws Exception {
+    ComponentFixture fixture = ComponentFixture.create(3);
+    ConstraintSolver solver =
+        new ConstraintSolverImpl(
+            fixture.analysis().getConfig(), fixture.state(), fixture.analysis());
+    for (ComponentFixture.SubtypeConstraint constraint : fixture.subtypeConstraints()) {
+      solver.addSubtypeConstraint(constraint.subtype(), constraint.supertype(), false);
+    }
+    Map<Element, ConstraintSolver.InferredNullability> solution = solver.solve();
+    // the nullability of the field is propagated to the type variable of each generic method
+    assertEquals(3, solution.size());
+    assertTrue(
+        solution.values().stream()
+            .allMatch(n -> n == ConstraintSolver.InferredNullability.NULLABLE));
+  }
+}
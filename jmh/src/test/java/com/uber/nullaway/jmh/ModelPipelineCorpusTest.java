@@ -0,0 +1,53 @@
+package com.uber.nullaway.jmh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.uber.nullaway.jarinfer.DefinitelyDerefedParamsDriver;
+import com.uber.nullaway.jarinfer.MethodParamAnnotations;
+import com.uber.nullaway.jdkannotations.AstubxGenerator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Tests that the inputs of the model pipeline benchmarks are accepted by the benchmarked tools */
+public class ModelPipelineCorpusTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void syntheticJar() throws Exception {
+    Path dir = temporaryFolder.getRoot().toPath();
+    Path jar = ModelPipelineCorpus.writeSyntheticJar(dir.resolve("corpus"), 60, 2);
+    MethodParamAnnotations result =
+        new DefinitelyDerefedParamsDriver()
+            .run(
+                jar.toString(),
+                "",
+                dir.resolve("out.astubx").toString(),
+                false,
+                false,
+                false,
+                false,
+                false);
+    assertEquals(
+        Set.of(0, 1),
+        result.get(
+            "synthetic.pkg1.Class59:java.lang.String derefs1(java.lang.String, java.lang.Object,"
+                + " java.lang.String)"));
+    assertTrue(Files.exists(dir.resolve("out.astubx")));
+  }
+
+  @Test
+  public void syntheticJson() throws Exception {
+    Path jsonDir =
+        ModelPipelineCorpus.writeSyntheticJsonDir(temporaryFolder.newFolder("json").toPath(), 3, 4);
+    AstubxGenerator.AstubxData data = AstubxGenerator.getAstubxData(jsonDir.toString());
+    // two methods for each of the 4 groups in each class
+    assertEquals(3 * 4 * 2, data.methodRecords().size());
+    assertEquals(Set.of(0), data.nullableUpperBounds().get("synthetic.pkg0.Class2"));
+  }
+}
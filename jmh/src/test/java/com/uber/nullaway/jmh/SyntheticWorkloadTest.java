@@ -0,0 +1,31 @@
+package com.uber.nullaway.jmh;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+
+/** Tests that the synthetic workloads compile without NullAway errors */
+public class SyntheticWorkloadTest {
+
+  @Test
+  public void allDimensionsCompile() throws IOException {
+    for (SyntheticWorkload.Dimension dimension : SyntheticWorkload.Dimension.values()) {
+      for (int size : new int[] {1, 3}) {
+        NullawayJavac nullawayJavac =
+            NullawayJavac.createFromSourceStrings(
+                SyntheticWorkload.generate(dimension, size),
+                SyntheticWorkload.PACKAGE,
+                List.of("-XepOpt:NullAway:JSpecifyMode=true"));
+        assertTrue(dimension + " at size " + size, nullawayJavac.compile());
+      }
+    }
+  }
+
+  @Test
+  public void classesDimension() {
+    assertEquals(3, SyntheticWorkload.generate(SyntheticWorkload.Dimension.CLASSES, 3).size());
+  }
+}
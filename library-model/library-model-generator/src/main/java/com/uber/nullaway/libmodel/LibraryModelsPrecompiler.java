@@ -0,0 +1,131 @@
+package com.uber.nullaway.libmodel;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.uber.nullaway.LibraryModels;
+import com.uber.nullaway.LibraryModels.FieldRef;
+import com.uber.nullaway.LibraryModels.MethodRef;
+import com.uber.nullaway.libmodel.PrecompiledModels.Field;
+import com.uber.nullaway.libmodel.PrecompiledModels.Method;
+import com.uber.nullaway.libmodel.PrecompiledModels.Section;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Build-time tool that serializes {@link LibraryModels} service implementations into a {@link
+ * PrecompiledModels} file.
+ *
+ * <p>The tool must be run with NullAway and the library models jar on the classpath. It loads every
+ * {@link LibraryModels} provider visible through {@link ServiceLoader}. The output file should be
+ * packaged at {@link PrecompiledModels#RESOURCE_LOCATION} in the library models jar, so that
+ * NullAway loads the precompiled models instead of instantiating the providers.
+ *
+ * <p>Models providing custom stream specifications cannot be precompiled, since those specs hold
+ * arbitrary matchers.
+ */
+public final class LibraryModelsPrecompiler {
+
+  private LibraryModelsPrecompiler() {}
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Invalid number of arguments. Required: <outputPath>");
+      System.exit(2);
+    }
+    Path outputPath = Paths.get(args[0]);
+    PrecompiledModels models =
+        precompile(
+            ServiceLoader.load(
+                LibraryModels.class, LibraryModelsPrecompiler.class.getClassLoader()));
+    Path parent = outputPath.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath)))) {
+      models.write(out);
+    }
+  }
+
+  /**
+   * Converts the given library models into precompiled models.
+   *
+   * @param models the library models to precompile
+   * @return precompiled models containing all the given models
+   * @throws IllegalArgumentException if one of the models provides custom stream specifications
+   */
+  public static PrecompiledModels precompile(Iterable<? extends LibraryModels> models) {
+    PrecompiledModels.Builder builder = PrecompiledModels.builder();
+    for (LibraryModels model : models) {
+      if (!model.customStreamNullabilitySpecs().isEmpty()) {
+        throw new IllegalArgumentException(
+            "Cannot precompile "
+                + model.getClass().getName()
+                + ", since it provides custom stream nullability specs");
+      }
+      builder.addProvider(model.getClass().getName());
+      addPositions(builder, Section.FAIL_IF_NULL_PARAMETERS, model.failIfNullParameters());
+      addPositions(
+          builder, Section.EXPLICITLY_NULLABLE_PARAMETERS, model.explicitlyNullableParameters());
+      addPositions(builder, Section.NON_NULL_PARAMETERS, model.nonNullParameters());
+      addPositions(
+          builder, Section.NULL_IMPLIES_TRUE_PARAMETERS, model.nullImpliesTrueParameters());
+      addPositions(
+          builder, Section.NULL_IMPLIES_FALSE_PARAMETERS, model.nullImpliesFalseParameters());
+      addPositions(
+          builder, Section.NULL_IMPLIES_NULL_PARAMETERS, model.nullImpliesNullParameters());
+      addPositions(builder, Section.CAST_TO_NON_NULL_METHODS, model.castToNonNullMethods());
+      addPositions(
+          builder,
+          Section.METHOD_TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS,
+          model.methodTypeVariablesWithNullableUpperBounds());
+      for (MethodRef ref : model.nullableReturns()) {
+        builder.addMethod(Section.NULLABLE_RETURNS, toMethod(ref));
+      }
+      for (MethodRef ref : model.nonNullReturns()) {
+        builder.addMethod(Section.NON_NULL_RETURNS, toMethod(ref));
+      }
+      for (Map.Entry<MethodRef, MethodRef> entry :
+          model.ensuresNonNullIfTrueMethodCalls().entries()) {
+        builder.addEnsuresNonNullIfTrueMethodCall(
+            toMethod(entry.getKey()), toMethod(entry.getValue()));
+      }
+      for (Map.Entry<String, Integer> entry :
+          model.typeVariablesWithNullableUpperBounds().entries()) {
+        builder.addTypeVariableWithNullableUpperBound(entry.getKey(), entry.getValue());
+      }
+      for (String className : model.nullMarkedClasses()) {
+        builder.addNullMarkedClass(className);
+      }
+      for (FieldRef ref : model.nullableFields()) {
+        builder.addNullableField(new Field(ref.enclosingClassName(), ref.fieldName()));
+      }
+      for (Map.Entry<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>> entry :
+          model.nestedAnnotationsForMethods().entrySet()) {
+        Method method = toMethod(entry.getKey());
+        for (Map.Entry<Integer, NestedAnnotationInfo> info : entry.getValue().entries()) {
+          builder.addNestedAnnotation(method, info.getKey(), info.getValue());
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  private static void addPositions(
+      PrecompiledModels.Builder builder,
+      Section section,
+      ImmutableSetMultimap<MethodRef, Integer> models) {
+    for (Map.Entry<MethodRef, Integer> entry : models.entries()) {
+      builder.addMethodPosition(section, toMethod(entry.getKey()), entry.getValue());
+    }
+  }
+
+  private static Method toMethod(MethodRef ref) {
+    return new Method(ref.enclosingClass, ref.fullMethodSig);
+  }
+}
@@ -0,0 +1,261 @@
+package com.uber.nullaway.libmodel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Writer for models of several API levels in the format of {@link MultiLevelStubx}, from one astubx
+ * file per level.
+ */
+public final class MultiLevelStubxWriter {
+
+  /**
+   * A record of a JarInfer model.
+   *
+   * @param methodSig the method signature
+   * @param argIndex the argument index, or -1 for the return value
+   * @param annotation the fully qualified name of the annotation
+   */
+  public record Record(String methodSig, int argIndex, String annotation) {}
+
+  private static final Comparator<Record> RECORD_ORDER =
+      Comparator.comparing(Record::methodSig)
+          .thenComparingInt(Record::argIndex)
+          .thenComparing(Record::annotation);
+
+  private MultiLevelStubxWriter() {}
+
+  /**
+   * Writes a multi-level file from one astubx file per API level.
+   *
+   * @param args the output file, optionally followed by {@code --legacy-jarinfer-layout} if the
+   *     inputs are in the layout read by {@link #readLegacyRecords(byte[], String)}, followed by
+   *     {@code <level>=<astubx file>} for each API level
+   * @throws IOException On input or output error.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println(
+          "Invalid number of arguments. Required: <outputPath> [--legacy-jarinfer-layout]"
+              + " <level>=<astubxPath>...");
+      System.exit(2);
+    }
+    boolean legacyLayout = args[1].equals("--legacy-jarinfer-layout");
+    SortedMap<Integer, Set<Record>> levels = new TreeMap<>();
+    for (int i = legacyLayout ? 2 : 1; i < args.length; i++) {
+      int separator = args[i].indexOf('=');
+      if (separator == -1) {
+        throw new IllegalArgumentException("expected <level>=<astubxPath>, got " + args[i]);
+      }
+      Path astubx = Paths.get(args[i].substring(separator + 1));
+      byte[] bytes = Files.readAllBytes(astubx);
+      levels.put(
+          Integer.parseInt(args[i].substring(0, separator)),
+          legacyLayout
+              ? readLegacyRecords(bytes, astubx.toString())
+              : readRecords(bytes, astubx.toString()));
+    }
+    Path output = Paths.get(args[0]);
+    try (OutputStream out = Files.newOutputStream(output)) {
+      write(new DataOutputStream(out), levels);
+    }
+  }
+
+  /**
+   * Reads the records of a JarInfer model.
+   *
+   * @param astubx The contents of an astubx file.
+   * @param location Location of the file, for error messages.
+   * @return the records of the model
+   * @throws IOException If the file is not a well-formed astubx file.
+   * @throws IllegalArgumentException If the file holds records other than method return and
+   *     argument annotations.
+   */
+  public static Set<Record> readRecords(byte[] astubx, String location) throws IOException {
+    Set<Record> records = new TreeSet<>(RECORD_ORDER);
+    StubxFormat.read(
+        astubx,
+        location,
+        new StubxFormat.Visitor() {
+          @Override
+          public void methodAnnotation(String methodSig, String annotation) {
+            records.add(new Record(methodSig, -1, annotation));
+          }
+
+          @Override
+          public void argumentAnnotation(String methodSig, int argIndex, String annotation) {
+            records.add(new Record(methodSig, argIndex, annotation));
+          }
+
+          @Override
+          public void nullMarkedClass(String className) {
+            throw unsupported();
+          }
+
+          @Override
+          public void nullableUpperBound(String className, int typeParamIndex) {
+            throw unsupported();
+          }
+
+          @Override
+          public void methodTypeParamNullableUpperBound(String methodSig, int typeParamIndex) {
+            throw unsupported();
+          }
+
+          @Override
+          public void nestedAnnotation(String methodSig, int index, NestedAnnotationInfo info) {
+            throw unsupported();
+          }
+
+          private IllegalArgumentException unsupported() {
+            return new IllegalArgumentException(
+                "only method return and argument annotations are supported in " + location);
+          }
+        });
+    return records;
+  }
+
+  /**
+   * Reads the records of a JarInfer model in the version 1 layout written before the sections for
+   * method type parameters and nested annotations were added. The models checked in to the {@code
+   * android-jarinfer-models-sdkXX} projects are in this layout: after the magic number and the
+   * string table come package annotations, type annotations, method return annotations and
+   * argument annotations, and any trailing sections are ignored.
+   *
+   * @param astubx The contents of an astubx file.
+   * @param location Location of the file, for error messages.
+   * @return the records of the model
+   * @throws IOException If the file is not a well-formed astubx file.
+   */
+  public static Set<Record> readLegacyRecords(byte[] astubx, String location)
+      throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(astubx));
+    if (in.readInt() != StubxFormat.VERSION_1_FILE_MAGIC_NUMBER) {
+      throw new IOException("Invalid magic number for stubx file " + location);
+    }
+    String[] strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = in.readUTF();
+    }
+    // skip package and type annotations, which JarInfer does not write
+    for (int section = 0; section < 2; section++) {
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        in.readInt();
+        in.readInt();
+      }
+    }
+    Set<Record> records = new TreeSet<>(RECORD_ORDER);
+    int numMethodRecords = in.readInt();
+    for (int i = 0; i < numMethodRecords; i++) {
+      records.add(new Record(strings[in.readInt()], -1, strings[in.readInt()]));
+    }
+    int numArgumentRecords = in.readInt();
+    for (int i = 0; i < numArgumentRecords; i++) {
+      String methodSig = strings[in.readInt()];
+      int argIndex = in.readInt();
+      records.add(new Record(methodSig, argIndex, strings[in.readInt()]));
+    }
+    return records;
+  }
+
+  /**
+   * Writes the models of several API levels as a base model plus a delta per level.
+   *
+   * @param out Output stream.
+   * @param levels The records of the model of each API level.
+   * @throws IOException On output error.
+   */
+  public static void write(DataOutputStream out, SortedMap<Integer, Set<Record>> levels)
+      throws IOException {
+    // Count the levels of each record, in record order
+    Map<Record, Integer> numLevels = new TreeMap<>(RECORD_ORDER);
+    for (Set<Record> records : levels.values()) {
+      for (Record record : records) {
+        numLevels.merge(record, 1, Integer::sum);
+      }
+    }
+    Map<Record, Integer> ids = new LinkedHashMap<>();
+    SortedSet<String> strings = new TreeSet<>();
+    for (Record record : numLevels.keySet()) {
+      ids.put(record, ids.size());
+      strings.add(record.methodSig());
+      strings.add(record.annotation());
+    }
+    Map<String, Integer> stringIds = new LinkedHashMap<>();
+    for (String s : strings) {
+      stringIds.put(s, stringIds.size());
+    }
+    // The base model holds the records of at least half of the levels, which minimizes the total
+    // size of the deltas
+    SortedSet<Integer> base = new TreeSet<>();
+    for (Map.Entry<Record, Integer> entry : numLevels.entrySet()) {
+      if (2 * entry.getValue() >= levels.size()) {
+        base.add(ids.get(entry.getKey()));
+      }
+    }
+    List<byte[]> deltas = new ArrayList<>();
+    for (Set<Record> records : levels.values()) {
+      SortedSet<Integer> levelIds = new TreeSet<>();
+      for (Record record : records) {
+        levelIds.add(ids.get(record));
+      }
+      SortedSet<Integer> removed = new TreeSet<>(base);
+      removed.removeAll(levelIds);
+      SortedSet<Integer> added = new TreeSet<>(levelIds);
+      added.removeAll(base);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream delta = new DataOutputStream(bytes);
+      writeRecordSet(delta, removed);
+      writeRecordSet(delta, added);
+      deltas.add(bytes.toByteArray());
+    }
+
+    out.writeInt(MultiLevelStubx.FILE_MAGIC_NUMBER);
+    StubxFormat.writeStringTable(out, strings);
+    StubxFormat.writeVarint(out, ids.size());
+    for (Record record : ids.keySet()) {
+      StubxFormat.writeVarint(out, stringIds.get(record.methodSig()));
+      StubxFormat.writeVarint(out, record.argIndex() + 1);
+      StubxFormat.writeVarint(out, stringIds.get(record.annotation()));
+    }
+    writeRecordSet(out, base);
+    StubxFormat.writeVarint(out, levels.size());
+    List<Integer> levelNumbers = new ArrayList<>(levels.keySet());
+    for (int i = 0; i < levelNumbers.size(); i++) {
+      StubxFormat.writeVarint(out, levelNumbers.get(i));
+      StubxFormat.writeVarint(out, deltas.get(i).length);
+    }
+    for (byte[] delta : deltas) {
+      out.write(delta);
+    }
+    out.flush();
+  }
+
+  private static void writeRecordSet(DataOutputStream out, SortedSet<Integer> ids)
+      throws IOException {
+    StubxFormat.writeVarint(out, ids.size());
+    int previous = 0;
+    for (int id : ids) {
+      StubxFormat.writeVarint(out, id - previous);
+      previous = id;
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.uber.nullaway.libmodel;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -11,6 +12,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /** Simple writer for the astubx format. */
 public final class StubxWriter {
@@ -22,15 +27,45 @@ public final class StubxWriter {
   private static final int VERSION_0_FILE_MAGIC_NUMBER = 691458791;
 
   /**
-   * The file magic number for version 1 .astubx files. It should be the first four bytes of any
-   * compatible .astubx file.
+   * This method writes the provided list of annotations to a DataOutputStream in version 1 of the
+   * astubx format, which all NullAway versions can read.
+   *
+   * @param out Output stream.
+   * @param importedAnnotations Mapping of 'custom annotations' to their 'definition classes'.
+   * @param packageAnnotations Map of 'package names' to their 'list of package-level annotations'.
+   * @param typeAnnotations Map of 'type names' to their 'list of type annotations'.
+   * @param methodRecords Map of 'method signatures' to their 'method annotations record'. Method
+   *     annotations record consists of return value annotations and argument annotations. {@link
+   *     MethodAnnotationsRecord}
+   * @throws IOException On output error.
    */
-  private static final int VERSION_1_FILE_MAGIC_NUMBER = 481874642;
+  public static void write(
+      DataOutputStream out,
+      Map<String, String> importedAnnotations,
+      Map<String, Set<String>> packageAnnotations,
+      Map<String, Set<String>> typeAnnotations,
+      Map<String, MethodAnnotationsRecord> methodRecords,
+      Set<String> nullMarkedClasses,
+      Map<String, Set<Integer>> nullableUpperBounds)
+      throws IOException {
+    write(
+        out,
+        1,
+        importedAnnotations,
+        packageAnnotations,
+        typeAnnotations,
+        methodRecords,
+        nullMarkedClasses,
+        nullableUpperBounds);
+  }
 
   /**
-   * This method writes the provided list of annotations to a DataOutputStream in the astubx format.
+   * This method writes the provided list of annotations to a DataOutputStream in the given version
+   * of the astubx format. Version 2 files are smaller and faster to load, see {@link StubxFormat},
+   * but can only be read by NullAway versions that support them.
    *
    * @param out Output stream.
+   * @param formatVersion Version of the astubx format, 1 or 2.
    * @param importedAnnotations Mapping of 'custom annotations' to their 'definition classes'.
    * @param packageAnnotations Map of 'package names' to their 'list of package-level annotations'.
    * @param typeAnnotations Map of 'type names' to their 'list of type annotations'.
@@ -41,6 +76,7 @@ public final class StubxWriter {
    */
   public static void write(
       DataOutputStream out,
+      int formatVersion,
       Map<String, String> importedAnnotations,
       Map<String, Set<String>> packageAnnotations,
       Map<String, Set<String>> typeAnnotations,
@@ -48,8 +84,22 @@ public final class StubxWriter {
       Set<String> nullMarkedClasses,
       Map<String, Set<Integer>> nullableUpperBounds)
       throws IOException {
+    if (formatVersion == 2) {
+      writeVersion2(
+          out,
+          importedAnnotations,
+          packageAnnotations,
+          typeAnnotations,
+          methodRecords,
+          nullMarkedClasses,
+          nullableUpperBounds);
+      return;
+    }
+    if (formatVersion != 1) {
+      throw new IllegalArgumentException("unsupported astubx format version " + formatVersion);
+    }
     // File format version/magic number
-    out.writeInt(VERSION_1_FILE_MAGIC_NUMBER);
+    out.writeInt(StubxFormat.VERSION_1_FILE_MAGIC_NUMBER);
     // Followed by the number of string dictionary entries
     int numStringEntries = 0;
     Map<String, Integer> encodingDictionary = new LinkedHashMap<>();
@@ -187,4 +237,163 @@ public final class StubxWriter {
       }
     }
   }
+
+  /** The records of a class in version 2 files, see {@link StubxFormat.Section#CLASS_RECORDS}. */
+  private static final class ClassRecords {
+    boolean nullMarked = false;
+    Set<Integer> nullableUpperBounds = ImmutableSet.of();
+    final List<Map.Entry<String, MethodAnnotationsRecord>> methods = new ArrayList<>();
+  }
+
+  private static void writeVersion2(
+      DataOutputStream out,
+      Map<String, String> importedAnnotations,
+      Map<String, Set<String>> packageAnnotations,
+      Map<String, Set<String>> typeAnnotations,
+      Map<String, MethodAnnotationsRecord> methodRecords,
+      Set<String> nullMarkedClasses,
+      Map<String, Set<Integer>> nullableUpperBounds)
+      throws IOException {
+    // Group the records by class, sorted by name so that the class index can be binary searched
+    SortedMap<String, ClassRecords> classes = new TreeMap<>();
+    for (String className : nullMarkedClasses) {
+      classes.computeIfAbsent(className, k -> new ClassRecords()).nullMarked = true;
+    }
+    for (Map.Entry<String, Set<Integer>> entry : nullableUpperBounds.entrySet()) {
+      classes.computeIfAbsent(entry.getKey(), k -> new ClassRecords()).nullableUpperBounds =
+          entry.getValue();
+    }
+    for (Map.Entry<String, MethodAnnotationsRecord> entry : methodRecords.entrySet()) {
+      int colon = entry.getKey().indexOf(':');
+      if (colon == -1) {
+        throw new IllegalArgumentException("Invalid method signature " + entry.getKey());
+      }
+      classes
+          .computeIfAbsent(entry.getKey().substring(0, colon), k -> new ClassRecords())
+          .methods
+          .add(entry);
+    }
+    // The string table is sorted, which keeps shared prefixes adjacent and string ids in the same
+    // order as the class index
+    SortedSet<String> strings = new TreeSet<>();
+    strings.addAll(importedAnnotations.values());
+    strings.addAll(packageAnnotations.keySet());
+    strings.addAll(typeAnnotations.keySet());
+    strings.addAll(methodRecords.keySet());
+    strings.addAll(classes.keySet());
+    for (NestedAnnotationInfo.Annotation annotation : NestedAnnotationInfo.Annotation.values()) {
+      strings.add(annotation.name());
+    }
+    for (NestedAnnotationInfo.TypePathEntry.Kind kind :
+        NestedAnnotationInfo.TypePathEntry.Kind.values()) {
+      strings.add(kind.name());
+    }
+    Map<String, Integer> ids = new LinkedHashMap<>();
+    for (String s : strings) {
+      ids.put(s, ids.size());
+    }
+
+    List<ByteArrayOutputStream> sections = new ArrayList<>();
+    for (int i = 0; i < StubxFormat.Section.values().length; i++) {
+      sections.add(new ByteArrayOutputStream());
+    }
+    StubxFormat.writeStringTable(sectionOutput(sections, StubxFormat.Section.STRINGS), strings);
+    writeAnnotationPairs(
+        sectionOutput(sections, StubxFormat.Section.PACKAGE_ANNOTATIONS),
+        packageAnnotations,
+        importedAnnotations,
+        ids);
+    writeAnnotationPairs(
+        sectionOutput(sections, StubxFormat.Section.TYPE_ANNOTATIONS),
+        typeAnnotations,
+        importedAnnotations,
+        ids);
+    DataOutputStream index = sectionOutput(sections, StubxFormat.Section.CLASS_INDEX);
+    DataOutputStream records = sectionOutput(sections, StubxFormat.Section.CLASS_RECORDS);
+    index.writeInt(classes.size());
+    for (Map.Entry<String, ClassRecords> classEntry : classes.entrySet()) {
+      ClassRecords classRecords = classEntry.getValue();
+      index.writeInt(ids.get(classEntry.getKey()));
+      index.writeInt(records.size());
+      records.writeByte(classRecords.nullMarked ? StubxFormat.CLASS_FLAG_NULL_MARKED : 0);
+      StubxFormat.writeVarint(records, classRecords.nullableUpperBounds.size());
+      for (int typeParamIndex : classRecords.nullableUpperBounds) {
+        StubxFormat.writeVarint(records, typeParamIndex);
+      }
+      StubxFormat.writeVarint(records, classRecords.methods.size());
+      for (Map.Entry<String, MethodAnnotationsRecord> entry : classRecords.methods) {
+        MethodAnnotationsRecord record = entry.getValue();
+        StubxFormat.writeVarint(records, ids.get(entry.getKey()));
+        StubxFormat.writeVarint(records, record.methodAnnotations().size());
+        for (String annot : record.methodAnnotations()) {
+          StubxFormat.writeVarint(records, ids.get(importedAnnotations.get(annot)));
+        }
+        StubxFormat.writeVarint(records, record.typeParamNullableUpperbounds().size());
+        for (int typeParamIndex : record.typeParamNullableUpperbounds()) {
+          StubxFormat.writeVarint(records, typeParamIndex);
+        }
+        int numArgumentAnnotations = 0;
+        for (ImmutableSet<String> annots : record.argumentAnnotations().values()) {
+          numArgumentAnnotations += annots.size();
+        }
+        StubxFormat.writeVarint(records, numArgumentAnnotations);
+        for (Map.Entry<Integer, ImmutableSet<String>> argEntry :
+            record.argumentAnnotations().entrySet()) {
+          for (String annot : argEntry.getValue()) {
+            StubxFormat.writeVarint(records, argEntry.getKey());
+            StubxFormat.writeVarint(records, ids.get(importedAnnotations.get(annot)));
+          }
+        }
+        StubxFormat.writeVarint(records, record.nestedAnnotationInfo().size());
+        for (Map.Entry<Integer, NestedAnnotationInfo> nestedEntry :
+            record.nestedAnnotationInfo().entries()) {
+          NestedAnnotationInfo nestedInfo = nestedEntry.getValue();
+          // indices may be -1, for the return type and for array elements
+          StubxFormat.writeVarint(records, nestedEntry.getKey() + 1);
+          StubxFormat.writeVarint(records, ids.get(nestedInfo.annotation().name()));
+          StubxFormat.writeVarint(records, nestedInfo.typePath().size());
+          for (NestedAnnotationInfo.TypePathEntry typePath : nestedInfo.typePath()) {
+            StubxFormat.writeVarint(records, ids.get(typePath.kind().name()));
+            StubxFormat.writeVarint(records, typePath.index() + 1);
+          }
+        }
+      }
+    }
+
+    // Header: magic number, then the number of sections and their offsets from the file start
+    out.writeInt(StubxFormat.VERSION_2_FILE_MAGIC_NUMBER);
+    out.writeInt(sections.size());
+    int offset = (2 + sections.size()) * Integer.BYTES;
+    for (ByteArrayOutputStream section : sections) {
+      out.writeInt(offset);
+      offset += section.size();
+    }
+    for (ByteArrayOutputStream section : sections) {
+      section.writeTo(out);
+    }
+  }
+
+  private static DataOutputStream sectionOutput(
+      List<ByteArrayOutputStream> sections, StubxFormat.Section section) {
+    return new DataOutputStream(sections.get(section.ordinal()));
+  }
+
+  private static void writeAnnotationPairs(
+      DataOutputStream out,
+      Map<String, Set<String>> annotations,
+      Map<String, String> importedAnnotations,
+      Map<String, Integer> ids)
+      throws IOException {
+    int numRecords = 0;
+    for (Set<String> annots : annotations.values()) {
+      numRecords += annots.size();
+    }
+    StubxFormat.writeVarint(out, numRecords);
+    for (Map.Entry<String, Set<String>> entry : annotations.entrySet()) {
+      for (String annot : entry.getValue()) {
+        StubxFormat.writeVarint(out, ids.get(entry.getKey()));
+        StubxFormat.writeVarint(out, ids.get(importedAnnotations.get(annot)));
+      }
+    }
+  }
 }
@@ -0,0 +1,160 @@
+package com.uber.nullaway.libmodel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Models of several API levels of a library, stored as a base model plus a delta per level. Used
+ * for the JarInfer models of the Android SDK, where consecutive API levels share most of their
+ * records. Files are written by {@code MultiLevelStubxWriter} in the library-model-generator
+ * project.
+ *
+ * <p>Only the records JarInfer writes are supported, i.e., method return and argument annotations.
+ * A file starts with a magic number, followed by a string table in the layout of {@link
+ * StubxFormat.Section#STRINGS}, and the table of the records of all levels. Each record is a method
+ * signature, the argument index plus one (0 for the return value) and an annotation, and records
+ * are sorted. Then comes the base model, which holds the records present in at least half of the
+ * levels, followed by the number of levels, the API level and byte length of each delta, and the
+ * deltas. The delta of a level holds the base records missing from the level, then the records
+ * that are only in the level. All numbers are varints, and sets of records are stored as their
+ * size followed by the gaps between consecutive record ids.
+ */
+@NullMarked
+public final class MultiLevelStubx {
+
+  /** Magic number that should be the first four bytes of any multi-level astubx file. */
+  public static final int FILE_MAGIC_NUMBER = 0x41535844;
+
+  private MultiLevelStubx() {}
+
+  /** Reader materializing the model of one API level. */
+  public static final class Reader {
+
+    private final ByteBuffer buffer;
+    private final String location;
+    private final String[] strings;
+    private final int[] recordMethods;
+    private final int[] recordArguments;
+    private final int[] recordAnnotations;
+    private final int baseOffset;
+    private final int[] levels;
+    private final int[] deltaOffsets;
+
+    private Reader(ByteBuffer buffer, String location) throws IOException {
+      this.buffer = buffer;
+      this.location = location;
+      if (buffer.getInt() != FILE_MAGIC_NUMBER) {
+        throw new IOException("Invalid magic number for multi-level stubx file " + location);
+      }
+      strings = StubxFormat.readStringTable(buffer);
+      int numRecords = StubxFormat.readVarint(buffer);
+      recordMethods = new int[numRecords];
+      recordArguments = new int[numRecords];
+      recordAnnotations = new int[numRecords];
+      for (int i = 0; i < numRecords; i++) {
+        recordMethods[i] = StubxFormat.readVarint(buffer);
+        recordArguments[i] = StubxFormat.readVarint(buffer) - 1;
+        recordAnnotations[i] = StubxFormat.readVarint(buffer);
+      }
+      baseOffset = buffer.position();
+      // skip the base model to reach the level table
+      readRecordSet(buffer, new BitSet(), true);
+      int numLevels = StubxFormat.readVarint(buffer);
+      levels = new int[numLevels];
+      int[] deltaLengths = new int[numLevels];
+      for (int i = 0; i < numLevels; i++) {
+        levels[i] = StubxFormat.readVarint(buffer);
+        deltaLengths[i] = StubxFormat.readVarint(buffer);
+      }
+      deltaOffsets = new int[numLevels];
+      int offset = buffer.position();
+      for (int i = 0; i < numLevels; i++) {
+        deltaOffsets[i] = offset;
+        offset += deltaLengths[i];
+      }
+    }
+
+    /**
+     * Opens a multi-level file.
+     *
+     * @param bytes The contents of the file.
+     * @param location Location of the file, for error messages.
+     * @return a reader for the file
+     * @throws IOException If the file is not a well-formed multi-level file.
+     */
+    public static Reader open(byte[] bytes, String location) throws IOException {
+      try {
+        return new Reader(ByteBuffer.wrap(bytes), location);
+      } catch (RuntimeException e) {
+        throw new IOException("Malformed multi-level stubx file " + location, e);
+      }
+    }
+
+    /**
+     * Returns the API level whose model should be used for the given API level, i.e., the highest
+     * level in the file that is not above it.
+     *
+     * @param apiLevel The API level compiled against.
+     * @return the API level of the model to use, or -1 if all levels in the file are higher
+     */
+    public int floorLevel(int apiLevel) {
+      int result = -1;
+      // levels are sorted in ascending order
+      for (int level : levels) {
+        if (level <= apiLevel) {
+          result = level;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Visits the records of the model of one API level, decoding only the base model and the delta
+     * of that level.
+     *
+     * @param apiLevel An API level of the file, see {@link #floorLevel(int)}.
+     * @param visitor Visitor receiving the records.
+     * @throws IOException If the file has no model for the level or is not well-formed.
+     */
+    public void readLevel(int apiLevel, StubxFormat.Visitor visitor) throws IOException {
+      int levelIndex = -1;
+      for (int i = 0; i < levels.length; i++) {
+        if (levels[i] == apiLevel) {
+          levelIndex = i;
+        }
+      }
+      if (levelIndex == -1) {
+        throw new IOException("No model for API level " + apiLevel + " in " + location);
+      }
+      BitSet records = new BitSet(recordMethods.length);
+      try {
+        readRecordSet(buffer.duplicate().position(baseOffset), records, true);
+        ByteBuffer delta = buffer.duplicate().position(deltaOffsets[levelIndex]);
+        readRecordSet(delta, records, false);
+        readRecordSet(delta, records, true);
+      } catch (RuntimeException e) {
+        throw new IOException("Malformed multi-level stubx file " + location, e);
+      }
+      for (int id = records.nextSetBit(0); id >= 0; id = records.nextSetBit(id + 1)) {
+        String methodSig = strings[recordMethods[id]];
+        String annotation = strings[recordAnnotations[id]];
+        if (recordArguments[id] == -1) {
+          visitor.methodAnnotation(methodSig, annotation);
+        } else {
+          visitor.argumentAnnotation(methodSig, recordArguments[id], annotation);
+        }
+      }
+    }
+
+    private static void readRecordSet(ByteBuffer in, BitSet records, boolean value) {
+      int size = StubxFormat.readVarint(in);
+      int id = 0;
+      for (int i = 0; i < size; i++) {
+        id += StubxFormat.readVarint(in);
+        records.set(id, value);
+      }
+    }
+  }
+}
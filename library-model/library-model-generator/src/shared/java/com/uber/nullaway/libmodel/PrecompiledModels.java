@@ -0,0 +1,527 @@
+package com.uber.nullaway.libmodel;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Library models that were computed ahead of time from one or more {@code LibraryModels} service
+ * implementations and serialized into an indexed binary file.
+ *
+ * <p>NullAway loads these files from {@link #RESOURCE_LOCATION} on the processor path, and skips
+ * instantiating the service providers listed in {@link #providers()}. This avoids constructing the
+ * providers' model collections on every compilation. Files are written by {@code
+ * LibraryModelsPrecompiler} in the library-model-generator project.
+ *
+ * <p>The file starts with a magic number and a format version stamp, followed by a string
+ * dictionary, a table of method references pointing into the dictionary, and a sequence of
+ * length-prefixed sections, one per kind of model. Readers skip sections they do not know, and
+ * reject files with a different format version.
+ */
+@NullMarked
+public final class PrecompiledModels {
+
+  /** Magic number that should be the first four bytes of any precompiled models file. */
+  public static final int FILE_MAGIC_NUMBER = 0x4E414C4D;
+
+  /**
+   * Version stamp of the binary format. Must be bumped whenever the encoding of an existing section
+   * changes.
+   */
+  public static final int FORMAT_VERSION = 1;
+
+  /** Location of precompiled models files on the processor path. */
+  public static final String RESOURCE_LOCATION = "META-INF/nullaway/library-models.bin";
+
+  /** The kinds of models stored in a precompiled models file, one section per kind. */
+  public enum Section {
+    FAIL_IF_NULL_PARAMETERS,
+    EXPLICITLY_NULLABLE_PARAMETERS,
+    NON_NULL_PARAMETERS,
+    NULL_IMPLIES_TRUE_PARAMETERS,
+    NULL_IMPLIES_FALSE_PARAMETERS,
+    NULL_IMPLIES_NULL_PARAMETERS,
+    CAST_TO_NON_NULL_METHODS,
+    METHOD_TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS,
+    NULLABLE_RETURNS,
+    NON_NULL_RETURNS,
+    ENSURES_NON_NULL_IF_TRUE_METHOD_CALLS,
+    TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS,
+    NULL_MARKED_CLASSES,
+    NULLABLE_FIELDS,
+    NESTED_ANNOTATIONS;
+
+    /** Sections that map a method to a set of integer positions. */
+    public static final ImmutableList<Section> METHOD_TO_POSITIONS =
+        ImmutableList.of(
+            FAIL_IF_NULL_PARAMETERS,
+            EXPLICITLY_NULLABLE_PARAMETERS,
+            NON_NULL_PARAMETERS,
+            NULL_IMPLIES_TRUE_PARAMETERS,
+            NULL_IMPLIES_FALSE_PARAMETERS,
+            NULL_IMPLIES_NULL_PARAMETERS,
+            CAST_TO_NON_NULL_METHODS,
+            METHOD_TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS);
+
+    /** Sections that hold a set of methods. */
+    public static final ImmutableList<Section> METHOD_SETS =
+        ImmutableList.of(NULLABLE_RETURNS, NON_NULL_RETURNS);
+  }
+
+  /**
+   * A method, in the format expected by {@code LibraryModels.MethodRef.methodRef}.
+   *
+   * @param enclosingClass the qualified name of the enclosing class
+   * @param signature the method signature
+   */
+  public record Method(String enclosingClass, String signature) {}
+
+  /**
+   * A field, in the format expected by {@code LibraryModels.FieldRef.fieldRef}.
+   *
+   * @param enclosingClass the qualified name of the enclosing class
+   * @param name the field name
+   */
+  public record Field(String enclosingClass, String name) {}
+
+  private final ImmutableList<String> providers;
+  private final ImmutableMap<Section, ImmutableSetMultimap<Method, Integer>> methodToPositions;
+  private final ImmutableMap<Section, ImmutableSet<Method>> methodSets;
+  private final ImmutableSetMultimap<Method, Method> ensuresNonNullIfTrueMethodCalls;
+  private final ImmutableSetMultimap<String, Integer> typeVariablesWithNullableUpperBounds;
+  private final ImmutableSet<String> nullMarkedClasses;
+  private final ImmutableSet<Field> nullableFields;
+  private final ImmutableMap<Method, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+      nestedAnnotations;
+
+  private PrecompiledModels(Builder builder) {
+    this.providers = builder.providers.build();
+    ImmutableMap.Builder<Section, ImmutableSetMultimap<Method, Integer>> positionsBuilder =
+        ImmutableMap.builder();
+    for (Map.Entry<Section, ImmutableSetMultimap.Builder<Method, Integer>> entry :
+        builder.methodToPositions.entrySet()) {
+      positionsBuilder.put(entry.getKey(), entry.getValue().build());
+    }
+    this.methodToPositions = positionsBuilder.buildOrThrow();
+    ImmutableMap.Builder<Section, ImmutableSet<Method>> methodSetsBuilder = ImmutableMap.builder();
+    for (Map.Entry<Section, ImmutableSet.Builder<Method>> entry : builder.methodSets.entrySet()) {
+      methodSetsBuilder.put(entry.getKey(), entry.getValue().build());
+    }
+    this.methodSets = methodSetsBuilder.buildOrThrow();
+    this.ensuresNonNullIfTrueMethodCalls = builder.ensuresNonNullIfTrueMethodCalls.build();
+    this.typeVariablesWithNullableUpperBounds =
+        builder.typeVariablesWithNullableUpperBounds.build();
+    this.nullMarkedClasses = builder.nullMarkedClasses.build();
+    this.nullableFields = builder.nullableFields.build();
+    ImmutableMap.Builder<Method, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+        nestedBuilder = ImmutableMap.builder();
+    for (Map.Entry<Method, ImmutableSetMultimap.Builder<Integer, NestedAnnotationInfo>> entry :
+        builder.nestedAnnotations.entrySet()) {
+      nestedBuilder.put(entry.getKey(), entry.getValue().build());
+    }
+    this.nestedAnnotations = nestedBuilder.buildOrThrow();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the fully-qualified class names of the service providers whose models are contained in
+   * this file.
+   */
+  public ImmutableList<String> providers() {
+    return providers;
+  }
+
+  /**
+   * Returns the models of a section mapping methods to positions.
+   *
+   * @param section one of {@link Section#METHOD_TO_POSITIONS}
+   * @return the models of that section
+   */
+  public ImmutableSetMultimap<Method, Integer> methodToPositions(Section section) {
+    ImmutableSetMultimap<Method, Integer> result = methodToPositions.get(section);
+    if (result == null) {
+      throw new IllegalArgumentException("not a method-to-positions section: " + section);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the models of a section holding a set of methods.
+   *
+   * @param section one of {@link Section#METHOD_SETS}
+   * @return the models of that section
+   */
+  public ImmutableSet<Method> methodSet(Section section) {
+    ImmutableSet<Method> result = methodSets.get(section);
+    if (result == null) {
+      throw new IllegalArgumentException("not a method set section: " + section);
+    }
+    return result;
+  }
+
+  public ImmutableSetMultimap<Method, Method> ensuresNonNullIfTrueMethodCalls() {
+    return ensuresNonNullIfTrueMethodCalls;
+  }
+
+  public ImmutableSetMultimap<String, Integer> typeVariablesWithNullableUpperBounds() {
+    return typeVariablesWithNullableUpperBounds;
+  }
+
+  public ImmutableSet<String> nullMarkedClasses() {
+    return nullMarkedClasses;
+  }
+
+  public ImmutableSet<Field> nullableFields() {
+    return nullableFields;
+  }
+
+  public ImmutableMap<Method, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+      nestedAnnotations() {
+    return nestedAnnotations;
+  }
+
+  /**
+   * Writes these models in the precompiled binary format.
+   *
+   * @param out Output stream.
+   * @throws IOException On output error.
+   */
+  public void write(DataOutputStream out) throws IOException {
+    Map<String, Integer> strings = new LinkedHashMap<>();
+    Map<Method, Integer> methods = new LinkedHashMap<>();
+    for (String provider : providers) {
+      intern(strings, provider);
+    }
+    // Build the string dictionary and method table up front, by encoding all sections once
+    List<byte[]> sections = new ArrayList<>();
+    for (Section section : Section.values()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      writeSection(section, new DataOutputStream(bytes), strings, methods);
+      sections.add(bytes.toByteArray());
+    }
+    out.writeInt(FILE_MAGIC_NUMBER);
+    out.writeInt(FORMAT_VERSION);
+    // Followed by the string dictionary
+    out.writeInt(strings.size());
+    for (String s : strings.keySet()) {
+      out.writeUTF(s);
+    }
+    // Followed by the provider class names
+    out.writeInt(providers.size());
+    for (String provider : providers) {
+      out.writeInt(intern(strings, provider));
+    }
+    // Followed by the method table, as (class, signature) pairs pointing into the dictionary
+    out.writeInt(methods.size());
+    for (Method method : methods.keySet()) {
+      out.writeInt(intern(strings, method.enclosingClass()));
+      out.writeInt(intern(strings, method.signature()));
+    }
+    // Followed by the sections, each prefixed by its id and its length in bytes
+    out.writeInt(sections.size());
+    for (Section section : Section.values()) {
+      byte[] bytes = sections.get(section.ordinal());
+      out.writeInt(section.ordinal());
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+    out.flush();
+  }
+
+  private void writeSection(
+      Section section,
+      DataOutputStream out,
+      Map<String, Integer> strings,
+      Map<Method, Integer> methods)
+      throws IOException {
+    switch (section) {
+      case NULLABLE_RETURNS, NON_NULL_RETURNS -> {
+        ImmutableSet<Method> set = methodSet(section);
+        out.writeInt(set.size());
+        for (Method method : set) {
+          out.writeInt(intern(strings, methods, method));
+        }
+      }
+      case ENSURES_NON_NULL_IF_TRUE_METHOD_CALLS -> {
+        out.writeInt(ensuresNonNullIfTrueMethodCalls.keySet().size());
+        for (Map.Entry<Method, Collection<Method>> entry :
+            ensuresNonNullIfTrueMethodCalls.asMap().entrySet()) {
+          out.writeInt(intern(strings, methods, entry.getKey()));
+          out.writeInt(entry.getValue().size());
+          for (Method callee : entry.getValue()) {
+            out.writeInt(intern(strings, methods, callee));
+          }
+        }
+      }
+      case TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS -> {
+        out.writeInt(typeVariablesWithNullableUpperBounds.keySet().size());
+        for (Map.Entry<String, Collection<Integer>> entry :
+            typeVariablesWithNullableUpperBounds.asMap().entrySet()) {
+          out.writeInt(intern(strings, entry.getKey()));
+          writePositions(out, entry.getValue());
+        }
+      }
+      case NULL_MARKED_CLASSES -> {
+        out.writeInt(nullMarkedClasses.size());
+        for (String className : nullMarkedClasses) {
+          out.writeInt(intern(strings, className));
+        }
+      }
+      case NULLABLE_FIELDS -> {
+        out.writeInt(nullableFields.size());
+        for (Field field : nullableFields) {
+          out.writeInt(intern(strings, field.enclosingClass()));
+          out.writeInt(intern(strings, field.name()));
+        }
+      }
+      case NESTED_ANNOTATIONS -> {
+        out.writeInt(nestedAnnotations.size());
+        for (Map.Entry<Method, ImmutableSetMultimap<Integer, NestedAnnotationInfo>> entry :
+            nestedAnnotations.entrySet()) {
+          out.writeInt(intern(strings, methods, entry.getKey()));
+          out.writeInt(entry.getValue().size());
+          for (Map.Entry<Integer, NestedAnnotationInfo> info : entry.getValue().entries()) {
+            // position, annotation, type path length, then (kind, index) for each type path entry
+            out.writeInt(info.getKey());
+            out.writeInt(info.getValue().annotation().ordinal());
+            out.writeInt(info.getValue().typePath().size());
+            for (NestedAnnotationInfo.TypePathEntry typePathEntry : info.getValue().typePath()) {
+              out.writeInt(typePathEntry.kind().ordinal());
+              out.writeInt(typePathEntry.index());
+            }
+          }
+        }
+      }
+      default -> {
+        ImmutableSetMultimap<Method, Integer> positions = methodToPositions(section);
+        out.writeInt(positions.keySet().size());
+        for (Map.Entry<Method, Collection<Integer>> entry : positions.asMap().entrySet()) {
+          out.writeInt(intern(strings, methods, entry.getKey()));
+          writePositions(out, entry.getValue());
+        }
+      }
+    }
+  }
+
+  private static void writePositions(DataOutputStream out, Collection<Integer> positions)
+      throws IOException {
+    out.writeInt(positions.size());
+    for (int position : positions) {
+      out.writeInt(position);
+    }
+  }
+
+  private static int intern(Map<String, Integer> strings, String s) {
+    return strings.computeIfAbsent(s, k -> strings.size());
+  }
+
+  private static int intern(
+      Map<String, Integer> strings, Map<Method, Integer> methods, Method method) {
+    intern(strings, method.enclosingClass());
+    intern(strings, method.signature());
+    return methods.computeIfAbsent(method, k -> methods.size());
+  }
+
+  /**
+   * Reads precompiled models from a stream.
+   *
+   * @param inputStream Input stream, positioned at the start of a precompiled models file.
+   * @param location Location of the file, for error messages.
+   * @return the models read from the stream
+   * @throws IOException On input error, or if the file is not a precompiled models file written in
+   *     the current {@link #FORMAT_VERSION}.
+   */
+  public static PrecompiledModels read(InputStream inputStream, String location)
+      throws IOException {
+    DataInputStream in = new DataInputStream(inputStream);
+    if (in.readInt() != FILE_MAGIC_NUMBER) {
+      throw new IOException("Invalid magic number for precompiled models file " + location);
+    }
+    int version = in.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException(
+          "Unsupported precompiled models format version "
+              + version
+              + " (expected "
+              + FORMAT_VERSION
+              + ") in "
+              + location);
+    }
+    String[] strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = in.readUTF();
+    }
+    Builder builder = builder();
+    int numProviders = in.readInt();
+    for (int i = 0; i < numProviders; i++) {
+      builder.addProvider(strings[in.readInt()]);
+    }
+    Method[] methods = new Method[in.readInt()];
+    for (int i = 0; i < methods.length; i++) {
+      methods[i] = new Method(strings[in.readInt()], strings[in.readInt()]);
+    }
+    int numSections = in.readInt();
+    Section[] knownSections = Section.values();
+    for (int i = 0; i < numSections; i++) {
+      int sectionId = in.readInt();
+      int length = in.readInt();
+      if (sectionId < 0 || sectionId >= knownSections.length) {
+        in.skipNBytes(length);
+        continue;
+      }
+      readSection(knownSections[sectionId], in, strings, methods, builder);
+    }
+    return builder.build();
+  }
+
+  private static void readSection(
+      Section section, DataInputStream in, String[] strings, Method[] methods, Builder builder)
+      throws IOException {
+    int numEntries = in.readInt();
+    for (int i = 0; i < numEntries; i++) {
+      switch (section) {
+        case NULLABLE_RETURNS, NON_NULL_RETURNS ->
+            builder.addMethod(section, methods[in.readInt()]);
+        case ENSURES_NON_NULL_IF_TRUE_METHOD_CALLS -> {
+          Method method = methods[in.readInt()];
+          int numCallees = in.readInt();
+          for (int j = 0; j < numCallees; j++) {
+            builder.addEnsuresNonNullIfTrueMethodCall(method, methods[in.readInt()]);
+          }
+        }
+        case TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS -> {
+          String className = strings[in.readInt()];
+          int numPositions = in.readInt();
+          for (int j = 0; j < numPositions; j++) {
+            builder.addTypeVariableWithNullableUpperBound(className, in.readInt());
+          }
+        }
+        case NULL_MARKED_CLASSES -> builder.addNullMarkedClass(strings[in.readInt()]);
+        case NULLABLE_FIELDS ->
+            builder.addNullableField(new Field(strings[in.readInt()], strings[in.readInt()]));
+        case NESTED_ANNOTATIONS -> {
+          Method method = methods[in.readInt()];
+          int numInfos = in.readInt();
+          for (int j = 0; j < numInfos; j++) {
+            int position = in.readInt();
+            NestedAnnotationInfo.Annotation annotation =
+                NestedAnnotationInfo.Annotation.values()[in.readInt()];
+            int typePathLength = in.readInt();
+            ImmutableList.Builder<NestedAnnotationInfo.TypePathEntry> typePath =
+                ImmutableList.builder();
+            for (int k = 0; k < typePathLength; k++) {
+              typePath.add(
+                  new NestedAnnotationInfo.TypePathEntry(
+                      NestedAnnotationInfo.TypePathEntry.Kind.values()[in.readInt()],
+                      in.readInt()));
+            }
+            builder.addNestedAnnotation(
+                method, position, new NestedAnnotationInfo(annotation, typePath.build()));
+          }
+        }
+        default -> {
+          Method method = methods[in.readInt()];
+          int numPositions = in.readInt();
+          for (int j = 0; j < numPositions; j++) {
+            builder.addMethodPosition(section, method, in.readInt());
+          }
+        }
+      }
+    }
+  }
+
+  /** Builder for {@link PrecompiledModels}. */
+  public static final class Builder {
+
+    private final ImmutableList.Builder<String> providers = ImmutableList.builder();
+    private final Map<Section, ImmutableSetMultimap.Builder<Method, Integer>> methodToPositions =
+        new LinkedHashMap<>();
+    private final Map<Section, ImmutableSet.Builder<Method>> methodSets = new LinkedHashMap<>();
+    private final ImmutableSetMultimap.Builder<Method, Method> ensuresNonNullIfTrueMethodCalls =
+        ImmutableSetMultimap.builder();
+    private final ImmutableSetMultimap.Builder<String, Integer>
+        typeVariablesWithNullableUpperBounds = ImmutableSetMultimap.builder();
+    private final ImmutableSet.Builder<String> nullMarkedClasses = ImmutableSet.builder();
+    private final ImmutableSet.Builder<Field> nullableFields = ImmutableSet.builder();
+    private final Map<Method, ImmutableSetMultimap.Builder<Integer, NestedAnnotationInfo>>
+        nestedAnnotations = new LinkedHashMap<>();
+
+    private Builder() {
+      for (Section section : Section.METHOD_TO_POSITIONS) {
+        methodToPositions.put(section, ImmutableSetMultimap.builder());
+      }
+      for (Section section : Section.METHOD_SETS) {
+        methodSets.put(section, ImmutableSet.builder());
+      }
+    }
+
+    public Builder addProvider(String providerClassName) {
+      providers.add(providerClassName);
+      return this;
+    }
+
+    public Builder addMethodPosition(Section section, Method method, int position) {
+      ImmutableSetMultimap.Builder<Method, Integer> sectionBuilder = methodToPositions.get(section);
+      if (sectionBuilder == null) {
+        throw new IllegalArgumentException("not a method-to-positions section: " + section);
+      }
+      sectionBuilder.put(method, position);
+      return this;
+    }
+
+    public Builder addMethod(Section section, Method method) {
+      ImmutableSet.Builder<Method> sectionBuilder = methodSets.get(section);
+      if (sectionBuilder == null) {
+        throw new IllegalArgumentException("not a method set section: " + section);
+      }
+      sectionBuilder.add(method);
+      return this;
+    }
+
+    public Builder addEnsuresNonNullIfTrueMethodCall(Method method, Method callee) {
+      ensuresNonNullIfTrueMethodCalls.put(method, callee);
+      return this;
+    }
+
+    public Builder addTypeVariableWithNullableUpperBound(String className, int position) {
+      typeVariablesWithNullableUpperBounds.put(className, position);
+      return this;
+    }
+
+    public Builder addNullMarkedClass(String className) {
+      nullMarkedClasses.add(className);
+      return this;
+    }
+
+    public Builder addNullableField(Field field) {
+      nullableFields.add(field);
+      return this;
+    }
+
+    public Builder addNestedAnnotation(Method method, int position, NestedAnnotationInfo info) {
+      nestedAnnotations
+          .computeIfAbsent(method, k -> ImmutableSetMultimap.builder())
+          .put(position, info);
+      return this;
+    }
+
+    public PrecompiledModels build() {
+      return new PrecompiledModels(this);
+    }
+  }
+}
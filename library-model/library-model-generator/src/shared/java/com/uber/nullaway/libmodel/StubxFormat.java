@@ -0,0 +1,471 @@
+package com.uber.nullaway.libmodel;
+
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Constants and decoding for the versions of the astubx format. Files are written by {@code
+ * StubxWriter} in the library-model-generator project.
+ *
+ * <p>Version 1 files are a single sequential stream: a string dictionary followed by flat lists of
+ * records, so reading any record requires decoding the whole file. Version 2 files start with the
+ * magic number and a table of section offsets, followed by the sections listed in {@link Section}.
+ * All numbers except the header and the class index are unsigned LEB128 varints. The string table
+ * is sorted, and each string is stored as the number of leading UTF-8 bytes it shares with the
+ * previous string followed by the remaining bytes. Records are grouped by class, and the class
+ * index maps each class to the offset of its records, with fixed-width entries that can be binary
+ * searched.
+ */
+@NullMarked
+public final class StubxFormat {
+
+  /**
+   * The file magic number for version 1 .astubx files. It should be the first four bytes of any
+   * compatible .astubx file.
+   */
+  public static final int VERSION_1_FILE_MAGIC_NUMBER = 481874642;
+
+  /**
+   * The file magic number for version 2 .astubx files. It should be the first four bytes of any
+   * compatible .astubx file.
+   */
+  public static final int VERSION_2_FILE_MAGIC_NUMBER = 0x41535832;
+
+  /** The sections of a version 2 file, in the order of the offset table. */
+  public enum Section {
+    /** Number of strings, then each string as (shared prefix length, suffix length, suffix). */
+    STRINGS,
+    /** Number of records, then (package, annotation) pairs. */
+    PACKAGE_ANNOTATIONS,
+    /** Number of records, then (type, annotation) pairs. */
+    TYPE_ANNOTATIONS,
+    /**
+     * Number of classes as an int, then for each class, sorted by name, its string id and the
+     * offset of its records in {@link #CLASS_RECORDS}, as ints.
+     */
+    CLASS_INDEX,
+    /**
+     * For each class: a flags byte, the number of nullable upper bounds and their type parameter
+     * indices, and the number of methods. Each method is its signature, the number and ids of its
+     * return annotations, the number and indices of its type parameters with nullable upper
+     * bounds, the number of argument annotations as (index, annotation) pairs, and the number of
+     * nested annotations as (index + 1, annotation, path length, then (kind, index + 1) for each
+     * type path entry).
+     */
+    CLASS_RECORDS
+  }
+
+  /** Bit set in the flags of a class record if the class is {@code @NullMarked}. */
+  public static final int CLASS_FLAG_NULL_MARKED = 1;
+
+  private StubxFormat() {}
+
+  /**
+   * Writes an unsigned LEB128 varint.
+   *
+   * @param out Output stream.
+   * @param value A non-negative value.
+   * @throws IOException On output error.
+   */
+  public static void writeVarint(DataOutputStream out, int value) throws IOException {
+    if (value < 0) {
+      throw new IllegalArgumentException("negative varint " + value);
+    }
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  /**
+   * Writes a table of strings, sorted so that they share long prefixes, in the layout of {@link
+   * Section#STRINGS}. The id of each string is its position in the table.
+   *
+   * @param out Output stream.
+   * @param strings The strings.
+   * @throws IOException On output error.
+   */
+  public static void writeStringTable(DataOutputStream out, SortedSet<String> strings)
+      throws IOException {
+    writeVarint(out, strings.size());
+    byte[] previous = new byte[0];
+    for (String s : strings) {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      int shared = 0;
+      while (shared < previous.length
+          && shared < bytes.length
+          && previous[shared] == bytes[shared]) {
+        shared++;
+      }
+      writeVarint(out, shared);
+      writeVarint(out, bytes.length - shared);
+      out.write(bytes, shared, bytes.length - shared);
+      previous = bytes;
+    }
+  }
+
+  static String[] readStringTable(ByteBuffer in) {
+    String[] strings = new String[readVarint(in)];
+    byte[] previous = new byte[64];
+    for (int i = 0; i < strings.length; i++) {
+      int shared = readVarint(in);
+      int suffixLength = readVarint(in);
+      int length = shared + suffixLength;
+      if (length > previous.length) {
+        previous = Arrays.copyOf(previous, Math.max(length, 2 * previous.length));
+      }
+      in.get(previous, shared, suffixLength);
+      strings[i] = new String(previous, 0, length, StandardCharsets.UTF_8);
+    }
+    return strings;
+  }
+
+  static int readVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IllegalStateException("varint too long at offset " + in.position());
+  }
+
+  /**
+   * Returns the version of the astubx format of a file.
+   *
+   * @param bytes The contents of the file.
+   * @return the version, or 0 if the file does not start with a known magic number
+   */
+  public static int formatVersion(byte[] bytes) {
+    if (bytes.length < Integer.BYTES) {
+      return 0;
+    }
+    int magicNumber = ByteBuffer.wrap(bytes).getInt();
+    if (magicNumber == VERSION_1_FILE_MAGIC_NUMBER) {
+      return 1;
+    } else if (magicNumber == VERSION_2_FILE_MAGIC_NUMBER) {
+      return 2;
+    }
+    return 0;
+  }
+
+  /**
+   * Reads all records of an astubx file in any supported version of the format.
+   *
+   * @param bytes The contents of the file.
+   * @param location Location of the file, for error messages.
+   * @param visitor Visitor receiving the records.
+   * @throws IOException If the file is not a well-formed astubx file.
+   */
+  public static void read(byte[] bytes, String location, Visitor visitor) throws IOException {
+    switch (formatVersion(bytes)) {
+      case 1 -> {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.readInt();
+        readVersion1(in, visitor);
+      }
+      case 2 -> Reader.open(bytes, location).readAll(visitor);
+      default ->
+          throw new IOException("Invalid file version/magic number for stubx file " + location);
+    }
+  }
+
+  private static void readVersion1(DataInputStream in, Visitor visitor) throws IOException {
+    // Read the number of strings in the string dictionary
+    int numStrings = in.readInt();
+    // Populate the string dictionary {idx => value}, where idx is encoded by the string position
+    // inside this section.
+    String[] strings = new String[numStrings];
+    for (int i = 0; i < numStrings; ++i) {
+      strings[i] = in.readUTF();
+    }
+    // Read the number of (package, annotation) entries
+    int numPackages = in.readInt();
+    // Read each (package, annotation) entry, where the int values point into the string
+    // dictionary loaded before.
+    for (int i = 0; i < numPackages; ++i) {
+      visitor.packageAnnotation(strings[in.readInt()], strings[in.readInt()]);
+    }
+    // Read the number of (type, annotation) entries
+    int numTypes = in.readInt();
+    for (int i = 0; i < numTypes; ++i) {
+      visitor.typeAnnotation(strings[in.readInt()], strings[in.readInt()]);
+    }
+    // Read the number of (method, annotation) entries
+    int numMethods = in.readInt();
+    for (int i = 0; i < numMethods; ++i) {
+      visitor.methodAnnotation(strings[in.readInt()], strings[in.readInt()]);
+    }
+    // Read the number of (method, nullable type parameter index)
+    int numMethodTypeParams = in.readInt();
+    for (int i = 0; i < numMethodTypeParams; ++i) {
+      visitor.methodTypeParamNullableUpperBound(strings[in.readInt()], in.readInt());
+    }
+    // Read the number of (method, argument, annotation) entries
+    int numArgumentRecords = in.readInt();
+    for (int i = 0; i < numArgumentRecords; ++i) {
+      String methodSig = strings[in.readInt()];
+      int argNum = in.readInt();
+      visitor.argumentAnnotation(methodSig, argNum, strings[in.readInt()]);
+    }
+    // nested annotation info in methods
+    int methodNestedAnnotSize = in.readInt();
+    for (int i = 0; i < methodNestedAnnotSize; i++) {
+      String methodSig = strings[in.readInt()];
+      int index = in.readInt(); // -1: return type, 0+: parameter index
+      String annotation = strings[in.readInt()];
+      int typePathLength = in.readInt();
+      ImmutableList.Builder<NestedAnnotationInfo.TypePathEntry> typePath =
+          ImmutableList.builder();
+      for (int j = 0; j < typePathLength; j++) {
+        String kind = strings[in.readInt()];
+        int typePathIndex = in.readInt();
+        typePath.add(
+            new NestedAnnotationInfo.TypePathEntry(
+                NestedAnnotationInfo.TypePathEntry.Kind.valueOf(kind), typePathIndex));
+      }
+      visitor.nestedAnnotation(
+          methodSig,
+          index,
+          new NestedAnnotationInfo(
+              NestedAnnotationInfo.Annotation.valueOf(annotation), typePath.build()));
+    }
+    // reading the NullMarked classes
+    int numNullMarkedClasses = in.readInt();
+    for (int i = 0; i < numNullMarkedClasses; i++) {
+      visitor.nullMarkedClass(strings[in.readInt()]);
+    }
+    // read the number of nullable upper bound entries
+    int numClassesWithNullableUpperBounds = in.readInt();
+    for (int i = 0; i < numClassesWithNullableUpperBounds; i++) {
+      int numParams = in.readInt();
+      for (int j = 0; j < numParams; j++) {
+        visitor.nullableUpperBound(strings[in.readInt()], in.readInt());
+      }
+    }
+  }
+
+  /** Receives the records read from an astubx file. */
+  public interface Visitor {
+
+    default void packageAnnotation(String packageName, String annotation) {}
+
+    default void typeAnnotation(String typeName, String annotation) {}
+
+    void nullMarkedClass(String className);
+
+    void nullableUpperBound(String className, int typeParamIndex);
+
+    void methodAnnotation(String methodSig, String annotation);
+
+    void methodTypeParamNullableUpperBound(String methodSig, int typeParamIndex);
+
+    void argumentAnnotation(String methodSig, int argIndex, String annotation);
+
+    /**
+     * Receives nested annotation information for a method.
+     *
+     * @param methodSig The method signature.
+     * @param index -1 for the return type, otherwise the parameter index.
+     * @param info The nested annotation.
+     */
+    void nestedAnnotation(String methodSig, int index, NestedAnnotationInfo info);
+  }
+
+  /**
+   * Reader for version 2 files. Opening a file only decodes the string table; records are decoded
+   * when visited, either all at once or for a single class.
+   */
+  public static final class Reader {
+
+    private final ByteBuffer buffer;
+    private final String location;
+    private final int[] sectionOffsets;
+    private final String[] strings;
+    private final int numClasses;
+
+    private Reader(ByteBuffer buffer, String location) throws IOException {
+      this.buffer = buffer;
+      this.location = location;
+      if (buffer.getInt() != VERSION_2_FILE_MAGIC_NUMBER) {
+        throw new IOException("Invalid file version/magic number for stubx file " + location);
+      }
+      int numSections = buffer.getInt();
+      if (numSections < Section.values().length) {
+        throw new IOException("Missing sections in stubx file " + location);
+      }
+      // Sections added after version 2 are ignored
+      sectionOffsets = new int[Section.values().length];
+      for (int i = 0; i < sectionOffsets.length; i++) {
+        sectionOffsets[i] = buffer.getInt();
+      }
+      strings = readStringTable(section(Section.STRINGS));
+      numClasses = section(Section.CLASS_INDEX).getInt();
+    }
+
+    /**
+     * Opens a version 2 file.
+     *
+     * @param bytes The contents of the file.
+     * @param location Location of the file, for error messages.
+     * @return a reader for the file
+     * @throws IOException If the file is not a well-formed version 2 file.
+     */
+    public static Reader open(byte[] bytes, String location) throws IOException {
+      try {
+        return new Reader(ByteBuffer.wrap(bytes), location);
+      } catch (RuntimeException e) {
+        throw new IOException("Truncated stubx file " + location, e);
+      }
+    }
+
+    /**
+     * Returns the names of the methods with records in the file, read from the string table, so
+     * that lookups of other methods can skip the file without reading the records of their class.
+     *
+     * @return the method names, without class, return type or parameters
+     */
+    public Set<String> methodNames() {
+      Set<String> names = new HashSet<>();
+      for (String s : strings) {
+        // method signatures look like "pkg.Class:ReturnType name(ParamTypes)"
+        int openParen = s.indexOf('(');
+        if (openParen != -1 && s.indexOf(':') != -1) {
+          names.add(s.substring(s.lastIndexOf(' ', openParen) + 1, openParen));
+        }
+      }
+      return names;
+    }
+
+    private ByteBuffer section(Section section) {
+      return buffer.duplicate().position(sectionOffsets[section.ordinal()]);
+    }
+
+    /**
+     * Visits all records of the file.
+     *
+     * @param visitor Visitor receiving the records.
+     * @throws IOException If the file is not well-formed.
+     */
+    public void readAll(Visitor visitor) throws IOException {
+      try {
+        ByteBuffer in = section(Section.PACKAGE_ANNOTATIONS);
+        int numPackageAnnotations = readVarint(in);
+        for (int i = 0; i < numPackageAnnotations; i++) {
+          visitor.packageAnnotation(strings[readVarint(in)], strings[readVarint(in)]);
+        }
+        in = section(Section.TYPE_ANNOTATIONS);
+        int numTypeAnnotations = readVarint(in);
+        for (int i = 0; i < numTypeAnnotations; i++) {
+          visitor.typeAnnotation(strings[readVarint(in)], strings[readVarint(in)]);
+        }
+        ByteBuffer index = section(Section.CLASS_INDEX);
+        index.getInt();
+        for (int i = 0; i < numClasses; i++) {
+          String className = strings[index.getInt()];
+          readClassRecords(className, index.getInt(), visitor);
+        }
+      } catch (RuntimeException e) {
+        throw new IOException("Malformed stubx file " + location, e);
+      }
+    }
+
+    /**
+     * Visits the records of a single class, without decoding those of other classes.
+     *
+     * @param className The class name, as it appears before the {@code :} of method signatures.
+     * @param visitor Visitor receiving the records.
+     * @return {@code false} if the file has no records for the class
+     * @throws IOException If the file is not well-formed.
+     */
+    public boolean readClass(String className, Visitor visitor) throws IOException {
+      // the string table is sorted, so string ids and the class index are in name order
+      int id = Arrays.binarySearch(strings, className);
+      if (id < 0) {
+        return false;
+      }
+      try {
+        ByteBuffer index = section(Section.CLASS_INDEX);
+        int start = index.position() + Integer.BYTES;
+        int low = 0;
+        int high = numClasses - 1;
+        while (low <= high) {
+          int mid = (low + high) >>> 1;
+          int entry = start + mid * 2 * Integer.BYTES;
+          int midId = index.getInt(entry);
+          if (midId < id) {
+            low = mid + 1;
+          } else if (midId > id) {
+            high = mid - 1;
+          } else {
+            readClassRecords(className, index.getInt(entry + Integer.BYTES), visitor);
+            return true;
+          }
+        }
+        return false;
+      } catch (RuntimeException e) {
+        throw new IOException("Malformed stubx file " + location, e);
+      }
+    }
+
+    /** Reads the records of a class, in the layout described in {@link Section#CLASS_RECORDS}. */
+    private void readClassRecords(String className, int offset, Visitor visitor) {
+      ByteBuffer in = section(Section.CLASS_RECORDS);
+      in.position(in.position() + offset);
+      int flags = in.get();
+      if ((flags & CLASS_FLAG_NULL_MARKED) != 0) {
+        visitor.nullMarkedClass(className);
+      }
+      int numUpperBounds = readVarint(in);
+      for (int i = 0; i < numUpperBounds; i++) {
+        visitor.nullableUpperBound(className, readVarint(in));
+      }
+      int numMethods = readVarint(in);
+      for (int i = 0; i < numMethods; i++) {
+        String methodSig = strings[readVarint(in)];
+        int numReturnAnnotations = readVarint(in);
+        for (int j = 0; j < numReturnAnnotations; j++) {
+          visitor.methodAnnotation(methodSig, strings[readVarint(in)]);
+        }
+        int numTypeParams = readVarint(in);
+        for (int j = 0; j < numTypeParams; j++) {
+          visitor.methodTypeParamNullableUpperBound(methodSig, readVarint(in));
+        }
+        int numArgumentAnnotations = readVarint(in);
+        for (int j = 0; j < numArgumentAnnotations; j++) {
+          int argIndex = readVarint(in);
+          visitor.argumentAnnotation(methodSig, argIndex, strings[readVarint(in)]);
+        }
+        int numNested = readVarint(in);
+        for (int j = 0; j < numNested; j++) {
+          int index = readVarint(in) - 1;
+          NestedAnnotationInfo.Annotation annotation =
+              NestedAnnotationInfo.Annotation.valueOf(strings[readVarint(in)]);
+          int typePathLength = readVarint(in);
+          ImmutableList.Builder<NestedAnnotationInfo.TypePathEntry> typePath =
+              ImmutableList.builder();
+          for (int k = 0; k < typePathLength; k++) {
+            NestedAnnotationInfo.TypePathEntry.Kind kind =
+                NestedAnnotationInfo.TypePathEntry.Kind.valueOf(strings[readVarint(in)]);
+            typePath.add(new NestedAnnotationInfo.TypePathEntry(kind, readVarint(in) - 1));
+          }
+          visitor.nestedAnnotation(
+              methodSig, index, new NestedAnnotationInfo(annotation, typePath.build()));
+        }
+      }
+    }
+  }
+}
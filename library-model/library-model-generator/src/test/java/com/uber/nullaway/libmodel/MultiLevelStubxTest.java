@@ -0,0 +1,180 @@
+package com.uber.nullaway.libmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.uber.nullaway.libmodel.MultiLevelStubxWriter.Record;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class MultiLevelStubxTest {
+
+  private static final String NULLABLE = "javax.annotation.Nullable";
+
+  private static final String NONNULL = "javax.annotation.Nonnull";
+
+  private static final Record GET = new Record("a.B:java.lang.Object get(int)", -1, NULLABLE);
+
+  private static final Record PUT = new Record("a.B:void put(java.lang.Object)", 0, NONNULL);
+
+  private static final Record REMOVED_IN_30 = new Record("a.C:void old(int, int)", 1, NONNULL);
+
+  private static final Record ADDED_IN_29 = new Record("a.D:java.lang.String name()", -1, NULLABLE);
+
+  private static final SortedMap<Integer, Set<Record>> LEVELS =
+      ImmutableSortedMap.of(
+          28, ImmutableSet.of(GET, PUT, REMOVED_IN_30),
+          29, ImmutableSet.of(GET, PUT, REMOVED_IN_30, ADDED_IN_29),
+          30, ImmutableSet.of(GET, PUT, ADDED_IN_29));
+
+  @Test
+  public void readEachLevel() throws IOException {
+    MultiLevelStubx.Reader reader = MultiLevelStubx.Reader.open(write(), "test");
+    for (int level : LEVELS.keySet()) {
+      assertEquals(LEVELS.get(level), readLevel(reader, level));
+    }
+  }
+
+  @Test
+  public void floorLevel() throws IOException {
+    MultiLevelStubx.Reader reader = MultiLevelStubx.Reader.open(write(), "test");
+    assertEquals(-1, reader.floorLevel(27));
+    assertEquals(28, reader.floorLevel(28));
+    assertEquals(30, reader.floorLevel(30));
+    assertEquals(30, reader.floorLevel(34));
+    assertThrows(IOException.class, () -> readLevel(reader, 31));
+  }
+
+  @Test
+  public void smallerThanSeparateModels() throws IOException {
+    int separateSize = 0;
+    for (Set<Record> records : LEVELS.values()) {
+      separateSize += writeAstubx(records).length;
+    }
+    assertTrue(write().length < separateSize);
+  }
+
+  @Test
+  public void readRecordsOfAstubx() throws IOException {
+    Set<Record> records = LEVELS.get(29);
+    assertEquals(records, MultiLevelStubxWriter.readRecords(writeAstubx(records), "test"));
+  }
+
+  @Test
+  public void readLegacyRecords() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(StubxFormat.VERSION_1_FILE_MAGIC_NUMBER);
+    String[] strings = {GET.methodSig(), NULLABLE, PUT.methodSig(), NONNULL};
+    out.writeInt(strings.length);
+    for (String s : strings) {
+      out.writeUTF(s);
+    }
+    // no package and type annotations
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeInt(1);
+    out.writeInt(0);
+    out.writeInt(1);
+    out.writeInt(1);
+    out.writeInt(2);
+    out.writeInt(0);
+    out.writeInt(3);
+    // trailing null-marked classes and upper bounds sections
+    out.writeInt(0);
+    out.writeInt(0);
+    assertEquals(
+        ImmutableSet.of(GET, PUT),
+        MultiLevelStubxWriter.readLegacyRecords(bytes.toByteArray(), "test"));
+  }
+
+  private static byte[] write() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    MultiLevelStubxWriter.write(new DataOutputStream(bytes), LEVELS);
+    return bytes.toByteArray();
+  }
+
+  /** Writes the records as a version 1 astubx file, as JarInfer does. */
+  private static byte[] writeAstubx(Set<Record> records) throws IOException {
+    Set<String> methodSigs = new HashSet<>();
+    for (Record record : records) {
+      methodSigs.add(record.methodSig());
+    }
+    Map<String, MethodAnnotationsRecord> methodRecords = new TreeMap<>();
+    for (String methodSig : methodSigs) {
+      ImmutableSet.Builder<String> returnAnnotations = ImmutableSet.builder();
+      Map<Integer, ImmutableSet<String>> argAnnotations = new HashMap<>();
+      for (Record record : records) {
+        if (!record.methodSig().equals(methodSig)) {
+          continue;
+        }
+        if (record.argIndex() == -1) {
+          returnAnnotations.add(record.annotation());
+        } else {
+          argAnnotations.put(record.argIndex(), ImmutableSet.of(record.annotation()));
+        }
+      }
+      methodRecords.put(
+          methodSig,
+          MethodAnnotationsRecord.create(
+              returnAnnotations.build(),
+              ImmutableSet.of(),
+              ImmutableMap.copyOf(argAnnotations),
+              ImmutableSetMultimap.of()));
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StubxWriter.write(
+        new DataOutputStream(bytes),
+        ImmutableMap.of(NULLABLE, NULLABLE, NONNULL, NONNULL),
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        methodRecords,
+        ImmutableSet.of(),
+        ImmutableMap.of());
+    return bytes.toByteArray();
+  }
+
+  private static Set<Record> readLevel(MultiLevelStubx.Reader reader, int level)
+      throws IOException {
+    Set<Record> records = new HashSet<>();
+    reader.readLevel(
+        level,
+        new StubxFormat.Visitor() {
+          @Override
+          public void methodAnnotation(String methodSig, String annotation) {
+            records.add(new Record(methodSig, -1, annotation));
+          }
+
+          @Override
+          public void argumentAnnotation(String methodSig, int argIndex, String annotation) {
+            records.add(new Record(methodSig, argIndex, annotation));
+          }
+
+          @Override
+          public void nullMarkedClass(String className) {}
+
+          @Override
+          public void nullableUpperBound(String className, int typeParamIndex) {}
+
+          @Override
+          public void methodTypeParamNullableUpperBound(String methodSig, int typeParamIndex) {}
+
+          @Override
+          public void nestedAnnotation(String methodSig, int index, NestedAnnotationInfo info) {}
+        });
+    return records;
+  }
+}
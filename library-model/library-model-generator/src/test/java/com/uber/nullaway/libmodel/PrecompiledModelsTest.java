@@ -0,0 +1,84 @@
+package com.uber.nullaway.libmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo.Annotation;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry.Kind;
+import com.uber.nullaway.libmodel.PrecompiledModels.Field;
+import com.uber.nullaway.libmodel.PrecompiledModels.Method;
+import com.uber.nullaway.libmodel.PrecompiledModels.Section;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class PrecompiledModelsTest {
+
+  private static final Method PUT = new Method("com.example.Map", "put(K,V)");
+  private static final Method GET = new Method("com.example.Map", "get(java.lang.Object)");
+  private static final Method IS_EMPTY =
+      new Method("com.example.Strings", "isEmpty(java.lang.String)");
+
+  @Test
+  public void roundTrip() throws IOException {
+    NestedAnnotationInfo nested =
+        new NestedAnnotationInfo(
+            Annotation.NULLABLE, ImmutableList.of(new TypePathEntry(Kind.TYPE_ARGUMENT, 1)));
+    PrecompiledModels models =
+        PrecompiledModels.builder()
+            .addProvider("com.example.ExampleLibraryModels")
+            .addMethodPosition(Section.EXPLICITLY_NULLABLE_PARAMETERS, PUT, 1)
+            .addMethodPosition(Section.NULL_IMPLIES_TRUE_PARAMETERS, IS_EMPTY, 0)
+            .addMethod(Section.NULLABLE_RETURNS, GET)
+            .addEnsuresNonNullIfTrueMethodCall(GET, PUT)
+            .addTypeVariableWithNullableUpperBound("com.example.Map", 1)
+            .addNullMarkedClass("com.example.Strings")
+            .addNullableField(new Field("com.example.Strings", "EMPTY"))
+            .addNestedAnnotation(PUT, -1, nested)
+            .build();
+
+    PrecompiledModels read = roundTrip(models);
+
+    assertEquals(ImmutableList.of("com.example.ExampleLibraryModels"), read.providers());
+    for (Section section : Section.METHOD_TO_POSITIONS) {
+      assertEquals(models.methodToPositions(section), read.methodToPositions(section));
+    }
+    for (Section section : Section.METHOD_SETS) {
+      assertEquals(models.methodSet(section), read.methodSet(section));
+    }
+    assertEquals(ImmutableSet.of(GET), read.methodSet(Section.NULLABLE_RETURNS));
+    assertEquals(
+        models.ensuresNonNullIfTrueMethodCalls(), read.ensuresNonNullIfTrueMethodCalls());
+    assertEquals(
+        models.typeVariablesWithNullableUpperBounds(),
+        read.typeVariablesWithNullableUpperBounds());
+    assertEquals(models.nullMarkedClasses(), read.nullMarkedClasses());
+    assertEquals(models.nullableFields(), read.nullableFields());
+    assertEquals(models.nestedAnnotations(), read.nestedAnnotations());
+  }
+
+  @Test
+  public void rejectsOtherFormatVersion() throws IOException {
+    byte[] bytes = write(PrecompiledModels.builder().build());
+    ByteBuffer.wrap(bytes).putInt(4, PrecompiledModels.FORMAT_VERSION + 1);
+    assertThrows(
+        IOException.class,
+        () -> PrecompiledModels.read(new ByteArrayInputStream(bytes), "test"));
+  }
+
+  private static PrecompiledModels roundTrip(PrecompiledModels models) throws IOException {
+    return PrecompiledModels.read(new ByteArrayInputStream(write(models)), "test");
+  }
+
+  private static byte[] write(PrecompiledModels models) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    models.write(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,217 @@
+package com.uber.nullaway.libmodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo.Annotation;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry;
+import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry.Kind;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jspecify.annotations.Nullable;
+import org.junit.Test;
+
+public class StubxFormatTest {
+
+  private static final ImmutableMap<String, String> IMPORTED_ANNOTATIONS =
+      ImmutableMap.of(
+          "Nullable", "org.jspecify.annotations.Nullable",
+          "NonNull", "org.jspecify.annotations.NonNull");
+
+  private static final NestedAnnotationInfo ARRAY_ELEMENT_NULLABLE =
+      new NestedAnnotationInfo(
+          Annotation.NULLABLE, ImmutableList.of(new TypePathEntry(Kind.ARRAY_ELEMENT, -1)));
+
+  private static final ImmutableMap<String, MethodAnnotationsRecord> METHOD_RECORDS =
+      ImmutableMap.of(
+          "java.util.Map:V get(java.lang.Object)",
+          MethodAnnotationsRecord.create(
+              ImmutableSet.of("Nullable"),
+              ImmutableSet.of(),
+              ImmutableMap.of(0, ImmutableSet.of("Nullable")),
+              ImmutableSetMultimap.of()),
+          "java.util.Map:V put(K, V)",
+          MethodAnnotationsRecord.create(
+              ImmutableSet.of(),
+              ImmutableSet.of(),
+              ImmutableMap.of(1, ImmutableSet.of("Nullable", "NonNull")),
+              ImmutableSetMultimap.of()),
+          "java.util.Arrays:T[] copyOf(T[], int)",
+          MethodAnnotationsRecord.create(
+              ImmutableSet.of(),
+              ImmutableSet.of(0),
+              ImmutableMap.of(),
+              ImmutableSetMultimap.of(-1, ARRAY_ELEMENT_NULLABLE, 0, ARRAY_ELEMENT_NULLABLE)),
+          // non-ASCII names must survive prefix compression of their UTF-8 encoding
+          "p.Café😀:void méthode(java.lang.String)",
+          MethodAnnotationsRecord.create(
+              ImmutableSet.of(),
+              ImmutableSet.of(),
+              ImmutableMap.of(0, ImmutableSet.of("NonNull")),
+              ImmutableSetMultimap.of()),
+          "p.Café😁:void m()",
+          MethodAnnotationsRecord.create(
+              ImmutableSet.of("Nullable"),
+              ImmutableSet.of(),
+              ImmutableMap.of(),
+              ImmutableSetMultimap.of()));
+
+  private static final ImmutableSet<String> NULL_MARKED_CLASSES =
+      ImmutableSet.of("java.util.Map", "java.util.Objects");
+
+  private static final ImmutableMap<String, Set<Integer>> NULLABLE_UPPER_BOUNDS =
+      ImmutableMap.of("java.util.Map", ImmutableSet.of(0, 1));
+
+  @Test
+  public void roundTrip() throws IOException {
+    StubxFormat.Reader reader = StubxFormat.Reader.open(writeVersion2(), "test");
+    RecordingVisitor visitor = new RecordingVisitor();
+    reader.readAll(visitor);
+    assertEquals(expectedRecords(null), sorted(visitor.records));
+  }
+
+  @Test
+  public void readSingleClass() throws IOException {
+    StubxFormat.Reader reader = StubxFormat.Reader.open(writeVersion2(), "test");
+    for (String className :
+        ImmutableList.of("java.util.Map", "java.util.Arrays", "java.util.Objects", "p.Café😀")) {
+      RecordingVisitor visitor = new RecordingVisitor();
+      assertTrue(reader.readClass(className, visitor));
+      assertEquals(expectedRecords(className), sorted(visitor.records));
+    }
+    // a string of the table that is not a class, and a string not in the table
+    assertFalse(reader.readClass("java.util.Map:V get(java.lang.Object)", new RecordingVisitor()));
+    assertFalse(reader.readClass("java.util.List", new RecordingVisitor()));
+  }
+
+  @Test
+  public void version2IsSmaller() throws IOException {
+    ByteArrayOutputStream version1 = new ByteArrayOutputStream();
+    StubxWriter.write(
+        new DataOutputStream(version1),
+        1,
+        IMPORTED_ANNOTATIONS,
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        METHOD_RECORDS,
+        NULL_MARKED_CLASSES,
+        NULLABLE_UPPER_BOUNDS);
+    assertTrue(writeVersion2().length < version1.size());
+  }
+
+  @Test
+  public void rejectsTruncatedFile() throws IOException {
+    byte[] bytes = writeVersion2();
+    assertThrows(
+        IOException.class,
+        () -> StubxFormat.Reader.open(Arrays.copyOf(bytes, bytes.length / 4), "truncated"));
+  }
+
+  private static byte[] writeVersion2() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StubxWriter.write(
+        new DataOutputStream(bytes),
+        2,
+        IMPORTED_ANNOTATIONS,
+        ImmutableMap.of(),
+        ImmutableMap.of(),
+        METHOD_RECORDS,
+        NULL_MARKED_CLASSES,
+        NULLABLE_UPPER_BOUNDS);
+    return bytes.toByteArray();
+  }
+
+  /** Returns the expected records of all classes if {@code className} is null, or of one class. */
+  private static List<String> expectedRecords(@Nullable String className) {
+    List<String> records = new ArrayList<>();
+    for (String nullMarked : NULL_MARKED_CLASSES) {
+      if (className == null || className.equals(nullMarked)) {
+        records.add("nullMarked " + nullMarked);
+      }
+    }
+    for (Map.Entry<String, Set<Integer>> entry : NULLABLE_UPPER_BOUNDS.entrySet()) {
+      if (className == null || className.equals(entry.getKey())) {
+        for (int index : entry.getValue()) {
+          records.add("upperBound " + entry.getKey() + " " + index);
+        }
+      }
+    }
+    for (Map.Entry<String, MethodAnnotationsRecord> entry : METHOD_RECORDS.entrySet()) {
+      String methodSig = entry.getKey();
+      if (className != null && !methodSig.startsWith(className + ":")) {
+        continue;
+      }
+      MethodAnnotationsRecord record = entry.getValue();
+      for (String annot : record.methodAnnotations()) {
+        records.add("return " + methodSig + " " + IMPORTED_ANNOTATIONS.get(annot));
+      }
+      for (int index : record.typeParamNullableUpperbounds()) {
+        records.add("typeParam " + methodSig + " " + index);
+      }
+      for (Map.Entry<Integer, ImmutableSet<String>> argEntry :
+          record.argumentAnnotations().entrySet()) {
+        for (String annot : argEntry.getValue()) {
+          records.add(
+              "arg " + methodSig + " " + argEntry.getKey() + " " + IMPORTED_ANNOTATIONS.get(annot));
+        }
+      }
+      for (Map.Entry<Integer, NestedAnnotationInfo> nestedEntry :
+          record.nestedAnnotationInfo().entries()) {
+        records.add(
+            "nested " + methodSig + " " + nestedEntry.getKey() + " " + nestedEntry.getValue());
+      }
+    }
+    return sorted(records);
+  }
+
+  private static List<String> sorted(List<String> records) {
+    return records.stream().sorted().toList();
+  }
+
+  private static final class RecordingVisitor implements StubxFormat.Visitor {
+
+    final List<String> records = new ArrayList<>();
+
+    @Override
+    public void nullMarkedClass(String className) {
+      records.add("nullMarked " + className);
+    }
+
+    @Override
+    public void nullableUpperBound(String className, int typeParamIndex) {
+      records.add("upperBound " + className + " " + typeParamIndex);
+    }
+
+    @Override
+    public void methodAnnotation(String methodSig, String annotation) {
+      records.add("return " + methodSig + " " + annotation);
+    }
+
+    @Override
+    public void methodTypeParamNullableUpperBound(String methodSig, int typeParamIndex) {
+      records.add("typeParam " + methodSig + " " + typeParamIndex);
+    }
+
+    @Override
+    public void argumentAnnotation(String methodSig, int argIndex, String annotation) {
+      records.add("arg " + methodSig + " " + argIndex + " " + annotation);
+    }
+
+    @Override
+    public void nestedAnnotation(String methodSig, int index, NestedAnnotationInfo info) {
+      records.add("nested " + methodSig + " " + index + " " + info);
+    }
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2026 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.nullaway;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.handlers.Handler;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.checkerframework.nullaway.dataflow.analysis.TransferFunction;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reports the number of entries and the estimated heap footprint of NullAway's caches, to help
+ * attribute javac running out of memory. Enabled by passing {@code
+ * -XepOpt:NullAway:CacheFootprintReportPath=<file>}.
+ *
+ * <p>The caches are measured at the end of every top-level class, before NullAway clears its
+ * per-class state, and at the end of the compilation. Each measurement appends one tab-separated
+ * row per cache to the report, with the top-level class (or {@code <end of compilation>}), the
+ * cache, its number of entries and its estimated size in bytes.
+ *
+ * <p>The size of a cache is estimated by walking the objects reachable from it, assuming a 64-bit
+ * JVM with compressed references. Objects owned by javac (trees, symbols, types and names) are not
+ * counted, as they are retained by the compilation regardless of NullAway, and neither are
+ * NullAway's own long-lived objects, like handlers or transfer functions, that cache entries may
+ * point to. Objects reachable from several caches are counted for each of them. Measuring walks
+ * the caches, so it is slow; it is meant for diagnosing memory problems, not for regular builds.
+ */
+public final class CacheFootprintReport {
+
+  private static final Context.Key<CacheFootprintReport> CACHE_FOOTPRINT_REPORT_KEY =
+      new Context.Key<>();
+
+  private static final String HEADER = "scope\tcache\tentries\testimated_bytes";
+
+  private static final String END_OF_COMPILATION = "<end of compilation>";
+
+  private final @Nullable Path reportPath;
+
+  private final SizeEstimator sizeEstimator = new SizeEstimator();
+
+  /** Reports the caches to this report when a measurement is taken. */
+  private @Nullable Consumer<CacheFootprintReport> source;
+
+  private @Nullable String currentTopLevelClass;
+
+  /** The scope of the measurement in progress. */
+  private String scope = "";
+
+  /** Rows of the measurement in progress. */
+  private final List<String> rows = new ArrayList<>();
+
+  private CacheFootprintReport(@Nullable Path reportPath) {
+    this.reportPath = reportPath;
+  }
+
+  /**
+   * Get the CacheFootprintReport for the given javac context. We ensure there is one instance per
+   * context (as opposed to using static fields) to avoid memory leaks.
+   */
+  public static CacheFootprintReport instance(Context context, Config config) {
+    CacheFootprintReport report = context.get(CACHE_FOOTPRINT_REPORT_KEY);
+    if (report == null) {
+      String reportPath = config.getCacheFootprintReportPath();
+      report = new CacheFootprintReport(reportPath == null ? null : Paths.get(reportPath));
+      context.put(CACHE_FOOTPRINT_REPORT_KEY, report);
+      if (reportPath != null) {
+        report.writeRows(List.of(HEADER), StandardOpenOption.TRUNCATE_EXISTING);
+        CacheFootprintReport finalReport = report;
+        JavacTask.instance(JavacProcessingEnvironment.instance(context))
+            .addTaskListener(
+                new TaskListener() {
+                  @Override
+                  public void finished(TaskEvent e) {
+                    // measure what is still retained after the last top-level class
+                    if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+                      finalReport.measure(END_OF_COMPILATION);
+                    }
+                  }
+                });
+      }
+    }
+    return report;
+  }
+
+  /** Returns true if cache footprints should be reported. */
+  public boolean isEnabled() {
+    return reportPath != null;
+  }
+
+  /**
+   * Measures the caches for the previous top-level class, if any. Must be called before NullAway
+   * clears its per-class state for a new top-level class.
+   *
+   * @param className the new top-level class
+   * @param source reports the caches to a report
+   */
+  public void startTopLevelClass(String className, Consumer<CacheFootprintReport> source) {
+    if (currentTopLevelClass != null) {
+      measure(currentTopLevelClass);
+    }
+    this.source = source;
+    currentTopLevelClass = className;
+  }
+
+  /**
+   * Adds a cache to the measurement in progress.
+   *
+   * @param cache name of the cache, e.g., {@code DataFlow.cfgCache}
+   * @param entries number of entries of the cache
+   * @param contents the cache itself, e.g., a map or an object holding several maps
+   */
+  public void add(String cache, long entries, Object contents) {
+    rows.add(
+        String.join(
+            "\t",
+            scope,
+            cache,
+            Long.toString(entries),
+            Long.toString(sizeEstimator.estimate(contents))));
+  }
+
+  private void measure(String scope) {
+    if (source == null) {
+      return;
+    }
+    this.scope = scope;
+    source.accept(this);
+    writeRows(rows, StandardOpenOption.APPEND);
+    rows.clear();
+  }
+
+  private void writeRows(List<String> lines, StandardOpenOption option) {
+    if (reportPath == null) {
+      return;
+    }
+    try {
+      Path parent = reportPath.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Files.write(reportPath, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, option);
+    } catch (IOException e) {
+      throw new RuntimeException("Could not write cache footprint report to " + reportPath, e);
+    }
+  }
+
+  /** Estimates the size of the objects reachable from a root, see {@link CacheFootprintReport}. */
+  private static final class SizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    /** Estimated size of a map entry: a node and its slot in the hash table. */
+    private static final int MAP_ENTRY = 36;
+
+    /** Layouts of the classes seen so far. */
+    private final Map<Class<?>, ClassLayout> layouts = new HashMap<>();
+
+    /**
+     * The shallow size of the instances of a class, and those of its reference fields we can read.
+     */
+    private record ClassLayout(long shallowSize, List<Field> referenceFields) {}
+
+    long estimate(Object root) {
+      Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      Deque<Object> worklist = new ArrayDeque<>();
+      worklist.push(root);
+      long size = 0;
+      while (!worklist.isEmpty()) {
+        Object object = worklist.pop();
+        if (isShared(object) || !visited.add(object)) {
+          continue;
+        }
+        Class<?> clazz = object.getClass();
+        if (object instanceof String string) {
+          // the String object and its byte array, assuming compact (Latin-1) strings
+          size += 24 + align(ARRAY_HEADER + string.length());
+        } else if (clazz.isArray()) {
+          int length = Array.getLength(object);
+          Class<?> componentType = clazz.getComponentType();
+          size += align(ARRAY_HEADER + (long) length * fieldSize(componentType));
+          if (!componentType.isPrimitive()) {
+            for (int i = 0; i < length; i++) {
+              push(worklist, Array.get(object, i));
+            }
+          }
+        } else if (object instanceof Map<?, ?> map) {
+          // the internals of JDK maps cannot be read reflectively, so go through the Map API
+          size += layout(clazz).shallowSize() + (long) map.size() * MAP_ENTRY;
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            push(worklist, entry.getKey());
+            push(worklist, entry.getValue());
+          }
+        } else if (object instanceof Collection<?> collection) {
+          int perElement = object instanceof Set ? MAP_ENTRY : REFERENCE;
+          size += layout(clazz).shallowSize() + (long) collection.size() * perElement;
+          for (Object element : collection) {
+            push(worklist, element);
+          }
+        } else {
+          ClassLayout layout = layout(clazz);
+          size += layout.shallowSize();
+          for (Field field : layout.referenceFields()) {
+            try {
+              push(worklist, field.get(object));
+            } catch (IllegalAccessException e) {
+              throw new IllegalStateException("field was made accessible: " + field, e);
+            }
+          }
+        }
+      }
+      return size;
+    }
+
+    private static void push(Deque<Object> worklist, @Nullable Object object) {
+      if (object != null) {
+        worklist.push(object);
+      }
+    }
+
+    /**
+     * Returns true for objects that a cache points to but does not retain: those owned by javac,
+     * and NullAway's long-lived objects.
+     */
+    private static boolean isShared(Object object) {
+      String className = object.getClass().getName();
+      return className.startsWith("com.sun.")
+          || object instanceof Class
+          || object instanceof Enum
+          || object instanceof ClassLoader
+          || object instanceof Thread
+          || object instanceof NullAway
+          || object instanceof Handler
+          || object instanceof Config
+          || object instanceof TransferFunction;
+    }
+
+    private ClassLayout layout(Class<?> clazz) {
+      ClassLayout layout = layouts.get(clazz);
+      if (layout == null) {
+        long size = OBJECT_HEADER;
+        List<Field> referenceFields = new ArrayList<>();
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+          for (Field field : c.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+              continue;
+            }
+            size += fieldSize(field.getType());
+            if (!field.getType().isPrimitive() && field.trySetAccessible()) {
+              referenceFields.add(field);
+            }
+          }
+        }
+        layout = new ClassLayout(align(size), referenceFields);
+        layouts.put(clazz, layout);
+      }
+      return layout;
+    }
+
+    private static int fieldSize(Class<?> type) {
+      if (type == long.class || type == double.class) {
+        return 8;
+      } else if (type == int.class || type == float.class) {
+        return 4;
+      } else if (type == short.class || type == char.class) {
+        return 2;
+      } else if (type == byte.class || type == boolean.class) {
+        return 1;
+      }
+      return REFERENCE;
+    }
+
+    private static long align(long size) {
+      return (size + 7) & ~7L;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.nullaway;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.jfr.ClassCheckEvent;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records a {@link ClassCheckEvent} for the check of each top-level class. Error Prone has no
+ * end-of-class callback, so the event of a class ends when the check of the next top-level class
+ * starts, or when the compilation finishes.
+ */
+public final class ClassCheckRecorder {
+
+  private static final Context.Key<ClassCheckRecorder> CLASS_CHECK_RECORDER_KEY =
+      new Context.Key<>();
+
+  private @Nullable ClassCheckEvent event;
+
+  private Symbol.@Nullable ClassSymbol eventClass;
+
+  private int eventMembers;
+
+  private ClassCheckRecorder() {}
+
+  /**
+   * Get the ClassCheckRecorder for the given javac context. We ensure there is one instance per
+   * context (as opposed to using static fields) to avoid memory leaks.
+   */
+  public static ClassCheckRecorder instance(Context context) {
+    ClassCheckRecorder recorder = context.get(CLASS_CHECK_RECORDER_KEY);
+    if (recorder == null) {
+      recorder = new ClassCheckRecorder();
+      context.put(CLASS_CHECK_RECORDER_KEY, recorder);
+      ClassCheckRecorder finalRecorder = recorder;
+      JavacTask.instance(JavacProcessingEnvironment.instance(context))
+          .addTaskListener(
+              new TaskListener() {
+                @Override
+                public void finished(TaskEvent e) {
+                  if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+                    finalRecorder.finishTopLevelClass();
+                  }
+                }
+              });
+    }
+    return recorder;
+  }
+
+  /**
+   * Ends the event of the previous top-level class, if any, and starts the one of a new class.
+   *
+   * @param classSymbol the new top-level class
+   * @param members the number of members of the class
+   */
+  public void startTopLevelClass(Symbol.ClassSymbol classSymbol, int members) {
+    finishTopLevelClass();
+    ClassCheckEvent event = new ClassCheckEvent();
+    if (event.isEnabled()) {
+      event.begin();
+      this.event = event;
+      eventClass = classSymbol;
+      eventMembers = members;
+    }
+  }
+
+  private void finishTopLevelClass() {
+    ClassCheckEvent event = this.event;
+    if (event != null && eventClass != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.className = eventClass.getQualifiedName().toString();
+        event.members = eventMembers;
+        event.commit();
+      }
+    }
+    this.event = null;
+    eventClass = null;
+  }
+}
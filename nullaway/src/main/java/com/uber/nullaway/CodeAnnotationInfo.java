@@ -68,6 +68,11 @@ public final class CodeAnnotationInfo {
     return annotationInfo;
   }
 
+  /** Reports the cache of class annotation info, see {@link CacheFootprintReport}. */
+  public void reportCacheFootprint(CacheFootprintReport report) {
+    report.add("CodeAnnotationInfo.classCache", classCache.size(), classCache.asMap());
+  }
+
   /**
    * Checks if a symbol comes from an annotated package, as determined by either configuration flags
    * (e.g. {@code -XepOpt:NullAway::AnnotatedPackages}) or package level annotations (e.g. {@code
@@ -269,6 +269,14 @@ public interface Config {
    */
   boolean isSkippedLibraryModel(String classDotMethod);
 
+  /**
+   * Gets the library models that should be skipped, see {@link #isSkippedLibraryModel(String)}.
+   *
+   * @return The methods whose library models should be skipped, in
+   *     [fully_qualified_class_name].[method_name] format.
+   */
+  Set<String> getSkippedLibraryModels();
+
   /**
    * Gets the set of classes that should be treated as equivalent to a Guava fluent futures class.
    *
@@ -285,6 +293,14 @@ public interface Config {
    */
   boolean isJarInferEnabled();
 
+  /**
+   * Gets the Android API level whose JarInfer models should be loaded from the multi-SDK models
+   * artifact.
+   *
+   * @return the API level, or -1 to load the models of a single-SDK artifact instead
+   */
+  int getJarInferAndroidApiLevel();
+
   /**
    * Checks if <a href="https://github.com/jspecify/jdk">JSpecify JDK models</a> should be enabled.
    *
@@ -321,4 +337,65 @@ public interface Config {
    * @return true if a warning should be issued when generic type inference fails
    */
   boolean warnOnGenericInferenceFailure();
+
+  /**
+   * Gets the file to which the slowest methods of the compilation are written, see {@link
+   * SlowMethodReport}.
+   *
+   * @return path of the report, or null if analysis times should not be recorded
+   */
+  @Nullable String getSlowMethodReportPath();
+
+  /**
+   * Gets the number of methods to include in the slow method report.
+   *
+   * @return the number of methods to report
+   */
+  int getSlowMethodReportSize();
+
+  /**
+   * Gets the maximum number of transfer function calls for the dataflow analysis of a single
+   * method, lambda or initializer. Dataflow is skipped for code that exceeds the budget, which is
+   * then checked against declared nullness only, so errors that depend on its control flow may be
+   * missed.
+   *
+   * @return the budget, or 0 if there is no limit
+   */
+  int getDataflowIterationBudget();
+
+  /**
+   * Gets the maximum time for the dataflow analysis of a single method, lambda or initializer.
+   * Dataflow is skipped for code that exceeds the budget, as for {@link
+   * #getDataflowIterationBudget()}.
+   *
+   * @return the budget in milliseconds, or 0 if there is no limit
+   */
+  int getDataflowTimeBudgetMillis();
+
+  /**
+   * Gets the file to which the sizes of NullAway's caches are written, see {@link
+   * CacheFootprintReport}.
+   *
+   * @return path of the report, or null if cache sizes should not be reported
+   */
+  @Nullable String getCacheFootprintReportPath();
+
+  /**
+   * Checks if the nullness facts captured for a lambda or a local or anonymous class should be
+   * limited to the access paths its body references, including the fields required to be nonnull
+   * by {@code @RequiresNonNull} on methods it calls. By default, facts on all locals and final
+   * fields in scope are kept, which costs memory in methods with many nested lambdas.
+   *
+   * @return true if captured nullness facts should be limited to referenced access paths
+   */
+  boolean trimCapturedEnvironment();
+
+  /**
+   * Checks if library models read from precompiled model files and astubx files should be kept in
+   * memory and reused by later compilations in the same JVM, e.g., in a build daemon or the check
+   * server.
+   *
+   * @return true if loaded library models should be reused across compilations
+   */
+  boolean reuseLibraryModels();
 }
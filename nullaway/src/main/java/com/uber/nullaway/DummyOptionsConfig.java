@@ -194,6 +194,11 @@ public class DummyOptionsConfig implements Config {
     throw new IllegalStateException(ERROR_MESSAGE);
   }
 
+  @Override
+  public Set<String> getSkippedLibraryModels() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
   @Override
   public Set<String> getExtraFuturesClasses() {
     throw new IllegalStateException(ERROR_MESSAGE);
@@ -204,6 +209,11 @@ public class DummyOptionsConfig implements Config {
     throw new IllegalStateException(ERROR_MESSAGE);
   }
 
+  @Override
+  public int getJarInferAndroidApiLevel() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
   @Override
   public boolean isJSpecifyJDKModels() {
     throw new IllegalStateException(ERROR_MESSAGE);
@@ -233,4 +243,39 @@ public class DummyOptionsConfig implements Config {
   public boolean warnOnGenericInferenceFailure() {
     throw new IllegalStateException(ERROR_MESSAGE);
   }
+
+  @Override
+  public @Nullable String getSlowMethodReportPath() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public int getSlowMethodReportSize() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public int getDataflowIterationBudget() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public int getDataflowTimeBudgetMillis() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public @Nullable String getCacheFootprintReportPath() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public boolean trimCapturedEnvironment() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
+
+  @Override
+  public boolean reuseLibraryModels() {
+    throw new IllegalStateException(ERROR_MESSAGE);
+  }
 }
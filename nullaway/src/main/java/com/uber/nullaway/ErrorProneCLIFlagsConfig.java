@@ -88,6 +88,8 @@ final class ErrorProneCLIFlagsConfig implements Config {
   /** --- JarInfer configs --- */
   static final String FL_JI_ENABLED = EP_FL_NAMESPACE + ":JarInferEnabled";
 
+  static final String FL_JI_ANDROID_API_LEVEL = EP_FL_NAMESPACE + ":JarInferAndroidApiLevel";
+
   static final String FL_JSPECIFY_JDK_ENABLED = EP_FL_NAMESPACE + ":JSpecifyJDKModels";
 
   static final String FL_ERROR_URL = EP_FL_NAMESPACE + ":ErrorURL";
@@ -106,6 +108,22 @@ final class ErrorProneCLIFlagsConfig implements Config {
 
   static final String FL_HANDLE_WILDCARD_GENERICS = EP_FL_NAMESPACE + ":HandleWildcardGenerics";
 
+  /** --- Profiling configs --- */
+  static final String FL_SLOW_METHOD_REPORT_PATH = EP_FL_NAMESPACE + ":SlowMethodReportPath";
+
+  static final String FL_SLOW_METHOD_REPORT_SIZE = EP_FL_NAMESPACE + ":SlowMethodReportSize";
+
+  static final String FL_DATAFLOW_ITERATION_BUDGET = EP_FL_NAMESPACE + ":DataflowIterationBudget";
+
+  static final String FL_DATAFLOW_TIME_BUDGET = EP_FL_NAMESPACE + ":DataflowTimeBudgetMillis";
+
+  static final String FL_CACHE_FOOTPRINT_REPORT_PATH =
+      EP_FL_NAMESPACE + ":CacheFootprintReportPath";
+
+  static final String FL_TRIM_CAPTURED_ENVIRONMENT = EP_FL_NAMESPACE + ":TrimCapturedEnvironment";
+
+  static final String FL_REUSE_LIBRARY_MODELS = EP_FL_NAMESPACE + ":ReuseLibraryModels";
+
   static final String ANNOTATED_PACKAGES_ONLY_NULLMARKED_ERROR_MSG =
       "DO NOT report an issue to Error Prone for this crash!  NullAway configuration is "
           + "incorrect.  "
@@ -250,6 +268,8 @@ final class ErrorProneCLIFlagsConfig implements Config {
   /** --- JarInfer configs --- */
   private final boolean jarInferEnabled;
 
+  private final int jarInferAndroidApiLevel;
+
   private final boolean jspecifyJDKModelsEnabled;
 
   private final String errorURL;
@@ -268,6 +288,21 @@ final class ErrorProneCLIFlagsConfig implements Config {
 
   private final FixSerializationConfig fixSerializationConfig;
 
+  /** --- Profiling configs --- */
+  private final @Nullable String slowMethodReportPath;
+
+  private final int slowMethodReportSize;
+
+  private final int dataflowIterationBudget;
+
+  private final int dataflowTimeBudgetMillis;
+
+  private final @Nullable String cacheFootprintReportPath;
+
+  private final boolean trimCapturedEnvironment;
+
+  private final boolean reuseLibraryModels;
+
   ErrorProneCLIFlagsConfig(ErrorProneFlags flags) {
     boolean jspecifyExperimental = flags.getBoolean(FL_JSPECIFY_EXPERIMENTAL).orElse(false);
     boolean annotatedPackagesPassed = flags.get(FL_ANNOTATED_PACKAGES).isPresent();
@@ -333,6 +368,7 @@ final class ErrorProneCLIFlagsConfig implements Config {
 
     /* --- JarInfer configs --- */
     jarInferEnabled = flags.getBoolean(FL_JI_ENABLED).orElse(false);
+    jarInferAndroidApiLevel = flags.getInteger(FL_JI_ANDROID_API_LEVEL).orElse(-1);
     jspecifyJDKModelsEnabled =
         flags.getBoolean(FL_JSPECIFY_JDK_ENABLED).orElse(jspecifyExperimental);
     if (jspecifyJDKModelsEnabled && !jspecifyMode) {
@@ -379,6 +415,24 @@ final class ErrorProneCLIFlagsConfig implements Config {
               + FL_SUGGEST_SUPPRESSIONS
               + ")");
     }
+    /* --- Profiling configs --- */
+    slowMethodReportPath = flags.get(FL_SLOW_METHOD_REPORT_PATH).orElse(null);
+    slowMethodReportSize = getNonNegativeInteger(flags, FL_SLOW_METHOD_REPORT_SIZE, 20);
+    dataflowIterationBudget = getNonNegativeInteger(flags, FL_DATAFLOW_ITERATION_BUDGET, 0);
+    dataflowTimeBudgetMillis = getNonNegativeInteger(flags, FL_DATAFLOW_TIME_BUDGET, 0);
+    cacheFootprintReportPath = flags.get(FL_CACHE_FOOTPRINT_REPORT_PATH).orElse(null);
+    trimCapturedEnvironment = flags.getBoolean(FL_TRIM_CAPTURED_ENVIRONMENT).orElse(false);
+    reuseLibraryModels = flags.getBoolean(FL_REUSE_LIBRARY_MODELS).orElse(false);
+  }
+
+  private static int getNonNegativeInteger(
+      ErrorProneFlags flags, String flagName, int defaultValue) {
+    int value = flags.getInteger(flagName).orElse(defaultValue);
+    if (value < 0) {
+      throw new IllegalStateException(
+          "-XepOpt:%s must not be negative, but was %d".formatted(flagName, value));
+    }
+    return value;
   }
 
   private static ImmutableSet<String> getFlagStringSet(ErrorProneFlags flags, String flagName) {
@@ -584,6 +638,11 @@ final class ErrorProneCLIFlagsConfig implements Config {
     return skippedLibraryModels.contains(classDotMethod);
   }
 
+  @Override
+  public ImmutableSet<String> getSkippedLibraryModels() {
+    return skippedLibraryModels;
+  }
+
   @Override
   public ImmutableSet<String> getExtraFuturesClasses() {
     return extraFuturesClasses;
@@ -595,6 +654,11 @@ final class ErrorProneCLIFlagsConfig implements Config {
     return jarInferEnabled;
   }
 
+  @Override
+  public int getJarInferAndroidApiLevel() {
+    return jarInferAndroidApiLevel;
+  }
+
   @Override
   public boolean isJSpecifyJDKModels() {
     return jspecifyJDKModelsEnabled;
@@ -625,6 +689,41 @@ final class ErrorProneCLIFlagsConfig implements Config {
     return warnOnInferenceFailure;
   }
 
+  @Override
+  public @Nullable String getSlowMethodReportPath() {
+    return slowMethodReportPath;
+  }
+
+  @Override
+  public int getSlowMethodReportSize() {
+    return slowMethodReportSize;
+  }
+
+  @Override
+  public int getDataflowIterationBudget() {
+    return dataflowIterationBudget;
+  }
+
+  @Override
+  public int getDataflowTimeBudgetMillis() {
+    return dataflowTimeBudgetMillis;
+  }
+
+  @Override
+  public @Nullable String getCacheFootprintReportPath() {
+    return cacheFootprintReportPath;
+  }
+
+  @Override
+  public boolean trimCapturedEnvironment() {
+    return trimCapturedEnvironment;
+  }
+
+  @Override
+  public boolean reuseLibraryModels() {
+    return reuseLibraryModels;
+  }
+
   record MethodClassAndName(String enclosingClass, String methodName) {
 
     static MethodClassAndName create(String enclosingClass, String methodName) {
@@ -58,6 +58,7 @@ import com.sun.source.tree.AssertTree;
 import com.sun.source.tree.AssignmentTree;
 import com.sun.source.tree.BinaryTree;
 import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CaseTree;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.CompoundAssignmentTree;
 import com.sun.source.tree.ConditionalExpressionTree;
@@ -94,6 +95,7 @@ import com.sun.tools.javac.code.Symbol.VarSymbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.Context;
 import com.uber.nullaway.ErrorMessage.MessageTypes;
 import com.uber.nullaway.dataflow.AccessPathNullnessAnalysis;
 import com.uber.nullaway.dataflow.EnclosingEnvironmentNullness;
@@ -102,6 +104,7 @@ import com.uber.nullaway.generics.JSpecifyJavacConfig;
 import com.uber.nullaway.handlers.Handler;
 import com.uber.nullaway.handlers.Handlers;
 import com.uber.nullaway.handlers.MethodAnalysisContext;
+import com.uber.nullaway.handlers.contract.ContractCache;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Target;
 import java.util.ArrayList;
@@ -475,10 +478,13 @@ public class NullAway extends BugChecker
     // the lambda / class declaration as only effectively final variables can be accessed
     // from the nested scope, so the program point doesn't matter
     // 2. we keep info on all locals rather than just effectively final ones for simplicity
-    EnclosingEnvironmentNullness.instance(state.context)
-        .addEnvironmentMapping(
-            treePath.getLeaf(),
-            analysis.getNullnessInfoBeforeNestedMethodNode(treePath, state, handler));
+    EnclosingEnvironmentNullness environmentNullness =
+        EnclosingEnvironmentNullness.instance(state.context);
+    // release the mappings of lambdas and classes we are done with before adding a new one
+    environmentNullness.retainEnclosing(treePath);
+    environmentNullness.addEnvironmentMapping(
+        treePath.getLeaf(),
+        analysis.getNullnessInfoBeforeNestedMethodNode(treePath, state, handler));
   }
 
   private Symbol.MethodSymbol getSymbolOfSuperConstructor(
@@ -679,6 +685,17 @@ public class NullAway extends BugChecker
 
   @Override
   public Description matchMethod(MethodTree tree, VisitorState state) {
+    SlowMethodReport slowMethodReport = getSlowMethodReport(state);
+    if (!slowMethodReport.isEnabled()) {
+      return checkMethod(tree, state);
+    }
+    long startNanos = slowMethodReport.startTiming();
+    Description description = checkMethod(tree, state);
+    slowMethodReport.recordMatchers(state.getPath(), startNanos);
+    return description;
+  }
+
+  private Description checkMethod(MethodTree tree, VisitorState state) {
     checkForMethodNullMarkedness(tree, state);
     if (!withinAnnotatedCode(state)) {
       return Description.NO_MATCH;
@@ -695,7 +712,7 @@ public class NullAway extends BugChecker
     boolean exhaustiveOverride = config.exhaustiveOverride();
     if (isOverriding || !exhaustiveOverride) {
       Symbol.MethodSymbol closestOverriddenMethod =
-          NullabilityUtil.getClosestOverriddenMethod(methodSymbol, state.getTypes());
+          OverrideInfo.instance(state.context).getClosestOverriddenMethod(methodSymbol, state);
       if (closestOverriddenMethod != null) {
         if (config.isJSpecifyMode()) {
           // Check that any generic type parameters in the return type and parameter types are
@@ -1189,6 +1206,17 @@ public class NullAway extends BugChecker
 
   @Override
   public Description matchLambdaExpression(LambdaExpressionTree tree, VisitorState state) {
+    SlowMethodReport slowMethodReport = getSlowMethodReport(state);
+    if (!slowMethodReport.isEnabled()) {
+      return checkLambdaExpression(tree, state);
+    }
+    long startNanos = slowMethodReport.startTiming();
+    Description description = checkLambdaExpression(tree, state);
+    slowMethodReport.recordMatchers(state.getPath(), startNanos);
+    return description;
+  }
+
+  private Description checkLambdaExpression(LambdaExpressionTree tree, VisitorState state) {
     if (!withinAnnotatedCode(state)) {
       return Description.NO_MATCH;
     }
@@ -1877,16 +1905,28 @@ public class NullAway extends BugChecker
     Symbol.ClassSymbol classSymbol = ASTHelpers.getSymbol(tree);
     NestingKind nestingKind = classSymbol.getNestingKind();
     if (!nestingKind.isNested()) {
+      ClassCheckRecorder.instance(state.context)
+          .startTopLevelClass(classSymbol, tree.getMembers().size());
       // Here we optimistically set the marking to either FULLY_UNMARKED or FULLY_MARKED.  If a
       // nested entity has a contradicting annotation, at that point we update the marking level to
       // PARTIALLY_MARKED, which will increase checking overhead for the remainder of the top-level
       // class
       nullMarkingForTopLevelClass =
           isExcludedClass(classSymbol) ? NullMarking.FULLY_UNMARKED : NullMarking.FULLY_MARKED;
+      CacheFootprintReport cacheFootprintReport =
+          CacheFootprintReport.instance(state.context, config);
+      if (cacheFootprintReport.isEnabled()) {
+        // measure the caches for the previous class before they are cleared
+        Context context = state.context;
+        cacheFootprintReport.startTopLevelClass(
+            classSymbol.getQualifiedName().toString(),
+            report -> reportCacheFootprint(report, context));
+      }
       // since we are processing a new top-level class, invalidate any cached
       // results for previous classes
       handler.onMatchTopLevelClass(this, tree, state, classSymbol);
       getNullnessAnalysis(state).invalidateCaches();
+      getSlowMethodReport(state).finishTopLevelClass();
       initTree2PrevFieldInit.clear();
       class2Entities.clear();
       class2ConstructorUninit.clear();
@@ -2744,7 +2784,7 @@ public class NullAway extends BugChecker
       }
     }
     Symbol.MethodSymbol closestOverriddenMethod =
-        NullabilityUtil.getClosestOverriddenMethod(symbol, state.getTypes());
+        OverrideInfo.instance(state.context).getClosestOverriddenMethod(symbol, state);
     if (closestOverriddenMethod == null) {
       return false;
     }
@@ -2931,8 +2971,13 @@ public class NullAway extends BugChecker
   }
 
   public boolean nullnessFromDataflow(VisitorState state, ExpressionTree expr) {
-    Nullness nullness =
-        getNullnessAnalysis(state).getNullness(new TreePath(state.getPath(), expr), state.context);
+    AccessPathNullnessAnalysis nullnessAnalysis = getNullnessAnalysis(state);
+    TreePath exprPath = new TreePath(state.getPath(), expr);
+    Nullness nullness = nullnessAnalysis.getNullness(exprPath, state.context);
+    if (nullness == null && nullnessAnalysis.isBudgetExceededForExpr(exprPath)) {
+      // dataflow was skipped for the enclosing code, so fall back on declared nullness
+      return mayBeNullFromDeclarations(state, expr);
+    }
     if (nullness == null) {
       // this may be unsound, like for field initializers
       // figure out if we care
@@ -2941,10 +2986,70 @@ public class NullAway extends BugChecker
     return NullabilityUtil.nullnessToBool(nullness);
   }
 
+  /**
+   * Decides without dataflow whether an expression that {@link #mayBeNullExpr} did not rule out may
+   * be null, based on the declarations it reads. Fields and method calls were already checked
+   * against their declarations. Local variables are only nullable if annotated, as their nullness
+   * is otherwise inferred by dataflow.
+   */
+  private boolean mayBeNullFromDeclarations(VisitorState state, ExpressionTree expr) {
+    switch (expr.getKind()) {
+      case IDENTIFIER -> {
+        Symbol symbol = ASTHelpers.getSymbol(expr);
+        return symbol == null
+            || symbol.getKind() == ElementKind.FIELD
+            || Nullness.hasNullableAnnotation(symbol, config);
+      }
+      case CONDITIONAL_EXPRESSION -> {
+        ConditionalExpressionTree conditional = (ConditionalExpressionTree) expr;
+        return mayBeNullExpr(state, conditional.getTrueExpression())
+            || mayBeNullExpr(state, conditional.getFalseExpression());
+      }
+      case ASSIGNMENT -> {
+        return mayBeNullExpr(state, ((AssignmentTree) expr).getExpression());
+      }
+      case SWITCH_EXPRESSION -> {
+        // values yielded from blocks would need dataflow; only check the expression cases
+        for (CaseTree caseTree : ((SwitchExpressionTree) expr).getCases()) {
+          if (caseTree.getBody() instanceof ExpressionTree body && mayBeNullExpr(state, body)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      default -> {
+        return true;
+      }
+    }
+  }
+
   public AccessPathNullnessAnalysis getNullnessAnalysis(VisitorState state) {
     return AccessPathNullnessAnalysis.instance(state, this);
   }
 
+  private SlowMethodReport getSlowMethodReport(VisitorState state) {
+    return SlowMethodReport.instance(state.context, config);
+  }
+
+  /** Adds all caches of NullAway and its helpers to a cache footprint report. */
+  private void reportCacheFootprint(CacheFootprintReport report, Context context) {
+    report.add("NullAway.class2Entities", class2Entities.size(), class2Entities);
+    report.add(
+        "NullAway.class2ConstructorUninit",
+        class2ConstructorUninit.size(),
+        class2ConstructorUninit);
+    report.add(
+        "NullAway.initTree2PrevFieldInit", initTree2PrevFieldInit.size(), initTree2PrevFieldInit);
+    report.add("NullAway.computedNullnessMap", computedNullnessMap.size(), computedNullnessMap);
+    genericsChecks.reportCacheFootprint(report);
+    AccessPathNullnessAnalysis.reportCacheFootprint(context, report);
+    EnclosingEnvironmentNullness.instance(context).reportCacheFootprint(report);
+    CodeAnnotationInfo.instance(context).reportCacheFootprint(report);
+    OverrideInfo.instance(context).reportCacheFootprint(report);
+    ContractCache.instance(context).reportCacheFootprint(report);
+    handler.onReportCacheFootprint(report);
+  }
+
   private Description matchDereference(
       ExpressionTree baseExpression, ExpressionTree derefExpression, VisitorState state) {
     Symbol baseExpressionSymbol = ASTHelpers.getSymbol(baseExpression);
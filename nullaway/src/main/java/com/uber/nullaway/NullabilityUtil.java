@@ -107,7 +107,9 @@ public class NullabilityUtil {
   }
 
   /**
-   * find the closest ancestor method in a superclass or superinterface that method overrides
+   * find the closest ancestor method in a superclass or superinterface that method overrides. Use
+   * {@link OverrideInfo#getClosestOverriddenMethod} instead where a {@code VisitorState} is
+   * available, as it memoizes the result.
    *
    * @param method the subclass method
    * @param types the types data structure from javac
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2025 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.nullaway;
+
+import com.google.errorprone.VisitorState;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Resolves overridden methods through a table per class. Each method is checked against its
+ * overridden method several times (by {@link NullAway#matchMethod}, by initializer checks, and by
+ * the field contract handlers), and a class usually has several methods to resolve. The table of a
+ * class is built the first time one of its methods is resolved, with a single walk of the
+ * supertype closure, and maps the name of each method of the class to the methods of that name in
+ * its supertypes. Resolving a method then only checks those candidates, and the result is memoized.
+ *
+ * <p>There is one instance per javac context, so tables and results for class-file symbols are
+ * shared across all compilation units of a compilation.
+ */
+public final class OverrideInfo {
+
+  private static final Context.Key<OverrideInfo> OVERRIDE_INFO_KEY = new Context.Key<>();
+
+  /** Maps a method to its closest overridden method, or empty if it overrides nothing. */
+  private final Map<Symbol.MethodSymbol, Optional<Symbol.MethodSymbol>> closestOverriddenMethods =
+      new HashMap<>();
+
+  /**
+   * Maps a class to its override table: for the name of each method of the class, the non-static
+   * methods of that name in its proper supertypes, in the order of {@link Types#closure}.
+   */
+  private final Map<Symbol.ClassSymbol, Map<Name, List<Symbol.MethodSymbol>>> overrideTables =
+      new HashMap<>();
+
+  private OverrideInfo() {}
+
+  /**
+   * Get the OverrideInfo for the given javac context. We ensure there is one instance per context
+   * (as opposed to using static fields) to avoid memory leaks.
+   */
+  public static OverrideInfo instance(Context context) {
+    OverrideInfo overrideInfo = context.get(OVERRIDE_INFO_KEY);
+    if (overrideInfo == null) {
+      overrideInfo = new OverrideInfo();
+      context.put(OVERRIDE_INFO_KEY, overrideInfo);
+    }
+    return overrideInfo;
+  }
+
+  /** Reports the memoized overridden methods, see {@link CacheFootprintReport}. */
+  public void reportCacheFootprint(CacheFootprintReport report) {
+    report.add(
+        "OverrideInfo.closestOverriddenMethods",
+        closestOverriddenMethods.size(),
+        closestOverriddenMethods);
+    report.add("OverrideInfo.overrideTables", overrideTables.size(), overrideTables);
+  }
+
+  /**
+   * Table-driven, memoized version of {@link
+   * NullabilityUtil#getClosestOverriddenMethod(Symbol.MethodSymbol, Types)}.
+   *
+   * @param method the subclass method
+   * @param state the current visitor state
+   * @return closest overridden ancestor method, or <code>null</code> if method does not override
+   *     anything
+   */
+  public Symbol.@Nullable MethodSymbol getClosestOverriddenMethod(
+      Symbol.MethodSymbol method, VisitorState state) {
+    Optional<Symbol.MethodSymbol> overridden = closestOverriddenMethods.get(method);
+    if (overridden == null) {
+      overridden = Optional.ofNullable(resolveClosestOverriddenMethod(method, state.getTypes()));
+      closestOverriddenMethods.put(method, overridden);
+    }
+    return overridden.orElse(null);
+  }
+
+  private Symbol.@Nullable MethodSymbol resolveClosestOverriddenMethod(
+      Symbol.MethodSymbol method, Types types) {
+    Symbol.ClassSymbol owner = method.enclClass();
+    List<Symbol.MethodSymbol> candidates = overrideTable(owner, types).get(method.name);
+    if (candidates == null) {
+      // a member added to the class after its table was built
+      return NullabilityUtil.getClosestOverriddenMethod(method, types);
+    }
+    for (Symbol.MethodSymbol candidate : candidates) {
+      if (method.overrides(candidate, owner, types, /*checkReturn*/ false)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private Map<Name, List<Symbol.MethodSymbol>> overrideTable(
+      Symbol.ClassSymbol owner, Types types) {
+    Map<Name, List<Symbol.MethodSymbol>> table = overrideTables.get(owner);
+    if (table == null) {
+      table = new HashMap<>();
+      for (Symbol member : owner.members().getSymbols(m -> m instanceof Symbol.MethodSymbol)) {
+        table.put(member.name, new ArrayList<>());
+      }
+      for (Type s : types.closure(owner.type)) {
+        if (types.isSameType(s, owner.type)) {
+          continue;
+        }
+        for (Map.Entry<Name, List<Symbol.MethodSymbol>> entry : table.entrySet()) {
+          for (Symbol m : s.tsym.members().getSymbolsByName(entry.getKey())) {
+            if (m instanceof Symbol.MethodSymbol msym && !msym.isStatic()) {
+              entry.getValue().add(msym);
+            }
+          }
+        }
+      }
+      overrideTables.put(owner, table);
+    }
+    return table;
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2026 Uber Technologies, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.uber.nullaway;
+
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records the time NullAway spends on each method, lambda and initializer, and writes the slowest
+ * ones to a report when the compilation finishes. Enabled by passing {@code
+ * -XepOpt:NullAway:SlowMethodReportPath=<file>}; {@code -XepOpt:NullAway:SlowMethodReportSize}
+ * sets the number of methods in the report (20 by default).
+ *
+ * <p>For each method, the report has the time to build its control-flow graph, the time to run
+ * dataflow analysis over it, and the time in the method-level checks of {@link
+ * NullAway#matchMethod} and {@link NullAway#matchLambdaExpression}. Times are exclusive: the
+ * dataflow of a lambda or anonymous class that is run while analyzing the enclosing method, or the
+ * dataflow triggered by the checks of a method, is only counted for the code it analyzes. The
+ * checks of individual expressions are not timed; their cost is dominated by the dataflow they
+ * trigger, which is attributed to the analyzed method.
+ *
+ * <p>The report is a tab-separated file, with the slowest method first. It is overwritten by every
+ * compilation that uses the same path.
+ */
+public final class SlowMethodReport {
+
+  private static final Context.Key<SlowMethodReport> SLOW_METHOD_REPORT_KEY = new Context.Key<>();
+
+  private static final String HEADER =
+      "total_ms\tcfg_ms\tdataflow_ms\tmatchers_ms\tcfg_nodes\tdataflow_skipped\tlocation\tcode";
+
+  private final @Nullable Path reportPath;
+
+  private final int reportSize;
+
+  /**
+   * Timings of the methods of the current top-level class, keyed by method, lambda or initializer
+   * tree. Timings are moved to {@link #slowest} when the top-level class is done, so that no trees
+   * are retained beyond it.
+   */
+  private final Map<Tree, MethodTiming> current = new IdentityHashMap<>();
+
+  /**
+   * Time spent in nested timed sections, for each timed section that is running, with the
+   * innermost one first. It is subtracted from the time of the enclosing section, so that no time
+   * is counted twice.
+   */
+  private final ArrayDeque<long[]> nestedNanos = new ArrayDeque<>();
+
+  /** The slowest methods so far, with the fastest of them at the head of the queue. */
+  private final PriorityQueue<MethodTiming> slowest =
+      new PriorityQueue<>(Comparator.comparingLong(MethodTiming::totalNanos));
+
+  private SlowMethodReport(@Nullable Path reportPath, int reportSize) {
+    this.reportPath = reportPath;
+    this.reportSize = reportSize;
+  }
+
+  /**
+   * Get the SlowMethodReport for the given javac context. We ensure there is one instance per
+   * context (as opposed to using static fields) to avoid memory leaks.
+   */
+  public static SlowMethodReport instance(Context context, Config config) {
+    SlowMethodReport report = context.get(SLOW_METHOD_REPORT_KEY);
+    if (report == null) {
+      String reportPath = config.getSlowMethodReportPath();
+      report =
+          new SlowMethodReport(
+              reportPath == null ? null : Paths.get(reportPath), config.getSlowMethodReportSize());
+      context.put(SLOW_METHOD_REPORT_KEY, report);
+      if (reportPath != null) {
+        SlowMethodReport finalReport = report;
+        JavacTask.instance(JavacProcessingEnvironment.instance(context))
+            .addTaskListener(
+                new TaskListener() {
+                  @Override
+                  public void finished(TaskEvent e) {
+                    // Error Prone has no end-of-compilation callback, so we listen to javac instead
+                    if (e.getKind() == TaskEvent.Kind.COMPILATION) {
+                      finalReport.write();
+                    }
+                  }
+                });
+      }
+    }
+    return report;
+  }
+
+  /** Returns true if analysis times should be recorded. */
+  public boolean isEnabled() {
+    return reportPath != null;
+  }
+
+  /**
+   * Starts timing a section, which must be ended by one of the {@code record} methods taking a
+   * start time. Sections may nest.
+   *
+   * @return the start time, to pass to the {@code record} method
+   */
+  public long startTiming() {
+    nestedNanos.push(new long[1]);
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the construction of a control-flow graph.
+   *
+   * @param codePath path to the method, lambda or initializer
+   * @param cfgNodes number of nodes of the control-flow graph
+   * @param startNanos the start time returned by {@link #startTiming()}
+   */
+  public void recordCfgConstruction(TreePath codePath, int cfgNodes, long startNanos) {
+    MethodTiming timing = timing(codePath);
+    timing.cfgNodes = cfgNodes;
+    timing.cfgNanos += stopTiming(startNanos);
+  }
+
+  /**
+   * Records a run of dataflow analysis.
+   *
+   * @param codePath path to the method, lambda or initializer
+   * @param startNanos the start time returned by {@link #startTiming()}
+   */
+  public void recordDataflow(TreePath codePath, long startNanos) {
+    timing(codePath).dataflowNanos += stopTiming(startNanos);
+  }
+
+  /**
+   * Records the time of the method-level checks for a method or lambda.
+   *
+   * @param codePath path to the method or lambda
+   * @param startNanos the start time returned by {@link #startTiming()}
+   */
+  public void recordMatchers(TreePath codePath, long startNanos) {
+    timing(codePath).matcherNanos += stopTiming(startNanos);
+  }
+
+  /** Ends the innermost timed section, returning its time minus that of the sections it nests. */
+  private long stopTiming(long startNanos) {
+    long elapsed = System.nanoTime() - startNanos;
+    long[] nested = nestedNanos.poll();
+    long[] enclosing = nestedNanos.peek();
+    if (enclosing != null) {
+      enclosing[0] += elapsed;
+    }
+    return nested == null ? elapsed : elapsed - nested[0];
+  }
+
+  /**
+   * Records that dataflow was skipped since it exceeded its budget.
+   *
+   * @param codePath path to the method, lambda or initializer
+   */
+  public void recordDataflowSkipped(TreePath codePath) {
+    timing(codePath).dataflowSkipped = true;
+  }
+
+  /**
+   * Moves the timings of the current top-level class into the report. Must be called before
+   * analyzing a new top-level class.
+   */
+  public void finishTopLevelClass() {
+    for (MethodTiming timing : current.values()) {
+      slowest.add(timing);
+      if (slowest.size() > reportSize) {
+        slowest.poll();
+      }
+    }
+    current.clear();
+    // drop the sections left open by checks that threw
+    nestedNanos.clear();
+  }
+
+  private MethodTiming timing(TreePath codePath) {
+    return current.computeIfAbsent(
+        codePath.getLeaf(), leaf -> new MethodTiming(location(codePath), describe(codePath)));
+  }
+
+  private static String location(TreePath codePath) {
+    CompilationUnitTree compilationUnit = codePath.getCompilationUnit();
+    long line =
+        compilationUnit
+            .getLineMap()
+            .getLineNumber(ASTHelpers.getStartPosition(codePath.getLeaf()));
+    return compilationUnit.getSourceFile().getName() + ":" + line;
+  }
+
+  /** Describes a method, lambda or initializer, e.g., {@code lambda in com.foo.Bar.baz(int)}. */
+  private static String describe(TreePath codePath) {
+    Tree leaf = codePath.getLeaf();
+    if (leaf instanceof MethodTree methodTree) {
+      Symbol.MethodSymbol methodSymbol = ASTHelpers.getSymbol(methodTree);
+      return methodSymbol.owner + "." + methodSymbol;
+    }
+    if (leaf instanceof ClassTree classTree) {
+      return ASTHelpers.getSymbol(classTree).toString();
+    }
+    String kind = leaf instanceof LambdaExpressionTree ? "lambda in " : "initializer in ";
+    for (TreePath path = codePath.getParentPath(); path != null; path = path.getParentPath()) {
+      if (path.getLeaf() instanceof MethodTree || path.getLeaf() instanceof ClassTree) {
+        return kind + describe(path);
+      }
+    }
+    return kind + "unknown code";
+  }
+
+  private void write() {
+    if (reportPath == null) {
+      return;
+    }
+    finishTopLevelClass();
+    List<MethodTiming> timings = new ArrayList<>(slowest);
+    timings.sort(Comparator.comparingLong(MethodTiming::totalNanos).reversed());
+    try {
+      Path parent = reportPath.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      try (Writer writer = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8)) {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (MethodTiming timing : timings) {
+          writer.write(timing.toTabSeparatedString());
+          writer.write('\n');
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Could not write slow method report to " + reportPath, e);
+    }
+  }
+
+  /** Analysis times of a method, lambda or initializer. */
+  private static final class MethodTiming {
+    final String location;
+    final String code;
+    int cfgNodes;
+    long cfgNanos;
+    long dataflowNanos;
+    long matcherNanos;
+    boolean dataflowSkipped;
+
+    MethodTiming(String location, String code) {
+      this.location = location;
+      this.code = code;
+    }
+
+    long totalNanos() {
+      return cfgNanos + dataflowNanos + matcherNanos;
+    }
+
+    String toTabSeparatedString() {
+      return String.join(
+          "\t",
+          millis(totalNanos()),
+          millis(cfgNanos),
+          millis(dataflowNanos),
+          millis(matcherNanos),
+          Integer.toString(cfgNodes),
+          Boolean.toString(dataflowSkipped),
+          location,
+          code);
+    }
+
+    private static String millis(long nanos) {
+      return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+  }
+}
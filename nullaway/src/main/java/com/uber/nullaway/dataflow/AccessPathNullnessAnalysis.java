@@ -24,19 +24,33 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.dataflow.nullnesspropagation.NullnessAnalysis;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
 import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.CacheFootprintReport;
 import com.uber.nullaway.Config;
 import com.uber.nullaway.NullAway;
+import com.uber.nullaway.NullabilityUtil;
 import com.uber.nullaway.Nullness;
+import com.uber.nullaway.SlowMethodReport;
 import com.uber.nullaway.handlers.Handler;
+import com.uber.nullaway.handlers.contract.ContractCache;
 import com.uber.nullaway.handlers.contract.ContractNullnessStoreInitializer;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -65,6 +79,9 @@ public final class AccessPathNullnessAnalysis {
 
   private final DataFlow dataFlow;
 
+  /** See {@link Config#trimCapturedEnvironment()}. */
+  private final boolean trimCapturedEnvironment;
+
   private @Nullable AccessPathNullnessPropagation contractNullnessPropagation;
 
   // Use #instance to instantiate
@@ -82,7 +99,9 @@ public final class AccessPathNullnessAnalysis {
             apContext,
             analysis,
             new CoreNullnessStoreInitializer(analysis.getGenericsChecks()));
-    this.dataFlow = new DataFlow(config.assertsEnabled(), handler);
+    this.dataFlow =
+        new DataFlow(config, handler, SlowMethodReport.instance(state.context, config));
+    this.trimCapturedEnvironment = config.trimCapturedEnvironment();
 
     if (config.checkContracts()) {
       this.contractNullnessPropagation =
@@ -108,6 +127,19 @@ public final class AccessPathNullnessAnalysis {
     return instance;
   }
 
+  /**
+   * Reports the dataflow caches of the per-Javac instance of the analysis, if it was created.
+   *
+   * @param context Javac context
+   * @param report the report
+   */
+  public static void reportCacheFootprint(Context context, CacheFootprintReport report) {
+    AccessPathNullnessAnalysis instance = context.get(FIELD_NULLNESS_ANALYSIS_KEY);
+    if (instance != null) {
+      instance.dataFlow.reportCacheFootprint(report);
+    }
+  }
+
   /**
    * Get an expression's nullness info.
    *
@@ -119,6 +151,18 @@ public final class AccessPathNullnessAnalysis {
     return dataFlow.expressionDataflow(exprPath, context, nullnessPropagation, false);
   }
 
+  /**
+   * Check whether the dataflow analysis of the method, lambda or initializer enclosing an
+   * expression exceeded its budget, so that there is no nullness info for the expression.
+   *
+   * @param exprPath tree path of expression
+   * @return true if the analysis of the code enclosing the expression exceeded its budget
+   */
+  public boolean isBudgetExceededForExpr(TreePath exprPath) {
+    TreePath enclosingPath = NullabilityUtil.findEnclosingMethodOrLambdaOrInitializer(exprPath);
+    return enclosingPath != null && dataFlow.isBudgetExceeded(enclosingPath);
+  }
+
   /**
    * Get the nullness info for an expression from the current running dataflow analysis (so it may
    * not be the final result).
@@ -170,6 +214,9 @@ public final class AccessPathNullnessAnalysis {
    */
   public Set<Element> getNonnullFieldsOfReceiverAtExit(TreePath path, Context context) {
     NullnessStore nullnessResult = dataFlow.finalResult(path, context, nullnessPropagation);
+    if (nullnessResult == null && dataFlow.isBudgetExceeded(path)) {
+      return getAssignedFields(path.getLeaf(), false);
+    }
     if (nullnessResult == null) {
       // this case can occur if the method always throws an exception
       // be conservative and say nothing is initialized
@@ -243,7 +290,8 @@ public final class AccessPathNullnessAnalysis {
 
   /**
    * Get access paths for local variables and final (or {@code @MonotonicNonNull}) fields in the
-   * store before some nested method node.
+   * store before some nested method node. If {@link Config#trimCapturedEnvironment()} is set, only
+   * access paths that the nested method node references are kept.
    *
    * @param pathToNestedMethodNode tree path to some AST node representing a nested method
    * @param state visitor state
@@ -251,7 +299,7 @@ public final class AccessPathNullnessAnalysis {
    * @param store nullness store before the nested method node
    * @return filtered nullness store
    */
-  private static NullnessStore getAccessPathsForNestedMethod(
+  private NullnessStore getAccessPathsForNestedMethod(
       TreePath pathToNestedMethodNode,
       VisitorState state,
       Handler handler,
@@ -261,6 +309,10 @@ public final class AccessPathNullnessAnalysis {
     }
     Predicate<AccessPath> handlerPredicate =
         handler.getAccessPathPredicateForNestedMethod(pathToNestedMethodNode, state);
+    if (trimCapturedEnvironment) {
+      store =
+          filterReferencedAccessPaths(store, pathToNestedMethodNode.getLeaf(), state.context);
+    }
     return store.filterAccessPaths(
         (ap) -> {
           boolean allAPNonRootElementsAreFinalFields = true;
@@ -298,6 +350,111 @@ public final class AccessPathNullnessAnalysis {
         });
   }
 
+  /**
+   * Keeps only the access paths of a store that some nested code may look up: those rooted at an
+   * element it references, or at {@code this} followed by a field or method it references. Fields
+   * named by {@code @RequiresNonNull} on methods the code calls count as referenced, since the
+   * preconditions of those calls are checked against the store.
+   */
+  private static NullnessStore filterReferencedAccessPaths(
+      NullnessStore store, Tree nestedCode, Context context) {
+    Set<Element> referenced = getReferencedElements(nestedCode, context);
+    return store.filterAccessPaths(
+        (ap) -> {
+          Element root = ap.getRoot();
+          if (root != null) {
+            return referenced.contains(root);
+          }
+          ImmutableList<AccessPathElement> elements = ap.getElements();
+          return !elements.isEmpty() && referenced.contains(elements.get(0).getJavaElement());
+        });
+  }
+
+  /**
+   * Returns the variables and methods referenced by name within some code, and the fields required
+   * to be nonnull by the methods it calls.
+   */
+  private static Set<Element> getReferencedElements(Tree code, Context context) {
+    Set<Element> referenced = new HashSet<>();
+    ContractCache contractCache = ContractCache.instance(context);
+    new TreeScanner<@Nullable Void, @Nullable Void>() {
+      @Override
+      public @Nullable Void visitMethodInvocation(
+          MethodInvocationTree node, @Nullable Void unused) {
+        Symbol.MethodSymbol methodSymbol = ASTHelpers.getSymbol(node);
+        referenced.addAll(contractCache.getFieldContract(methodSymbol, "RequiresNonNull").values());
+        return super.visitMethodInvocation(node, null);
+      }
+
+      @Override
+      public @Nullable Void visitIdentifier(IdentifierTree node, @Nullable Void unused) {
+        addSymbol(ASTHelpers.getSymbol(node));
+        return super.visitIdentifier(node, null);
+      }
+
+      @Override
+      public @Nullable Void visitMemberSelect(MemberSelectTree node, @Nullable Void unused) {
+        addSymbol(ASTHelpers.getSymbol(node));
+        return super.visitMemberSelect(node, null);
+      }
+
+      private void addSymbol(@Nullable Symbol symbol) {
+        if (symbol != null) {
+          referenced.add(symbol);
+        }
+      }
+    }.scan(code, null);
+    return referenced;
+  }
+
+  /**
+   * Returns the fields of the receiver, or the static fields, that some code assigns a value other
+   * than {@code null}, outside of nested lambdas and classes. Stands in for the fields that are
+   * nonnull at exit when the dataflow analysis of the code exceeded its budget: it misses fields
+   * that are only assigned on some paths, but does not report initialization errors for code that
+   * was never analyzed.
+   */
+  private static Set<Element> getAssignedFields(Tree code, boolean isStatic) {
+    Set<Element> assigned = new LinkedHashSet<>();
+    new TreeScanner<@Nullable Void, @Nullable Void>() {
+      @Override
+      public @Nullable Void visitAssignment(AssignmentTree node, @Nullable Void unused) {
+        ExpressionTree variable = node.getVariable();
+        Symbol symbol = ASTHelpers.getSymbol(variable);
+        if (symbol != null
+            && symbol.getKind().equals(ElementKind.FIELD)
+            && symbol.isStatic() == isStatic
+            && (isStatic || isReceiverField(variable))
+            && !node.getExpression().getKind().equals(Tree.Kind.NULL_LITERAL)) {
+          assigned.add(symbol);
+        }
+        return super.visitAssignment(node, null);
+      }
+
+      @Override
+      public @Nullable Void visitLambdaExpression(
+          LambdaExpressionTree node, @Nullable Void unused) {
+        return null;
+      }
+
+      @Override
+      public @Nullable Void visitClass(ClassTree node, @Nullable Void unused) {
+        return null;
+      }
+    }.scan(code, null);
+    return assigned;
+  }
+
+  /** Returns true if a field access is {@code f} or {@code this.f}. */
+  private static boolean isReceiverField(ExpressionTree fieldAccess) {
+    if (fieldAccess instanceof MemberSelectTree memberSelect) {
+      ExpressionTree receiver = memberSelect.getExpression();
+      return receiver instanceof IdentifierTree identifier
+          && identifier.getName().contentEquals("this");
+    }
+    return fieldAccess instanceof IdentifierTree;
+  }
+
   private static boolean hasMonotonicNonNullAnnotation(Element e) {
     return e.getAnnotationMirrors().stream()
         .anyMatch(am -> Nullness.isMonotonicNonNullAnnotation(am.getAnnotationType().toString()));
@@ -361,6 +518,9 @@ public final class AccessPathNullnessAnalysis {
    */
   public Set<Element> getNonnullStaticFieldsAtExit(TreePath path, Context context) {
     NullnessStore nullnessResult = dataFlow.finalResult(path, context, nullnessPropagation);
+    if (nullnessResult == null && dataFlow.isBudgetExceeded(path)) {
+      return getAssignedFields(path.getLeaf(), true);
+    }
     if (nullnessResult == null) {
       // this case can occur if the method always throws an exception
       // be conservative and say nothing is initialized
@@ -35,13 +35,21 @@ import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.CacheFootprintReport;
+import com.uber.nullaway.Config;
 import com.uber.nullaway.NullabilityUtil;
+import com.uber.nullaway.SlowMethodReport;
 import com.uber.nullaway.dataflow.cfg.NullAwayCFGBuilder;
 import com.uber.nullaway.handlers.Handler;
+import com.uber.nullaway.jfr.CfgConstructionEvent;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
 import org.checkerframework.nullaway.dataflow.analysis.AbstractValue;
 import org.checkerframework.nullaway.dataflow.analysis.Analysis;
 import org.checkerframework.nullaway.dataflow.analysis.AnalysisResult;
@@ -73,9 +81,27 @@ public final class DataFlow {
 
   private final Handler handler;
 
-  DataFlow(boolean assertsEnabled, Handler handler) {
-    this.assertsEnabled = assertsEnabled;
+  private final SlowMethodReport slowMethodReport;
+
+  /** Maximum number of transfer function calls per analysis, or 0 if there is no limit. */
+  private final int iterationBudget;
+
+  /** Maximum time per analysis in milliseconds, or 0 if there is no limit. */
+  private final int timeBudgetMillis;
+
+  /**
+   * Code whose analysis exceeded its budget, which is warned about once. Cleared with the caches,
+   * so an analysis that is evicted and run again is not reported twice for the same top-level
+   * class.
+   */
+  private final Set<Tree> exceededBudget = new HashSet<>();
+
+  DataFlow(Config config, Handler handler, SlowMethodReport slowMethodReport) {
+    this.assertsEnabled = config.assertsEnabled();
     this.handler = handler;
+    this.slowMethodReport = slowMethodReport;
+    this.iterationBudget = config.getDataflowIterationBudget();
+    this.timeBudgetMillis = config.getDataflowTimeBudgetMillis();
   }
 
   private final LoadingCache<AnalysisParams, RunOnceForwardAnalysisImpl<?, ?, ?>> analysisCache =
@@ -86,7 +112,8 @@ public final class DataFlow {
                 @Override
                 public RunOnceForwardAnalysisImpl<?, ?, ?> load(AnalysisParams key) {
                   ForwardTransferFunction<?, ?> transfer = key.transferFunction();
-                  return new RunOnceForwardAnalysisImpl<>(transfer);
+                  return new RunOnceForwardAnalysisImpl<>(
+                      transfer, iterationBudget, timeBudgetMillis);
                 }
               });
 
@@ -126,11 +153,50 @@ public final class DataFlow {
                     bodyPath = codePath;
                   }
 
-                  return NullAwayCFGBuilder.build(
-                      bodyPath, ast, assertsEnabled, !assertsEnabled, env, handler);
+                  CfgConstructionEvent event = new CfgConstructionEvent();
+                  event.begin();
+                  long startNanos =
+                      slowMethodReport.isEnabled() ? slowMethodReport.startTiming() : 0;
+                  ControlFlowGraph cfg =
+                      NullAwayCFGBuilder.build(
+                          bodyPath, ast, assertsEnabled, !assertsEnabled, env, handler);
+                  if (slowMethodReport.isEnabled()) {
+                    slowMethodReport.recordCfgConstruction(
+                        codePath, cfg.getAllNodes().size(), startNanos);
+                  }
+                  if (event.shouldCommit()) {
+                    event.code = describe(ast);
+                    event.nodes = cfg.getAllNodes().size();
+                    event.blocks = cfg.getAllBlocks().size();
+                    event.commit();
+                  }
+                  return cfg;
                 }
               });
 
+  /**
+   * Returns a short description of the method, lambda or initializer a CFG is built for, as
+   * reported in JFR events.
+   */
+  static String describe(UnderlyingAST ast) {
+    if (ast instanceof UnderlyingAST.CFGMethod cfgMethod) {
+      return describe(cfgMethod.getClassTree()) + "." + ASTHelpers.getSymbol(cfgMethod.getMethod());
+    } else if (ast instanceof UnderlyingAST.CFGLambda cfgLambda) {
+      MethodTree enclMethod = cfgLambda.getEnclosingMethod();
+      return "lambda in "
+          + describe(cfgLambda.getClassTree())
+          + (enclMethod != null ? "." + ASTHelpers.getSymbol(enclMethod) : "");
+    } else if (ast instanceof UnderlyingAST.CFGStatement cfgStatement) {
+      return "initializer in " + describe(cfgStatement.getClassTree());
+    }
+    return ast.getKind().toString();
+  }
+
+  private static String describe(ClassTree classTree) {
+    Symbol.ClassSymbol classSymbol = ASTHelpers.getSymbol(classTree);
+    return classSymbol.getQualifiedName().toString();
+  }
+
   /**
    * Run the {@code transfer} dataflow analysis over the method, lambda or initializer which is the
    * leaf of the {@code path}.
@@ -156,8 +222,8 @@ public final class DataFlow {
     @SuppressWarnings("unchecked")
     RunOnceForwardAnalysisImpl<A, S, T> analysis =
         (RunOnceForwardAnalysisImpl<A, S, T>) analysisCache.getUnchecked(aparams);
-    if (performAnalysis) {
-      analysis.performAnalysis(cfg);
+    if (performAnalysis && !analysis.isPerformed()) {
+      performAnalysis(analysis, cfg, path, env);
     }
 
     return new Result<>() {
@@ -170,9 +236,62 @@ public final class DataFlow {
       public ControlFlowGraph getControlFlowGraph() {
         return cfg;
       }
+
+      @Override
+      public boolean isBudgetExceeded() {
+        return analysis.getExceededBudget() != null;
+      }
     };
   }
 
+  /**
+   * Performs an analysis, recording its time in the {@link SlowMethodReport} and warning if it
+   * exceeds its budget.
+   */
+  private void performAnalysis(
+      RunOnceForwardAnalysisImpl<?, ?, ?> analysis,
+      ControlFlowGraph cfg,
+      TreePath path,
+      ProcessingEnvironment env) {
+    long startNanos = slowMethodReport.isEnabled() ? slowMethodReport.startTiming() : 0;
+    analysis.performAnalysis(cfg);
+    if (slowMethodReport.isEnabled()) {
+      slowMethodReport.recordDataflow(path, startNanos);
+    }
+    String budget = analysis.getExceededBudget();
+    if (budget != null) {
+      if (slowMethodReport.isEnabled()) {
+        slowMethodReport.recordDataflowSkipped(path);
+      }
+      if (exceededBudget.add(path.getLeaf())) {
+        warnBudgetExceeded(path, budget, env);
+      }
+    }
+  }
+
+  private static void warnBudgetExceeded(TreePath path, String budget, ProcessingEnvironment env) {
+    // report on the closest enclosing method or class, as lambdas and initializers have no symbol
+    Symbol symbol = null;
+    for (TreePath p = path; p != null && symbol == null; p = p.getParentPath()) {
+      if (p.getLeaf() instanceof MethodTree methodTree) {
+        symbol = ASTHelpers.getSymbol(methodTree);
+      } else if (p.getLeaf() instanceof ClassTree classTree) {
+        symbol = ASTHelpers.getSymbol(classTree);
+      }
+    }
+    String code = path.getLeaf() instanceof LambdaExpressionTree ? "a lambda in " : "";
+    env.getMessager()
+        .printMessage(
+            Diagnostic.Kind.WARNING,
+            "[NullAway] dataflow analysis of "
+                + code
+                + "this code exceeded its budget of "
+                + budget
+                + " and was skipped; it is checked against declared nullness only, so errors that"
+                + " depend on its control flow may be missed",
+            symbol);
+  }
+
   /**
    * Get the control flow graph (GFG) for a given expression.
    *
@@ -251,7 +370,8 @@ public final class DataFlow {
         "Leaf of methodPath must be of type MethodTree, LambdaExpressionTree, BlockTree, or VariableTree, but was %s",
         leaf.getClass().getName());
 
-    return dataflow(path, context, transfer, true).getAnalysis().getRegularExitStore();
+    Result<A, S, T> result = dataflow(path, context, transfer, true);
+    return result.isBudgetExceeded() ? null : result.getAnalysis().getRegularExitStore();
   }
 
   public <A extends AbstractValue<A>, S extends Store<S>, T extends ForwardTransferFunction<A, S>>
@@ -323,13 +443,32 @@ public final class DataFlow {
     // *before* any unboxing operations (like invoking intValue() on an Integer).  This is
     // important,
     // e.g., for actually checking that the unboxing operation is legal.
-    return dataflow(enclosingPath, context, transfer, true).getAnalysis().getResult();
+    Result<A, S, T> result = dataflow(enclosingPath, context, transfer, true);
+    return result.isBudgetExceeded() ? null : result.getAnalysis().getResult();
+  }
+
+  /**
+   * Check whether the dataflow analysis of a method, lambda or initializer exceeded its budget, in
+   * which case no results are available for it.
+   *
+   * @param path path to method, lambda or initializer
+   * @return true if an analysis of the leaf of {@code path} exceeded its budget
+   */
+  public boolean isBudgetExceeded(TreePath path) {
+    return exceededBudget.contains(path.getLeaf());
   }
 
   /** clear the CFG and analysis caches */
   public void invalidateCaches() {
     cfgCache.invalidateAll();
     analysisCache.invalidateAll();
+    exceededBudget.clear();
+  }
+
+  /** Reports the CFG and analysis caches, see {@link CacheFootprintReport}. */
+  public void reportCacheFootprint(CacheFootprintReport report) {
+    report.add("DataFlow.cfgCache", cfgCache.size(), cfgCache.asMap());
+    report.add("DataFlow.analysisCache", analysisCache.size(), analysisCache.asMap());
   }
 
   /**
@@ -483,5 +622,8 @@ public final class DataFlow {
     Analysis<A, S, T> getAnalysis();
 
     ControlFlowGraph getControlFlowGraph();
+
+    /** Returns true if the analysis exceeded its budget, in which case its results are unusable. */
+    boolean isBudgetExceeded();
   }
 }
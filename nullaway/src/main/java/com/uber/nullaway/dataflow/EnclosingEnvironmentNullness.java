@@ -5,9 +5,14 @@ import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.LambdaExpressionTree;
 import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
 import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.CacheFootprintReport;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import javax.lang.model.element.NestingKind;
 import org.jspecify.annotations.Nullable;
 
@@ -46,6 +51,33 @@ public class EnclosingEnvironmentNullness {
     environmentNullness.clear();
   }
 
+  /**
+   * Removes the mappings for lambdas and classes other than the leaf of {@code path} and its
+   * ancestors. Error Prone visits a lambda or class body right after the lambda or class itself, so
+   * once NullAway reaches a tree outside of it, the mapping is not needed anymore. This keeps the
+   * number of live mappings bounded by the nesting depth, rather than by the number of lambdas in
+   * the top-level class.
+   *
+   * @param path path to the tree being visited
+   */
+  public void retainEnclosing(TreePath path) {
+    if (environmentNullness.isEmpty()) {
+      return;
+    }
+    Set<Tree> enclosing = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (TreePath p = path; p != null; p = p.getParentPath()) {
+      enclosing.add(p.getLeaf());
+    }
+    environmentNullness.keySet().removeIf(t -> !enclosing.contains(t));
+  }
+
+  public void reportCacheFootprint(CacheFootprintReport report) {
+    report.add(
+        "EnclosingEnvironmentNullness.environmentNullness",
+        environmentNullness.size(),
+        environmentNullness);
+  }
+
   /** Is t an anonymous inner class or a lambda? */
   private boolean isValidTreeType(Tree t) {
     if (t instanceof LambdaExpressionTree) {
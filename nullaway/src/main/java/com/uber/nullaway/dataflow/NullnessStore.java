@@ -159,6 +159,11 @@ public class NullnessStore implements Store<NullnessStore> {
     return contents.getOrDefault(accessPath, Nullness.NULLABLE);
   }
 
+  /** Returns the number of access paths with a nullness value in this store. */
+  int size() {
+    return contents.size();
+  }
+
   public Builder toBuilder() {
     return new Builder(this);
   }
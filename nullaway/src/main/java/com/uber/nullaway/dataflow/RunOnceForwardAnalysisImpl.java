@@ -1,14 +1,23 @@
 package com.uber.nullaway.dataflow;
 
+import com.uber.nullaway.jfr.DataflowAnalysisEvent;
 import org.checkerframework.nullaway.dataflow.analysis.AbstractValue;
 import org.checkerframework.nullaway.dataflow.analysis.ForwardAnalysisImpl;
 import org.checkerframework.nullaway.dataflow.analysis.ForwardTransferFunction;
 import org.checkerframework.nullaway.dataflow.analysis.Store;
+import org.checkerframework.nullaway.dataflow.analysis.TransferInput;
+import org.checkerframework.nullaway.dataflow.analysis.TransferResult;
 import org.checkerframework.nullaway.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.nullaway.dataflow.cfg.node.Node;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A ForwardAnalysis implementation that overrides {@link #performAnalysis(ControlFlowGraph)} to
  * perform the analysis at most once.
+ *
+ * <p>The analysis can be given a budget of transfer function calls and of time. If it exceeds
+ * either, it is abandoned, and {@link #getExceededBudget()} describes the budget; its results must
+ * not be used.
  */
 class RunOnceForwardAnalysisImpl<
         V extends AbstractValue<V>, S extends Store<S>, T extends ForwardTransferFunction<V, S>>
@@ -16,8 +25,30 @@ class RunOnceForwardAnalysisImpl<
 
   private boolean analysisPerformed = false;
 
-  public RunOnceForwardAnalysisImpl(T transferFunction) {
+  /** Number of transfer function calls, reported in {@link DataflowAnalysisEvent}. */
+  private int transferFunctionCalls = 0;
+
+  /** Maximum number of transfer function calls, or 0 if there is no limit. */
+  private final int iterationBudget;
+
+  /** Maximum time of the analysis in milliseconds, or 0 if there is no limit. */
+  private final int timeBudgetMillis;
+
+  /** Value of {@link System#nanoTime()} past which the running analysis exceeds its budget. */
+  private long deadlineNanos = 0;
+
+  /** Description of the budget the analysis exceeded, or null if it did not exceed a budget. */
+  private @Nullable String exceededBudget = null;
+
+  /**
+   * @param transferFunction the transfer function
+   * @param iterationBudget maximum number of transfer function calls, or 0 if there is no limit
+   * @param timeBudgetMillis maximum time of the analysis in milliseconds, or 0 if there is no limit
+   */
+  public RunOnceForwardAnalysisImpl(T transferFunction, int iterationBudget, int timeBudgetMillis) {
     super(transferFunction);
+    this.iterationBudget = iterationBudget;
+    this.timeBudgetMillis = timeBudgetMillis;
   }
 
   /**
@@ -28,8 +59,71 @@ class RunOnceForwardAnalysisImpl<
   @Override
   public void performAnalysis(ControlFlowGraph cfg) {
     if (!analysisPerformed) {
-      super.performAnalysis(cfg);
+      DataflowAnalysisEvent event = new DataflowAnalysisEvent();
+      event.begin();
+      transferFunctionCalls = 0;
+      if (timeBudgetMillis > 0) {
+        deadlineNanos = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+      }
+      try {
+        super.performAnalysis(cfg);
+      } catch (BudgetExceededException e) {
+        exceededBudget = e.getMessage();
+      }
       analysisPerformed = true;
+      if (event.shouldCommit()) {
+        event.code = DataFlow.describe(cfg.getUnderlyingAST());
+        event.transferFunction = getTransferFunction().getClass().getSimpleName();
+        event.nodes = cfg.getAllNodes().size();
+        event.transferFunctionCalls = transferFunctionCalls;
+        S exitStore = exceededBudget == null ? getRegularExitStore() : null;
+        event.exitStoreSize =
+            exitStore instanceof NullnessStore nullnessStore ? nullnessStore.size() : -1;
+        event.commit();
+      }
+    }
+  }
+
+  /** Returns true if the analysis has been performed, whether or not it exceeded its budget. */
+  boolean isPerformed() {
+    return analysisPerformed;
+  }
+
+  /**
+   * Returns a description of the budget the analysis exceeded, e.g., {@code 1000 transfer function
+   * calls}, or null if the analysis did not exceed a budget.
+   */
+  @Nullable String getExceededBudget() {
+    return exceededBudget;
+  }
+
+  @Override
+  protected TransferResult<V, S> callTransferFunction(Node node, TransferInput<V, S> input) {
+    transferFunctionCalls++;
+    // transfer functions are also called to compute results after the analysis; only the running
+    // analysis is subject to the budget
+    if (isRunning()) {
+      if (iterationBudget > 0 && transferFunctionCalls > iterationBudget) {
+        throw new BudgetExceededException(iterationBudget + " transfer function calls");
+      }
+      if (timeBudgetMillis > 0 && System.nanoTime() - deadlineNanos > 0) {
+        throw new BudgetExceededException(timeBudgetMillis + " ms");
+      }
+    }
+    return super.callTransferFunction(node, input);
+  }
+
+  /**
+   * Thrown to abandon an analysis that exceeds its budget. Nested analyses, e.g., of lambdas, catch
+   * their own exception in {@link #performAnalysis(ControlFlowGraph)}.
+   */
+  private static final class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    BudgetExceededException(String budget) {
+      // no stack trace, since this exception is used for control flow
+      super(budget, null, false, false);
     }
   }
 }
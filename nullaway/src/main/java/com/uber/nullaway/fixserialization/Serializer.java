@@ -27,13 +27,14 @@ import com.uber.nullaway.ErrorMessage;
 import com.uber.nullaway.fixserialization.adapters.SerializationAdapter;
 import com.uber.nullaway.fixserialization.out.ErrorInfo;
 import com.uber.nullaway.fixserialization.out.FieldInitializationInfo;
+import com.uber.nullaway.jfr.FixSerializationEvent;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -81,11 +82,26 @@ public class Serializer {
    * @param errorInfo ErrorMessage object.
    */
   public void serializeErrorInfo(ErrorInfo errorInfo) {
+    FixSerializationEvent event = new FixSerializationEvent();
+    event.begin();
     errorInfo.initEnclosing();
+    Path path;
+    int bytes;
     if (isXmlMode()) {
-      appendToFile(buildErrorXml(errorInfo), errorOutputXmlPath);
+      path = errorOutputXmlPath;
+      bytes = appendToFile(buildErrorXml(errorInfo), path);
     } else {
-      appendToFile(serializationAdapter.serializeError(errorInfo), errorOutputPath);
+      path = errorOutputPath;
+      bytes = appendToFile(serializationAdapter.serializeError(errorInfo), path);
+    }
+    if (event.shouldCommit()) {
+      event.outputFile = path.toString();
+      event.subject =
+          serializeSymbol(errorInfo.getRegionClass())
+              + "#"
+              + serializeSymbol(errorInfo.getRegionMember());
+      event.bytes = bytes;
+      event.commit();
     }
   }
 
@@ -114,7 +130,16 @@ public class Serializer {
   }
 
   public void serializeFieldInitializationInfo(FieldInitializationInfo info) {
-    appendToFile(info.tabSeparatedToString(serializationAdapter), fieldInitializationOutputPath);
+    FixSerializationEvent event = new FixSerializationEvent();
+    event.begin();
+    int bytes =
+        appendToFile(
+            info.tabSeparatedToString(serializationAdapter), fieldInitializationOutputPath);
+    if (event.shouldCommit()) {
+      event.outputFile = fieldInitializationOutputPath.toString();
+      event.bytes = bytes;
+      event.commit();
+    }
   }
 
   /** Cleared the content of the file if exists and writes the header in the first line. */
@@ -126,7 +151,7 @@ public class Serializer {
     }
     try (OutputStream os = new FileOutputStream(path.toFile())) {
       header += "\n";
-      os.write(header.getBytes(Charset.defaultCharset()), 0, header.length());
+      os.write(header.getBytes(StandardCharsets.UTF_8));
       os.flush();
     } catch (IOException e) {
       throw new RuntimeException("Could not finish resetting File at Path: " + path, e);
@@ -151,7 +176,7 @@ public class Serializer {
   private void serializeVersion(@Nullable String outputDirectory) {
     Path versionOutputPath = Paths.get(outputDirectory).resolve("serialization_version.txt");
     try (Writer fileWriter =
-        Files.newBufferedWriter(versionOutputPath.toFile().toPath(), Charset.defaultCharset())) {
+        Files.newBufferedWriter(versionOutputPath.toFile().toPath(), StandardCharsets.UTF_8)) {
       fileWriter.write(Integer.toString(serializationAdapter.getSerializationVersion()));
     } catch (IOException exception) {
       throw new RuntimeException("Could not serialize output version", exception);
@@ -175,17 +200,27 @@ public class Serializer {
     }
   }
 
-  private void appendToFile(String row, Path path) {
+  /**
+   * Appends a row to a file.
+   *
+   * @param row the row, without a line terminator
+   * @param path the file
+   * @return the number of bytes written, in UTF-8
+   */
+  private int appendToFile(String row, Path path) {
     // Since there is no method available in API of either javac or errorprone to inform NullAway
     // that the analysis is finished, we cannot open a single stream and flush it within a finalize
     // method. Must open and close a new stream everytime we are appending a new line to a file.
     if (row == null || row.equals("")) {
-      return;
+      return 0;
     }
     row = row + "\n";
+    // the length of the row in chars would undercount non-ASCII names
+    byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
     try (OutputStream os = new FileOutputStream(path.toFile(), true)) {
-      os.write(row.getBytes(Charset.defaultCharset()), 0, row.length());
+      os.write(bytes);
       os.flush();
+      return bytes.length;
     } catch (IOException e) {
       throw new RuntimeException("Error happened for writing at file: " + path, e);
     }
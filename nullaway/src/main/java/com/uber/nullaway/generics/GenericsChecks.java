@@ -44,6 +44,7 @@ import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.TreeInfo;
 import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Names;
+import com.uber.nullaway.CacheFootprintReport;
 import com.uber.nullaway.CodeAnnotationInfo;
 import com.uber.nullaway.Config;
 import com.uber.nullaway.ErrorBuilder;
@@ -58,6 +59,7 @@ import com.uber.nullaway.dataflow.NullnessStore;
 import com.uber.nullaway.generics.ConstraintSolver.UnsatisfiableConstraintsException;
 import com.uber.nullaway.generics.GenericsUtils.MethodRefTypeRelationKind;
 import com.uber.nullaway.handlers.Handler;
+import com.uber.nullaway.jfr.GenericInferenceEvent;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -1211,6 +1213,32 @@ public final class GenericsChecks {
       @Nullable Type typeFromAssignmentContext,
       boolean assignedToLocal,
       boolean calledFromDataflow) {
+    GenericInferenceEvent event = new GenericInferenceEvent();
+    event.begin();
+    CallInferenceResult result =
+        doRunInferenceForCall(
+            state, path, callTree, typeFromAssignmentContext, assignedToLocal, calledFromDataflow);
+    if (event.shouldCommit()) {
+      event.method = getMethodSymbolForCall(callTree).toString();
+      event.succeeded = result instanceof InferenceSuccess;
+      event.inferredTypeVariables =
+          result instanceof InferenceSuccess successResult
+              ? successResult.typeVarNullability.size()
+              : 0;
+      event.calledFromDataflow = calledFromDataflow;
+      event.commit();
+    }
+    return result;
+  }
+
+  /** Implementation of {@link #runInferenceForCall}, which records it in a JFR event. */
+  private CallInferenceResult doRunInferenceForCall(
+      VisitorState state,
+      @Nullable TreePath path,
+      ExpressionTree callTree,
+      @Nullable Type typeFromAssignmentContext,
+      boolean assignedToLocal,
+      boolean calledFromDataflow) {
     ConstraintSolver solver = makeSolver(state, analysis);
     // allCalls tracks the top-level call and any nested calls that also require inference
     Set<Tree> allCalls = new LinkedHashSet<>();
@@ -3450,6 +3478,24 @@ public final class GenericsChecks {
     nestedNullabilityRepairInProgress.clear();
   }
 
+  /** Reports the caches of inferred types, see {@link CacheFootprintReport}. */
+  public void reportCacheFootprint(CacheFootprintReport report) {
+    report.add(
+        "GenericsChecks.inferredTypeVarNullabilityForGenericCalls",
+        inferredTypeVarNullabilityForGenericCalls.size(),
+        inferredTypeVarNullabilityForGenericCalls);
+    report.add(
+        "GenericsChecks.inferredPolyExpressionTypes",
+        inferredPolyExpressionTypes.size(),
+        inferredPolyExpressionTypes);
+    report.add(
+        "GenericsChecks.inferredVarLocalTypes",
+        inferredVarLocalTypes.size(),
+        inferredVarLocalTypes);
+    report.add(
+        "GenericsChecks.varLocalDeclarations", varLocalDeclarations.size(), varLocalDeclarations);
+  }
+
   public boolean isNullableAnnotated(Type type) {
     return Nullness.hasNullableAnnotation(type.getAnnotationMirrors().stream(), config);
   }
@@ -26,6 +26,7 @@ import static com.google.errorprone.util.ASTHelpers.getEnclosedElements;
 import static com.uber.nullaway.NullabilityUtil.castToNonNull;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.MethodTree;
@@ -33,6 +34,8 @@ import com.sun.tools.javac.code.Symbol;
 import com.uber.nullaway.ErrorMessage;
 import com.uber.nullaway.NullAway;
 import com.uber.nullaway.NullabilityUtil;
+import com.uber.nullaway.OverrideInfo;
+import com.uber.nullaway.handlers.contract.ContractCache;
 import com.uber.nullaway.handlers.contract.ContractUtils;
 import java.util.Collections;
 import java.util.Set;
@@ -80,7 +83,7 @@ public abstract class AbstractFieldContractHandler implements Handler {
       return;
     }
     Symbol.MethodSymbol closestOverriddenMethod =
-        NullabilityUtil.getClosestOverriddenMethod(methodSymbol, state.getTypes());
+        OverrideInfo.instance(state.context).getClosestOverriddenMethod(methodSymbol, state);
     if (closestOverriddenMethod == null) {
       return;
     }
@@ -238,6 +241,21 @@ public abstract class AbstractFieldContractHandler implements Handler {
     return true;
   }
 
+  /**
+   * Returns the fields named by this handler's annotation on a method, resolved against the
+   * method's enclosing class. The result is cached per method, since it is needed at every call
+   * site of the method.
+   *
+   * @param methodSymbol the method
+   * @param state the current visitor state
+   * @return map from field names, with receivers trimmed, to the resolved fields; names that cannot
+   *     be resolved are left out, and the map is empty if the method is not annotated
+   */
+  protected ImmutableMap<String, VariableElement> getFieldContract(
+      Symbol.MethodSymbol methodSymbol, VisitorState state) {
+    return ContractCache.instance(state.context).getFieldContract(methodSymbol, annotName);
+  }
+
   /**
    * Finds a specific instance field of a class or its superclasses
    *
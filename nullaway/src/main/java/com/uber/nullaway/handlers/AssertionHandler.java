@@ -53,8 +53,9 @@ public class AssertionHandler implements Handler {
       AccessPathNullnessPropagation.Updates thenUpdates,
       AccessPathNullnessPropagation.Updates elseUpdates,
       AccessPathNullnessPropagation.Updates bothUpdates) {
-    if (!methodNameUtil.isUtilInitialized()) {
-      methodNameUtil.initializeMethodNames(callee.name.table);
+    methodNameUtil.initialize(state);
+    if (!methodNameUtil.mayBeAssertionMethod(callee)) {
+      return NullnessHint.UNKNOWN;
     }
 
     // Look for statements of the form: assertThat(A).isNotNull() or
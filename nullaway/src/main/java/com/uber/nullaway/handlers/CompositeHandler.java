@@ -40,6 +40,7 @@ import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types;
 import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.CacheFootprintReport;
 import com.uber.nullaway.ErrorMessage;
 import com.uber.nullaway.MethodParameterNullness;
 import com.uber.nullaway.NullAway;
@@ -82,6 +83,13 @@ class CompositeHandler implements Handler {
     }
   }
 
+  @Override
+  public void onReportCacheFootprint(CacheFootprintReport report) {
+    for (Handler h : handlers) {
+      h.onReportCacheFootprint(report);
+    }
+  }
+
   @Override
   public void onMatchMethod(MethodTree tree, MethodAnalysisContext methodAnalysisContext) {
     for (Handler h : handlers) {
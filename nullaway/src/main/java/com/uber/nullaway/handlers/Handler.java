@@ -36,6 +36,7 @@ import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types;
 import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.CacheFootprintReport;
 import com.uber.nullaway.ErrorMessage;
 import com.uber.nullaway.LibraryModels;
 import com.uber.nullaway.MethodParameterNullness;
@@ -82,6 +83,16 @@ public interface Handler {
     // NoOp
   }
 
+  /**
+   * Called when the sizes of NullAway's caches are measured, if a cache footprint report is
+   * requested. Handlers keeping significant state should add it to the report.
+   *
+   * @param report The report to add caches to.
+   */
+  default void onReportCacheFootprint(CacheFootprintReport report) {
+    // NoOp
+  }
+
   /**
    * Called when NullAway first matches a particular method node.
    *
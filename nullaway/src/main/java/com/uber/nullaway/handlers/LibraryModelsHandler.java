@@ -37,7 +37,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
@@ -49,6 +51,7 @@ import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.ListBuffer;
 import com.sun.tools.javac.util.Name;
 import com.sun.tools.javac.util.Names;
+import com.uber.nullaway.CacheFootprintReport;
 import com.uber.nullaway.CodeAnnotationInfo;
 import com.uber.nullaway.Config;
 import com.uber.nullaway.LibraryModels;
@@ -61,19 +64,28 @@ import com.uber.nullaway.dataflow.AccessPath;
 import com.uber.nullaway.dataflow.AccessPathNullnessPropagation;
 import com.uber.nullaway.generics.GenericsChecks;
 import com.uber.nullaway.handlers.stream.StreamTypeRecord;
+import com.uber.nullaway.jfr.LibraryModelsLoadEvent;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo.Annotation;
+import com.uber.nullaway.libmodel.PrecompiledModels;
 import com.uber.nullaway.librarymodel.AddAnnotationToNestedTypeVisitor;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import org.checkerframework.nullaway.dataflow.cfg.node.FieldAccessNode;
 import org.checkerframework.nullaway.dataflow.cfg.node.MethodInvocationNode;
@@ -89,16 +101,66 @@ import org.jspecify.annotations.Nullable;
  */
 public class LibraryModelsHandler implements Handler {
 
+  /**
+   * Precompiled models, kept across compilations if {@link Config#reuseLibraryModels()} is set.
+   * Models are only read through the class loader of NullAway itself, so a static cache is safe.
+   */
+  private static volatile @Nullable List<PrecompiledModels> reusedPrecompiledModels;
+
+  /** Like {@link #reusedPrecompiledModels}, for astubx models, keyed by the relevant flags. */
+  private static final ConcurrentMap<ExternalModelsKey, ExternalStubxLibraryModels>
+      reusedExternalModels = new ConcurrentHashMap<>();
+
+  private record ExternalModelsKey(
+      boolean jarInferEnabled, int androidApiLevel, boolean jspecifyJdkModels) {}
+
+  /**
+   * Like {@link #reusedPrecompiledModels}, for the combined models of all sources and their index,
+   * keyed by the flags that the combined models depend on. Compilations with the same flags then
+   * only index the models by the {@link Name}s of their own {@link Context}.
+   */
+  private static final ConcurrentMap<LibraryModelsKey, LoadedLibraryModels> reusedLibraryModels =
+      new ConcurrentHashMap<>();
+
+  private record LibraryModelsKey(
+      boolean jspecifyMode,
+      ImmutableSet<String> skippedLibraryModels,
+      @Nullable ExternalModelsKey externalModelsKey) {}
+
+  /**
+   * The combined models of all sources, with their index by method name.
+   *
+   * @param models the combined models
+   * @param methodNameIndex the models of methods in {@code models}, by method name
+   * @param externalModels the astubx models, whose version 2 files are read per class; null if
+   *     none are loaded
+   * @param modelSets the number of sources of the combined models
+   * @param precompiledModelFiles the number of precompiled model files among the sources
+   */
+  private record LoadedLibraryModels(
+      LibraryModels models,
+      OptimizedLibraryModels.MethodNameIndex methodNameIndex,
+      @Nullable ExternalStubxLibraryModels externalModels,
+      int modelSets,
+      int precompiledModelFiles) {}
+
   private final Config config;
   private Handler mainHandler;
   private final LibraryModels libraryModels;
+  private final OptimizedLibraryModels.MethodNameIndex methodNameIndex;
+
+  /** The astubx models, whose version 2 files are read per class; null if none are loaded. */
+  private final @Nullable ExternalStubxLibraryModels externalModels;
 
   private @Nullable OptimizedLibraryModels optLibraryModels;
 
   public LibraryModelsHandler(Config config) {
     super();
     this.config = config;
-    libraryModels = loadLibraryModels(config);
+    LoadedLibraryModels loaded = loadLibraryModels(config);
+    libraryModels = loaded.models();
+    methodNameIndex = loaded.methodNameIndex();
+    externalModels = loaded.externalModels();
   }
 
   @Initializer
@@ -106,6 +168,15 @@ public class LibraryModelsHandler implements Handler {
     this.mainHandler = mainHandler;
   }
 
+  @Override
+  public void onReportCacheFootprint(CacheFootprintReport report) {
+    report.add("LibraryModelsHandler.libraryModels", countModels(libraryModels), libraryModels);
+    if (optLibraryModels != null) {
+      report.add(
+          "LibraryModelsHandler.optLibraryModels", optLibraryModels.size(), optLibraryModels);
+    }
+  }
+
   @Override
   public boolean onOverrideFieldNullability(Symbol field) {
     return isNullableFieldInLibraryModels(field);
@@ -451,11 +522,27 @@ public class LibraryModelsHandler implements Handler {
 
   private OptimizedLibraryModels getOptLibraryModels(Context context) {
     if (optLibraryModels == null) {
-      optLibraryModels = new OptimizedLibraryModels(libraryModels, context);
+      optLibraryModels =
+          new OptimizedLibraryModels(methodNameIndex, context, externalModels, config);
     }
     return optLibraryModels;
   }
 
+  /** Returns the number of entries of the main kinds of library models. */
+  private static int countModels(LibraryModels models) {
+    return models.failIfNullParameters().size()
+        + models.explicitlyNullableParameters().size()
+        + models.nonNullParameters().size()
+        + models.nullImpliesTrueParameters().size()
+        + models.nullImpliesFalseParameters().size()
+        + models.ensuresNonNullIfTrueMethodCalls().size()
+        + models.nullImpliesNullParameters().size()
+        + models.nullableReturns().size()
+        + models.nonNullReturns().size()
+        + models.castToNonNullMethods().size()
+        + models.nullableFields().size();
+  }
+
   private void setUnconditionalArgumentNullness(
       AccessPathNullnessPropagation.Updates bothUpdates,
       List<Node> arguments,
@@ -473,7 +560,12 @@ public class LibraryModelsHandler implements Handler {
   @Override
   public boolean onOverrideClassTypeVariableUpperBound(String className, int index) {
     ImmutableSet<Integer> res = libraryModels.typeVariablesWithNullableUpperBounds().get(className);
-    return res.contains(index);
+    if (res.contains(index)) {
+      return true;
+    }
+    LibraryModels classModels = modelsForClass(className);
+    return classModels != null
+        && classModels.typeVariablesWithNullableUpperBounds().containsEntry(className, index);
   }
 
   @Override
@@ -485,9 +577,18 @@ public class LibraryModelsHandler implements Handler {
     return res.contains(index);
   }
 
+  /** Returns the models of a class that are read on demand from version 2 astubx files, if any. */
+  private @Nullable LibraryModels modelsForClass(String className) {
+    return externalModels == null ? null : externalModels.modelsForClass(className);
+  }
+
   @Override
   public boolean onOverrideNullMarkedClasses(String className) {
-    return libraryModels.nullMarkedClasses().contains(className);
+    if (libraryModels.nullMarkedClasses().contains(className)) {
+      return true;
+    }
+    LibraryModels classModels = modelsForClass(className);
+    return classModels != null && classModels.nullMarkedClasses().contains(className);
   }
 
   @Override
@@ -625,16 +726,138 @@ public class LibraryModelsHandler implements Handler {
     return libraryModels.customStreamNullabilitySpecs();
   }
 
-  private static LibraryModels loadLibraryModels(Config config) {
-    Iterable<LibraryModels> externalLibraryModels =
-        ServiceLoader.load(LibraryModels.class, LibraryModels.class.getClassLoader());
+  /**
+   * Loads all library models. If {@link Config#reuseLibraryModels()} is set, the models combined
+   * by an earlier compilation with the same flags are reused.
+   */
+  private static LoadedLibraryModels loadLibraryModels(Config config) {
+    LibraryModelsLoadEvent event = new LibraryModelsLoadEvent();
+    event.begin();
+    ExternalModelsKey externalModelsKey =
+        config.isJarInferEnabled() || config.isJSpecifyJDKModels()
+            ? new ExternalModelsKey(
+                config.isJarInferEnabled(),
+                config.getJarInferAndroidApiLevel(),
+                config.isJSpecifyJDKModels())
+            : null;
+    LoadedLibraryModels loaded;
+    if (config.reuseLibraryModels()) {
+      LibraryModelsKey key =
+          new LibraryModelsKey(
+              config.isJSpecifyMode(),
+              ImmutableSet.copyOf(config.getSkippedLibraryModels()),
+              externalModelsKey);
+      loaded = reusedLibraryModels.get(key);
+      event.reusedLibraryModels = loaded != null;
+      if (loaded == null) {
+        // concurrent compilations may both combine the models, which is harmless
+        loaded = combineLibraryModels(config, externalModelsKey, event);
+        reusedLibraryModels.put(key, loaded);
+      } else {
+        event.reusedPrecompiledModels = true;
+        event.reusedAstubxModels = loaded.externalModels() != null;
+      }
+    } else {
+      loaded = combineLibraryModels(config, externalModelsKey, event);
+    }
+    if (event.shouldCommit()) {
+      event.modelSets = loaded.modelSets();
+      event.precompiledModelFiles = loaded.precompiledModelFiles();
+      event.jarInferEnabled = config.isJarInferEnabled();
+      event.jspecifyJdkModels = config.isJSpecifyJDKModels();
+      event.commit();
+    }
+    return loaded;
+  }
+
+  /** Loads the models of all sources, and combines and indexes them. */
+  private static LoadedLibraryModels combineLibraryModels(
+      Config config, @Nullable ExternalModelsKey externalModelsKey, LibraryModelsLoadEvent event) {
+    ClassLoader classLoader = castToNonNull(LibraryModels.class.getClassLoader());
     ImmutableSet.Builder<LibraryModels> libModelsBuilder = new ImmutableSet.Builder<>();
-    libModelsBuilder.add(new DefaultLibraryModels(config)).addAll(externalLibraryModels);
-    if (config.isJarInferEnabled() || config.isJSpecifyJDKModels()) {
-      libModelsBuilder.add(
-          new ExternalStubxLibraryModels(config.isJarInferEnabled(), config.isJSpecifyJDKModels()));
+    libModelsBuilder.add(new DefaultLibraryModels(config));
+    // Providers whose models were precompiled are not instantiated; their models are read directly
+    // from the precompiled file instead
+    Set<String> precompiledProviders = new HashSet<>();
+    for (PrecompiledModels precompiledModels : getPrecompiledModels(classLoader, config, event)) {
+      libModelsBuilder.add(new PrecompiledLibraryModels(precompiledModels));
+      precompiledProviders.addAll(precompiledModels.providers());
+    }
+    for (ServiceLoader.Provider<LibraryModels> provider :
+        ServiceLoader.load(LibraryModels.class, classLoader).stream().toList()) {
+      if (!precompiledProviders.contains(provider.type().getName())) {
+        libModelsBuilder.add(provider.get());
+      }
+    }
+    ExternalStubxLibraryModels externalModels = null;
+    if (externalModelsKey != null) {
+      ExternalStubxLibraryModels models =
+          config.reuseLibraryModels() ? reusedExternalModels.get(externalModelsKey) : null;
+      event.reusedAstubxModels = models != null;
+      if (models == null) {
+        models =
+            config.reuseLibraryModels()
+                ? reusedExternalModels.computeIfAbsent(
+                    externalModelsKey, LibraryModelsHandler::loadExternalModels)
+                : loadExternalModels(externalModelsKey);
+      }
+      externalModels = models;
+      libModelsBuilder.add(models);
+    }
+    ImmutableSet<LibraryModels> libModels = libModelsBuilder.build();
+    CombinedLibraryModels combinedLibraryModels = new CombinedLibraryModels(libModels, config);
+    return new LoadedLibraryModels(
+        combinedLibraryModels,
+        OptimizedLibraryModels.MethodNameIndex.of(combinedLibraryModels),
+        externalModels,
+        libModels.size(),
+        (int) libModels.stream().filter(m -> m instanceof PrecompiledLibraryModels).count());
+  }
+
+  private static ExternalStubxLibraryModels loadExternalModels(ExternalModelsKey key) {
+    return ExternalStubxLibraryModels.load(
+        key.jarInferEnabled(), key.androidApiLevel(), key.jspecifyJdkModels());
+  }
+
+  private static List<PrecompiledModels> getPrecompiledModels(
+      ClassLoader classLoader, Config config, LibraryModelsLoadEvent event) {
+    if (!config.reuseLibraryModels()) {
+      return loadPrecompiledModels(classLoader);
+    }
+    List<PrecompiledModels> precompiledModels = reusedPrecompiledModels;
+    event.reusedPrecompiledModels = precompiledModels != null;
+    if (precompiledModels == null) {
+      // concurrent compilations may both load the models, which is harmless
+      precompiledModels = loadPrecompiledModels(classLoader);
+      reusedPrecompiledModels = precompiledModels;
     }
-    return new CombinedLibraryModels(libModelsBuilder.build(), config);
+    return precompiledModels;
+  }
+
+  /**
+   * Loads all precompiled models files on the processor path. A file that cannot be read, e.g.,
+   * because it was written with a different format version, is skipped, so that the models of its
+   * providers are loaded through the {@link ServiceLoader} instead.
+   */
+  private static List<PrecompiledModels> loadPrecompiledModels(ClassLoader classLoader) {
+    List<PrecompiledModels> result = new ArrayList<>();
+    Enumeration<URL> resources;
+    try {
+      resources = classLoader.getResources(PrecompiledModels.RESOURCE_LOCATION);
+    } catch (IOException e) {
+      astubxLoadLog("Looking up precompiled library models failed: " + e.getMessage());
+      return result;
+    }
+    while (resources.hasMoreElements()) {
+      URL url = resources.nextElement();
+      try (InputStream in = new BufferedInputStream(url.openStream())) {
+        result.add(PrecompiledModels.read(in, url.toString()));
+        astubxLoadLog("Loaded precompiled library models from " + url);
+      } catch (IOException e) {
+        astubxLoadLog("Loading precompiled library models failed: " + e.getMessage());
+      }
+    }
+    return result;
   }
 
   private static class DefaultLibraryModels implements LibraryModels {
@@ -1315,8 +1538,6 @@ public class LibraryModelsHandler implements Handler {
 
   private static class CombinedLibraryModels implements LibraryModels {
 
-    private final Config config;
-
     private final ImmutableSetMultimap<MethodRef, Integer> failIfNullParameters;
 
     private final ImmutableSetMultimap<MethodRef, Integer> explicitlyNullableParameters;
@@ -1352,7 +1573,6 @@ public class LibraryModelsHandler implements Handler {
         nestedAnnotationsForMethods;
 
     CombinedLibraryModels(Iterable<LibraryModels> models, Config config) {
-      this.config = config;
       ImmutableSetMultimap.Builder<MethodRef, Integer> failIfNullParametersBuilder =
           new ImmutableSetMultimap.Builder<>();
       ImmutableSetMultimap.Builder<MethodRef, Integer> explicitlyNullableParametersBuilder =
@@ -1383,66 +1603,66 @@ public class LibraryModelsHandler implements Handler {
           nestedAnnotationsBuilder = new LinkedHashMap<>();
       for (LibraryModels libraryModels : models) {
         for (Map.Entry<MethodRef, Integer> entry : libraryModels.failIfNullParameters().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           failIfNullParametersBuilder.put(entry);
         }
         for (Map.Entry<MethodRef, Integer> entry :
             libraryModels.explicitlyNullableParameters().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           explicitlyNullableParametersBuilder.put(entry);
         }
         for (Map.Entry<MethodRef, Integer> entry : libraryModels.nonNullParameters().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           nonNullParametersBuilder.put(entry);
         }
         for (Map.Entry<MethodRef, Integer> entry :
             libraryModels.nullImpliesTrueParameters().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           nullImpliesTrueParametersBuilder.put(entry);
         }
         for (Map.Entry<MethodRef, Integer> entry :
             libraryModels.nullImpliesFalseParameters().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           nullImpliesFalseParametersBuilder.put(entry);
         }
         for (Map.Entry<MethodRef, MethodRef> entry :
             libraryModels.ensuresNonNullIfTrueMethodCalls().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           ensuresNonNullIfTrueMethodCallsBuilder.put(entry);
         }
         for (Map.Entry<MethodRef, Integer> entry :
             libraryModels.nullImpliesNullParameters().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           nullImpliesNullParametersBuilder.put(entry);
         }
         for (MethodRef name : libraryModels.nullableReturns()) {
-          if (shouldSkipModel(name)) {
+          if (shouldSkipModel(name, config)) {
             continue;
           }
           nullableReturnsBuilder.add(name);
         }
         for (MethodRef name : libraryModels.nonNullReturns()) {
-          if (shouldSkipModel(name)) {
+          if (shouldSkipModel(name, config)) {
             continue;
           }
           nonNullReturnsBuilder.add(name);
         }
         for (Map.Entry<MethodRef, Integer> entry : libraryModels.castToNonNullMethods().entries()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           castToNonNullMethodsBuilder.put(entry);
@@ -1462,7 +1682,7 @@ public class LibraryModelsHandler implements Handler {
         }
         for (Map.Entry<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>> entry :
             libraryModels.nestedAnnotationsForMethods().entrySet()) {
-          if (shouldSkipModel(entry.getKey())) {
+          if (shouldSkipModel(entry.getKey(), config)) {
             continue;
           }
           ImmutableSetMultimap.Builder<Integer, NestedAnnotationInfo> builder =
@@ -1496,7 +1716,7 @@ public class LibraryModelsHandler implements Handler {
       nestedAnnotationsForMethods = nestedAnnotationsForMethodsBuilder.build();
     }
 
-    private boolean shouldSkipModel(MethodRef key) {
+    private static boolean shouldSkipModel(MethodRef key, Config config) {
       return config.isSkippedLibraryModel(key.enclosingClass + "." + key.methodName);
     }
 
@@ -1582,6 +1802,169 @@ public class LibraryModelsHandler implements Handler {
     }
   }
 
+  /** Library models read from a {@link PrecompiledModels} file. */
+  private static class PrecompiledLibraryModels implements LibraryModels {
+
+    // views are converted once from the precompiled models, rather than on every call
+    private final ImmutableSetMultimap<MethodRef, Integer> failIfNullParameters;
+    private final ImmutableSetMultimap<MethodRef, Integer> explicitlyNullableParameters;
+    private final ImmutableSetMultimap<MethodRef, Integer> nonNullParameters;
+    private final ImmutableSetMultimap<MethodRef, Integer> nullImpliesTrueParameters;
+    private final ImmutableSetMultimap<MethodRef, Integer> nullImpliesFalseParameters;
+    private final ImmutableSetMultimap<MethodRef, MethodRef> ensuresNonNullIfTrueMethodCalls;
+    private final ImmutableSetMultimap<MethodRef, Integer> nullImpliesNullParameters;
+    private final ImmutableSet<MethodRef> nullableReturns;
+    private final ImmutableSet<MethodRef> nonNullReturns;
+    private final ImmutableMap<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+        nestedAnnotationsForMethods;
+    private final ImmutableSetMultimap<String, Integer> typeVariablesWithNullableUpperBounds;
+    private final ImmutableSetMultimap<MethodRef, Integer>
+        methodTypeVariablesWithNullableUpperBounds;
+    private final ImmutableSet<String> nullMarkedClasses;
+    private final ImmutableSetMultimap<MethodRef, Integer> castToNonNullMethods;
+    private final ImmutableSet<FieldRef> nullableFields;
+
+    PrecompiledLibraryModels(PrecompiledModels models) {
+      failIfNullParameters = positions(models, PrecompiledModels.Section.FAIL_IF_NULL_PARAMETERS);
+      explicitlyNullableParameters =
+          positions(models, PrecompiledModels.Section.EXPLICITLY_NULLABLE_PARAMETERS);
+      nonNullParameters = positions(models, PrecompiledModels.Section.NON_NULL_PARAMETERS);
+      nullImpliesTrueParameters =
+          positions(models, PrecompiledModels.Section.NULL_IMPLIES_TRUE_PARAMETERS);
+      nullImpliesFalseParameters =
+          positions(models, PrecompiledModels.Section.NULL_IMPLIES_FALSE_PARAMETERS);
+      nullImpliesNullParameters =
+          positions(models, PrecompiledModels.Section.NULL_IMPLIES_NULL_PARAMETERS);
+      methodTypeVariablesWithNullableUpperBounds =
+          positions(
+              models, PrecompiledModels.Section.METHOD_TYPE_VARIABLES_WITH_NULLABLE_UPPER_BOUNDS);
+      castToNonNullMethods = positions(models, PrecompiledModels.Section.CAST_TO_NON_NULL_METHODS);
+      nullableReturns = methods(models, PrecompiledModels.Section.NULLABLE_RETURNS);
+      nonNullReturns = methods(models, PrecompiledModels.Section.NON_NULL_RETURNS);
+      ImmutableSetMultimap.Builder<MethodRef, MethodRef> callsBuilder =
+          new ImmutableSetMultimap.Builder<>();
+      for (Map.Entry<PrecompiledModels.Method, PrecompiledModels.Method> entry :
+          models.ensuresNonNullIfTrueMethodCalls().entries()) {
+        callsBuilder.put(toMethodRef(entry.getKey()), toMethodRef(entry.getValue()));
+      }
+      ensuresNonNullIfTrueMethodCalls = callsBuilder.build();
+      ImmutableMap.Builder<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+          nestedBuilder = new ImmutableMap.Builder<>();
+      for (Map.Entry<PrecompiledModels.Method, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+          entry : models.nestedAnnotations().entrySet()) {
+        nestedBuilder.put(toMethodRef(entry.getKey()), entry.getValue());
+      }
+      nestedAnnotationsForMethods = nestedBuilder.build();
+      ImmutableSet.Builder<FieldRef> fieldsBuilder = new ImmutableSet.Builder<>();
+      for (PrecompiledModels.Field field : models.nullableFields()) {
+        fieldsBuilder.add(fieldRef(field.enclosingClass(), field.name()));
+      }
+      nullableFields = fieldsBuilder.build();
+      typeVariablesWithNullableUpperBounds = models.typeVariablesWithNullableUpperBounds();
+      nullMarkedClasses = models.nullMarkedClasses();
+    }
+
+    private static MethodRef toMethodRef(PrecompiledModels.Method method) {
+      return methodRef(method.enclosingClass(), method.signature());
+    }
+
+    private static ImmutableSetMultimap<MethodRef, Integer> positions(
+        PrecompiledModels models, PrecompiledModels.Section section) {
+      ImmutableSetMultimap.Builder<MethodRef, Integer> mapBuilder =
+          new ImmutableSetMultimap.Builder<>();
+      for (Map.Entry<PrecompiledModels.Method, Integer> entry :
+          models.methodToPositions(section).entries()) {
+        mapBuilder.put(toMethodRef(entry.getKey()), entry.getValue());
+      }
+      return mapBuilder.build();
+    }
+
+    private static ImmutableSet<MethodRef> methods(
+        PrecompiledModels models, PrecompiledModels.Section section) {
+      ImmutableSet.Builder<MethodRef> builder = new ImmutableSet.Builder<>();
+      for (PrecompiledModels.Method method : models.methodSet(section)) {
+        builder.add(toMethodRef(method));
+      }
+      return builder.build();
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> failIfNullParameters() {
+      return failIfNullParameters;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> explicitlyNullableParameters() {
+      return explicitlyNullableParameters;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> nonNullParameters() {
+      return nonNullParameters;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> nullImpliesTrueParameters() {
+      return nullImpliesTrueParameters;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> nullImpliesFalseParameters() {
+      return nullImpliesFalseParameters;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, MethodRef> ensuresNonNullIfTrueMethodCalls() {
+      return ensuresNonNullIfTrueMethodCalls;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> nullImpliesNullParameters() {
+      return nullImpliesNullParameters;
+    }
+
+    @Override
+    public ImmutableSet<MethodRef> nullableReturns() {
+      return nullableReturns;
+    }
+
+    @Override
+    public ImmutableSet<MethodRef> nonNullReturns() {
+      return nonNullReturns;
+    }
+
+    @Override
+    public ImmutableMap<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+        nestedAnnotationsForMethods() {
+      return nestedAnnotationsForMethods;
+    }
+
+    @Override
+    public ImmutableSetMultimap<String, Integer> typeVariablesWithNullableUpperBounds() {
+      return typeVariablesWithNullableUpperBounds;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> methodTypeVariablesWithNullableUpperBounds() {
+      return methodTypeVariablesWithNullableUpperBounds;
+    }
+
+    @Override
+    public ImmutableSet<String> nullMarkedClasses() {
+      return nullMarkedClasses;
+    }
+
+    @Override
+    public ImmutableSetMultimap<MethodRef, Integer> castToNonNullMethods() {
+      return castToNonNullMethods;
+    }
+
+    @Override
+    public ImmutableSet<FieldRef> nullableFields() {
+      return nullableFields;
+    }
+  }
+
   /**
    * A view of library models optimized to make lookup of {@link
    * com.sun.tools.javac.code.Symbol.MethodSymbol}s fast
@@ -1609,6 +1992,91 @@ public class LibraryModelsHandler implements Handler {
       boolean nameNotPresent(Symbol.MethodSymbol symbol) {
         return state.get(symbol.name) == null;
       }
+
+      int size() {
+        int size = 0;
+        for (Map<MethodRef, T> methodRefTMap : state.values()) {
+          size += methodRefTMap.size();
+        }
+        return size;
+      }
+    }
+
+    /**
+     * Mapping from method names to the {@link MethodRef}s with that name and some state. Unlike a
+     * {@link NameIndexedMap}, it does not depend on the {@link Names} of a compilation, so it can
+     * be built once and reused by later compilations.
+     *
+     * @param <T> the type of the associated state.
+     */
+    private record MethodTable<T>(ImmutableMap<String, ImmutableMap<MethodRef, T>> state) {
+
+      static <V> MethodTable<V> of(Set<MethodRef> refs, Function<MethodRef, V> getValForRef) {
+        Map<String, ImmutableMap.Builder<MethodRef, V>> builders = new LinkedHashMap<>();
+        for (MethodRef ref : refs) {
+          builders
+              .computeIfAbsent(ref.methodName, k -> ImmutableMap.builder())
+              .put(ref, getValForRef.apply(ref));
+        }
+        ImmutableMap.Builder<String, ImmutableMap<MethodRef, V>> state =
+            ImmutableMap.builderWithExpectedSize(builders.size());
+        for (Map.Entry<String, ImmutableMap.Builder<MethodRef, V>> entry : builders.entrySet()) {
+          state.put(entry.getKey(), entry.getValue().buildOrThrow());
+        }
+        return new MethodTable<>(state.buildOrThrow());
+      }
+
+      static <V> MethodTable<ImmutableSet<V>> ofSets(ImmutableSetMultimap<MethodRef, V> ref2Set) {
+        return of(ref2Set.keySet(), ref2Set::get);
+      }
+
+      static MethodTable<Boolean> ofBools(ImmutableSet<MethodRef> refs) {
+        return of(refs, ref -> true);
+      }
+
+      /** Returns the table keyed by the {@link Name}s of a compilation, sharing its state. */
+      NameIndexedMap<T> withNames(Names names) {
+        Map<Name, Map<MethodRef, T>> nameMapping = Maps.newHashMapWithExpectedSize(state.size());
+        for (Map.Entry<String, ImmutableMap<MethodRef, T>> entry : state.entrySet()) {
+          nameMapping.put(names.fromString(entry.getKey()), entry.getValue());
+        }
+        return new NameIndexedMap<>(nameMapping);
+      }
+    }
+
+    /** The models of methods of each kind, by method name. */
+    record MethodNameIndex(
+        MethodTable<ImmutableSet<Integer>> failIfNullParams,
+        MethodTable<ImmutableSet<Integer>> explicitlyNullableParams,
+        MethodTable<ImmutableSet<Integer>> nonNullParams,
+        MethodTable<ImmutableSet<Integer>> nullImpliesTrueParams,
+        MethodTable<ImmutableSet<Integer>> nullImpliesFalseParams,
+        MethodTable<ImmutableSet<MethodRef>> ensuresNonNullIfTrueMethodCalls,
+        MethodTable<ImmutableSet<Integer>> nullImpliesNullParams,
+        MethodTable<Boolean> nullableRet,
+        MethodTable<Boolean> nonNullRet,
+        MethodTable<ImmutableSet<Integer>> castToNonNullMethods,
+        MethodTable<ImmutableSet<Integer>> methodTypeVariablesWithNullableUpperBounds,
+        MethodTable<ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
+            nestedAnnotationsForMethods) {
+
+      static MethodNameIndex of(LibraryModels models) {
+        ImmutableMap<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>> nested =
+            models.nestedAnnotationsForMethods();
+        return new MethodNameIndex(
+            MethodTable.ofSets(models.failIfNullParameters()),
+            MethodTable.ofSets(models.explicitlyNullableParameters()),
+            MethodTable.ofSets(models.nonNullParameters()),
+            MethodTable.ofSets(models.nullImpliesTrueParameters()),
+            MethodTable.ofSets(models.nullImpliesFalseParameters()),
+            MethodTable.ofSets(models.ensuresNonNullIfTrueMethodCalls()),
+            MethodTable.ofSets(models.nullImpliesNullParameters()),
+            MethodTable.ofBools(models.nullableReturns()),
+            MethodTable.ofBools(models.nonNullReturns()),
+            MethodTable.ofSets(models.castToNonNullMethods()),
+            MethodTable.ofSets(models.methodTypeVariablesWithNullableUpperBounds()),
+            MethodTable.of(nested.keySet(), ref -> castToNonNull(nested.get(ref))));
+      }
     }
 
     private final NameIndexedMap<ImmutableSet<Integer>> failIfNullParams;
@@ -1625,126 +2093,207 @@ public class LibraryModelsHandler implements Handler {
     private final NameIndexedMap<ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
         nestedAnnotationsForMethods;
 
-    OptimizedLibraryModels(LibraryModels models, Context context) {
-      Names names = Names.instance(context);
-      failIfNullParams = makeOptimizedSetLookup(names, models.failIfNullParameters());
-      explicitlyNullableParams =
-          makeOptimizedSetLookup(names, models.explicitlyNullableParameters());
-      nonNullParams = makeOptimizedSetLookup(names, models.nonNullParameters());
-      nullImpliesTrueParams = makeOptimizedSetLookup(names, models.nullImpliesTrueParameters());
-      nullImpliesFalseParams = makeOptimizedSetLookup(names, models.nullImpliesFalseParameters());
-      ensuresNonNullIfTrueMethodCalls =
-          makeOptimizedSetLookup(names, models.ensuresNonNullIfTrueMethodCalls());
-      nullImpliesNullParams = makeOptimizedSetLookup(names, models.nullImpliesNullParameters());
-      nullableRet = makeOptimizedBoolLookup(names, models.nullableReturns());
-      nonNullRet = makeOptimizedBoolLookup(names, models.nonNullReturns());
-      castToNonNullMethods = makeOptimizedSetLookup(names, models.castToNonNullMethods());
+    private final Names names;
+
+    /** Models read per class on demand, which are looked up in addition to the models above. */
+    private final @Nullable ExternalStubxLibraryModels modelsPerClass;
+
+    /** Names of the methods that may have models in {@link #modelsPerClass}. */
+    private final Set<Name> methodNamesPerClass = new HashSet<>();
+
+    /** Optimized models of the classes looked up in {@link #modelsPerClass}, or null if none. */
+    private final Map<Symbol, @Nullable OptimizedLibraryModels> classModels = new HashMap<>();
+
+    private final Config config;
+
+    /**
+     * Creates optimized models.
+     *
+     * @param index the models, by method name
+     * @param context javac context
+     * @param modelsPerClass models that are read per class, looked up when a method of the class is
+     *     first looked up, or null
+     * @param config NullAway config
+     */
+    OptimizedLibraryModels(
+        MethodNameIndex index,
+        Context context,
+        @Nullable ExternalStubxLibraryModels modelsPerClass,
+        Config config) {
+      this(index, Names.instance(context), modelsPerClass, config);
+    }
+
+    private OptimizedLibraryModels(
+        MethodNameIndex index,
+        Names names,
+        @Nullable ExternalStubxLibraryModels modelsPerClass,
+        Config config) {
+      this.names = names;
+      this.config = config;
+      this.modelsPerClass =
+          modelsPerClass != null && modelsPerClass.hasModelsPerClass() ? modelsPerClass : null;
+      if (this.modelsPerClass != null) {
+        for (String methodName : this.modelsPerClass.methodNamesPerClass()) {
+          methodNamesPerClass.add(names.fromString(methodName));
+        }
+      }
+      failIfNullParams = index.failIfNullParams().withNames(names);
+      explicitlyNullableParams = index.explicitlyNullableParams().withNames(names);
+      nonNullParams = index.nonNullParams().withNames(names);
+      nullImpliesTrueParams = index.nullImpliesTrueParams().withNames(names);
+      nullImpliesFalseParams = index.nullImpliesFalseParams().withNames(names);
+      ensuresNonNullIfTrueMethodCalls = index.ensuresNonNullIfTrueMethodCalls().withNames(names);
+      nullImpliesNullParams = index.nullImpliesNullParams().withNames(names);
+      nullableRet = index.nullableRet().withNames(names);
+      nonNullRet = index.nonNullRet().withNames(names);
+      castToNonNullMethods = index.castToNonNullMethods().withNames(names);
       methodTypeVariablesWithNullableUpperBounds =
-          makeOptimizedSetLookup(names, models.methodTypeVariablesWithNullableUpperBounds());
-      nestedAnnotationsForMethods =
-          makeOptimizedNestedAnnotationLookup(names, models.nestedAnnotationsForMethods());
+          index.methodTypeVariablesWithNullableUpperBounds().withNames(names);
+      nestedAnnotationsForMethods = index.nestedAnnotationsForMethods().withNames(names);
+    }
+
+    /** Returns the number of methods with models, counted once per kind of model. */
+    int size() {
+      return failIfNullParams.size()
+          + explicitlyNullableParams.size()
+          + nonNullParams.size()
+          + nullImpliesTrueParams.size()
+          + nullImpliesFalseParams.size()
+          + ensuresNonNullIfTrueMethodCalls.size()
+          + nullImpliesNullParams.size()
+          + nullableRet.size()
+          + nonNullRet.size()
+          + castToNonNullMethods.size()
+          + methodTypeVariablesWithNullableUpperBounds.size()
+          + nestedAnnotationsForMethods.size();
     }
 
     boolean hasNonNullReturn(Symbol.MethodSymbol symbol, Types types, boolean checkSuper) {
-      return lookupHandlingOverrides(symbol, types, nonNullRet, checkSuper) != null;
+      return lookupHandlingOverrides(symbol, types, m -> m.nonNullRet, checkSuper) != null;
     }
 
     boolean hasNullableReturn(Symbol.MethodSymbol symbol, Types types, boolean checkSuper) {
-      return lookupHandlingOverrides(symbol, types, nullableRet, checkSuper) != null;
+      return lookupHandlingOverrides(symbol, types, m -> m.nullableRet, checkSuper) != null;
     }
 
     ImmutableSet<Integer> failIfNullParameters(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, failIfNullParams);
+      return lookupImmutableSet(symbol, m -> m.failIfNullParams);
     }
 
     ImmutableSet<Integer> explicitlyNullableParameters(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, explicitlyNullableParams);
+      return lookupImmutableSet(symbol, m -> m.explicitlyNullableParams);
     }
 
     ImmutableSet<Integer> nonNullParameters(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, nonNullParams);
+      return lookupImmutableSet(symbol, m -> m.nonNullParams);
     }
 
     ImmutableSet<Integer> nullImpliesTrueParameters(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, nullImpliesTrueParams);
+      return lookupImmutableSet(symbol, m -> m.nullImpliesTrueParams);
     }
 
     ImmutableSet<Integer> nullImpliesFalseParameters(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, nullImpliesFalseParams);
+      return lookupImmutableSet(symbol, m -> m.nullImpliesFalseParams);
     }
 
     ImmutableSet<MethodRef> ensuresNonNullIfTrueMethodCalls(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, ensuresNonNullIfTrueMethodCalls);
+      return lookupImmutableSet(symbol, m -> m.ensuresNonNullIfTrueMethodCalls);
     }
 
     ImmutableSet<Integer> nullImpliesNullParameters(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, nullImpliesNullParams);
+      return lookupImmutableSet(symbol, m -> m.nullImpliesNullParams);
     }
 
     ImmutableSet<Integer> castToNonNullMethod(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, castToNonNullMethods);
+      return lookupImmutableSet(symbol, m -> m.castToNonNullMethods);
     }
 
     ImmutableSet<Integer> methodTypeVariablesWithNullableUpperBounds(Symbol.MethodSymbol symbol) {
-      return lookupImmutableSet(symbol, methodTypeVariablesWithNullableUpperBounds);
+      return lookupImmutableSet(symbol, m -> m.methodTypeVariablesWithNullableUpperBounds);
     }
 
     ImmutableSetMultimap<Integer, NestedAnnotationInfo> nestedAnnotationsForMethods(
         Symbol.MethodSymbol symbol) {
       ImmutableSetMultimap<Integer, NestedAnnotationInfo> result =
           nestedAnnotationsForMethods.get(symbol);
+      OptimizedLibraryModels classModels = classModels(symbol);
+      if (classModels != null) {
+        ImmutableSetMultimap<Integer, NestedAnnotationInfo> classResult =
+            classModels.nestedAnnotationsForMethods.get(symbol);
+        if (classResult != null) {
+          result =
+              result == null
+                  ? classResult
+                  : ImmutableSetMultimap.<Integer, NestedAnnotationInfo>builder()
+                      .putAll(result)
+                      .putAll(classResult)
+                      .build();
+        }
+      }
       return (result == null) ? ImmutableSetMultimap.of() : result;
     }
 
+    /**
+     * Looks up a method in the models of one kind, selected by {@code lookup}, and in those of its
+     * class that are read per class.
+     */
     private <T> ImmutableSet<T> lookupImmutableSet(
-        Symbol.MethodSymbol symbol, NameIndexedMap<ImmutableSet<T>> lookup) {
-      ImmutableSet<T> result = lookup.get(symbol);
+        Symbol.MethodSymbol symbol,
+        Function<OptimizedLibraryModels, NameIndexedMap<ImmutableSet<T>>> lookup) {
+      ImmutableSet<T> result = lookup.apply(this).get(symbol);
+      OptimizedLibraryModels classModels = classModels(symbol);
+      if (classModels != null) {
+        ImmutableSet<T> classResult = lookup.apply(classModels).get(symbol);
+        if (classResult != null) {
+          result = result == null ? classResult : Sets.union(result, classResult).immutableCopy();
+        }
+      }
       return (result == null) ? ImmutableSet.of() : result;
     }
 
-    private <T> NameIndexedMap<ImmutableSet<T>> makeOptimizedSetLookup(
-        Names names, ImmutableSetMultimap<MethodRef, T> ref2Set) {
-      return makeOptimizedLookup(names, ref2Set.keySet(), ref2Set::get);
-    }
-
-    private NameIndexedMap<Boolean> makeOptimizedBoolLookup(
-        Names names, ImmutableSet<MethodRef> refs) {
-      return makeOptimizedLookup(names, refs, (ref) -> true);
-    }
-
-    private NameIndexedMap<ImmutableSetMultimap<Integer, NestedAnnotationInfo>>
-        makeOptimizedNestedAnnotationLookup(
-            Names names,
-            ImmutableMap<MethodRef, ImmutableSetMultimap<Integer, NestedAnnotationInfo>> refs) {
-      return makeOptimizedLookup(names, refs.keySet(), ref -> castToNonNull(refs.get(ref)));
-    }
-
-    private <T> NameIndexedMap<T> makeOptimizedLookup(
-        Names names, Set<MethodRef> refs, Function<MethodRef, T> getValForRef) {
-      Map<Name, Map<MethodRef, T>> nameMapping = new LinkedHashMap<>();
-      for (MethodRef ref : refs) {
-        Name methodName = names.fromString(ref.methodName);
-        Map<MethodRef, T> mapForName =
-            nameMapping.computeIfAbsent(methodName, k -> new LinkedHashMap<>());
-        mapForName.put(ref, getValForRef.apply(ref));
+    /**
+     * Returns the optimized models read per class for the class of a method, reading them the
+     * first time the class is looked up, or null if there are none.
+     */
+    private @Nullable OptimizedLibraryModels classModels(Symbol.MethodSymbol symbol) {
+      if (modelsPerClass == null || !methodNamesPerClass.contains(symbol.name)) {
+        return null;
+      }
+      Symbol owner = symbol.owner;
+      if (classModels.containsKey(owner)) {
+        return classModels.get(owner);
+      }
+      String className = owner.toString();
+      LibraryModels models = modelsPerClass.modelsForClass(className);
+      String flatName = owner instanceof Symbol.ClassSymbol c ? c.flatName().toString() : className;
+      if (models == null && !flatName.equals(className)) {
+        // JarInfer models name nested classes by their binary names
+        models = modelsPerClass.modelsForClass(flatName);
+      }
+      OptimizedLibraryModels result = null;
+      if (models != null) {
+        // combined with no other models, to skip the models excluded by the configuration
+        LibraryModels combined = new CombinedLibraryModels(ImmutableList.of(models), config);
+        result = new OptimizedLibraryModels(MethodNameIndex.of(combined), names, null, config);
       }
-      return new NameIndexedMap<>(nameMapping);
+      classModels.put(owner, result);
+      return result;
     }
 
     /**
      * checks if symbol is present in the NameIndexedMap or if it overrides some method in the
      * NameIndexedMap
      */
-    private static Symbol.@Nullable MethodSymbol lookupHandlingOverrides(
+    private Symbol.@Nullable MethodSymbol lookupHandlingOverrides(
         Symbol.MethodSymbol symbol,
         Types types,
-        NameIndexedMap<Boolean> optLookup,
+        Function<OptimizedLibraryModels, NameIndexedMap<Boolean>> lookup,
         boolean checkSuperTypes) {
-      if (optLookup.nameNotPresent(symbol)) {
+      if (lookup.apply(this).nameNotPresent(symbol) && !methodNamesPerClass.contains(symbol.name)) {
         // no model matching the method name, so we don't need to check for overridden methods
         return null;
       }
-      if (optLookup.get(symbol) != null) {
+      if (hasModel(symbol, lookup)) {
         return symbol;
       }
       if (checkSuperTypes == false) {
@@ -1754,12 +2303,22 @@ public class LibraryModelsHandler implements Handler {
       // For unannotated code, we allow a single model to cover all overriding implementations /
       // subtypes
       for (Symbol.MethodSymbol superSymbol : ASTHelpers.findSuperMethods(symbol, types)) {
-        if (optLookup.get(superSymbol) != null) {
+        if (hasModel(superSymbol, lookup)) {
           return superSymbol;
         }
       }
       return null;
     }
+
+    private boolean hasModel(
+        Symbol.MethodSymbol symbol,
+        Function<OptimizedLibraryModels, NameIndexedMap<Boolean>> lookup) {
+      if (lookup.apply(this).get(symbol) != null) {
+        return true;
+      }
+      OptimizedLibraryModels classModels = classModels(symbol);
+      return classModels != null && lookup.apply(classModels).get(symbol) != null;
+    }
   }
 
   /** Constructs Library Models from stubx files */
@@ -1775,22 +2334,54 @@ public class LibraryModelsHandler implements Handler {
     private static final String ANDROID_MODEL_CLASS =
         "com.uber.nullaway.jarinfer.AndroidJarInferModels";
 
+    /** multi-level astubx file name used in our multi-SDK Android JarInfer models */
+    private static final String ANDROID_MULTI_SDK_ASTUBX_LOCATION = "jarinfer-multi-sdk.astubx";
+
+    /** Class we expect to be present in a jar containing multi-SDK Android JarInfer models */
+    private static final String ANDROID_MULTI_SDK_MODEL_CLASS =
+        "com.uber.nullaway.jarinfer.AndroidMultiSdkJarInferModels";
+
+    private final StubxCacheUtil cacheUtil;
     private final Map<String, Map<String, Map<Integer, Set<String>>>> argAnnotCache;
     private final Set<String> nullMarkedClassesCache;
     private final SetMultimap<String, Integer> upperBoundsCache;
     private final SetMultimap<String, Integer> methodTypeParamNullableUpperBoundCache;
     private final Map<String, SetMultimap<Integer, NestedAnnotationInfo>> nestedAnnotationInfo;
 
-    ExternalStubxLibraryModels(boolean isJarInferEnabled, boolean isJSpecifyJDKEnabled) {
+    /**
+     * Models of single classes from version 2 astubx files, read on demand by {@link
+     * #modelsForClass}. Empty for classes without models. May be shared by concurrent compilations.
+     */
+    private final ConcurrentMap<String, Optional<ExternalStubxLibraryModels>> classModels =
+        new ConcurrentHashMap<>();
+
+    private ExternalStubxLibraryModels(StubxCacheUtil cacheUtil) {
+      this.cacheUtil = cacheUtil;
+      argAnnotCache = cacheUtil.getArgAnnotCache();
+      nullMarkedClassesCache = cacheUtil.getNullMarkedClassesCache();
+      upperBoundsCache = cacheUtil.getUpperBoundCache();
+      methodTypeParamNullableUpperBoundCache =
+          cacheUtil.getMethodTypeParamNullableUpperBoundCache();
+      nestedAnnotationInfo = cacheUtil.getNestedAnnotationInfoCache();
+    }
+
+    /**
+     * Loads the astubx models. The records of version 2 files, like the JSpecify JDK models, are
+     * not part of the returned models, but are read per class by {@link #modelsForClass}.
+     */
+    static ExternalStubxLibraryModels load(
+        boolean isJarInferEnabled, int androidApiLevel, boolean isJSpecifyJDKEnabled) {
       String libraryModelLogName = "LM";
       StubxCacheUtil cacheUtil = new StubxCacheUtil(libraryModelLogName, isJarInferEnabled);
-      if (isJarInferEnabled) {
+      if (isJarInferEnabled && androidApiLevel != -1) {
+        loadMultiSdkAndroidModels(cacheUtil, androidApiLevel);
+      } else if (isJarInferEnabled) {
         // hardcoded loading of stubx files from android-jarinfer-models-sdkXX artifacts
         try (InputStream androidStubxIS =
             castToNonNull(Class.forName(ANDROID_MODEL_CLASS).getClassLoader())
                 .getResourceAsStream(ANDROID_ASTUBX_LOCATION)) {
           if (androidStubxIS != null) {
-            cacheUtil.parseStubStream(androidStubxIS, "android.jar: " + ANDROID_ASTUBX_LOCATION);
+            cacheUtil.addStubStream(androidStubxIS, "android.jar: " + ANDROID_ASTUBX_LOCATION);
             astubxLoadLog("Loaded Android RT models.");
           }
         } catch (ClassNotFoundException e) {
@@ -1806,27 +2397,93 @@ public class LibraryModelsHandler implements Handler {
       if (isJSpecifyJDKEnabled) {
         // hardcoded loading of JSpecify JDK astubx from jspecify-jdk.astubx
         try (InputStream in =
-            castToNonNull(getClass().getClassLoader())
+            castToNonNull(ExternalStubxLibraryModels.class.getClassLoader())
                 .getResourceAsStream(JSPECIFY_JDK_ASTUBX_FILENAME)) {
           if (in == null) {
             throw new IllegalStateException(
                 "JDK astubx model not found on classpath: %s"
                     .formatted(JSPECIFY_JDK_ASTUBX_FILENAME));
           } else {
-            cacheUtil.parseStubStream(in, JSPECIFY_JDK_ASTUBX_FILENAME);
+            cacheUtil.addStubStream(in, JSPECIFY_JDK_ASTUBX_FILENAME);
             astubxLoadLog("Loaded JDK astubx model.");
           }
         } catch (IOException e) {
           throw new UncheckedIOException(e);
         }
       }
+      return new ExternalStubxLibraryModels(cacheUtil);
+    }
 
-      argAnnotCache = cacheUtil.getArgAnnotCache();
-      nullMarkedClassesCache = cacheUtil.getNullMarkedClassesCache();
-      upperBoundsCache = cacheUtil.getUpperBoundCache();
-      methodTypeParamNullableUpperBoundCache =
-          cacheUtil.getMethodTypeParamNullableUpperBoundCache();
-      nestedAnnotationInfo = cacheUtil.getNestedAnnotationInfoCache();
+    /** Returns true if some models are only available through {@link #modelsForClass}. */
+    boolean hasModelsPerClass() {
+      return cacheUtil.hasLazyStubxFiles();
+    }
+
+    /**
+     * Returns the names of the methods that may have models in {@link #modelsForClass}, so that
+     * lookups of other methods need not read the models of their class.
+     */
+    Set<String> methodNamesPerClass() {
+      return cacheUtil.getLazyMethodNames();
+    }
+
+    /**
+     * Returns the models of a single class from the version 2 astubx files, reading them the first
+     * time the class is looked up.
+     *
+     * @param className the class name, as it appears before the {@code :} of method signatures
+     * @return the models, or null if there are none for the class
+     */
+    @Nullable LibraryModels modelsForClass(String className) {
+      if (!cacheUtil.hasLazyStubxFiles()) {
+        return null;
+      }
+      return classModels
+          .computeIfAbsent(
+              className,
+              name -> {
+                try {
+                  StubxCacheUtil classCache = cacheUtil.forClass(name);
+                  return classCache == null
+                      ? Optional.empty()
+                      : Optional.of(new ExternalStubxLibraryModels(classCache));
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              })
+          .orElse(null);
+    }
+
+    /**
+     * Loads the model of one API level from the android-jarinfer-models-multi-sdk artifact, which
+     * stores the models of all supported SDK levels as a base model plus per-level deltas.
+     */
+    private static void loadMultiSdkAndroidModels(StubxCacheUtil cacheUtil, int androidApiLevel) {
+      try (InputStream androidStubxIS =
+          castToNonNull(Class.forName(ANDROID_MULTI_SDK_MODEL_CLASS).getClassLoader())
+              .getResourceAsStream(ANDROID_MULTI_SDK_ASTUBX_LOCATION)) {
+        if (androidStubxIS == null) {
+          astubxLoadLog("Multi-SDK Android RT models not found.");
+          return;
+        }
+        int modelLevel =
+            cacheUtil.parseMultiLevelStubStream(
+                androidStubxIS,
+                "android.jar: " + ANDROID_MULTI_SDK_ASTUBX_LOCATION,
+                androidApiLevel);
+        if (modelLevel == -1) {
+          astubxLoadLog("No Android RT models for API level " + androidApiLevel + ".");
+        } else {
+          astubxLoadLog("Loaded Android RT models for API level " + modelLevel + ".");
+        }
+      } catch (ClassNotFoundException e) {
+        astubxLoadLog(
+            "Cannot find multi-SDK Android RT models locator class."
+                + " This is expected if the multi-SDK Android JarInfer models Jar has not been"
+                + " set up for this build.");
+      } catch (IOException e) {
+        astubxLoadLog("Loading Android RT models failed: " + e.getMessage());
+      }
     }
 
     @Override
@@ -22,22 +22,29 @@ package com.uber.nullaway.handlers;
  * THE SOFTWARE.
  */
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.suppliers.Supplier;
-import com.google.errorprone.suppliers.Suppliers;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.tools.javac.code.Symbol;
-import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Name;
-import com.uber.nullaway.annotations.Initializer;
+import com.sun.tools.javac.util.Names;
+import java.util.HashMap;
+import java.util.Map;
 import org.checkerframework.nullaway.dataflow.cfg.node.MethodInvocationNode;
 import org.checkerframework.nullaway.dataflow.cfg.node.Node;
+import org.jspecify.annotations.Nullable;
 
 /**
- * A utility class that holds the names from the Table. Currently, {@link
+ * A utility class that holds the methods used to identify assertions. Currently, {@link
  * com.uber.nullaway.handlers.AssertionHandler} requires it, while {@link
  * com.uber.nullaway.handlers.OptionalEmptinessHandler} uses it only when AssertionHandler is
  * enabled.
+ *
+ * <p>The owners of the methods are resolved to class symbols once per javac {@link Context}, so
+ * that matching a method only requires comparing its name and owner by identity. {@link
+ * #initialize(VisitorState)} must be called before any of the matching methods.
  */
 class MethodNameUtil {
 
@@ -82,152 +89,101 @@ class MethodNameUtil {
   private static final String NULL_VALUE_MATCHER = "nullValue";
   private static final String INSTANCE_OF_MATCHER = "instanceOf";
 
-  private static final Supplier<Type> ASSERTJ_ASSERT_TYPE_SUPPLIER =
-      Suppliers.typeFromString("org.assertj.core.api.Assert");
-
-  // Names of the methods (and their owners) used to identify assertions in this handler. Name used
-  // here refers to com.sun.tools.javac.util.Name. Comparing methods using Names is faster than
-  // comparing using strings.
-  private Name isNotNull;
-  private Name hasSize;
-
-  private Name isInstanceOf;
-  private Name isInstanceOfAny;
-  private Name isOwnerTruthSubject;
-
-  private Name isTrue;
-  private Name isFalse;
-  private Name isTrueOwnerTruth;
-  private Name isTrueOwnerAssertJ;
-  private Name isPresent;
-  private Name isNotEmpty;
-  private Name isPresentOwnerAssertJ;
-
-  private Name isBooleanValueOfMethod;
-  private Name isBooleanValueOfOwner;
-
-  private Name assertThat;
-  private Name assertThatOwnerTruth;
-  private Name assertThatOwnerAssertJ;
-
-  private Name as;
-  private Name describedAs;
-
-  // Names for junit assertion libraries.
-  private Name hamcrestAssertClass;
-  private Name junitAssertClass;
-  private Name junit5AssertionClass;
-
-  private Name assertTrue;
-  private Name assertFalse;
-
-  // Names for hamcrest matchers.
-  private Name matchersClass;
-  private Name coreMatchersClass;
-  private Name coreIsNullClass;
-  private Name isMatcher;
-  private Name isAMatcher;
-  private Name notMatcher;
-  private Name notNullValueMatcher;
-  private Name nullValueMatcher;
-  private Name instanceOfMatcher;
-
-  @Initializer
-  void initializeMethodNames(Name.Table table) {
-    isNotNull = table.fromString(IS_NOT_NULL_METHOD);
-    hasSize = table.fromString(IS_HAS_SIZE_METHOD);
-    isOwnerTruthSubject = table.fromString(IS_OWNER_TRUTH_SUBJECT);
-
-    isInstanceOf = table.fromString(IS_INSTANCE_OF_METHOD);
-    isInstanceOfAny = table.fromString(IS_INSTANCE_OF_ANY_METHOD);
-
-    isTrue = table.fromString(IS_TRUE_METHOD);
-    isFalse = table.fromString(IS_FALSE_METHOD);
-    isTrueOwnerTruth = table.fromString(IS_TRUE_OWNER_TRUTH);
-    isTrueOwnerAssertJ = table.fromString(IS_TRUE_OWNER_ASSERTJ);
-
-    isBooleanValueOfMethod = table.fromString(BOOLEAN_VALUE_OF_METHOD);
-    isBooleanValueOfOwner = table.fromString(BOOLEAN_VALUE_OF_OWNER);
-
-    assertThat = table.fromString(ASSERT_THAT_METHOD);
-    assertThatOwnerTruth = table.fromString(ASSERT_THAT_OWNER_TRUTH);
-    assertThatOwnerAssertJ = table.fromString(ASSERT_THAT_OWNER_ASSERTJ);
-
-    as = table.fromString(AS_METHOD);
-    describedAs = table.fromString(DESCRIBED_AS_METHOD);
-
-    isPresent = table.fromString(IS_PRESENT_METHOD);
-    isNotEmpty = table.fromString(IS_NOT_EMPTY_METHOD);
-    isPresentOwnerAssertJ = table.fromString(IS_PRESENT_OWNER_ASSERTJ);
-
-    hamcrestAssertClass = table.fromString(HAMCREST_ASSERT_CLASS);
-    junitAssertClass = table.fromString(JUNIT_ASSERT_CLASS);
-    junit5AssertionClass = table.fromString(JUNIT5_ASSERTION_CLASS);
-
-    assertTrue = table.fromString(ASSERT_TRUE_METHOD);
-    assertFalse = table.fromString(ASSERT_FALSE_METHOD);
-
-    matchersClass = table.fromString(MATCHERS_CLASS);
-    coreMatchersClass = table.fromString(CORE_MATCHERS_CLASS);
-    coreIsNullClass = table.fromString(CORE_IS_NULL_CLASS);
-    isMatcher = table.fromString(IS_MATCHER);
-    isAMatcher = table.fromString(IS_A_MATCHER);
-    notMatcher = table.fromString(NOT_MATCHER);
-    notNullValueMatcher = table.fromString(NOT_NULL_VALUE_MATCHER);
-    nullValueMatcher = table.fromString(NULL_VALUE_MATCHER);
-    instanceOfMatcher = table.fromString(INSTANCE_OF_MATCHER);
+  private static final String ASSERTJ_ASSERT_CLASS = "org.assertj.core.api.Assert";
+
+  /** The context for which {@link #methods} was resolved. */
+  private @Nullable Context context;
+
+  private @Nullable ResolvedMethods methods;
+
+  /**
+   * Resolves the methods to match for the compilation of the given state, if not already done.
+   *
+   * @param state the current visitor state
+   */
+  void initialize(VisitorState state) {
+    if (context != state.context) {
+      methods = ResolvedMethods.instance(state);
+      context = state.context;
+    }
+  }
+
+  private ResolvedMethods methods() {
+    return Preconditions.checkNotNull(methods, "MethodNameUtil used before initialize()");
+  }
+
+  /**
+   * Quickly rejects methods that cannot be an assertion method matched by this class, based only on
+   * their name. Methods for which this returns {@code true} still need to be checked by the more
+   * specific methods below.
+   *
+   * @param methodSymbol symbol for the method
+   * @return {@code false} if the method is definitely not an assertion method
+   */
+  boolean mayBeAssertionMethod(Symbol.MethodSymbol methodSymbol) {
+    return methods().assertionMethodNames.contains(methodSymbol.name);
   }
 
   boolean isMethodIsNotNull(Symbol.MethodSymbol methodSymbol, VisitorState state) {
-    return matchesMethod(methodSymbol, isNotNull, isOwnerTruthSubject)
-        || matchesAssertJAssertMethod(methodSymbol, isNotNull, state);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.isNotNull, m.truthSubject)
+        || m.matchesAssertJAssertMethod(methodSymbol, m.isNotNull, state);
   }
 
   boolean isMethodHasSize(Symbol.MethodSymbol methodSymbol, VisitorState state) {
-    return matchesAssertJAssertMethod(methodSymbol, hasSize, state);
+    ResolvedMethods m = methods();
+    return m.matchesAssertJAssertMethod(methodSymbol, m.hasSize, state);
   }
 
   boolean isMethodIsInstanceOf(Symbol.MethodSymbol methodSymbol, VisitorState state) {
-    return matchesMethod(methodSymbol, isInstanceOf, isOwnerTruthSubject)
-        || matchesAssertJAssertMethod(methodSymbol, isInstanceOf, state)
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.isInstanceOf, m.truthSubject)
+        || m.matchesAssertJAssertMethod(methodSymbol, m.isInstanceOf, state)
         // Truth doesn't seem to have isInstanceOfAny
-        || matchesAssertJAssertMethod(methodSymbol, isInstanceOfAny, state);
+        || m.matchesAssertJAssertMethod(methodSymbol, m.isInstanceOfAny, state);
   }
 
   boolean isMethodAssertTrue(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, assertTrue, junitAssertClass)
-        || matchesMethod(methodSymbol, assertTrue, junit5AssertionClass);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.assertTrue, m.junitAssertClass)
+        || matchesMethod(methodSymbol, m.assertTrue, m.junit5AssertionClass);
   }
 
   boolean isMethodAssertFalse(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, assertFalse, junitAssertClass)
-        || matchesMethod(methodSymbol, assertFalse, junit5AssertionClass);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.assertFalse, m.junitAssertClass)
+        || matchesMethod(methodSymbol, m.assertFalse, m.junit5AssertionClass);
   }
 
   boolean isMethodThatEnsuresOptionalPresent(Symbol.MethodSymbol methodSymbol) {
+    ResolvedMethods m = methods();
     // same owner
-    return matchesMethod(methodSymbol, isPresent, isPresentOwnerAssertJ)
-        || matchesMethod(methodSymbol, isNotEmpty, isPresentOwnerAssertJ);
+    return matchesMethod(methodSymbol, m.isPresent, m.optionalAssertAssertJ)
+        || matchesMethod(methodSymbol, m.isNotEmpty, m.optionalAssertAssertJ);
   }
 
   boolean isMethodIsTrue(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, isTrue, isTrueOwnerTruth)
-        || matchesMethod(methodSymbol, isTrue, isTrueOwnerAssertJ);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.isTrue, m.booleanSubjectTruth)
+        || matchesMethod(methodSymbol, m.isTrue, m.booleanAssertAssertJ);
   }
 
   boolean isMethodIsFalse(Symbol.MethodSymbol methodSymbol) {
+    ResolvedMethods m = methods();
     // same owners as isTrue
-    return matchesMethod(methodSymbol, isFalse, isTrueOwnerTruth)
-        || matchesMethod(methodSymbol, isFalse, isTrueOwnerAssertJ);
+    return matchesMethod(methodSymbol, m.isFalse, m.booleanSubjectTruth)
+        || matchesMethod(methodSymbol, m.isFalse, m.booleanAssertAssertJ);
   }
 
   boolean isMethodBooleanValueOf(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, isBooleanValueOfMethod, isBooleanValueOfOwner);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.valueOf, m.booleanClass);
   }
 
   boolean isMethodAssertThat(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, assertThat, assertThatOwnerTruth)
-        || matchesMethod(methodSymbol, assertThat, assertThatOwnerAssertJ);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.assertThat, m.assertThatOwnerTruth)
+        || matchesMethod(methodSymbol, m.assertThat, m.assertThatOwnerAssertJ);
   }
 
   /**
@@ -239,23 +195,27 @@ class MethodNameUtil {
    * @return {@code true} iff the method is describedAs() or as() from AssertJ
    */
   public boolean isMethodAssertJDescribedAs(Symbol.MethodSymbol methodSymbol) {
-    return methodSymbol.name.equals(as) || methodSymbol.name.equals(describedAs);
+    ResolvedMethods m = methods();
+    return methodSymbol.name.equals(m.as) || methodSymbol.name.equals(m.describedAs);
   }
 
   boolean isMethodHamcrestAssertThat(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, assertThat, hamcrestAssertClass);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.assertThat, m.hamcrestAssertClass);
   }
 
   boolean isMethodJunitAssertThat(Symbol.MethodSymbol methodSymbol) {
-    return matchesMethod(methodSymbol, assertThat, junitAssertClass);
+    ResolvedMethods m = methods();
+    return matchesMethod(methodSymbol, m.assertThat, m.junitAssertClass);
   }
 
   boolean isMatcherIsNotNull(Node node) {
+    ResolvedMethods m = methods();
     // Matches with
     //   * is(not(nullValue()))
     //   * is(notNullValue())
-    if (matchesMatcherMethod(node, isMatcher, matchersClass)
-        || matchesMatcherMethod(node, isMatcher, coreMatchersClass)) {
+    if (matchesMatcherMethod(node, m.isMatcher, m.matchersClass)
+        || matchesMatcherMethod(node, m.isMatcher, m.coreMatchersClass)) {
       // All overloads of `is` method have exactly one argument.
       return isMatcherNotNull(((MethodInvocationNode) node).getArgument(0));
     }
@@ -263,42 +223,46 @@ class MethodNameUtil {
   }
 
   private boolean isMatcherNotNull(Node node) {
+    ResolvedMethods m = methods();
     // Matches with
     //   * not(nullValue())
     //   * notNullValue()
-    if (matchesMatcherMethod(node, notMatcher, matchersClass)
-        || matchesMatcherMethod(node, notMatcher, coreMatchersClass)) {
+    if (matchesMatcherMethod(node, m.notMatcher, m.matchersClass)
+        || matchesMatcherMethod(node, m.notMatcher, m.coreMatchersClass)) {
       // All overloads of `not` method have exactly one argument.
       return isMatcherNull(((MethodInvocationNode) node).getArgument(0));
     }
-    return matchesMatcherMethod(node, notNullValueMatcher, matchersClass)
-        || matchesMatcherMethod(node, notNullValueMatcher, coreMatchersClass)
-        || matchesMatcherMethod(node, notNullValueMatcher, coreIsNullClass);
+    return matchesMatcherMethod(node, m.notNullValueMatcher, m.matchersClass)
+        || matchesMatcherMethod(node, m.notNullValueMatcher, m.coreMatchersClass)
+        || matchesMatcherMethod(node, m.notNullValueMatcher, m.coreIsNullClass);
   }
 
   private boolean isMatcherNull(Node node) {
+    ResolvedMethods m = methods();
     // Matches with nullValue()
-    return matchesMatcherMethod(node, nullValueMatcher, matchersClass)
-        || matchesMatcherMethod(node, nullValueMatcher, coreMatchersClass)
-        || matchesMatcherMethod(node, nullValueMatcher, coreIsNullClass);
+    return matchesMatcherMethod(node, m.nullValueMatcher, m.matchersClass)
+        || matchesMatcherMethod(node, m.nullValueMatcher, m.coreMatchersClass)
+        || matchesMatcherMethod(node, m.nullValueMatcher, m.coreIsNullClass);
   }
 
   boolean isMatcherIsInstanceOf(Node node) {
+    ResolvedMethods m = methods();
     // Matches with
     //   * is(instanceOf(Some.class))
     //   * isA(Some.class)
-    if (matchesMatcherMethod(node, isMatcher, matchersClass)
-        || matchesMatcherMethod(node, isMatcher, coreMatchersClass)) {
+    if (matchesMatcherMethod(node, m.isMatcher, m.matchersClass)
+        || matchesMatcherMethod(node, m.isMatcher, m.coreMatchersClass)) {
       // All overloads of `is` method have exactly one argument.
       Node inner = ((MethodInvocationNode) node).getArgument(0);
-      return matchesMatcherMethod(inner, instanceOfMatcher, matchersClass)
-          || matchesMatcherMethod(inner, instanceOfMatcher, coreMatchersClass);
+      return matchesMatcherMethod(inner, m.instanceOfMatcher, m.matchersClass)
+          || matchesMatcherMethod(inner, m.instanceOfMatcher, m.coreMatchersClass);
     }
-    return (matchesMatcherMethod(node, isAMatcher, matchersClass)
-        || matchesMatcherMethod(node, isAMatcher, coreMatchersClass));
+    return (matchesMatcherMethod(node, m.isAMatcher, m.matchersClass)
+        || matchesMatcherMethod(node, m.isAMatcher, m.coreMatchersClass));
   }
 
-  private boolean matchesMatcherMethod(Node node, Name matcherName, Name matcherClass) {
+  private static boolean matchesMatcherMethod(
+      Node node, Name matcherName, Symbol.@Nullable ClassSymbol matcherClass) {
     if (node instanceof MethodInvocationNode methodInvocationNode) {
       Symbol.MethodSymbol callee = ASTHelpers.getSymbol(methodInvocationNode.getTree());
       return matchesMethod(callee, matcherName, matcherClass);
@@ -306,31 +270,177 @@ class MethodNameUtil {
     return false;
   }
 
-  private boolean matchesMethod(
-      Symbol.MethodSymbol methodSymbol, Name toMatchMethodName, Name toMatchOwnerName) {
-    return methodSymbol.name.equals(toMatchMethodName)
-        && methodSymbol.owner.getQualifiedName().equals(toMatchOwnerName);
-  }
-
   /**
-   * Checks if the method is an AssertJ assert method, i.e., it has the same name as
-   * toMatchMethodName and its owner is a subtype of AssertJ's Assert class.
+   * Checks if the method has the given name and is declared in the given class.
    *
    * @param methodSymbol the method symbol to check
    * @param toMatchMethodName the method name to match
-   * @param state the visitor state
+   * @param toMatchOwner the resolved owner to match, or {@code null} if the owner class is not
+   *     available in this compilation, in which case no method matches
    * @return {@code true} if the method matches, {@code false} otherwise
    */
-  private boolean matchesAssertJAssertMethod(
-      Symbol.MethodSymbol methodSymbol, Name toMatchMethodName, VisitorState state) {
-    if (!methodSymbol.name.equals(toMatchMethodName)) {
-      return false;
-    }
-    return ASTHelpers.isSubtype(
-        methodSymbol.owner.type, ASSERTJ_ASSERT_TYPE_SUPPLIER.get(state), state);
+  private static boolean matchesMethod(
+      Symbol.MethodSymbol methodSymbol,
+      Name toMatchMethodName,
+      Symbol.@Nullable ClassSymbol toMatchOwner) {
+    return toMatchOwner != null
+        && methodSymbol.owner == toMatchOwner
+        && methodSymbol.name.equals(toMatchMethodName);
   }
 
-  boolean isUtilInitialized() {
-    return isNotNull != null;
+  /**
+   * The names and owner classes of the methods to match, resolved for one javac context. Owner
+   * classes that are not on the classpath of the compilation are {@code null}.
+   */
+  private static final class ResolvedMethods {
+
+    private static final Context.Key<ResolvedMethods> RESOLVED_METHODS_KEY = new Context.Key<>();
+
+    // Names of the methods used to identify assertions in this handler. Name used here refers to
+    // com.sun.tools.javac.util.Name. Comparing methods using Names is faster than comparing using
+    // strings.
+    private final Name isNotNull;
+    private final Name hasSize;
+    private final Name isInstanceOf;
+    private final Name isInstanceOfAny;
+    private final Name isTrue;
+    private final Name isFalse;
+    private final Name isPresent;
+    private final Name isNotEmpty;
+    private final Name valueOf;
+    private final Name assertThat;
+    private final Name as;
+    private final Name describedAs;
+    private final Name assertTrue;
+    private final Name assertFalse;
+
+    // Names for hamcrest matchers.
+    private final Name isMatcher;
+    private final Name isAMatcher;
+    private final Name notMatcher;
+    private final Name notNullValueMatcher;
+    private final Name nullValueMatcher;
+    private final Name instanceOfMatcher;
+
+    /** Names of all the methods that may be the outermost call of an assertion. */
+    private final ImmutableSet<Name> assertionMethodNames;
+
+    private final Symbol.@Nullable ClassSymbol truthSubject;
+    private final Symbol.@Nullable ClassSymbol booleanSubjectTruth;
+    private final Symbol.@Nullable ClassSymbol booleanAssertAssertJ;
+    private final Symbol.@Nullable ClassSymbol optionalAssertAssertJ;
+    private final Symbol.@Nullable ClassSymbol booleanClass;
+    private final Symbol.@Nullable ClassSymbol assertThatOwnerTruth;
+    private final Symbol.@Nullable ClassSymbol assertThatOwnerAssertJ;
+
+    // Classes for junit assertion libraries.
+    private final Symbol.@Nullable ClassSymbol hamcrestAssertClass;
+    private final Symbol.@Nullable ClassSymbol junitAssertClass;
+    private final Symbol.@Nullable ClassSymbol junit5AssertionClass;
+
+    // Classes for hamcrest matchers.
+    private final Symbol.@Nullable ClassSymbol matchersClass;
+    private final Symbol.@Nullable ClassSymbol coreMatchersClass;
+    private final Symbol.@Nullable ClassSymbol coreIsNullClass;
+
+    private final Symbol.@Nullable ClassSymbol assertJAssert;
+
+    /** Caches whether a class is a subtype of AssertJ's Assert class. */
+    private final Map<Symbol, Boolean> isAssertJAssertSubclass = new HashMap<>();
+
+    private ResolvedMethods(VisitorState state) {
+      Names names = Names.instance(state.context);
+      isNotNull = names.fromString(IS_NOT_NULL_METHOD);
+      hasSize = names.fromString(IS_HAS_SIZE_METHOD);
+      isInstanceOf = names.fromString(IS_INSTANCE_OF_METHOD);
+      isInstanceOfAny = names.fromString(IS_INSTANCE_OF_ANY_METHOD);
+      isTrue = names.fromString(IS_TRUE_METHOD);
+      isFalse = names.fromString(IS_FALSE_METHOD);
+      isPresent = names.fromString(IS_PRESENT_METHOD);
+      isNotEmpty = names.fromString(IS_NOT_EMPTY_METHOD);
+      valueOf = names.fromString(BOOLEAN_VALUE_OF_METHOD);
+      assertThat = names.fromString(ASSERT_THAT_METHOD);
+      as = names.fromString(AS_METHOD);
+      describedAs = names.fromString(DESCRIBED_AS_METHOD);
+      assertTrue = names.fromString(ASSERT_TRUE_METHOD);
+      assertFalse = names.fromString(ASSERT_FALSE_METHOD);
+
+      isMatcher = names.fromString(IS_MATCHER);
+      isAMatcher = names.fromString(IS_A_MATCHER);
+      notMatcher = names.fromString(NOT_MATCHER);
+      notNullValueMatcher = names.fromString(NOT_NULL_VALUE_MATCHER);
+      nullValueMatcher = names.fromString(NULL_VALUE_MATCHER);
+      instanceOfMatcher = names.fromString(INSTANCE_OF_MATCHER);
+
+      assertionMethodNames =
+          ImmutableSet.of(
+              isNotNull,
+              hasSize,
+              isInstanceOf,
+              isInstanceOfAny,
+              isTrue,
+              isFalse,
+              isPresent,
+              isNotEmpty,
+              assertThat,
+              assertTrue,
+              assertFalse);
+
+      truthSubject = resolveClass(IS_OWNER_TRUTH_SUBJECT, state);
+      booleanSubjectTruth = resolveClass(IS_TRUE_OWNER_TRUTH, state);
+      booleanAssertAssertJ = resolveClass(IS_TRUE_OWNER_ASSERTJ, state);
+      optionalAssertAssertJ = resolveClass(IS_PRESENT_OWNER_ASSERTJ, state);
+      booleanClass = resolveClass(BOOLEAN_VALUE_OF_OWNER, state);
+      assertThatOwnerTruth = resolveClass(ASSERT_THAT_OWNER_TRUTH, state);
+      assertThatOwnerAssertJ = resolveClass(ASSERT_THAT_OWNER_ASSERTJ, state);
+
+      hamcrestAssertClass = resolveClass(HAMCREST_ASSERT_CLASS, state);
+      junitAssertClass = resolveClass(JUNIT_ASSERT_CLASS, state);
+      junit5AssertionClass = resolveClass(JUNIT5_ASSERTION_CLASS, state);
+
+      matchersClass = resolveClass(MATCHERS_CLASS, state);
+      coreMatchersClass = resolveClass(CORE_MATCHERS_CLASS, state);
+      coreIsNullClass = resolveClass(CORE_IS_NULL_CLASS, state);
+
+      assertJAssert = resolveClass(ASSERTJ_ASSERT_CLASS, state);
+    }
+
+    static ResolvedMethods instance(VisitorState state) {
+      ResolvedMethods methods = state.context.get(RESOLVED_METHODS_KEY);
+      if (methods == null) {
+        methods = new ResolvedMethods(state);
+        state.context.put(RESOLVED_METHODS_KEY, methods);
+      }
+      return methods;
+    }
+
+    private static Symbol.@Nullable ClassSymbol resolveClass(String className, VisitorState state) {
+      return state.getSymbolFromString(className) instanceof Symbol.ClassSymbol classSymbol
+          ? classSymbol
+          : null;
+    }
+
+    /**
+     * Checks if the method is an AssertJ assert method, i.e., it has the same name as
+     * toMatchMethodName and its owner is a subtype of AssertJ's Assert class.
+     *
+     * @param methodSymbol the method symbol to check
+     * @param toMatchMethodName the method name to match
+     * @param state the visitor state
+     * @return {@code true} if the method matches, {@code false} otherwise
+     */
+    private boolean matchesAssertJAssertMethod(
+        Symbol.MethodSymbol methodSymbol, Name toMatchMethodName, VisitorState state) {
+      if (assertJAssert == null || !methodSymbol.name.equals(toMatchMethodName)) {
+        return false;
+      }
+      Symbol owner = methodSymbol.owner;
+      Boolean isSubclass = isAssertJAssertSubclass.get(owner);
+      if (isSubclass == null) {
+        isSubclass = ASTHelpers.isSubtype(owner.type, assertJAssert.type, state);
+        isAssertJAssertSubclass.put(owner, isSubclass);
+      }
+      return isSubclass;
+    }
   }
 }
@@ -168,6 +168,10 @@ public class OptionalEmptinessHandler implements Handler {
       AccessPathNullnessPropagation.Updates bothUpdates,
       MethodInvocationNode node,
       Symbol.MethodSymbol symbol) {
+    methodNameUtil.initialize(state);
+    if (!methodNameUtil.mayBeAssertionMethod(symbol)) {
+      return;
+    }
 
     Consumer<Node> nonNullMarker =
         nonNullNode ->
@@ -24,8 +24,10 @@ package com.uber.nullaway.handlers;
 
 import static com.uber.nullaway.NullabilityUtil.castToNonNull;
 
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.SetMultimap;
 import com.google.errorprone.VisitorState;
@@ -45,6 +47,10 @@ import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import com.uber.nullaway.CacheFootprintReport;
 import com.uber.nullaway.NullAway;
 import com.uber.nullaway.NullabilityUtil;
 import com.uber.nullaway.Nullness;
@@ -61,6 +67,7 @@ import com.uber.nullaway.handlers.stream.MapOrCollectLikeMethodRecord;
 import com.uber.nullaway.handlers.stream.MapOrCollectMethodToFilterInstanceRecord;
 import com.uber.nullaway.handlers.stream.StreamTypeRecord;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -70,6 +77,7 @@ import java.util.function.Consumer;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.NestingKind;
 import org.checkerframework.nullaway.dataflow.cfg.UnderlyingAST;
 import org.checkerframework.nullaway.dataflow.cfg.node.LocalVariableNode;
 import org.jspecify.annotations.Nullable;
@@ -114,8 +122,9 @@ class StreamNullabilityPropagator implements Handler {
    * This class works by building the following maps which keep enough state outside of the standard dataflow
    * analysis for us to figure out what's going on:
    *
-   * Note: If this state ever becomes a memory issue, we can discard it as soon as we exit any method at the
-   * topmost scope (e.g. not a method called from an anonymous inner class inside another method or a lambda).
+   * Note: This state is discarded whenever we enter a method at the topmost scope (e.g. not a method of an
+   * anonymous or local class inside another method), since any chain it describes lies entirely within the
+   * previous topmost method.
    */
 
   // Set of filter methods found thus far (e.g. A.filter, see above)
@@ -188,6 +197,63 @@ class StreamNullabilityPropagator implements Handler {
       new LinkedHashMap<>();
   private final ImmutableList<StreamTypeRecord> models;
 
+  // Simple names of all methods mentioned in any of the models. Calls to methods with other names
+  // are skipped without consulting the models.
+  private final ImmutableSet<String> modelMethodNames;
+
+  // Key of the ModelIndex of this propagator in each javac context. Not static, as propagators
+  // with other models need indexes of their own.
+  private final Context.Key<ModelIndex> modelIndexKey = new Context.Key<>();
+
+  /** The context for which {@link #modelIndex} was retrieved. */
+  private @Nullable Context modelIndexContext;
+
+  private @Nullable ModelIndex modelIndex;
+
+  /**
+   * Lookup structures over the models, for one javac context. Names and symbols are specific to a
+   * context, so these are not shared across compilations, and are released along with the context.
+   */
+  private static final class ModelIndex {
+
+    // The model method names, as javac Names of the context
+    private final ImmutableSet<Name> modelMethodNames;
+
+    // Models matching each erased receiver type. Stream type predicates are assumed to only depend
+    // on the erased type, as is the case for TypePredicates.isDescendantOf(...)
+    private final Map<Symbol.TypeSymbol, ImmutableList<StreamTypeRecord>> modelsForReceiverType =
+        new HashMap<>();
+
+    // How each model treats each method invoked on a matching stream type, to avoid recomputing
+    // method signature strings
+    private final Map<ModelAndMethod, StreamMethodInfo> streamMethodInfos = new HashMap<>();
+
+    private ModelIndex(ImmutableSet<String> modelMethodNames, Context context) {
+      Names names = Names.instance(context);
+      ImmutableSet.Builder<Name> builder = ImmutableSet.builder();
+      for (String name : modelMethodNames) {
+        builder.add(names.fromString(name));
+      }
+      this.modelMethodNames = builder.build();
+    }
+  }
+
+  private record ModelAndMethod(StreamTypeRecord model, Symbol.MethodSymbol method) {}
+
+  /**
+   * How a stream model treats a method.
+   *
+   * @param isFilter whether the method behaves like {@code .filter(...)}
+   * @param mapRecord the record of the method if it behaves like {@code .map(...)}
+   * @param collectRecords the records of the method if it behaves like {@code .collect(...)}
+   * @param isPassthrough whether nullability information is propagated through the method
+   */
+  private record StreamMethodInfo(
+      boolean isFilter,
+      @Nullable MapLikeMethodRecord mapRecord,
+      ImmutableCollection<CollectLikeMethodRecord> collectRecords,
+      boolean isPassthrough) {}
+
   private @Nullable NullAway analysis;
 
   private @Nullable Handler mainHandler;
@@ -195,17 +261,66 @@ class StreamNullabilityPropagator implements Handler {
   StreamNullabilityPropagator(ImmutableList<StreamTypeRecord> models) {
     super();
     this.models = models;
+    ImmutableSet.Builder<String> namesBuilder = ImmutableSet.builder();
+    for (StreamTypeRecord model : models) {
+      namesBuilder.addAll(model.methodNames());
+    }
+    this.modelMethodNames = namesBuilder.build();
   }
 
-  void initMainHandler(Handler mainHandler) {
-    this.mainHandler = mainHandler;
+  /** Returns the index of the models for the compilation of the given state. */
+  private ModelIndex modelIndex(VisitorState state) {
+    ModelIndex index = modelIndex;
+    if (index == null || modelIndexContext != state.context) {
+      index = state.context.get(modelIndexKey);
+      if (index == null) {
+        index = new ModelIndex(modelMethodNames, state.context);
+        state.context.put(modelIndexKey, index);
+      }
+      modelIndex = index;
+      modelIndexContext = state.context;
+    }
+    return index;
   }
 
-  @Override
-  public void onMatchTopLevelClass(
-      NullAway analysis, ClassTree tree, VisitorState state, Symbol.ClassSymbol classSymbol) {
-    this.analysis = analysis;
-    // Clear compilation unit specific state
+  private boolean mayBeModeledMethod(Symbol.MethodSymbol methodSymbol, VisitorState state) {
+    return modelIndex(state).modelMethodNames.contains(methodSymbol.name);
+  }
+
+  private ImmutableList<StreamTypeRecord> modelsMatchingType(
+      Type receiverType, VisitorState state) {
+    return modelIndex(state)
+        .modelsForReceiverType
+        .computeIfAbsent(
+            receiverType.tsym,
+            tsym -> {
+              ImmutableList.Builder<StreamTypeRecord> builder = ImmutableList.builder();
+              for (StreamTypeRecord model : models) {
+                if (model.matchesType(receiverType, state)) {
+                  builder.add(model);
+                }
+              }
+              return builder.build();
+            });
+  }
+
+  private StreamMethodInfo streamMethodInfo(
+      StreamTypeRecord model, Symbol.MethodSymbol methodSymbol, VisitorState state) {
+    return modelIndex(state)
+        .streamMethodInfos
+        .computeIfAbsent(
+            new ModelAndMethod(model, methodSymbol),
+            key ->
+                new StreamMethodInfo(
+                    model.isFilterMethod(methodSymbol),
+                    model.isMapMethod(methodSymbol)
+                        ? model.getMaplikeMethodRecord(methodSymbol)
+                        : null,
+                    model.getCollectlikeMethodRecords(methodSymbol),
+                    model.isPassthroughMethod(methodSymbol)));
+  }
+
+  private void clearPerMethodState() {
     this.filterMethodOrLambdaSet.clear();
     this.observableOuterCallInChain.clear();
     this.observableCallToInnerMethodOrLambda.clear();
@@ -214,6 +329,83 @@ class StreamNullabilityPropagator implements Handler {
     this.filterToNSMap.clear();
     this.bodyToMethodOrLambda.clear();
     this.returnToEnclosingMethodOrLambda.clear();
+    this.expressionBodyToFilterLambda.clear();
+  }
+
+  /**
+   * Checks whether a method is at the topmost scope, i.e., it is not nested within an anonymous or
+   * local class (whose methods may be the filter or map methods of a chain in an enclosing method).
+   */
+  private static boolean isTopmostScopeMethod(Symbol.MethodSymbol methodSymbol) {
+    for (Symbol owner = methodSymbol.owner;
+        owner instanceof Symbol.ClassSymbol classSymbol;
+        owner = owner.owner) {
+      NestingKind nestingKind = classSymbol.getNestingKind();
+      if (nestingKind == NestingKind.ANONYMOUS || nestingKind == NestingKind.LOCAL) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void initMainHandler(Handler mainHandler) {
+    this.mainHandler = mainHandler;
+  }
+
+  @Override
+  public void onMatchTopLevelClass(
+      NullAway analysis, ClassTree tree, VisitorState state, Symbol.ClassSymbol classSymbol) {
+    this.analysis = analysis;
+    // Clear compilation unit specific state
+    clearPerMethodState();
+  }
+
+  @Override
+  public void onReportCacheFootprint(CacheFootprintReport report) {
+    report.add(
+        "StreamNullabilityPropagator.filterMethodOrLambdaSet",
+        filterMethodOrLambdaSet.size(),
+        filterMethodOrLambdaSet);
+    report.add(
+        "StreamNullabilityPropagator.observableOuterCallInChain",
+        observableOuterCallInChain.size(),
+        observableOuterCallInChain);
+    report.add(
+        "StreamNullabilityPropagator.observableCallToInnerMethodOrLambda",
+        observableCallToInnerMethodOrLambda.size(),
+        observableCallToInnerMethodOrLambda);
+    report.add(
+        "StreamNullabilityPropagator.collectCallToRecordsAndInnerMethodsOrLambdas",
+        collectCallToRecordsAndInnerMethodsOrLambdas.size(),
+        collectCallToRecordsAndInnerMethodsOrLambdas);
+    report.add(
+        "StreamNullabilityPropagator.mapOrCollectRecordToFilterMap",
+        mapOrCollectRecordToFilterMap.size(),
+        mapOrCollectRecordToFilterMap);
+    report.add("StreamNullabilityPropagator.filterToNSMap", filterToNSMap.size(), filterToNSMap);
+    report.add(
+        "StreamNullabilityPropagator.bodyToMethodOrLambda",
+        bodyToMethodOrLambda.size(),
+        bodyToMethodOrLambda);
+    report.add(
+        "StreamNullabilityPropagator.returnToEnclosingMethodOrLambda",
+        returnToEnclosingMethodOrLambda.size(),
+        returnToEnclosingMethodOrLambda);
+    report.add(
+        "StreamNullabilityPropagator.expressionBodyToFilterLambda",
+        expressionBodyToFilterLambda.size(),
+        expressionBodyToFilterLambda);
+    ModelIndex index = modelIndex;
+    if (index != null) {
+      report.add(
+          "StreamNullabilityPropagator.modelsForReceiverType",
+          index.modelsForReceiverType.size(),
+          index.modelsForReceiverType);
+      report.add(
+          "StreamNullabilityPropagator.streamMethodInfos",
+          index.streamMethodInfos.size(),
+          index.streamMethodInfos);
+    }
   }
 
   @Override
@@ -222,11 +414,12 @@ class StreamNullabilityPropagator implements Handler {
 
     Symbol.MethodSymbol methodSymbol = methodAnalysisContext.methodSymbol();
     VisitorState state = methodAnalysisContext.state();
+    // A method not mentioned by any model can neither start nor continue a chain we track
+    if (!mayBeModeledMethod(methodSymbol, state)) {
+      return;
+    }
     Type receiverType = ASTHelpers.getReceiverType(tree);
-    for (StreamTypeRecord streamType : models) {
-      if (!streamType.matchesType(receiverType, state)) {
-        continue;
-      }
+    for (StreamTypeRecord streamType : modelsMatchingType(receiverType, state)) {
       // Build observable call chain
       buildObservableCallChain(tree);
       if (methodSymbol.getParameters().length() != 1) {
@@ -234,25 +427,27 @@ class StreamNullabilityPropagator implements Handler {
       }
 
       // Dispatch to code handling specific observer methods
-      if (streamType.isFilterMethod(methodSymbol)) {
+      StreamMethodInfo methodInfo = streamMethodInfo(streamType, methodSymbol, state);
+      MapLikeMethodRecord mapRecord = methodInfo.mapRecord();
+      if (methodInfo.isFilter()) {
         handleFilterMethod(tree, streamType, state);
-      } else if (streamType.isMapMethod(methodSymbol)) {
-        handleMapMethod(tree, streamType, methodSymbol);
+      } else if (mapRecord != null) {
+        handleMapMethod(tree, mapRecord);
       } else {
-        handleCollectMethod(tree, streamType, methodSymbol);
+        handleCollectMethod(tree, methodInfo.collectRecords());
       }
     }
   }
 
   private void handleCollectMethod(
-      MethodInvocationTree tree, StreamTypeRecord streamType, Symbol.MethodSymbol methodSymbol) {
+      MethodInvocationTree tree,
+      ImmutableCollection<CollectLikeMethodRecord> collectlikeMethodRecords) {
     // We can have multiple CollectLikeMethodRecords for a single collect method, reflecting
     // the different possible collector factory methods whose result may be passed to a
     // collect call.  At a single collect call site, at most one of these records will be
     // relevant. So, we loop through them all, but break out of the loop as soon as we find
     // one that matches.
-    for (CollectLikeMethodRecord collectlikeMethodRecord :
-        streamType.getCollectlikeMethodRecords(methodSymbol)) {
+    for (CollectLikeMethodRecord collectlikeMethodRecord : collectlikeMethodRecords) {
       boolean handled = handleCollectCall(tree, collectlikeMethodRecord);
       if (handled) {
         break;
@@ -277,14 +472,12 @@ class StreamNullabilityPropagator implements Handler {
     }
   }
 
-  private void handleMapMethod(
-      MethodInvocationTree tree, StreamTypeRecord streamType, Symbol.MethodSymbol methodSymbol) {
+  private void handleMapMethod(MethodInvocationTree tree, MapLikeMethodRecord methodRecord) {
     ExpressionTree argTree = tree.getArguments().get(0);
     if (argTree instanceof NewClassTree newClassTree) {
       ClassTree anonClassBody = newClassTree.getClassBody();
       // Ensure that this `new B() ...` has a custom class body, otherwise, we skip for now.
       if (anonClassBody != null) {
-        MapLikeMethodRecord methodRecord = streamType.getMaplikeMethodRecord(methodSymbol);
         handleMapOrCollectAnonClassBody(
             methodRecord, anonClassBody, t -> observableCallToInnerMethodOrLambda.put(tree, t));
       }
@@ -336,12 +529,13 @@ class StreamNullabilityPropagator implements Handler {
     if (methodSymbol == null
         || methodSymbol.isStatic()
         || invocationTree.getArguments().size() != 1
-        || mainHandler == null) {
+        || mainHandler == null
+        || !mayBeModeledMethod(methodSymbol, state)) {
       return false;
     }
     Type receiverType = ASTHelpers.getReceiverType(invocationTree);
-    for (StreamTypeRecord streamType : models) {
-      if (streamType.matchesType(receiverType, state) && streamType.isFilterMethod(methodSymbol)) {
+    for (StreamTypeRecord streamType : modelsMatchingType(receiverType, state)) {
+      if (streamMethodInfo(streamType, methodSymbol, state).isFilter()) {
         Symbol predicateMethodSymbol = ASTHelpers.getSymbol(invocationTree.getArguments().get(0));
         if (predicateMethodSymbol instanceof Symbol.MethodSymbol predicateMethod
             && mainHandler.isSingleArgNullImpliesFalseMethod(predicateMethod, state)) {
@@ -456,10 +650,10 @@ class StreamNullabilityPropagator implements Handler {
       if (observableCallToInnerMethodOrLambda.containsKey(outerCallInChain)) {
         // Update mapOrCollectRecordToFilterMap
         Symbol.MethodSymbol mapMethod = ASTHelpers.getSymbol(outerCallInChain);
-        if (streamType.isMapMethod(mapMethod)) {
+        MapLikeMethodRecord mapRecord = streamMethodInfo(streamType, mapMethod, state).mapRecord();
+        if (mapRecord != null) {
           MapOrCollectMethodToFilterInstanceRecord record =
-              new MapOrCollectMethodToFilterInstanceRecord(
-                  streamType.getMaplikeMethodRecord(mapMethod), filterMethodOrLambda);
+              new MapOrCollectMethodToFilterInstanceRecord(mapRecord, filterMethodOrLambda);
           mapOrCollectRecordToFilterMap.put(
               observableCallToInnerMethodOrLambda.get(outerCallInChain), record);
         }
@@ -475,8 +669,10 @@ class StreamNullabilityPropagator implements Handler {
         }
       }
     } while (outerCallInChain != null
-        && streamType.matchesType(ASTHelpers.getReceiverType(outerCallInChain), state)
-        && streamType.isPassthroughMethod(ASTHelpers.getSymbol(outerCallInChain)));
+        && modelsMatchingType(ASTHelpers.getReceiverType(outerCallInChain), state)
+            .contains(streamType)
+        && streamMethodInfo(streamType, ASTHelpers.getSymbol(outerCallInChain), state)
+            .isPassthrough());
   }
 
   private void handleFilterAnonClass(
@@ -519,6 +715,10 @@ class StreamNullabilityPropagator implements Handler {
 
   @Override
   public void onMatchMethod(MethodTree tree, MethodAnalysisContext methodAnalysisContext) {
+    if (isTopmostScopeMethod(methodAnalysisContext.methodSymbol())) {
+      // Any chain tracked so far lies within a previous topmost method, which is done
+      clearPerMethodState();
+    }
     if (mapOrCollectRecordToFilterMap.containsKey(tree)) {
       bodyToMethodOrLambda.put(tree.getBody(), tree);
     }
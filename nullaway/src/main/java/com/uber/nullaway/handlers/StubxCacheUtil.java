@@ -23,23 +23,24 @@ package com.uber.nullaway.handlers;
  */
 
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.SetMultimap;
 import com.uber.nullaway.jarinfer.JarInferStubxProvider;
+import com.uber.nullaway.libmodel.MultiLevelStubx;
 import com.uber.nullaway.libmodel.NestedAnnotationInfo;
-import com.uber.nullaway.libmodel.NestedAnnotationInfo.Annotation;
-import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry;
-import com.uber.nullaway.libmodel.NestedAnnotationInfo.TypePathEntry.Kind;
-import java.io.DataInputStream;
+import com.uber.nullaway.libmodel.StubxFormat;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A class responsible for caching annotation information extracted from stubx files.
@@ -47,16 +48,11 @@ import java.util.Set;
  * <p>This class provides mechanisms to cache annotations and retrieve them efficiently when needed.
  * It uses a nested map structure to store annotations, which are indexed by class name, method
  * signature, and argument index. It also stores a Map containing the indices for Nullable upper
- * bounds for generic type parameters.
+ * bounds for generic type parameters. The records of version 2 files can instead be read one class
+ * at a time, see {@link #addStubStream}.
  */
 public class StubxCacheUtil {
 
-  /**
-   * The file magic number for version 1 .astubx files. It should be the first four bytes of any
-   * compatible .astubx file.
-   */
-  private static final int VERSION_1_FILE_MAGIC_NUMBER = 481874642;
-
   private boolean DEBUG = false;
   private String logCaller = "";
 
@@ -78,6 +74,14 @@ public class StubxCacheUtil {
 
   private final Map<String, SetMultimap<Integer, NestedAnnotationInfo>> nestedAnnotationInfoCache;
 
+  /** Version 2 files added with {@link #addStubStream}, whose records are read per class. */
+  private final List<LazyStubx> lazyStubxFiles = new ArrayList<>();
+
+  /** Names of the methods with records in {@link #lazyStubxFiles}. */
+  private final Set<String> lazyMethodNames = new HashSet<>();
+
+  private record LazyStubx(StubxFormat.Reader reader, String location) {}
+
   /**
    * Initializes a new {@code StubxCacheUtil} instance, optionally loading JarInfer stubx files
    * discovered on the classpath.
@@ -133,7 +137,7 @@ public class StubxCacheUtil {
           if (stubxInputStream == null) {
             throw new RuntimeException("could not get input stream for " + astubxPath);
           }
-          parseStubStream(stubxInputStream, stubxLocation);
+          addStubStream(stubxInputStream, stubxLocation);
           LOG(DEBUG, "DEBUG", "loaded stubx file " + stubxLocation);
         } catch (IOException e) {
           throw new RuntimeException("could not parse stubx file " + stubxLocation, e);
@@ -142,105 +146,153 @@ public class StubxCacheUtil {
     }
   }
 
+  /**
+   * Parses an astubx file in any supported version of the format, see {@link StubxFormat}, and adds
+   * its contents to the caches.
+   *
+   * @param stubxInputStream Input stream for the astubx file.
+   * @param stubxLocation Location of the file, for error messages.
+   * @throws IOException On input error, or if the file is truncated.
+   */
   public void parseStubStream(InputStream stubxInputStream, String stubxLocation)
       throws IOException {
-    String[] strings;
-    DataInputStream in = new DataInputStream(stubxInputStream);
-    // Read and check the magic version number
-    if (in.readInt() != VERSION_1_FILE_MAGIC_NUMBER) {
+    byte[] bytes = stubxInputStream.readAllBytes();
+    // Check the magic version number
+    if (StubxFormat.formatVersion(bytes) == 0) {
       throw new Error("Invalid file version/magic number for stubx file!" + stubxLocation);
     }
-    // Read the number of strings in the string dictionary
-    int numStrings = in.readInt();
-    // Populate the string dictionary {idx => value}, where idx is encoded by the string position
-    // inside this section.
-    strings = new String[numStrings];
-    for (int i = 0; i < numStrings; ++i) {
-      strings[i] = in.readUTF();
+    StubxFormat.read(bytes, stubxLocation, new CacheVisitor(stubxLocation));
+  }
+
+  /**
+   * Adds an astubx file. The records of version 2 files are not read here: they are indexed by
+   * class, and {@link #forClass} reads those of a class when it is first looked up. Version 1 files
+   * have no index, and are parsed right away as by {@link #parseStubStream}.
+   *
+   * @param stubxInputStream Input stream for the astubx file.
+   * @param stubxLocation Location of the file, for error messages.
+   * @throws IOException On input error, or if the file is truncated.
+   */
+  public void addStubStream(InputStream stubxInputStream, String stubxLocation)
+      throws IOException {
+    byte[] bytes = stubxInputStream.readAllBytes();
+    if (StubxFormat.formatVersion(bytes) != 2) {
+      parseStubStream(new ByteArrayInputStream(bytes), stubxLocation);
+      return;
+    }
+    StubxFormat.Reader reader = StubxFormat.Reader.open(bytes, stubxLocation);
+    lazyStubxFiles.add(new LazyStubx(reader, stubxLocation));
+    lazyMethodNames.addAll(reader.methodNames());
+  }
+
+  /** Returns true if some files were added whose records are only read by {@link #forClass}. */
+  public boolean hasLazyStubxFiles() {
+    return !lazyStubxFiles.isEmpty();
+  }
+
+  /** Returns the names of the methods with records that are only read by {@link #forClass}. */
+  public Set<String> getLazyMethodNames() {
+    return lazyMethodNames;
+  }
+
+  /**
+   * Reads the records of a single class from the version 2 files added with {@link
+   * #addStubStream}. Safe to call concurrently, as the files are not modified.
+   *
+   * @param className The class name, as it appears before the {@code :} of method signatures.
+   * @return a new instance whose caches only hold the records of the class, or null if no file
+   *     has records for it
+   * @throws IOException If a file is malformed.
+   */
+  public @Nullable StubxCacheUtil forClass(String className) throws IOException {
+    StubxCacheUtil classCache = new StubxCacheUtil(logCaller, false);
+    boolean found = false;
+    for (LazyStubx file : lazyStubxFiles) {
+      found |= file.reader().readClass(className, classCache.new CacheVisitor(file.location()));
+    }
+    return found ? classCache : null;
+  }
+
+  /**
+   * Parses a file with the JarInfer models of several API levels, see {@link MultiLevelStubx}, and
+   * adds the model of one level to the caches.
+   *
+   * @param stubxInputStream Input stream for the multi-level file.
+   * @param stubxLocation Location of the file, for error messages.
+   * @param apiLevel The API level compiled against. The model of the highest level of the file
+   *     that is not above it is loaded.
+   * @return the API level of the loaded model, or -1 if the file has no model for such a level
+   * @throws IOException On input error, or if the file is malformed.
+   */
+  public int parseMultiLevelStubStream(
+      InputStream stubxInputStream, String stubxLocation, int apiLevel) throws IOException {
+    MultiLevelStubx.Reader reader =
+        MultiLevelStubx.Reader.open(stubxInputStream.readAllBytes(), stubxLocation);
+    int modelLevel = reader.floorLevel(apiLevel);
+    if (modelLevel != -1) {
+      reader.readLevel(modelLevel, new CacheVisitor(stubxLocation));
     }
-    // Read the number of (package, annotation) entries
-    int numPackages = in.readInt();
-    // Read each (package, annotation) entry, where the int values point into the string
-    // dictionary loaded before.
-    for (int i = 0; i < numPackages; ++i) {
-      in.readInt(); // String packageName = strings[in.readInt()];
-      in.readInt(); // String annotation = strings[in.readInt()];
+    return modelLevel;
+  }
+
+  /** Adds the records of an astubx file to the caches. */
+  private final class CacheVisitor implements StubxFormat.Visitor {
+
+    private final String stubxLocation;
+
+    CacheVisitor(String stubxLocation) {
+      this.stubxLocation = stubxLocation;
     }
-    // Read the number of (type, annotation) entries
-    int numTypes = in.readInt();
-    // Read each (type, annotation) entry, where the int values point into the string
-    // dictionary loaded before.
-    for (int i = 0; i < numTypes; ++i) {
-      in.readInt(); // String typeName = strings[in.readInt()];
-      in.readInt(); // String annotation = strings[in.readInt()];
+
+    @Override
+    public void nullMarkedClass(String className) {
+      nullMarkedClassesCache.add(className);
+    }
+
+    @Override
+    public void nullableUpperBound(String className, int typeParamIndex) {
+      cacheUpperBounds(className, typeParamIndex);
     }
-    // Read the number of (method, annotation) entries
-    int numMethods = in.readInt();
-    // Read each (method, annotation) record
-    for (int i = 0; i < numMethods; ++i) {
-      String methodSig = strings[in.readInt()];
-      String annotation = strings[in.readInt()];
+
+    @Override
+    public void methodAnnotation(String methodSig, String annotation) {
       LOG(DEBUG, "DEBUG", "method: " + methodSig + ", return annotation: " + annotation);
       cacheAnnotation(methodSig, RETURN, annotation);
     }
-    // Read the number of (method, nullable type parameter index)
-    int numMethodTypeParams = in.readInt();
-    for (int i = 0; i < numMethodTypeParams; ++i) {
-      String methodSig = strings[in.readInt()];
-      int idx = in.readInt();
-      this.methodTypeParamNullableUpperBoundCache.put(methodSig, idx);
+
+    @Override
+    public void methodTypeParamNullableUpperBound(String methodSig, int typeParamIndex) {
+      methodTypeParamNullableUpperBoundCache.put(methodSig, typeParamIndex);
     }
-    // Read the number of (method, argument, annotation) entries
-    int numArgumentRecords = in.readInt();
-    // Read each (method, argument, annotation) record
-    for (int i = 0; i < numArgumentRecords; ++i) {
-      String methodSig = strings[in.readInt()];
-      if (methodSig.lastIndexOf(':') == -1 || methodSig.split(":")[0].lastIndexOf('.') == -1) {
-        throw new Error(
-            "Invalid method signature " + methodSig + " in stubx file " + stubxLocation);
-      }
-      int argNum = in.readInt();
-      String annotation = strings[in.readInt()];
+
+    @Override
+    public void argumentAnnotation(String methodSig, int argIndex, String annotation) {
+      checkMethodSignature(methodSig, stubxLocation);
       LOG(
           DEBUG,
           "DEBUG",
-          "method: " + methodSig + ", argNum: " + argNum + ", arg annotation: " + annotation);
-      cacheAnnotation(methodSig, argNum, annotation);
-    }
-    // nested annotation info in methods
-    int methodNestedAnnotSize = in.readInt();
-    for (int i = 0; i < methodNestedAnnotSize; i++) {
-      String methodSig = strings[in.readInt()];
-      int index = in.readInt(); // -1: return type, 0+: parameter index
-      String annotation = strings[in.readInt()];
-      int typePathLength = in.readInt();
-      ImmutableList.Builder<TypePathEntry> typePathEntryBuilder = new ImmutableList.Builder<>();
-      for (int j = 0; j < typePathLength; j++) {
-        String kind = strings[in.readInt()];
-        int typePathIndex = in.readInt();
-        typePathEntryBuilder.add(new TypePathEntry(Kind.valueOf(kind), typePathIndex));
-      }
-      NestedAnnotationInfo nestedAnnotationInfo =
-          new NestedAnnotationInfo(Annotation.valueOf(annotation), typePathEntryBuilder.build());
-      SetMultimap<Integer, NestedAnnotationInfo> targetMap =
-          this.nestedAnnotationInfoCache.computeIfAbsent(methodSig, k -> HashMultimap.create());
-      targetMap.put(index, nestedAnnotationInfo);
+          "method: " + methodSig + ", argNum: " + argIndex + ", arg annotation: " + annotation);
+      cacheAnnotation(methodSig, argIndex, annotation);
     }
-    // reading the NullMarked classes
-    int numNullMarkedClasses = in.readInt();
-    for (int i = 0; i < numNullMarkedClasses; i++) {
-      this.nullMarkedClassesCache.add(strings[in.readInt()]);
+
+    @Override
+    public void nestedAnnotation(String methodSig, int index, NestedAnnotationInfo info) {
+      cacheNestedAnnotation(methodSig, index, info);
     }
-    // read the number of nullable upper bound entries
-    int numClassesWithNullableUpperBounds = in.readInt();
-    for (int i = 0; i < numClassesWithNullableUpperBounds; i++) {
-      int numParams = in.readInt();
-      for (int j = 0; j < numParams; j++) {
-        cacheUpperBounds(strings[in.readInt()], in.readInt());
-      }
+  }
+
+  private static void checkMethodSignature(String methodSig, String stubxLocation) {
+    if (methodSig.lastIndexOf(':') == -1 || methodSig.split(":")[0].lastIndexOf('.') == -1) {
+      throw new Error("Invalid method signature " + methodSig + " in stubx file " + stubxLocation);
     }
   }
 
+  private void cacheNestedAnnotation(String methodSig, int index, NestedAnnotationInfo info) {
+    SetMultimap<Integer, NestedAnnotationInfo> targetMap =
+        this.nestedAnnotationInfoCache.computeIfAbsent(methodSig, k -> HashMultimap.create());
+    targetMap.put(index, info);
+  }
+
   private void cacheAnnotation(String methodSig, Integer argNum, String annotation) {
     // TODO: handle inner classes properly
     String className = methodSig.split(":")[0].replace('$', '.');
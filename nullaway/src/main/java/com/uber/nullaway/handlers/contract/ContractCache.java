@@ -0,0 +1,122 @@
+package com.uber.nullaway.handlers.contract;
+
+import static com.uber.nullaway.NullabilityUtil.castToNonNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.util.Context;
+import com.uber.nullaway.CacheFootprintReport;
+import com.uber.nullaway.Config;
+import com.uber.nullaway.NullabilityUtil;
+import com.uber.nullaway.handlers.AbstractFieldContractHandler;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.VariableElement;
+
+/**
+ * Caches the parsed form of contract annotations on methods, i.e., the clauses of {@code @Contract}
+ * annotations and the fields named by field contract annotations like {@code @EnsuresNonNull}.
+ * These annotations are consulted at every call site of the annotated method, and most callees
+ * have no such annotation at all, so we read and parse the annotations of each method at most once.
+ */
+public final class ContractCache {
+
+  private static final Context.Key<ContractCache> CONTRACT_CACHE_KEY = new Context.Key<>();
+
+  private final Map<Symbol.MethodSymbol, ImmutableList<ContractClause>> contractClauses =
+      new HashMap<>();
+
+  /** Maps an annotation name to the resolved field contracts of methods, keyed by method. */
+  private final Map<String, Map<Symbol.MethodSymbol, ImmutableMap<String, VariableElement>>>
+      fieldContracts = new HashMap<>();
+
+  private ContractCache() {}
+
+  /**
+   * Get the ContractCache for the given javac context. We ensure there is one instance per context
+   * (as opposed to using static fields) to avoid memory leaks.
+   */
+  public static ContractCache instance(Context context) {
+    ContractCache contractCache = context.get(CONTRACT_CACHE_KEY);
+    if (contractCache == null) {
+      contractCache = new ContractCache();
+      context.put(CONTRACT_CACHE_KEY, contractCache);
+    }
+    return contractCache;
+  }
+
+  /** Reports the parsed contracts, see {@link CacheFootprintReport}. */
+  public void reportCacheFootprint(CacheFootprintReport report) {
+    report.add("ContractCache.contractClauses", contractClauses.size(), contractClauses);
+    long fieldContractEntries = 0;
+    for (Map<Symbol.MethodSymbol, ImmutableMap<String, VariableElement>> contracts :
+        fieldContracts.values()) {
+      fieldContractEntries += contracts.size();
+    }
+    report.add("ContractCache.fieldContracts", fieldContractEntries, fieldContracts);
+  }
+
+  /**
+   * Returns the parsed clauses of the {@code @Contract} annotation on a method.
+   *
+   * @param methodSymbol the method
+   * @param config the NullAway config
+   * @return the parsed clauses, or an empty list if the method has no contract annotation
+   */
+  ImmutableList<ContractClause> getContractClauses(
+      Symbol.MethodSymbol methodSymbol, Config config) {
+    ImmutableList<ContractClause> clauses = contractClauses.get(methodSymbol);
+    if (clauses == null) {
+      ImmutableList.Builder<ContractClause> builder = ImmutableList.builder();
+      for (String clause : ContractUtils.getContractClauses(methodSymbol, config)) {
+        builder.add(ContractClause.parse(clause));
+      }
+      clauses = builder.build();
+      contractClauses.put(methodSymbol, clauses);
+    }
+    return clauses;
+  }
+
+  /**
+   * Returns the fields named by a field contract annotation on a method, resolved against the
+   * method's enclosing class. Names that cannot be resolved to a field are left out; they are
+   * reported when validating the annotation on the method declaration.
+   *
+   * @param methodSymbol the method
+   * @param annotName the name of the field contract annotation
+   * @return map from field names, with receivers trimmed, to the fields they denote, in annotation
+   *     order; empty if the method does not have the annotation
+   */
+  public ImmutableMap<String, VariableElement> getFieldContract(
+      Symbol.MethodSymbol methodSymbol, String annotName) {
+    Map<Symbol.MethodSymbol, ImmutableMap<String, VariableElement>> cache =
+        fieldContracts.computeIfAbsent(annotName, k -> new HashMap<>());
+    ImmutableMap<String, VariableElement> fields = cache.get(methodSymbol);
+    if (fields == null) {
+      fields = resolveFieldContract(methodSymbol, annotName);
+      cache.put(methodSymbol, fields);
+    }
+    return fields;
+  }
+
+  private static ImmutableMap<String, VariableElement> resolveFieldContract(
+      Symbol.MethodSymbol methodSymbol, String annotName) {
+    Set<String> fieldNames =
+        NullabilityUtil.getAnnotationValueArray(methodSymbol, annotName, false);
+    if (fieldNames == null) {
+      return ImmutableMap.of();
+    }
+    Symbol.ClassSymbol classSymbol = castToNonNull(ASTHelpers.enclosingClass(methodSymbol));
+    ImmutableMap.Builder<String, VariableElement> fields = ImmutableMap.builder();
+    for (String fieldName : ContractUtils.trimReceivers(fieldNames)) {
+      VariableElement field = AbstractFieldContractHandler.getFieldOfClass(classSymbol, fieldName);
+      if (field != null) {
+        fields.put(fieldName, field);
+      }
+    }
+    return fields.buildOrThrow();
+  }
+}
@@ -22,10 +22,8 @@
 
 package com.uber.nullaway.handlers.contract;
 
-import static com.uber.nullaway.handlers.contract.ContractUtils.getAntecedent;
-import static com.uber.nullaway.handlers.contract.ContractUtils.getConsequent;
-
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
@@ -89,20 +87,21 @@ public class ContractCheckHandler implements Handler {
   public void onMatchMethod(MethodTree tree, MethodAnalysisContext methodAnalysisContext) {
     Symbol.MethodSymbol callee = ASTHelpers.getSymbol(tree);
     Preconditions.checkNotNull(callee);
+    VisitorState state = methodAnalysisContext.state();
     // Check to see if this method has an @Contract annotation
-    String[] clauses = ContractUtils.getContractClauses(callee, config);
-    if (clauses.length == 1) {
-      String clause = clauses[0];
+    ImmutableList<ContractClause> clauses =
+        ContractCache.instance(state.context).getContractClauses(callee, config);
+    if (clauses.size() == 1) {
+      ContractClause contractClause = clauses.get(0);
+      String clause = contractClause.clause();
       NullAway analysis = methodAnalysisContext.analysis();
-      VisitorState state = methodAnalysisContext.state();
-      String[] antecedent =
-          getAntecedent(clause, tree, analysis, state, callee, tree.getParameters().size());
-      String consequent = getConsequent(clause, tree, analysis, state, callee);
+      ContractUtils.reportInvalidClause(contractClause, tree, analysis, state, callee);
+      List<String> antecedent = contractClause.antecedent();
+      String consequent = contractClause.consequent();
 
       boolean checkMethodBody = config.checkContracts();
 
-      for (int i = 0; i < antecedent.length; ++i) {
-        String valueConstraint = antecedent[i].trim();
+      for (String valueConstraint : antecedent) {
         if (!allValidValueConstraints.contains(valueConstraint)) {
           String errorMessage =
               "Invalid @Contract annotation detected for method "
@@ -202,15 +201,15 @@ public class ContractCheckHandler implements Handler {
   }
 
   private static String getErrorMessageForViolatedContract(
-      String[] antecedent, Symbol.MethodSymbol callee, String clause, MethodTree tree) {
+      List<String> antecedent, Symbol.MethodSymbol callee, String clause, MethodTree tree) {
     String errorMessage;
 
     // used for error message
     int nonNullAntecedentCount = 0;
     int nonNullAntecedentPosition = -1;
 
-    for (int i = 0; i < antecedent.length; ++i) {
-      String valueConstraint = antecedent[i].trim();
+    for (int i = 0; i < antecedent.size(); ++i) {
+      String valueConstraint = antecedent.get(i);
 
       if (valueConstraint.equals("!null")) {
         nonNullAntecedentCount += 1;
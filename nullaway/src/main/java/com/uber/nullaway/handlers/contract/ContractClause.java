@@ -0,0 +1,36 @@
+package com.uber.nullaway.handlers.contract;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A single parsed clause of a {@code @Contract} annotation, e.g. {@code "null, _ -> false"}.
+ *
+ * @param clause the raw text of the clause, used in error messages
+ * @param antecedent the trimmed value constraints in the clause's antecedent
+ * @param consequent the trimmed consequent of the clause, or the empty string if the clause is not
+ *     well-formed
+ * @param wellFormed whether the clause consists of exactly an antecedent and a consequent
+ *     separated by {@code ->}
+ */
+record ContractClause(
+    String clause, ImmutableList<String> antecedent, String consequent, boolean wellFormed) {
+
+  /**
+   * Parses a single contract clause. Never fails; malformed clauses are reported on the method
+   * declaration by {@link ContractUtils#reportInvalidClause}.
+   *
+   * @param clause the clause to parse
+   * @return the parsed clause
+   */
+  static ContractClause parse(String clause) {
+    ImmutableList.Builder<String> antecedent = ImmutableList.builder();
+    for (String valueConstraint : ContractUtils.parseAntecedent(clause)) {
+      antecedent.add(valueConstraint.trim());
+    }
+    String[] parts = clause.split("->");
+    if (parts.length != 2) {
+      return new ContractClause(clause, antecedent.build(), "", false);
+    }
+    return new ContractClause(clause, antecedent.build(), parts[1].trim(), true);
+  }
+}
@@ -23,10 +23,9 @@
 package com.uber.nullaway.handlers.contract;
 
 import static com.uber.nullaway.NullabilityUtil.castToNonNull;
-import static com.uber.nullaway.handlers.contract.ContractUtils.getAntecedent;
-import static com.uber.nullaway.handlers.contract.ContractUtils.getConsequent;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
@@ -45,6 +44,7 @@ import com.uber.nullaway.dataflow.cfg.NullAwayCFGBuilder;
 import com.uber.nullaway.generics.GenericsChecks;
 import com.uber.nullaway.handlers.Handler;
 import com.uber.nullaway.handlers.MethodAnalysisContext;
+import java.util.List;
 import java.util.Optional;
 import javax.lang.model.type.TypeMirror;
 import org.checkerframework.nullaway.dataflow.cfg.node.AbstractNodeVisitor;
@@ -90,8 +90,6 @@ public class ContractHandler implements Handler {
 
   private final Config config;
 
-  private @Nullable NullAway analysis;
-
   // Cached on visiting the top-level class and used for onCFGBuildPhase1AfterVisitMethodInvocation,
   // where no VisitorState is otherwise available.
   private @Nullable VisitorState storedVisitorState;
@@ -108,15 +106,15 @@ public class ContractHandler implements Handler {
     if (methodSymbol.getParameters().size() != 1) {
       return false;
     }
-    for (String clause : ContractUtils.getContractClauses(methodSymbol, config)) {
-      String[] parts = clause.split("->");
-      if (parts.length != 2) {
+    for (ContractClause clause :
+        ContractCache.instance(state.context).getContractClauses(methodSymbol, config)) {
+      if (!clause.wellFormed()) {
         continue;
       }
-      String[] antecedent = parts[0].trim().isEmpty() ? new String[0] : parts[0].split(",");
-      if (antecedent.length == 1
-          && antecedent[0].trim().equals("null")
-          && parts[1].trim().equals("false")) {
+      List<String> antecedent = clause.antecedent();
+      if (antecedent.size() == 1
+          && antecedent.get(0).equals("null")
+          && clause.consequent().equals("false")) {
         return true;
       }
     }
@@ -139,12 +137,13 @@ public class ContractHandler implements Handler {
   public void onMatchMethodReference(
       MemberReferenceTree tree, MethodAnalysisContext methodAnalysisContext) {
     Symbol.MethodSymbol referencedMethod = methodAnalysisContext.methodSymbol();
-    String[] clauses = ContractUtils.getContractClauses(referencedMethod, config);
-    if (clauses.length == 0) {
+    VisitorState state = methodAnalysisContext.state();
+    ImmutableList<ContractClause> clauses =
+        ContractCache.instance(state.context).getContractClauses(referencedMethod, config);
+    if (clauses.isEmpty()) {
       return;
     }
     NullAway analysis = methodAnalysisContext.analysis();
-    VisitorState state = methodAnalysisContext.state();
     Symbol.MethodSymbol funcInterfaceMethod =
         NullabilityUtil.getFunctionalInterfaceMethod(tree, state.getTypes());
     int numParams = referencedMethod.getParameters().size();
@@ -156,18 +155,17 @@ public class ContractHandler implements Handler {
         || funcInterfaceMethod.getParameters().size() != numParams) {
       return;
     }
-    for (String clause : clauses) {
-      String[] parts = clause.split("->");
-      if (parts.length != 2 || !parts[1].trim().equals("!null")) {
+    for (ContractClause clause : clauses) {
+      if (!clause.wellFormed() || !clause.consequent().equals("!null")) {
         continue;
       }
-      String[] antecedent = parts[0].trim().isEmpty() ? new String[0] : parts[0].split(",");
-      if (antecedent.length != numParams) {
+      List<String> antecedent = clause.antecedent();
+      if (antecedent.size() != numParams) {
         continue;
       }
       boolean guaranteedNonNull = true;
-      for (int i = 0; i < antecedent.length; i++) {
-        String valueConstraint = antecedent[i].trim();
+      for (int i = 0; i < antecedent.size(); i++) {
+        String valueConstraint = antecedent.get(i);
         if (valueConstraint.equals("_")) {
           // the clause holds no matter what is passed at this position
           continue;
@@ -225,7 +223,6 @@ public class ContractHandler implements Handler {
   @Override
   public void onMatchTopLevelClass(
       NullAway analysis, ClassTree tree, VisitorState state, Symbol.ClassSymbol classSymbol) {
-    this.analysis = analysis;
     this.storedVisitorState = state;
   }
 
@@ -235,24 +232,17 @@ public class ContractHandler implements Handler {
       MethodInvocationTree tree,
       MethodInvocationNode originalNode) {
     Preconditions.checkNotNull(storedVisitorState);
-    Preconditions.checkNotNull(analysis);
     Symbol.MethodSymbol callee = ASTHelpers.getSymbol(tree);
     Preconditions.checkNotNull(callee);
-    for (String clause : ContractUtils.getContractClauses(callee, config)) {
+    for (ContractClause clause :
+        ContractCache.instance(storedVisitorState.context).getContractClauses(callee, config)) {
       // This method currently handles contracts of the form `(true|false) -> fail`, other
       // contracts are handled by 'onDataflowVisitMethodInvocation' which has access to more
       // dataflow information.
-      if (!"fail".equals(getConsequent(clause, tree, analysis, storedVisitorState, callee))) {
+      if (!"fail".equals(clause.consequent())) {
         continue;
       }
-      String[] antecedent =
-          getAntecedent(
-              clause,
-              tree,
-              analysis,
-              storedVisitorState,
-              callee,
-              originalNode.getArguments().size());
+      List<String> antecedent = clause.antecedent();
       // Find a single value constraint that is not already known. If more than one argument with
       // unknown nullness affects the method's result, then ignore this clause.
       Node arg = null;
@@ -260,8 +250,8 @@ public class ContractHandler implements Handler {
       boolean supported = true;
       boolean booleanConstraint = false;
 
-      for (int i = 0; i < antecedent.length; ++i) {
-        String valueConstraint = antecedent[i].trim();
+      for (int i = 0; i < antecedent.size(); ++i) {
+        String valueConstraint = antecedent.get(i);
         if ("false".equals(valueConstraint) || "true".equals(valueConstraint)) {
           if (arg != null) {
             // We don't currently support contracts depending on the boolean value of more than one
@@ -315,13 +305,12 @@ public class ContractHandler implements Handler {
       AccessPathNullnessPropagation.Updates thenUpdates,
       AccessPathNullnessPropagation.Updates elseUpdates,
       AccessPathNullnessPropagation.Updates bothUpdates) {
-    Preconditions.checkNotNull(analysis);
     MethodInvocationTree tree = castToNonNull(node.getTree());
-    for (String clause : ContractUtils.getContractClauses(callee, config)) {
+    for (ContractClause clause :
+        ContractCache.instance(state.context).getContractClauses(callee, config)) {
 
-      String[] antecedent =
-          getAntecedent(clause, tree, analysis, state, callee, node.getArguments().size());
-      String consequent = getConsequent(clause, tree, analysis, state, callee);
+      List<String> antecedent = clause.antecedent();
+      String consequent = clause.consequent();
 
       // Find a single value constraint that is not already known. If more than one argument with
       // unknown nullness affects the method's result, then ignore this clause.
@@ -330,8 +319,8 @@ public class ContractHandler implements Handler {
       // Set to false if the rule is detected to be one we don't yet support
       boolean supported = true;
 
-      for (int i = 0; i < antecedent.length; ++i) {
-        String valueConstraint = antecedent[i].trim();
+      for (int i = 0; i < antecedent.size(); ++i) {
+        String valueConstraint = antecedent.get(i);
         if (valueConstraint.equals("_")) {
           // do nothing
         } else if (valueConstraint.equals("false") || valueConstraint.equals("true")) {
@@ -43,19 +43,20 @@ public class ContractNullnessStoreInitializer extends NullnessStoreInitializer {
     MethodTree methodTree = ((UnderlyingAST.CFGMethod) underlyingAST).getMethod();
     ClassTree classTree = ((UnderlyingAST.CFGMethod) underlyingAST).getClassTree();
     Symbol.MethodSymbol callee = ASTHelpers.getSymbol(methodTree);
-    String[] clauses = ContractUtils.getContractClauses(callee, config);
+    List<ContractClause> clauses =
+        ContractCache.instance(context).getContractClauses(callee, config);
 
-    if (clauses.length == 0) {
+    if (clauses.isEmpty()) {
       throw new IllegalStateException("expected a contract clause for method " + callee);
     }
 
-    String[] antecedent = ContractUtils.parseAntecedent(clauses[0]);
+    List<String> antecedent = clauses.get(0).antecedent();
 
     NullnessStore envStore = getEnvNullnessStoreForClass(classTree, context);
     NullnessStore.Builder result = envStore.toBuilder();
 
-    for (int i = 0; i < antecedent.length; ++i) {
-      String valueConstraint = antecedent[i].trim();
+    for (int i = 0; i < antecedent.size(); ++i) {
+      String valueConstraint = antecedent.get(i);
 
       LocalVariableNode param = parameters.get(i);
       Element element = param.getElement();
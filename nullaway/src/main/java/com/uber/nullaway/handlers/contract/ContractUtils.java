@@ -2,7 +2,6 @@ package com.uber.nullaway.handlers.contract;
 
 import com.google.errorprone.VisitorState;
 import com.sun.source.tree.MethodTree;
-import com.sun.source.tree.Tree;
 import com.sun.tools.javac.code.Symbol;
 import com.uber.nullaway.Config;
 import com.uber.nullaway.ErrorMessage;
@@ -32,93 +31,66 @@ public class ContractUtils {
   }
 
   /**
-   * Parses the contract clause and returns the consequent in the contract.
+   * Reports an error on a method declaration for a contract clause that is not well-formed, or
+   * whose antecedent does not have one value constraint per parameter of the method.
    *
-   * @param clause The contract clause.
-   * @param tree The AST Node for contract.
+   * @param clause The parsed contract clause.
+   * @param tree The method declaration carrying the contract.
    * @param analysis A reference to the running NullAway analysis.
    * @param state The current visitor state.
-   * @param callee Symbol for callee.
-   * @return consequent in the contract.
+   * @param callee Symbol for the method.
    */
-  static String getConsequent(
-      String clause, Tree tree, NullAway analysis, VisitorState state, Symbol callee) {
-
-    String[] parts = clause.split("->");
-    if (parts.length != 2) {
-      if (shouldReportInvalidContract(tree)) {
-        String message =
-            "Invalid @Contract annotation detected for method "
-                + callee
-                + ". It contains the following unparseable clause: "
-                + clause
-                + " (see https://www.jetbrains.com/help/idea/contract-annotations.html).";
-        state.reportMatch(
-            analysis
-                .getErrorBuilder()
-                .createErrorDescription(
-                    new ErrorMessage(ErrorMessage.MessageTypes.ANNOTATION_VALUE_INVALID, message),
-                    tree,
-                    analysis.buildDescription(tree),
-                    state,
-                    null));
-      }
-      return "";
-    }
-    return parts[1].trim();
-  }
-
-  /**
-   * Parses the contract clause and returns the antecedents in the contract.
-   *
-   * @param clause The contract clause.
-   * @param tree The AST Node for contract.
-   * @param analysis A reference to the running NullAway analysis.
-   * @param state The current visitor state.
-   * @param callee Symbol for callee.
-   * @param numOfArguments Number of arguments in the method associated with the contract.
-   * @return antecedents in the contract.
-   */
-  static String[] getAntecedent(
-      String clause,
-      Tree tree,
+  static void reportInvalidClause(
+      ContractClause clause,
+      MethodTree tree,
       NullAway analysis,
       VisitorState state,
-      Symbol callee,
-      int numOfArguments) {
-
-    String[] antecedent = parseAntecedent(clause);
-
-    if (antecedent.length != numOfArguments && shouldReportInvalidContract(tree)) {
+      Symbol callee) {
+    int numOfArguments = tree.getParameters().size();
+    if (clause.antecedent().size() != numOfArguments) {
       String message =
           "Invalid @Contract annotation detected for method "
               + callee
               + ". It contains the following unparseable clause: "
-              + clause
+              + clause.clause()
               + " (incorrect number of arguments in the clause's antecedent ["
-              + antecedent.length
+              + clause.antecedent().size()
               + "], should be the same as the number of "
               + "arguments for the method ["
               + numOfArguments
               + "]).";
-      state.reportMatch(
-          analysis
-              .getErrorBuilder()
-              .createErrorDescription(
-                  new ErrorMessage(ErrorMessage.MessageTypes.ANNOTATION_VALUE_INVALID, message),
-                  tree,
-                  analysis.buildDescription(tree),
-                  state,
-                  null));
+      reportInvalidContract(message, tree, analysis, state);
     }
-    return antecedent;
+    if (!clause.wellFormed()) {
+      String message =
+          "Invalid @Contract annotation detected for method "
+              + callee
+              + ". It contains the following unparseable clause: "
+              + clause.clause()
+              + " (see https://www.jetbrains.com/help/idea/contract-annotations.html).";
+      reportInvalidContract(message, tree, analysis, state);
+    }
+  }
+
+  private static void reportInvalidContract(
+      String message, MethodTree tree, NullAway analysis, VisitorState state) {
+    state.reportMatch(
+        analysis
+            .getErrorBuilder()
+            .createErrorDescription(
+                new ErrorMessage(ErrorMessage.MessageTypes.ANNOTATION_VALUE_INVALID, message),
+                tree,
+                analysis.buildDescription(tree),
+                state,
+                null));
   }
 
   /**
    * Parses the antecedent portion of a contract clause into its component value constraints,
    * without validating the count against a particular method's parameters (contrast with {@link
-   * #getAntecedent}, which performs that validation and reports an error on a given {@code Tree} if
-   * it fails).
+   * #reportInvalidClause}, which performs that validation and reports an error on a method
+   * declaration if it fails). Callers should generally use the parsed clauses from {@link
+   * ContractCache} instead.
    *
    * @param clause the contract clause
    * @return the value constraints in the clause's antecedent, or an empty array if the antecedent
@@ -174,15 +146,4 @@ public class ContractUtils {
     }
     return EMPTY_STRING_ARRAY;
   }
-
-  /**
-   * Determines whether we should report an invalid contract for the tree. Right now, we only report
-   * invalid contracts for method declarations ({@link MethodTree}s).
-   *
-   * @param tree the AST node to check
-   * @return true if we should report an invalid contract for this tree, false otherwise
-   */
-  private static boolean shouldReportInvalidContract(Tree tree) {
-    return tree instanceof MethodTree;
-  }
 }
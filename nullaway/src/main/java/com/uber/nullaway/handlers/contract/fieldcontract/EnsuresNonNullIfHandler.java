@@ -25,8 +25,8 @@ package com.uber.nullaway.handlers.contract.fieldcontract;
 import static com.uber.nullaway.NullabilityUtil.castToNonNull;
 import static com.uber.nullaway.NullabilityUtil.getAnnotationValueArray;
 
+import com.google.common.collect.ImmutableCollection;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.LiteralTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.ReturnTree;
@@ -43,7 +43,6 @@ import com.uber.nullaway.dataflow.AccessPathNullnessPropagation;
 import com.uber.nullaway.dataflow.NullnessStore;
 import com.uber.nullaway.handlers.AbstractFieldContractHandler;
 import com.uber.nullaway.handlers.MethodAnalysisContext;
-import com.uber.nullaway.handlers.contract.ContractUtils;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -299,21 +298,15 @@ public class EnsuresNonNullIfHandler extends AbstractFieldContractHandler {
           node, methodSymbol, state, apContext, inputs, thenUpdates, elseUpdates, bothUpdates);
     }
 
-    Set<String> fieldNames = getAnnotationValueArray(methodSymbol, annotName, false);
-    if (fieldNames != null) {
-      fieldNames = ContractUtils.trimReceivers(fieldNames);
+    // Fields that cannot be resolved are left out; they will result in an error during validation
+    ImmutableCollection<VariableElement> fields = getFieldContract(methodSymbol, state).values();
+    if (!fields.isEmpty()) {
       boolean trueIfNonNull = getResultValueFromAnnotation(methodSymbol);
       // chosenUpdates is set to the thenUpdates or elseUpdates appropriately given the annotation's
       // result value
       AccessPathNullnessPropagation.Updates chosenUpdates =
           trueIfNonNull ? thenUpdates : elseUpdates;
-      for (String fieldName : fieldNames) {
-        VariableElement field =
-            getFieldOfClass(castToNonNull(ASTHelpers.enclosingClass(methodSymbol)), fieldName);
-        if (field == null) {
-          // Invalid annotation, will result in an error during validation.
-          continue;
-        }
+      for (VariableElement field : fields) {
         AccessPath accessPath =
             field.getModifiers().contains(Modifier.STATIC)
                 ? AccessPath.fromStaticField(field)
@@ -24,7 +24,7 @@ package com.uber.nullaway.handlers.contract.fieldcontract;
 
 import static com.uber.nullaway.NullabilityUtil.getAnnotationValueArray;
 
-import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
@@ -46,6 +46,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
@@ -138,21 +139,16 @@ public class RequiresNonNullHandler extends AbstractFieldContractHandler {
     VisitorState state = methodAnalysisContext.state();
     Symbol.MethodSymbol methodSymbol = methodAnalysisContext.methodSymbol();
     NullAway analysis = methodAnalysisContext.analysis();
-    Set<String> fieldNames = getAnnotationValueArray(methodSymbol, annotName, false);
-    if (fieldNames == null) {
+    // Fields that cannot be resolved are left out; we will report an error on the method
+    // declaration
+    ImmutableMap<String, VariableElement> fields = getFieldContract(methodSymbol, state);
+    if (fields.isEmpty()) {
       super.onMatchMethodInvocation(tree, methodAnalysisContext);
       return;
     }
-    fieldNames = ContractUtils.trimReceivers(fieldNames);
-    for (String fieldName : fieldNames) {
-      Symbol.ClassSymbol classSymbol = ASTHelpers.enclosingClass(methodSymbol);
-      Preconditions.checkNotNull(
-          classSymbol, "Could not find the enclosing class for method symbol: %s", methodSymbol);
-      VariableElement field = getFieldOfClass(classSymbol, fieldName);
-      if (field == null) {
-        // we will report an error on the method declaration
-        continue;
-      }
+    for (Map.Entry<String, VariableElement> entry : fields.entrySet()) {
+      String fieldName = entry.getKey();
+      VariableElement field = entry.getValue();
       if (field.getModifiers().contains(Modifier.STATIC)) {
         Set<Element> nonnullStaticFields =
             analysis
@@ -27,6 +27,7 @@ import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.predicates.TypePredicate;
 import com.sun.tools.javac.code.Symbol;
@@ -59,6 +60,9 @@ public class StreamTypeRecord {
   private final ImmutableSet<String> passthroughMethodSigs;
   private final ImmutableSet<String> passthroughMethodSimpleNames;
 
+  // Simple names of all the methods mentioned above, used to quickly rule out unrelated methods
+  private final ImmutableSet<String> methodNames;
+
   public StreamTypeRecord(
       TypePredicate typePredicate,
       ImmutableSet<String> filterMethodSigs,
@@ -76,6 +80,39 @@ public class StreamTypeRecord {
     this.collectMethodSigToRecords = collectMethodSigToRecords;
     this.passthroughMethodSigs = passthroughMethodSigs;
     this.passthroughMethodSimpleNames = passthroughMethodSimpleNames;
+    ImmutableSet.Builder<String> methodNamesBuilder = ImmutableSet.builder();
+    for (String sig :
+        Iterables.concat(
+            filterMethodSigs,
+            mapMethodSigToRecord.keySet(),
+            collectMethodSigToRecords.keySet(),
+            passthroughMethodSigs)) {
+      methodNamesBuilder.add(simpleNameFromSignature(sig));
+    }
+    this.methodNames =
+        methodNamesBuilder
+            .addAll(filterMethodSimpleNames)
+            .addAll(mapMethodSimpleNameToRecord.keySet())
+            .addAll(passthroughMethodSimpleNames)
+            .build();
+  }
+
+  /**
+   * Extracts the simple name of a method from a signature like {@code
+   * <R>map(java.util.function.Function<? super T,? extends R>)}.
+   */
+  private static String simpleNameFromSignature(String methodSig) {
+    int openParen = methodSig.indexOf('(');
+    String nameWithTypeParams = openParen < 0 ? methodSig : methodSig.substring(0, openParen);
+    return nameWithTypeParams.substring(nameWithTypeParams.lastIndexOf('>') + 1);
+  }
+
+  /**
+   * Returns the simple names of all the methods of this type with a filter, map, collect or
+   * pass-through model. A method whose name is not in this set has no model in this record.
+   */
+  public ImmutableSet<String> methodNames() {
+    return methodNames;
   }
 
   public boolean matchesType(Type type, VisitorState state) {
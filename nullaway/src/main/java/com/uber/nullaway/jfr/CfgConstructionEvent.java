@@ -0,0 +1,24 @@
+package com.uber.nullaway.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Construction of the control-flow graph of a method, lambda or initializer. */
+@Name("com.uber.nullaway.CfgConstruction")
+@Label("CFG Construction")
+@Category("NullAway")
+@Description("Construction of a control-flow graph")
+public final class CfgConstructionEvent extends jdk.jfr.Event {
+
+  @Label("Code")
+  @Description("The method, lambda or initializer the CFG was built for")
+  public String code = "";
+
+  @Label("Nodes")
+  public int nodes;
+
+  @Label("Blocks")
+  public int blocks;
+}
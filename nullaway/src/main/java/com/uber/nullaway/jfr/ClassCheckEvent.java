@@ -0,0 +1,23 @@
+package com.uber.nullaway.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The check of a top-level class by NullAway, including its nested classes, from the start of the
+ * check to the start of the check of the next top-level class, or the end of the compilation.
+ */
+@Name("com.uber.nullaway.ClassCheck")
+@Label("Class Check")
+@Category("NullAway")
+@Description("Check of a top-level class, including its nested classes")
+public final class ClassCheckEvent extends jdk.jfr.Event {
+
+  @Label("Class")
+  public String className = "";
+
+  @Label("Members")
+  public int members;
+}
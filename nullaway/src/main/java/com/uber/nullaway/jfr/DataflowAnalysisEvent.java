@@ -0,0 +1,33 @@
+package com.uber.nullaway.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A run of a dataflow analysis to a fixpoint over one control-flow graph. */
+@Name("com.uber.nullaway.DataflowAnalysis")
+@Label("Dataflow Analysis")
+@Category("NullAway")
+@Description("A dataflow analysis run to a fixpoint")
+public final class DataflowAnalysisEvent extends jdk.jfr.Event {
+
+  @Label("Code")
+  @Description("The method, lambda or initializer that was analyzed")
+  public String code = "";
+
+  @Label("Transfer Function")
+  public String transferFunction = "";
+
+  @Label("Nodes")
+  @Description("Number of nodes in the control-flow graph")
+  public int nodes;
+
+  @Label("Transfer Function Calls")
+  @Description("Number of nodes visited until a fixpoint was reached")
+  public int transferFunctionCalls;
+
+  @Label("Exit Store Size")
+  @Description("Number of access paths in the store at the regular exit, or -1 if not known")
+  public int exitStoreSize;
+}
@@ -0,0 +1,27 @@
+package com.uber.nullaway.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jspecify.annotations.Nullable;
+
+/** Serialization of one row of fix serialization output. */
+@Name("com.uber.nullaway.FixSerialization")
+@Label("Fix Serialization")
+@Category("NullAway")
+@Description("Serialization of an error or field initialization row")
+public final class FixSerializationEvent extends jdk.jfr.Event {
+
+  @Label("Output File")
+  public String outputFile = "";
+
+  @Label("Subject")
+  @Description("The enclosing class and member of a serialized error")
+  public @Nullable String subject;
+
+  @Label("Size")
+  @DataAmount
+  public long bytes;
+}
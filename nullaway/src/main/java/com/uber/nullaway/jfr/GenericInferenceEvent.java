@@ -0,0 +1,27 @@
+package com.uber.nullaway.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Inference of the nullability of type arguments for a call to a generic method. */
+@Name("com.uber.nullaway.GenericInference")
+@Label("Generic Method Inference")
+@Category("NullAway")
+@Description("Inference of type argument nullability for a generic method call")
+public final class GenericInferenceEvent extends jdk.jfr.Event {
+
+  @Label("Method")
+  public String method = "";
+
+  @Label("Succeeded")
+  public boolean succeeded;
+
+  @Label("Inferred Type Variables")
+  public int inferredTypeVariables;
+
+  @Label("From Dataflow")
+  @Description("Whether the inference was requested by dataflow analysis")
+  public boolean calledFromDataflow;
+}
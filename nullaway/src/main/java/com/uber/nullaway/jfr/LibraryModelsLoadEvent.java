@@ -0,0 +1,39 @@
+package com.uber.nullaway.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Loading of library models, from {@code LibraryModels} implementations and astubx files. */
+@Name("com.uber.nullaway.LibraryModelsLoad")
+@Label("Library Models Load")
+@Category("NullAway")
+@Description("Loading of library models")
+public final class LibraryModelsLoadEvent extends jdk.jfr.Event {
+
+  @Label("Model Sets")
+  @Description("Number of LibraryModels implementations and precompiled model sets loaded")
+  public int modelSets;
+
+  @Label("Precompiled Model Files")
+  public int precompiledModelFiles;
+
+  @Label("JarInfer Enabled")
+  public boolean jarInferEnabled;
+
+  @Label("JSpecify JDK Models")
+  public boolean jspecifyJdkModels;
+
+  @Label("Reused Precompiled Models")
+  @Description("Whether the precompiled models were those loaded by an earlier compilation")
+  public boolean reusedPrecompiledModels;
+
+  @Label("Reused Astubx Models")
+  @Description("Whether the astubx models were those loaded by an earlier compilation")
+  public boolean reusedAstubxModels;
+
+  @Label("Reused Library Models")
+  @Description("Whether the combined models were those built by an earlier compilation")
+  public boolean reusedLibraryModels;
+}
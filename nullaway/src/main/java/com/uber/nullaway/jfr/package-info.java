@@ -0,0 +1,10 @@
+/**
+ * Java Flight Recorder events for the phases of the analysis. Events are only recorded when a
+ * recording that enables them is running, e.g., when javac is started with {@code
+ * -J-XX:StartFlightRecording}; otherwise, {@code shouldCommit()} returns false and no event data is
+ * computed.
+ */
+@NullMarked
+package com.uber.nullaway.jfr;
+
+import org.jspecify.annotations.NullMarked;
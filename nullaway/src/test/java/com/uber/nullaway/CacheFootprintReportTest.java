@@ -0,0 +1,122 @@
+package com.uber.nullaway;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Test;
+
+public class CacheFootprintReportTest extends NullAwayTestsBase {
+
+  @Test
+  public void writesReport() throws Exception {
+    Path report = temporaryFolder.getRoot().toPath().resolve("reports/caches.tsv");
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:CacheFootprintReportPath=" + report))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              int m(@Nullable Object o) {
+                return o != null ? o.hashCode() : 0;
+              }
+            }
+            class Other {
+              void n() {}
+            }
+            """)
+        .doTest();
+    List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+    assertThat(lines.get(0)).isEqualTo("scope\tcache\tentries\testimated_bytes");
+    List<String> rows = lines.subList(1, lines.size());
+    // Test is measured when NullAway moves on to Other, before the caches are cleared
+    String cfgCache = find(rows, "com.uber.Test\tDataFlow.cfgCache\t");
+    assertThat(Long.parseLong(cfgCache.split("\t")[2])).isGreaterThan(0L);
+    assertThat(Long.parseLong(cfgCache.split("\t")[3])).isGreaterThan(0L);
+    find(rows, "com.uber.Test\tNullAway.class2Entities\t");
+    find(rows, "com.uber.Test\tCodeAnnotationInfo.classCache\t");
+    find(rows, "com.uber.Test\tLibraryModelsHandler.libraryModels\t");
+    find(rows, "<end of compilation>\tDataFlow.cfgCache\t");
+  }
+
+  @Test
+  public void releasesEnvironmentMappings() throws Exception {
+    Path report = temporaryFolder.getRoot().toPath().resolve("caches.tsv");
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:CacheFootprintReportPath=" + report))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              void m(@Nullable Object o) {
+                if (o != null) {
+                  Runnable r1 = () -> o.hashCode();
+                  Runnable r2 = () -> o.hashCode();
+                  Runnable r3 = () -> o.hashCode();
+                }
+              }
+            }
+            class Other {}
+            """)
+        .doTest();
+    List<String> rows = Files.readAllLines(report, StandardCharsets.UTF_8);
+    // the mappings for r1 and r2 are released once NullAway moves on to the next lambda
+    String environment = find(rows, "com.uber.Test\tEnclosingEnvironmentNullness.");
+    assertThat(environment.split("\t")[2]).isEqualTo("1");
+  }
+
+  @Test
+  public void trimsCapturedEnvironment() throws Exception {
+    long untrimmed = environmentBytes(false);
+    long trimmed = environmentBytes(true);
+    // the trimmed environment of the lambda only keeps the fact on o1
+    assertThat(trimmed).isGreaterThan(0L);
+    assertThat(trimmed).isLessThan(untrimmed);
+  }
+
+  private long environmentBytes(boolean trim) throws Exception {
+    Path report = temporaryFolder.getRoot().toPath().resolve("caches-" + trim + ".tsv");
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:TrimCapturedEnvironment=" + trim,
+                "-XepOpt:NullAway:CacheFootprintReportPath=" + report))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              void m(@Nullable Object o1, @Nullable Object o2, @Nullable Object o3) {
+                if (o1 != null && o2 != null && o3 != null) {
+                  Runnable r = () -> o1.hashCode();
+                }
+              }
+            }
+            class Other {}
+            """)
+        .doTest();
+    List<String> rows = Files.readAllLines(report, StandardCharsets.UTF_8);
+    String environment = find(rows, "com.uber.Test\tEnclosingEnvironmentNullness.");
+    return Long.parseLong(environment.split("\t")[3]);
+  }
+
+  private static String find(List<String> rows, String prefix) {
+    for (String row : rows) {
+      if (row.startsWith(prefix)) {
+        return row;
+      }
+    }
+    throw new AssertionError("no row starting with " + prefix + " in " + rows);
+  }
+}
@@ -525,6 +525,55 @@ public class CoreTests extends NullAwayTestsBase {
     defaultCompilationHelper.addSourceFile("testdata/CapturingScopes.java").doTest();
   }
 
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testCapturingScopesTrimmedEnvironment() {
+    makeTestHelperWithArgs(
+            Arrays.asList(
+                "-d",
+                temporaryFolder.getRoot().getAbsolutePath(),
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:TrimCapturedEnvironment=true"))
+        .addSourceFile("testdata/CapturingScopes.java")
+        .doTest();
+  }
+
+  @Test
+  public void trimmedEnvironmentKeepsFieldsRequiredByCalledMethods() {
+    makeTestHelperWithArgs(
+            Arrays.asList(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:TrimCapturedEnvironment=true"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import com.uber.nullaway.annotations.RequiresNonNull;
+            import javax.annotation.Nullable;
+            class Test {
+              @Nullable final Object f;
+              @Nullable final Object g;
+              Test(@Nullable Object f, @Nullable Object g) {
+                this.f = f;
+                this.g = g;
+              }
+              @RequiresNonNull("f")
+              void useF() {}
+              @RequiresNonNull("g")
+              void useG() {}
+              void m() {
+                if (f != null) {
+                  // the lambda does not name f, but the precondition of useF needs the fact on it
+                  Runnable r1 = () -> useF();
+                  // BUG: Diagnostic contains: Expected field g to be non-null at call site
+                  Runnable r2 = () -> useG();
+                }
+              }
+            }
+            """)
+        .doTest();
+  }
+
   @Test
   public void testEnhancedFor() {
     defaultCompilationHelper
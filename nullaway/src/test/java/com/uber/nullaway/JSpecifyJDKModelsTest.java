@@ -33,6 +33,31 @@ public class JSpecifyJDKModelsTest extends NullAwayTestsBase {
     compilationTestHelper.doTest();
   }
 
+  @Test
+  public void modelsEnabledReadsClassModels() {
+    makeTestHelperWithArgs(
+            JSpecifyJavacConfig.withJSpecifyModeArgs(
+                List.of("-XepOpt:NullAway:AnnotatedPackages=foo")))
+        .addSourceLines(
+            "Test.java",
+            """
+            package foo;
+            import javax.naming.directory.Attributes;
+            import org.jspecify.annotations.NullMarked;
+            @NullMarked
+            class Test {
+              void use(Attributes attrs) {
+                // the model of Attributes is only read when one of its methods is first used
+                // BUG: Diagnostic contains: dereferenced expression 'attrs.get("key")' is @Nullable
+                attrs.get("key").toString();
+                // BUG: Diagnostic contains: dereferenced expression 'attrs.get("other")'
+                attrs.get("other").toString();
+              }
+            }
+            """)
+        .doTest();
+  }
+
   @Test
   public void listContainingNullsWithModel() {
     makeTestHelperWithArgs(
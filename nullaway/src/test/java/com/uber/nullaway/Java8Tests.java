@@ -566,4 +566,63 @@ public class Java8Tests extends NullAwayTestsBase {
             """)
         .doTest();
   }
+
+  @Test
+  public void streamChainsAcrossMethodsAndNestedClasses() {
+    defaultCompilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            import java.util.List;
+            import java.util.function.Function;
+            import java.util.function.Predicate;
+            import java.util.stream.Stream;
+            public class Test {
+              @Nullable
+              private String value;
+              @Nullable
+              public String getValue() { return value; }
+              private final Stream<String> fieldChain =
+                  Stream.of(new Test())
+                      .filter(
+                          new Predicate<Test>() {
+                            @Override
+                            public boolean test(Test t) {
+                              return t.getValue() != null;
+                            }
+                          })
+                      .map(
+                          new Function<Test, String>() {
+                            @Override
+                            public String apply(Test t) {
+                              return t.getValue().toUpperCase();
+                            }
+                          });
+              public Stream<String> first(List<Test> testList) {
+                return testList.stream()
+                    .filter(test -> test.getValue() != null)
+                    .map(
+                        new Function<Test, String>() {
+                          @Override
+                          public String apply(Test t) {
+                            return t.getValue().toUpperCase();
+                          }
+                        });
+              }
+              public Stream<String> second(List<Test> testList) {
+                return testList.stream()
+                    .filter(test -> test.getValue() != null)
+                    .map(c -> c.getValue().toUpperCase());
+              }
+              public Stream<String> unfiltered(List<Test> testList) {
+                return testList.stream()
+                    // BUG: Diagnostic contains: dereferenced expression c.getValue() is @Nullable
+                    .map(c -> c.getValue().toUpperCase());
+              }
+            }
+            """)
+        .doTest();
+  }
 }
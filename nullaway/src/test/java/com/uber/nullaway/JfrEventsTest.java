@@ -0,0 +1,216 @@
+package com.uber.nullaway;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.uber.nullaway.fixserialization.FixSerializationConfig;
+import com.uber.nullaway.generics.JSpecifyJavacConfig;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class JfrEventsTest extends NullAwayTestsBase {
+
+  @Test
+  public void analysisPhasesAreRecorded() throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      for (String name :
+          List.of(
+              "com.uber.nullaway.ClassCheck",
+              "com.uber.nullaway.CfgConstruction",
+              "com.uber.nullaway.DataflowAnalysis",
+              "com.uber.nullaway.GenericInference",
+              "com.uber.nullaway.LibraryModelsLoad")) {
+        recording.enable(name).withoutThreshold();
+      }
+      recording.start();
+      makeTestHelperWithArgs(
+              List.of(
+                  "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                  "-XepOpt:NullAway:JSpecifyMode=true",
+                  "-XDaddTypeAnnotationsToSymbol=true"))
+          .addSourceLines(
+              "Test.java",
+              """
+              package com.uber;
+              import org.jspecify.annotations.Nullable;
+              class Test {
+                static <T extends @Nullable Object> T id(T t) {
+                  return t;
+                }
+                @Nullable Object f;
+                int m() {
+                  Object o = f;
+                  String s = id("foo");
+                  return o != null ? o.hashCode() : s.length();
+                }
+              }
+              """)
+          .doTest();
+      recording.stop();
+      Path dump = temporaryFolder.newFile("nullaway.jfr").toPath();
+      recording.dump(dump);
+      events = RecordingFile.readAllEvents(dump);
+    }
+    assertThat(events.stream().map(e -> e.getEventType().getName()).collect(Collectors.toSet()))
+        .containsAtLeast(
+            "com.uber.nullaway.ClassCheck",
+            "com.uber.nullaway.CfgConstruction",
+            "com.uber.nullaway.DataflowAnalysis",
+            "com.uber.nullaway.GenericInference",
+            "com.uber.nullaway.LibraryModelsLoad");
+    RecordedEvent classCheck =
+        events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.uber.nullaway.ClassCheck"))
+            .findFirst()
+            .orElseThrow();
+    assertThat(classCheck.getString("className")).isEqualTo("com.uber.Test");
+    assertThat(classCheck.getInt("members")).isGreaterThan(0);
+    RecordedEvent dataflow =
+        events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.uber.nullaway.DataflowAnalysis"))
+            .filter(e -> e.getString("code").equals("com.uber.Test.m()"))
+            .findFirst()
+            .orElseThrow();
+    assertThat(dataflow.getInt("nodes")).isGreaterThan(0);
+    assertThat(dataflow.getInt("transferFunctionCalls")).isGreaterThan(0);
+    // the class check spans the checks of the methods of the class
+    assertThat(classCheck.getStartTime()).isAtMost(dataflow.getStartTime());
+    assertThat(classCheck.getEndTime()).isAtLeast(dataflow.getEndTime());
+  }
+
+  @Test
+  public void libraryModelsAreReused() throws Exception {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable("com.uber.nullaway.LibraryModelsLoad").withoutThreshold();
+      recording.start();
+      // the second compilation takes the models loaded by the first, unless an earlier test
+      // loaded them already
+      for (int i = 0; i < 2; i++) {
+        makeTestHelperWithArgs(
+                JSpecifyJavacConfig.withJSpecifyModeArgs(
+                    List.of(
+                        "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                        "-XepOpt:NullAway:ReuseLibraryModels=true")))
+            .addSourceLines(
+                "Test.java",
+                """
+                package com.uber;
+                import java.util.Map;
+                class Test {
+                  int m(Map<String, String> map) {
+                    // BUG: Diagnostic contains: dereferenced expression 'map.get("key")'
+                    return map.get("key").length();
+                  }
+                }
+                """)
+            .doTest();
+      }
+      recording.stop();
+      Path dump = temporaryFolder.newFile("nullaway.jfr").toPath();
+      recording.dump(dump);
+      events = RecordingFile.readAllEvents(dump);
+    }
+    RecordedEvent secondLoad =
+        events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.uber.nullaway.LibraryModelsLoad"))
+            .max(Comparator.comparing(RecordedEvent::getStartTime))
+            .orElseThrow();
+    assertThat(secondLoad.getBoolean("jspecifyJdkModels")).isTrue();
+    assertThat(secondLoad.getBoolean("reusedPrecompiledModels")).isTrue();
+    assertThat(secondLoad.getBoolean("reusedAstubxModels")).isTrue();
+    assertThat(secondLoad.getBoolean("reusedLibraryModels")).isTrue();
+  }
+
+  @Test
+  public void reusedLibraryModelsFollowSkippedModels() {
+    // both compilations reuse library models, but skip different models
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:ReuseLibraryModels=true"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            class Test {
+              int m(Throwable t) {
+                // BUG: Diagnostic contains: dereferenced expression 't.getMessage()' is @Nullable
+                return t.getMessage().length();
+              }
+            }
+            """)
+        .doTest();
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:ReuseLibraryModels=true",
+                "-XepOpt:NullAway:IgnoreLibraryModelsFor=java.lang.Throwable.getMessage"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            class Test {
+              int m(Throwable t) {
+                return t.getMessage().length();
+              }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  public void fixSerializationSizeIsInBytes() throws Exception {
+    Path output = temporaryFolder.newFolder("fixes").toPath();
+    Path config = output.resolve("serializer.xml");
+    new FixSerializationConfig.Builder()
+        .setOutputDirectory(output.toString())
+        .writeAsXML(config.toString());
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable("com.uber.nullaway.FixSerialization").withoutThreshold();
+      recording.start();
+      makeTestHelperWithArgs(
+              List.of(
+                  "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                  "-XepOpt:NullAway:SerializeFixMetadata=true",
+                  "-XepOpt:NullAway:SerializeFixMetadataVersion=3",
+                  "-XepOpt:NullAway:FixSerializationConfigPath=" + config))
+          .addSourceLines(
+              "Test.java",
+              """
+              package com.uber;
+              class Test {
+                Object résumé() {
+                  // BUG: Diagnostic contains: returning @Nullable
+                  return null;
+                }
+              }
+              """)
+          .doTest();
+      recording.stop();
+      Path dump = temporaryFolder.newFile("nullaway.jfr").toPath();
+      recording.dump(dump);
+      events = RecordingFile.readAllEvents(dump);
+    }
+    Path errors = output.resolve("errors.tsv");
+    List<RecordedEvent> errorEvents =
+        events.stream()
+            .filter(e -> e.getString("outputFile").equals(errors.toString()))
+            .collect(Collectors.toList());
+    assertThat(errorEvents).hasSize(1);
+    // the row names the method, whose name takes more bytes than chars in UTF-8
+    String row = Files.readAllLines(errors, StandardCharsets.UTF_8).get(1) + "\n";
+    assertThat(row).contains("résumé");
+    assertThat(errorEvents.get(0).getLong("bytes"))
+        .isEqualTo((long) row.getBytes(StandardCharsets.UTF_8).length);
+  }
+}
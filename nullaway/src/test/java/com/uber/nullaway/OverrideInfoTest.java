@@ -0,0 +1,170 @@
+package com.uber.nullaway;
+
+import java.util.List;
+import org.junit.Test;
+
+public class OverrideInfoTest extends NullAwayTestsBase {
+
+  @Test
+  public void overriddenMethodsOfInterfaces() {
+    makeTestHelperWithArgs(List.of("-XepOpt:NullAway:AnnotatedPackages=com.uber"))
+        .addSourceLines(
+            "I.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            interface I {
+              Object get();
+              void set(@Nullable Object o);
+            }
+            """)
+        .addSourceLines(
+            "J.java",
+            """
+            package com.uber;
+            interface J extends I {}
+            """)
+        .addSourceLines(
+            "A.java",
+            """
+            package com.uber;
+            abstract class A implements J {
+              abstract Object other();
+            }
+            """)
+        .addSourceLines(
+            "B.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class B extends A {
+              @Override
+              // BUG: Diagnostic contains: but superclass method com.uber.I.get() returns @NonNull
+              public @Nullable Object get() {
+                return null;
+              }
+              @Override
+              // BUG: Diagnostic contains: parameter o is @NonNull, but parameter in superclass method com.uber.I.set
+              public void set(Object o) {}
+              @Override
+              // BUG: Diagnostic contains: but superclass method com.uber.A.other() returns @NonNull
+              @Nullable Object other() {
+                return null;
+              }
+            }
+            """)
+        .addSourceLines(
+            "C.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            // a second subclass, resolved through the tables of the same supertypes
+            class C extends A {
+              @Override
+              public Object get() {
+                return this;
+              }
+              @Override
+              public void set(@Nullable Object o) {}
+              @Override
+              Object other() {
+                return this;
+              }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  public void overriddenMethodsOfGenericSupertypes() {
+    makeTestHelperWithArgs(List.of("-XepOpt:NullAway:AnnotatedPackages=com.uber"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              interface Sup<T> {
+                T get();
+              }
+              interface Cons<T> {
+                void accept(@Nullable T t);
+              }
+              // the overriding methods have other erasures than the overridden ones, so javac will
+              // generate bridge methods for them
+              static class StringSup implements Sup<String> {
+                @Override
+                // BUG: Diagnostic contains: but superclass method com.uber.Test.Sup.get() returns @NonNull
+                public @Nullable String get() {
+                  return null;
+                }
+              }
+              static class StringCons implements Cons<String> {
+                @Override
+                // BUG: Diagnostic contains: parameter s is @NonNull, but parameter in superclass method com.uber.Test.Cons.accept
+                public void accept(String s) {}
+              }
+              static class NullableStringCons implements Cons<String> {
+                @Override
+                public void accept(@Nullable String s) {}
+              }
+              // not an override: another overload of the same name
+              static class Overload implements Cons<String> {
+                @Override
+                public void accept(@Nullable String s) {}
+                public void accept(Integer i) {}
+              }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  public void overriddenMethodsThroughUnannotatedSupertypes() {
+    makeTestHelperWithArgs(List.of("-XepOpt:NullAway:AnnotatedPackages=com.uber"))
+        .addSourceLines(
+            "Base.java",
+            """
+            package com.uber;
+            public class Base {
+              public Object m() {
+                return this;
+              }
+            }
+            """)
+        .addSourceLines(
+            "Mid.java",
+            """
+            package com.other;
+            import javax.annotation.Nullable;
+            public class Mid extends com.uber.Base {
+              public @Nullable Object n() {
+                return null;
+              }
+              public void p(Object o) {}
+            }
+            """)
+        .addSourceLines(
+            "Sub.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Sub extends com.other.Mid {
+              // m is declared in annotated code, above the unannotated class
+              @Override
+              // BUG: Diagnostic contains: but superclass method com.uber.Base.m() returns @NonNull
+              public @Nullable Object m() {
+                return null;
+              }
+              // no errors for overrides of unannotated methods
+              @Override
+              public @Nullable Object n() {
+                return null;
+              }
+              @Override
+              public void p(@Nullable Object o) {}
+            }
+            """)
+        .doTest();
+  }
+}
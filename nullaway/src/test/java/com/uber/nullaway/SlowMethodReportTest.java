@@ -0,0 +1,158 @@
+package com.uber.nullaway;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.truth.Correspondence;
+import com.google.errorprone.ErrorProneFlags;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class SlowMethodReportTest extends NullAwayTestsBase {
+
+  @Test
+  public void writesReport() throws Exception {
+    Path report = temporaryFolder.getRoot().toPath().resolve("reports/slow-methods.tsv");
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:SlowMethodReportPath=" + report))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              int m(@Nullable Object o) {
+                Runnable r = () -> {};
+                return o != null ? o.hashCode() : 0;
+              }
+            }
+            """)
+        .doTest();
+    List<String> lines = Files.readAllLines(report, StandardCharsets.UTF_8);
+    assertThat(lines.get(0)).startsWith("total_ms\t");
+    List<String> rows = lines.subList(1, lines.size());
+    assertThat(rows)
+        .comparingElementsUsing(Correspondence.<String, String>from(String::contains, "contains"))
+        .containsAtLeast(
+            "Test.java:4\tcom.uber.Test.m(java.lang.Object)",
+            "Test.java:5\tlambda in com.uber.Test.m(java.lang.Object)");
+    // the slowest method comes first
+    List<Double> totals = rows.stream().map(row -> Double.valueOf(row.split("\t")[0])).toList();
+    assertThat(totals).isInOrder(Comparator.reverseOrder());
+  }
+
+  @Test
+  public void reportSize() throws Exception {
+    Path report = temporaryFolder.getRoot().toPath().resolve("slow-methods.tsv");
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:SlowMethodReportPath=" + report,
+                "-XepOpt:NullAway:SlowMethodReportSize=2"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            class Test {
+              void m1() {}
+              void m2() {}
+              void m3() {}
+            }
+            """)
+        .doTest();
+    // the header and two methods
+    assertThat(Files.readAllLines(report, StandardCharsets.UTF_8)).hasSize(3);
+  }
+
+  @Test
+  public void skipsDataflowOverBudget() {
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:DataflowIterationBudget=1"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              // BUG: Diagnostic contains: exceeded its budget of 1 transfer function calls
+              int m(Object o) {
+                return o.hashCode();
+              }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  public void usesDeclaredNullnessOverBudget() {
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:DataflowIterationBudget=1"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            import javax.annotation.Nullable;
+            class Test {
+              // BUG: Diagnostic contains: checked against declared nullness only
+              int m(@Nullable Object o, Object p) {
+                // BUG: Diagnostic contains: dereferenced expression o is @Nullable
+                return o.hashCode() + p.hashCode();
+              }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  public void noInitializationErrorsOverBudget() {
+    makeTestHelperWithArgs(
+            List.of(
+                "-XepOpt:NullAway:AnnotatedPackages=com.uber",
+                "-XepOpt:NullAway:DataflowIterationBudget=1"))
+        .addSourceLines(
+            "Test.java",
+            """
+            package com.uber;
+            // BUG: Diagnostic contains: exceeded its budget
+            class Test {
+              Object f;
+              static Object g;
+              static {
+                g = new Object();
+              }
+              // BUG: Diagnostic contains: exceeded its budget
+              Test(Object o) {
+                if (o.hashCode() > 0) {
+                  this.f = o;
+                } else {
+                  f = new Object();
+                }
+              }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  public void negativeBudgetFails() {
+    ErrorProneFlags flags =
+        ErrorProneFlags.fromMap(
+            Map.of(
+                "NullAway:AnnotatedPackages", "com.uber",
+                "NullAway:DataflowTimeBudgetMillis", "-1"));
+    IllegalStateException e =
+        assertThrows(IllegalStateException.class, () -> new ErrorProneCLIFlagsConfig(flags));
+    assertThat(e).hasMessageThat().contains("must not be negative");
+  }
+}
@@ -0,0 +1,96 @@
+package com.uber.nullaway.handlers;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.scanner.ErrorProneScanner;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.uber.nullaway.NullAway;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamNullabilityPropagatorTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void propagatesThroughStreamsInLaterCompilations() throws IOException {
+    Path source = temporaryFolder.getRoot().toPath().resolve("Test.java");
+    Files.writeString(
+        source,
+        """
+        package com.uber;
+        import java.util.List;
+        import java.util.stream.Collectors;
+        import javax.annotation.Nullable;
+        class Test {
+          static class Item {
+            @Nullable Object o;
+          }
+          List<Integer> hashes(List<Item> items) {
+            return items.stream()
+                .filter(item -> item.o != null)
+                .map(item -> item.o.hashCode())
+                .collect(Collectors.toList());
+          }
+        }
+        """,
+        StandardCharsets.UTF_8);
+    // the same NullAway instance, and so the same handlers, checks both compilations, as in a
+    // build daemon; the models are indexed with the javac Names of each compilation
+    NullAway nullAway =
+        new NullAway(
+            ErrorProneFlags.fromMap(ImmutableMap.of("NullAway:AnnotatedPackages", "com.uber")));
+    ErrorProneJavaCompiler compiler =
+        new ErrorProneJavaCompiler(ScannerSupplier.fromScanner(new ErrorProneScanner(nullAway)));
+    assertThat(nullAwayDiagnostics(compiler, source)).isEmpty();
+    assertThat(nullAwayDiagnostics(compiler, source)).isEmpty();
+  }
+
+  private static List<String> nullAwayDiagnostics(ErrorProneJavaCompiler compiler, Path source)
+      throws IOException {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8)) {
+      List<String> options =
+          List.of(
+              "-XDcompilePolicy=simple",
+              "--should-stop=ifError=FLOW",
+              "--should-stop=ifNoError=FLOW",
+              "-proc:none",
+              "-classpath",
+              System.getProperty("java.class.path"));
+      compiler
+          .getTask(
+              null,
+              fileManager,
+              diagnostics,
+              options,
+              null,
+              fileManager.getJavaFileObjects(source))
+          .call();
+    }
+    List<String> messages = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      String message = diagnostic.getMessage(Locale.ROOT);
+      if (message.contains("[NullAway]") || diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        messages.add(message);
+      }
+    }
+    return messages;
+  }
+}